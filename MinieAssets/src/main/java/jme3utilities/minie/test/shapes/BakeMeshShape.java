@@ -0,0 +1,141 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test.shapes;
+
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.asset.plugins.ClasspathLocator;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.util.BakedMeshLoader;
+import com.jme3.material.plugins.J3MLoader;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.plugins.gltf.GlbLoader;
+import com.jme3.scene.plugins.gltf.GltfLoader;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Heart;
+import jme3utilities.MyString;
+
+/**
+ * A console application to bake the collision shape of static level geometry,
+ * writing its mesh and bounding-value hierarchy to a file that
+ * BakedMeshLoader can load without rebuilding the hierarchy.
+ * <p>
+ * Usage: BakeMeshShape modelAssetPath outputFilePath [assetRootPath]
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BakeMeshShape {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final private static Logger logger
+            = Logger.getLogger(BakeMeshShape.class.getName());
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the BakeMeshShape application.
+     *
+     * @param arguments array of command-line arguments (not null)
+     */
+    public static void main(String[] arguments) {
+        if (arguments.length < 2 || arguments.length > 3) {
+            System.err.println("Usage: BakeMeshShape modelAssetPath "
+                    + "outputFilePath [assetRootPath]");
+            System.exit(-1);
+        }
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        /*
+         * Mute the chatty loggers found in some imported packages.
+         */
+        Heart.setLoggingLevels(Level.WARNING);
+        /*
+         * Set the logging level for this class.
+         */
+        //logger.setLevel(Level.INFO);
+        /*
+         * Instantiate the application.
+         */
+        BakeMeshShape application = new BakeMeshShape();
+        /*
+         * Log the working directory.
+         */
+        String userDir = System.getProperty("user.dir");
+        logger.log(Level.INFO, "working directory is {0}",
+                MyString.quote(userDir));
+        /*
+         * Bake the collision shape.
+         */
+        String rootPath = (arguments.length > 2) ? arguments[2] : null;
+        application.bake(arguments[0], arguments[1], rootPath);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Bake a collision shape for the specified model.
+     *
+     * @param modelAssetPath the asset path of the model (not null)
+     * @param outputFilePath the filesystem path for output (not null)
+     * @param assetRootPath a filesystem directory to search for the model, or
+     * null to search only the classpath
+     */
+    private void bake(String modelAssetPath, String outputFilePath,
+            String assetRootPath) {
+        DesktopAssetManager assetManager = new DesktopAssetManager();
+        assetManager.registerLoader(GlbLoader.class, "glb");
+        assetManager.registerLoader(GltfLoader.class, "gltf");
+        assetManager.registerLoader(J3MLoader.class, "j3md");
+        assetManager.registerLocator(null, ClasspathLocator.class);
+        if (assetRootPath != null) {
+            assetManager.registerLocator(assetRootPath, FileLocator.class);
+        }
+
+        Spatial cgmRoot = assetManager.loadModel(modelAssetPath);
+
+        File outputFile = new File(outputFilePath);
+        long startTime = System.nanoTime();
+        MeshCollisionShape shape;
+        try {
+            shape = BakedMeshLoader.bake(cgmRoot, outputFile);
+        } catch (IOException exception) {
+            System.err.println("BakeMeshShape failed: " + exception);
+            System.exit(-1);
+            return;
+        }
+        long elapsedNsec = System.nanoTime() - startTime;
+        System.out.printf("BakeMeshShape number of triangles = %d (%.3f sec)%n",
+                shape.countMeshTriangles(), elapsedNsec * 1e-9f);
+    }
+}
@@ -77,7 +77,20 @@ public class BulletAppState
          * Parallel threaded mode: physics update and rendering are executed in
          * parallel, update order is maintained.
          */
-        PARALLEL
+        PARALLEL,
+        /**
+         * Pipelined mode: each physics step runs on a separate thread from the
+         * start of one update until the start of the next, overlapping the
+         * user update and rendering. Physics controls read a snapshot of
+         * rigid-body transforms captured at the start of the update, so the
+         * scene lags the simulation by one frame. Between updates, modify
+         * physics objects only via PhysicsSpace.enqueue(), command buffers, or
+         * tick listeners. RigidBodyControl and GhostControl stage their
+         * kinematic transforms in the snapshot. Controls derived from
+         * AbstractPhysicsControl (such as BetterCharacterControl and
+         * DynamicAnimControl) and debug visualization aren't supported.
+         */
+        PIPELINED
     }
     // *************************************************************************
     // constants and loggers
@@ -113,8 +126,7 @@ public class BulletAppState
             = new Callable<Boolean>() {
         @Override
         public Boolean call() throws Exception {
-            PhysicsSpace pSpace = debugConfig.getSpace();
-            pSpace.update(isEnabled() ? tpf * speed : 0f);
+            stepPhysics();
             return true;
         }
     };
@@ -122,6 +134,15 @@ public class BulletAppState
      * configuration for debug visualization
      */
     final private DebugConfiguration debugConfig = new DebugConfiguration();
+    /**
+     * driver for interpolated fixed-step simulation, or null if not in use
+     */
+    private FixedStepDriver fixedStepDriver;
+    /**
+     * simulation time per step for interpolated fixed-step simulation (in
+     * seconds), or 0 to let the PhysicsSpace choose its substeps
+     */
+    private float fixedTimeStep = 0f;
     /**
      * simulation speed multiplier (paused=0)
      */
@@ -130,6 +151,10 @@ public class BulletAppState
      * time interval between frames (in seconds) from the most recent update
      */
     private float tpf;
+    /**
+     * profiler to install in the PhysicsSpace, or null for none
+     */
+    private PhysicsProfiler profiler;
     /**
      * current physics task, or null if none
      */
@@ -260,6 +285,17 @@ public class BulletAppState
         return debugConfig.getCamera();
     }
 
+    /**
+     * Determine the simulation time per step for interpolated fixed-step
+     * simulation.
+     *
+     * @return the step size (in seconds, &gt;0) or 0 if disabled
+     */
+    public float getFixedTimeStep() {
+        assert fixedTimeStep >= 0f : fixedTimeStep;
+        return fixedTimeStep;
+    }
+
     /**
      * Access the PhysicsSpace managed by this state. Normally there is none
      * until the state is attached.
@@ -270,6 +306,15 @@ public class BulletAppState
         return debugConfig.getSpace();
     }
 
+    /**
+     * Access the profiler installed in the PhysicsSpace.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public PhysicsProfiler getProfiler() {
+        return profiler;
+    }
+
     /**
      * Determine which constraint solver the PhysicsSpace will use.
      *
@@ -379,12 +424,13 @@ public class BulletAppState
 
     /**
      * Enable or disable debug visualization. Changes take effect on the next
-     * update.
+     * update. Enabling isn't allowed in PIPELINED mode.
      *
      * @param debugEnabled true &rarr; enable, false &rarr; disable
      * (default=false)
      */
     public void setDebugEnabled(boolean debugEnabled) {
+        assert !debugEnabled || threadingType != ThreadingType.PIPELINED;
         debugConfig.setEnabled(debugEnabled);
     }
 
@@ -489,6 +535,38 @@ public class BulletAppState
         debugConfig.setViewPorts(viewPorts);
     }
 
+    /**
+     * Enable or disable interpolated fixed-step simulation. When enabled, the
+     * space is stepped in whole steps of the specified size by a
+     * FixedStepDriver, up to maxSubSteps per frame, and physics controls
+     * render poses interpolated between the 2 most recent steps. Not allowed
+     * after attaching the app state. Ignored in PIPELINED mode.
+     *
+     * @param stepSize the desired simulation time per step (in seconds,
+     * &gt;0) or 0 to let the PhysicsSpace choose its substeps (default=0)
+     */
+    public void setFixedTimeStep(float stepSize) {
+        Validate.nonNegative(stepSize, "step size");
+        assert !isRunning;
+
+        fixedTimeStep = stepSize;
+    }
+
+    /**
+     * Alter the profiler installed in the PhysicsSpace. Effective immediately,
+     * even if physics is running.
+     *
+     * @param newProfiler the desired profiler, or null for none (alias
+     * created, default=null)
+     */
+    public void setProfiler(PhysicsProfiler newProfiler) {
+        profiler = newProfiler;
+        PhysicsSpace pSpace = debugConfig.getSpace();
+        if (pSpace != null) {
+            pSpace.setProfiler(newProfiler);
+        }
+    }
+
     /**
      * Alter which constraint solver the PhysicsSpace will use. Not allowed
      * after attaching the AppState.
@@ -520,6 +598,8 @@ public class BulletAppState
      */
     public void setThreadingType(ThreadingType threadingType) {
         assert !isRunning;
+        assert threadingType != ThreadingType.PIPELINED
+                || !debugConfig.isEnabled();
         this.threadingType = threadingType;
     }
 
@@ -575,11 +655,17 @@ public class BulletAppState
         PhysicsSpace pSpace;
         switch (threadingType) {
             case PARALLEL:
+            case PIPELINED:
                 boolean success = startPhysicsOnExecutor();
                 assert success;
 
                 pSpace = debugConfig.getSpace();
                 assert pSpace != null;
+                if (threadingType == ThreadingType.PIPELINED) {
+                    TransformSnapshot snapshot = new TransformSnapshot(64);
+                    snapshot.setDeferringWrites(true);
+                    pSpace.setTransformSnapshot(snapshot);
+                }
                 break;
 
             case SEQUENTIAL:
@@ -591,6 +677,13 @@ public class BulletAppState
             default:
                 throw new IllegalStateException(threadingType.toString());
         }
+        pSpace.setProfiler(profiler);
+
+        if (fixedTimeStep > 0f && threadingType != ThreadingType.PIPELINED) {
+            int maxSteps = Math.max(1, pSpace.maxSubSteps());
+            fixedStepDriver
+                    = new FixedStepDriver(pSpace, fixedTimeStep, maxSteps);
+        }
 
         setRunning(true);
     }
@@ -603,11 +696,14 @@ public class BulletAppState
             return;
         }
 
+        awaitPhysics();
         if (executor != null) {
             executor.shutdown();
             executor = null;
         }
+        fixedStepDriver = null;
         PhysicsSpace pSpace = debugConfig.getSpace();
+        pSpace.setTransformSnapshot(null);
         pSpace.removeTickListener(this);
         setPhysicsSpace(null);
         setRunning(false);
@@ -769,13 +865,8 @@ public class BulletAppState
     public void postRender() {
         super.postRender();
 
-        if (physicsFuture != null) {
-            try {
-                physicsFuture.get();
-                physicsFuture = null;
-            } catch (InterruptedException | ExecutionException exception) {
-                throw new RuntimeException(exception);
-            }
+        if (threadingType == ThreadingType.PARALLEL) {
+            awaitPhysics();
         }
     }
 
@@ -793,8 +884,7 @@ public class BulletAppState
         if (threadingType == ThreadingType.PARALLEL) {
             physicsFuture = executor.submit(parallelPhysicsUpdate);
         } else if (threadingType == ThreadingType.SEQUENTIAL) {
-            PhysicsSpace pSpace = debugConfig.getSpace();
-            pSpace.update(isEnabled() ? tpf * speed : 0f);
+            stepPhysics();
         }
     }
 
@@ -812,7 +902,7 @@ public class BulletAppState
         if (!isRunning) {
             startPhysics();
         }
-        if (threadingType == ThreadingType.PARALLEL) {
+        if (threadingType != ThreadingType.SEQUENTIAL) {
             PhysicsSpace pSpace = debugConfig.getSpace();
             PhysicsSpace.setLocalThreadPhysicsSpace(pSpace);
         }
@@ -847,7 +937,25 @@ public class BulletAppState
         }
 
         PhysicsSpace pSpace = debugConfig.getSpace();
-        pSpace.distributeEvents();
+        if (threadingType == ThreadingType.PIPELINED) {
+            /*
+             * Finish the step started during the previous update, capture its
+             * results, and immediately start the next step.
+             */
+            awaitPhysics();
+            TransformSnapshot snapshot = pSpace.getTransformSnapshot();
+            boolean profiling = profiler != null && profiler.isEnabled();
+            long startNanos = profiling ? System.nanoTime() : 0L;
+            snapshot.capture(pSpace);
+            if (profiling) {
+                profiler.addNanos(PhysicsProfiler.Phase.CAPTURE,
+                        System.nanoTime() - startNanos);
+            }
+            pSpace.distributeEvents();
+            physicsFuture = executor.submit(parallelPhysicsUpdate);
+        } else {
+            pSpace.distributeEvents();
+        }
     }
     // *************************************************************************
     // PhysicsTickListener methods
@@ -875,4 +983,34 @@ public class BulletAppState
     public void prePhysicsTick(PhysicsSpace space, float timeStep) {
         // do nothing
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Wait for the current physics task, if any, to complete.
+     */
+    private void awaitPhysics() {
+        if (physicsFuture != null) {
+            try {
+                physicsFuture.get();
+                physicsFuture = null;
+            } catch (InterruptedException | ExecutionException exception) {
+                throw new RuntimeException(exception);
+            }
+        }
+    }
+
+    /**
+     * Step the physics simulation by the current frame's time, using the
+     * fixed-step driver if there is one.
+     */
+    private void stepPhysics() {
+        float timeInterval = isEnabled() ? tpf * speed : 0f;
+        if (fixedStepDriver == null) {
+            PhysicsSpace pSpace = debugConfig.getSpace();
+            pSpace.update(timeInterval);
+        } else {
+            fixedStepDriver.update(timeInterval);
+        }
+    }
 }
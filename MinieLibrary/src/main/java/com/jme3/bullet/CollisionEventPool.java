@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of recyclable collision events, used by a PhysicsSpace to
+ * avoid allocating an event for each manifold point. Not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class CollisionEventPool {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CollisionEventPool.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * events that are available for re-use
+     */
+    final private Deque<PooledCollisionEvent> freeEvents = new ArrayDeque<>(64);
+    /**
+     * maximum number of events allocated at once, or 0 if pooling is disabled
+     * (&ge;0)
+     */
+    private int capacity = 0;
+    /**
+     * largest number of events in use at once since the last reset (&ge;0)
+     */
+    private int highWater = 0;
+    /**
+     * number of events currently in use (&ge;0)
+     */
+    private int inUse = 0;
+    /**
+     * number of events that were dropped because the pool was exhausted
+     * (&ge;0)
+     */
+    private long numDropped = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the maximum number of events that can be in use at once.
+     *
+     * @return the limit (&ge;0) or 0 if pooling is disabled
+     */
+    int capacity() {
+        assert capacity >= 0 : capacity;
+        return capacity;
+    }
+
+    /**
+     * Count how many events are allocated, whether in use or available.
+     *
+     * @return the count (&ge;0)
+     */
+    int countAllocated() {
+        int result = inUse + freeEvents.size();
+        return result;
+    }
+
+    /**
+     * Count how many events have been dropped because the pool was exhausted.
+     *
+     * @return the count (&ge;0)
+     */
+    long countDropped() {
+        assert numDropped >= 0L : numDropped;
+        return numDropped;
+    }
+
+    /**
+     * Return the specified event to the pool, provided it was obtained from a
+     * pool. Events not obtained from a pool are ignored.
+     *
+     * @param event the event to return (not null)
+     */
+    void free(PhysicsCollisionEvent event) {
+        if (event instanceof PooledCollisionEvent) {
+            PooledCollisionEvent pooledEvent = (PooledCollisionEvent) event;
+            pooledEvent.clear();
+            assert inUse > 0 : inUse;
+            --inUse;
+            /*
+             * Discard the event if the capacity was reduced while in use.
+             */
+            if (inUse + freeEvents.size() < capacity) {
+                freeEvents.push(pooledEvent);
+            }
+        }
+    }
+
+    /**
+     * Read the largest number of events in use at once since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    int highWater() {
+        assert highWater >= 0 : highWater;
+        return highWater;
+    }
+
+    /**
+     * Test whether pooling is enabled.
+     *
+     * @return true if enabled, otherwise false
+     */
+    boolean isEnabled() {
+        boolean result = (capacity > 0);
+        return result;
+    }
+
+    /**
+     * Obtain an event from the pool and assign it to the specified collision.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     * @return a pooled event, or null if the pool is exhausted
+     */
+    PhysicsCollisionEvent obtain(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        PooledCollisionEvent result = freeEvents.poll();
+        if (result == null) {
+            if (inUse >= capacity) {
+                ++numDropped;
+                return null;
+            }
+            result = new PooledCollisionEvent();
+        }
+
+        result.assign(pcoA, pcoB, manifoldPointId);
+        ++inUse;
+        if (inUse > highWater) {
+            highWater = inUse;
+        }
+
+        return result;
+    }
+
+    /**
+     * Reset the high-water mark and the dropped-event count.
+     */
+    void resetCounters() {
+        highWater = inUse;
+        numDropped = 0L;
+    }
+
+    /**
+     * Alter the maximum number of events that can be in use at once. Surplus
+     * events are discarded.
+     *
+     * @param newCapacity the desired limit (&ge;0) or 0 to disable pooling
+     */
+    void setCapacity(int newCapacity) {
+        assert newCapacity >= 0 : newCapacity;
+
+        capacity = newCapacity;
+        while (!freeEvents.isEmpty() && inUse + freeEvents.size() > capacity) {
+            freeEvents.pop();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A stable mapping between collision objects and small integer slots, for use
+ * with bulk operations that read or write packed buffers, such as
+ * {@link PhysicsSpace#readTransforms(CollisionObjectSlots,
+ * java.nio.FloatBuffer, boolean)}. An object keeps its slot until it's
+ * removed. Vacated slots are re-used before new ones are created, so the slot
+ * indices stay compact. Not thread-safe, except that lookups may run
+ * concurrently while no thread modifies the mapping.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CollisionObjectSlots {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CollisionObjectSlots.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * stack of vacated slots available for re-use
+     */
+    private int[] vacantSlots;
+    /**
+     * number of slots ever assigned, occupied or vacant (&ge;0)
+     */
+    private int numSlots = 0;
+    /**
+     * number of vacated slots on the stack (&ge;0)
+     */
+    private int numVacant = 0;
+    /**
+     * map objects to their assigned slots
+     */
+    final private Map<PhysicsCollisionObject, Integer> slotMap;
+    /**
+     * the object assigned to each slot, or null if the slot is vacant
+     */
+    private PhysicsCollisionObject[] objects;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty mapping with the specified initial capacity.
+     *
+     * @param initialCapacity the number of slots to pre-allocate (&gt;0)
+     */
+    public CollisionObjectSlots(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        objects = new PhysicsCollisionObject[initialCapacity];
+        vacantSlots = new int[initialCapacity];
+        slotMap = new HashMap<>(initialCapacity);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Assign a slot to the specified object. If the object already has a slot,
+     * that slot is returned.
+     *
+     * @param pco the object to add (not null, alias created)
+     * @return the assigned slot index (&ge;0)
+     */
+    public int add(PhysicsCollisionObject pco) {
+        Validate.nonNull(pco, "collision object");
+
+        Integer existing = slotMap.get(pco);
+        if (existing != null) {
+            return existing;
+        }
+
+        int result;
+        if (numVacant > 0) {
+            --numVacant;
+            result = vacantSlots[numVacant];
+        } else {
+            if (numSlots == objects.length) {
+                grow();
+            }
+            result = numSlots;
+            ++numSlots;
+        }
+
+        objects[result] = pco;
+        slotMap.put(pco, result);
+
+        return result;
+    }
+
+    /**
+     * Remove all objects and forget all slots.
+     */
+    public void clear() {
+        for (int slot = 0; slot < numSlots; ++slot) {
+            objects[slot] = null;
+        }
+        slotMap.clear();
+        numSlots = 0;
+        numVacant = 0;
+    }
+
+    /**
+     * Count the objects that have slots.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countObjects() {
+        int result = slotMap.size();
+        assert result == numSlots - numVacant : result;
+        return result;
+    }
+
+    /**
+     * Count the slots, occupied or vacant. Every assigned slot index is less
+     * than this count, so packed buffers need room for this many elements.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSlots() {
+        assert numSlots >= 0 : numSlots;
+        return numSlots;
+    }
+
+    /**
+     * Access the object assigned to the specified slot.
+     *
+     * @param slot the slot index (&ge;0, &lt;countSlots())
+     * @return the pre-existing object, or null if the slot is vacant
+     */
+    public PhysicsCollisionObject get(int slot) {
+        Validate.inRange(slot, "slot", 0, numSlots - 1);
+        PhysicsCollisionObject result = objects[slot];
+        return result;
+    }
+
+    /**
+     * Vacate the slot of the specified object.
+     *
+     * @param pco the object to remove (not null)
+     * @return the vacated slot index, or -1 if the object had no slot
+     */
+    public int remove(PhysicsCollisionObject pco) {
+        Validate.nonNull(pco, "collision object");
+
+        Integer slot = slotMap.remove(pco);
+        if (slot == null) {
+            return -1;
+        }
+
+        int result = slot;
+        objects[result] = null;
+        vacantSlots[numVacant] = result;
+        ++numVacant;
+
+        return result;
+    }
+
+    /**
+     * Find the slot assigned to the specified object.
+     *
+     * @param pco the object to find (not null, unaffected)
+     * @return the slot index, or -1 if the object has no slot
+     */
+    public int slotOf(PhysicsCollisionObject pco) {
+        Integer slot = slotMap.get(pco);
+        int result = (slot == null) ? -1 : slot;
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Double the capacity of the slot arrays.
+     */
+    private void grow() {
+        int newCapacity = 2 * objects.length;
+
+        PhysicsCollisionObject[] newObjects
+                = new PhysicsCollisionObject[newCapacity];
+        System.arraycopy(objects, 0, newObjects, 0, numSlots);
+        objects = newObjects;
+
+        int[] newVacantSlots = new int[newCapacity];
+        System.arraycopy(vacantSlots, 0, newVacantSlots, 0, numVacant);
+        vacantSlots = newVacantSlots;
+    }
+}
@@ -31,6 +31,7 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bullet.collision.ClosestHit;
 import com.jme3.bullet.collision.PhysicsCollisionGroupListener;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -40,6 +41,8 @@ import com.jme3.bullet.collision.shapes.ConvexShape;
 import com.jme3.bullet.objects.PhysicsGhostObject;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -50,6 +53,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -68,6 +73,16 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     final public static Logger loggerC
             = Logger.getLogger(CollisionSpace.class.getName());
+    /**
+     * number of floats per ray written by rayTestBatch() and
+     * sweepTestBatch(): hit fraction and normal vector (x,y,z)
+     */
+    final public static int FLOATS_PER_RAY_HIT = 4;
+    /**
+     * number of floats per location in the packed input buffers of
+     * rayTestBatch() and sweepTestBatch()
+     */
+    final public static int FLOATS_PER_LOCATION = 3;
     // *************************************************************************
     // fields
 
@@ -94,15 +109,42 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     private int rayTestFlags = RayTestFlag.SubSimplexRaytest;
     /**
-     * map from collision groups to registered group listeners
+     * lock that separates query phases (read lock, held by the threads that
+     * began them) from modifications and steps (write lock)
+     */
+    final private ReentrantReadWriteLock phaseLock
+            = new ReentrantReadWriteLock();
+    /**
+     * registered group listeners, indexed by the bit position of their
+     * collision group (one slot per bit of the group mask)
      */
-    final private Map<Integer, PhysicsCollisionGroupListener> collisionGroupListeners
-            = new ConcurrentHashMap<>(20);
+    final private AtomicReferenceArray<PhysicsCollisionGroupListener>
+            groupListeners = new AtomicReferenceArray<>(Integer.SIZE);
     /**
      * map ghost IDs to added objects
      */
     final private Map<Long, PhysicsGhostObject> ghostMap
             = new ConcurrentHashMap<>(64);
+    /**
+     * re-usable list of ray-test results for each thread
+     */
+    final private static ThreadLocal<List<PhysicsRayTestResult>> rayResultsTL
+            = new ThreadLocal<List<PhysicsRayTestResult>>() {
+        @Override
+        protected List<PhysicsRayTestResult> initialValue() {
+            return new ArrayList<>(10);
+        }
+    };
+    /**
+     * re-usable list of sweep-test results for each thread
+     */
+    final private static ThreadLocal<List<PhysicsSweepTestResult>>
+            sweepResultsTL = new ThreadLocal<List<PhysicsSweepTestResult>>() {
+        @Override
+        protected List<PhysicsSweepTestResult> initialValue() {
+            return new ArrayList<>(10);
+        }
+    };
     /**
      * physics-space reference for each thread
      */
@@ -177,11 +219,13 @@ public class CollisionSpace extends NativePhysicsObject {
     public void addCollisionGroupListener(
             PhysicsCollisionGroupListener listener, int collisionGroup) {
         Validate.nonNull(listener, "listener");
-        assert !collisionGroupListeners.containsKey(collisionGroup);
         Validate.require(Integer.bitCount(collisionGroup) == 1,
                 "exactly one bit set");
 
-        collisionGroupListeners.put(collisionGroup, listener);
+        int index = Integer.numberOfTrailingZeros(collisionGroup);
+        PhysicsCollisionGroupListener oldListener
+                = groupListeners.getAndSet(index, listener);
+        assert oldListener == null : collisionGroup;
     }
 
     /**
@@ -192,15 +236,28 @@ public class CollisionSpace extends NativePhysicsObject {
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
 
-        if (pco instanceof PhysicsGhostObject) {
-            addGhostObject((PhysicsGhostObject) pco);
-        } else {
-            String typeName = pco.getClass().getCanonicalName();
-            String msg = "Unknown type of collision object: " + typeName;
-            throw new IllegalArgumentException(msg);
+        beginMutation();
+        try {
+            addObject(pco);
+        } finally {
+            endMutation();
         }
     }
 
+    /**
+     * Declare the start of a query phase, during which this space is treated
+     * as read-only: queries may run on multiple threads at once, and any
+     * attempt by another thread to add or remove objects (or to step the
+     * simulation) waits for the phase to end. Such an attempt on the thread
+     * that began the phase throws an IllegalStateException. If a modification
+     * or step is in progress on another thread, this method waits for it to
+     * complete. Query phases may nest. Each invocation must be balanced by an
+     * invocation of {@link #endQueryPhase()} on the same thread.
+     */
+    public void beginQueryPhase() {
+        phaseLock.readLock().lock();
+    }
+
     /**
      * Perform a contact test. This will not detect contacts with soft bodies.
      *
@@ -246,7 +303,13 @@ public class CollisionSpace extends NativePhysicsObject {
      * @return the count (&ge;0)
      */
     public int countCollisionGroupListeners() {
-        int count = collisionGroupListeners.size();
+        int count = 0;
+        for (int index = 0; index < Integer.SIZE; ++index) {
+            if (groupListeners.get(index) != null) {
+                ++count;
+            }
+        }
+
         return count;
     }
 
@@ -262,6 +325,19 @@ public class CollisionSpace extends NativePhysicsObject {
         return count;
     }
 
+    /**
+     * Declare the end of a query phase.
+     *
+     * @see #beginQueryPhase()
+     */
+    public void endQueryPhase() {
+        if (phaseLock.getReadHoldCount() == 0) {
+            throw new IllegalStateException(
+                    "No query phase in progress on this thread.");
+        }
+        phaseLock.readLock().unlock();
+    }
+
     /**
      * Read the type of acceleration structure used for broadphase collision
      * detection.
@@ -368,6 +444,17 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Test whether a query phase is in progress.
+     *
+     * @return true if in a query phase, otherwise false
+     * @see #beginQueryPhase()
+     */
+    public boolean isQueryPhase() {
+        boolean result = phaseLock.getReadLockCount() > 0;
+        return result;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and sort the results by ascending
      * hitFraction.
@@ -406,6 +493,158 @@ public class CollisionSpace extends NativePhysicsObject {
         return results;
     }
 
+    /**
+     * Perform a batch of ray-collision tests (raycasts), recording the closest
+     * hit of each ray in packed buffers. Rays are read from, and results
+     * written to, absolute positions starting at index 0, so the buffers'
+     * positions and limits are ignored and unaffected.
+     * <p>
+     * For each ray i, storeHits receives the hit fraction followed by the
+     * normal vector (in physics-space coordinates) starting at index
+     * i*FLOATS_PER_RAY_HIT, and storeSlots receives the slot of the object hit
+     * at index i. A ray that hits nothing yields fraction=1, a zero normal,
+     * and slot=-1. An object hit that has no slot also yields slot=-1, but
+     * with fraction&lt;1.
+     * <p>
+     * Unlike rayTest(), no results are sorted, and a single results list is
+     * re-used for the entire batch. To spread a batch across multiple
+     * threads, use a SpaceQueryExecutor.
+     *
+     * @param fromBuffer the starting locations (x,y,z for each ray, in
+     * physics-space coordinates, not null, unaffected)
+     * @param toBuffer the ending locations (x,y,z for each ray, in
+     * physics-space coordinates, not null, unaffected)
+     * @param numRays the number of rays to test (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of rays that hit something (&ge;0, &le;numRays)
+     */
+    public int rayTestBatch(FloatBuffer fromBuffer, FloatBuffer toBuffer,
+            int numRays, CollisionObjectSlots slots, FloatBuffer storeHits,
+            IntBuffer storeSlots) {
+        Validate.nonNegative(numRays, "number of rays");
+        Validate.nonNull(slots, "slots");
+        Validate.require(
+                fromBuffer.capacity() >= FLOATS_PER_LOCATION * numRays
+                && toBuffer.capacity() >= FLOATS_PER_LOCATION * numRays,
+                "3 floats per ray in each input buffer");
+        Validate.require(
+                storeHits.capacity() >= FLOATS_PER_RAY_HIT * numRays
+                && storeSlots.capacity() >= numRays,
+                "capacity sufficient for all rays");
+
+        int numHits = rayTestRange(fromBuffer, toBuffer, 0, numRays, slots,
+                storeHits, storeSlots);
+
+        assert numHits <= numRays : numHits;
+        return numHits;
+    }
+
+    /**
+     * Perform a ray-collision test (raycast) and return only the closest
+     * result, without sorting.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param results the list to hold results (not null, modified)
+     * @return the pre-existing result with the smallest hitFraction, or null
+     * if the ray hit nothing
+     */
+    public PhysicsRayTestResult rayTestClosest(Vector3f from, Vector3f to,
+            List<PhysicsRayTestResult> results) {
+        rayTestRaw(from, to, results);
+
+        PhysicsRayTestResult result = null;
+        float minFraction = Float.POSITIVE_INFINITY;
+        for (PhysicsRayTestResult candidate : results) {
+            float fraction = candidate.getHitFraction();
+            if (fraction < minFraction) {
+                minFraction = fraction;
+                result = candidate;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform a ray-collision test (raycast) and copy only the closest result
+     * to caller-owned storage. Apart from the results created by native code,
+     * this allocates nothing.
+     *
+     * @param from the starting location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param to the ending location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param storeResult storage for the closest hit (not null, modified)
+     * @return true if the ray hit something, otherwise false
+     */
+    public boolean rayTestClosest(Vector3f from, Vector3f to,
+            ClosestHit storeResult) {
+        List<PhysicsRayTestResult> results = rayResultsTL.get();
+        PhysicsRayTestResult closest = rayTestClosest(from, to, results);
+        results.clear();
+
+        boolean result;
+        if (closest == null) {
+            storeResult.clear();
+            result = false;
+        } else {
+            storeResult.copy(closest);
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform ray tests for the specified range of a batch, recording the
+     * closest hit of each ray. Invoked by rayTestBatch() and by
+     * SpaceQueryExecutor, possibly on multiple threads at once.
+     *
+     * @param fromBuffer the starting locations (not null, unaffected)
+     * @param toBuffer the ending locations (not null, unaffected)
+     * @param startRay the index of the first ray to test (&ge;0)
+     * @param endRay one plus the index of the last ray to test (&ge;startRay)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of rays in the range that hit something (&ge;0)
+     */
+    int rayTestRange(FloatBuffer fromBuffer, FloatBuffer toBuffer,
+            int startRay, int endRay, CollisionObjectSlots slots,
+            FloatBuffer storeHits, IntBuffer storeSlots) {
+        assert startRay >= 0 : startRay;
+        assert endRay >= startRay : endRay;
+
+        Vector3f from = new Vector3f();
+        Vector3f to = new Vector3f();
+        ClosestHit hit = new ClosestHit();
+        Vector3f tmpNormal = new Vector3f();
+        int numHits = 0;
+        for (int ray = startRay; ray < endRay; ++ray) {
+            int index = FLOATS_PER_LOCATION * ray;
+            from.set(fromBuffer.get(index), fromBuffer.get(index + 1),
+                    fromBuffer.get(index + 2));
+            to.set(toBuffer.get(index), toBuffer.get(index + 1),
+                    toBuffer.get(index + 2));
+            if (rayTestClosest(from, to, hit)) {
+                ++numHits;
+            }
+            storeHit(hit, ray, slots, storeHits, storeSlots, tmpNormal);
+        }
+
+        assert numHits <= endRay - startRay : numHits;
+        return numHits;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and return the results in
      * arbitrary order.
@@ -472,11 +711,13 @@ public class CollisionSpace extends NativePhysicsObject {
      * with exactly one bit set)
      */
     public void removeCollisionGroupListener(int collisionGroup) {
-        assert collisionGroupListeners.containsKey(collisionGroup);
         Validate.require(Integer.bitCount(collisionGroup) == 1,
                 "exactly one bit set");
 
-        collisionGroupListeners.remove(collisionGroup);
+        int index = Integer.numberOfTrailingZeros(collisionGroup);
+        PhysicsCollisionGroupListener oldListener
+                = groupListeners.getAndSet(index, null);
+        assert oldListener != null : collisionGroup;
     }
 
     /**
@@ -487,12 +728,11 @@ public class CollisionSpace extends NativePhysicsObject {
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
 
-        if (pco instanceof PhysicsGhostObject) {
-            removeGhostObject((PhysicsGhostObject) pco);
-        } else {
-            String typeName = pco.getClass().getCanonicalName();
-            String msg = "Unknown type of collision object: " + typeName;
-            throw new IllegalArgumentException(msg);
+        beginMutation();
+        try {
+            removeObject(pco);
+        } finally {
+            endMutation();
         }
     }
 
@@ -577,9 +817,223 @@ public class CollisionSpace extends NativePhysicsObject {
 
         return results;
     }
+
+    /**
+     * Perform a batch of sweep-collision tests of a single shape, recording
+     * the closest hit of each sweep in packed buffers. Each sweep translates
+     * the shape without rotating it. Buffers are accessed at absolute
+     * positions, as in
+     * {@link #rayTestBatch(java.nio.FloatBuffer, java.nio.FloatBuffer, int,
+     * com.jme3.bullet.CollisionObjectSlots, java.nio.FloatBuffer,
+     * java.nio.IntBuffer)}, and results are recorded in the same format.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param fromBuffer the starting locations (x,y,z for each sweep, in
+     * physics-space coordinates, not null, unaffected)
+     * @param toBuffer the ending locations (x,y,z for each sweep, in
+     * physics-space coordinates, not null, unaffected)
+     * @param numSweeps the number of sweeps to test (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of sweeps that hit something (&ge;0, &le;numSweeps)
+     */
+    public int sweepTestBatch(ConvexShape shape, FloatBuffer fromBuffer,
+            FloatBuffer toBuffer, int numSweeps, CollisionObjectSlots slots,
+            FloatBuffer storeHits, IntBuffer storeSlots) {
+        Validate.nonNull(shape, "shape");
+        Validate.nonNegative(numSweeps, "number of sweeps");
+        Validate.nonNull(slots, "slots");
+        Validate.require(
+                fromBuffer.capacity() >= FLOATS_PER_LOCATION * numSweeps
+                && toBuffer.capacity() >= FLOATS_PER_LOCATION * numSweeps,
+                "3 floats per sweep in each input buffer");
+        Validate.require(
+                storeHits.capacity() >= FLOATS_PER_RAY_HIT * numSweeps
+                && storeSlots.capacity() >= numSweeps,
+                "capacity sufficient for all sweeps");
+
+        int numHits = sweepTestRange(shape, fromBuffer, toBuffer, 0, numSweeps,
+                slots, storeHits, storeSlots);
+
+        assert numHits <= numSweeps : numHits;
+        return numHits;
+    }
+
+    /**
+     * Perform a batch of sweep-collision tests, each with its own shape and
+     * its own starting and ending transforms, recording the closest hit of
+     * each sweep in packed buffers. Transforms are read from absolute
+     * positions starting at index 0, with PhysicsSpace.FLOATS_PER_TRANSFORM
+     * floats per sweep: location (x,y,z) followed by rotation (x,y,z,w).
+     * Results are recorded as in rayTestBatch().
+     *
+     * @param shapes the shape to sweep for each sweep (not null, each element
+     * not null and convex, unaffected)
+     * @param startBuffer the starting transforms (in physics-space
+     * coordinates, not null, unaffected)
+     * @param endBuffer the ending transforms (in physics-space coordinates,
+     * not null, unaffected)
+     * @param numSweeps the number of sweeps to test (&ge;0, &le;shapes.length)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of sweeps that hit something (&ge;0, &le;numSweeps)
+     */
+    public int sweepTestBatch(ConvexShape[] shapes, FloatBuffer startBuffer,
+            FloatBuffer endBuffer, int numSweeps, CollisionObjectSlots slots,
+            FloatBuffer storeHits, IntBuffer storeSlots) {
+        Validate.inRange(numSweeps, "number of sweeps", 0, shapes.length);
+        Validate.nonNull(slots, "slots");
+        int numFloats = PhysicsSpace.FLOATS_PER_TRANSFORM * numSweeps;
+        Validate.require(startBuffer.capacity() >= numFloats
+                && endBuffer.capacity() >= numFloats,
+                "7 floats per sweep in each input buffer");
+        Validate.require(
+                storeHits.capacity() >= FLOATS_PER_RAY_HIT * numSweeps
+                && storeSlots.capacity() >= numSweeps,
+                "capacity sufficient for all sweeps");
+
+        Transform start = new Transform();
+        Transform end = new Transform();
+        ClosestHit hit = new ClosestHit();
+        Vector3f tmpNormal = new Vector3f();
+        int numHits = 0;
+        for (int sweep = 0; sweep < numSweeps; ++sweep) {
+            int index = PhysicsSpace.FLOATS_PER_TRANSFORM * sweep;
+            readTransform(startBuffer, index, start);
+            readTransform(endBuffer, index, end);
+            if (sweepTestClosest(shapes[sweep], start, end, 0f, hit)) {
+                ++numHits;
+            }
+            storeHit(hit, sweep, slots, storeHits, storeSlots, tmpNormal);
+        }
+
+        assert numHits <= numSweeps : numHits;
+        return numHits;
+    }
+
+    /**
+     * Perform sweep tests for the specified range of a batch, recording the
+     * closest hit of each sweep. Invoked by sweepTestBatch() and by
+     * SpaceQueryExecutor, possibly on multiple threads at once.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param fromBuffer the starting locations (not null, unaffected)
+     * @param toBuffer the ending locations (not null, unaffected)
+     * @param startSweep the index of the first sweep to test (&ge;0)
+     * @param endSweep one plus the index of the last sweep to test
+     * (&ge;startSweep)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of sweeps in the range that hit something (&ge;0)
+     */
+    int sweepTestRange(ConvexShape shape, FloatBuffer fromBuffer,
+            FloatBuffer toBuffer, int startSweep, int endSweep,
+            CollisionObjectSlots slots, FloatBuffer storeHits,
+            IntBuffer storeSlots) {
+        assert startSweep >= 0 : startSweep;
+        assert endSweep >= startSweep : endSweep;
+
+        Transform start = new Transform();
+        Transform end = new Transform();
+        ClosestHit hit = new ClosestHit();
+        Vector3f tmpNormal = new Vector3f();
+        int numHits = 0;
+        for (int sweep = startSweep; sweep < endSweep; ++sweep) {
+            int index = FLOATS_PER_LOCATION * sweep;
+            start.setTranslation(fromBuffer.get(index),
+                    fromBuffer.get(index + 1), fromBuffer.get(index + 2));
+            end.setTranslation(toBuffer.get(index), toBuffer.get(index + 1),
+                    toBuffer.get(index + 2));
+            if (sweepTestClosest(shape, start, end, 0f, hit)) {
+                ++numHits;
+            }
+            storeHit(hit, sweep, slots, storeHits, storeSlots, tmpNormal);
+        }
+
+        assert numHits <= endSweep - startSweep : numHits;
+        return numHits;
+    }
+
+    /**
+     * Perform a sweep-collision test and copy only the closest result to
+     * caller-owned storage. Apart from the results created by native code,
+     * this allocates nothing.
+     * <p>
+     * The limitations of
+     * {@link #sweepTest(com.jme3.bullet.collision.shapes.ConvexShape,
+     * com.jme3.math.Transform, com.jme3.math.Transform, java.util.List,
+     * float)} apply.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param start the starting physics-space transform (not null, unaffected)
+     * @param end the ending physics-space transform (not null, unaffected)
+     * @param allowedCcdPenetration (in physics-space units)
+     * @param storeResult storage for the closest hit (not null, modified)
+     * @return true if the sweep hit something, otherwise false
+     */
+    public boolean sweepTestClosest(ConvexShape shape, Transform start,
+            Transform end, float allowedCcdPenetration,
+            ClosestHit storeResult) {
+        Validate.nonNull(storeResult, "store result");
+
+        List<PhysicsSweepTestResult> results = sweepResultsTL.get();
+        sweepTest(shape, start, end, results, allowedCcdPenetration);
+
+        PhysicsSweepTestResult closest = null;
+        float minFraction = Float.POSITIVE_INFINITY;
+        for (PhysicsSweepTestResult candidate : results) {
+            float fraction = candidate.getHitFraction();
+            if (fraction < minFraction) {
+                minFraction = fraction;
+                closest = candidate;
+            }
+        }
+
+        boolean result;
+        if (closest == null) {
+            storeResult.clear();
+            result = false;
+        } else {
+            storeResult.copy(closest);
+            result = true;
+        }
+        results.clear();
+
+        return result;
+    }
     // *************************************************************************
     // new protected methods
 
+    /**
+     * Begin modifying (or stepping) this space, excluding query phases until
+     * {@link #endMutation()} is invoked. If another thread is in a query
+     * phase (or is modifying or stepping this space), this method waits for
+     * it to finish. Modifications may nest. Each invocation must be balanced
+     * by an invocation of endMutation() on the same thread, typically in a
+     * finally block.
+     *
+     * @throws IllegalStateException if the current thread is in a query phase
+     */
+    protected void beginMutation() {
+        if (phaseLock.getReadHoldCount() > 0) {
+            /*
+             * Waiting for the write lock would deadlock.
+             */
+            throw new IllegalStateException(
+                    "Cannot modify " + this + " during a query phase.");
+        }
+        phaseLock.writeLock().lock();
+    }
+
     /**
      * Must be invoked on the designated physics thread.
      */
@@ -592,6 +1046,15 @@ public class CollisionSpace extends NativePhysicsObject {
         loggerC.log(Level.FINE, "Created {0}.", this);
     }
 
+    /**
+     * Finish modifying (or stepping) this space.
+     *
+     * @see #beginMutation()
+     */
+    protected void endMutation() {
+        phaseLock.writeLock().unlock();
+    }
+
     /**
      * Must be invoked on the designated physics thread.
      *
@@ -604,6 +1067,69 @@ public class CollisionSpace extends NativePhysicsObject {
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Read a packed transform (location followed by rotation) from the
+     * specified buffer, leaving the scale unaffected.
+     *
+     * @param buffer the buffer to read (not null, unaffected)
+     * @param index the index of the location's X component (&ge;0)
+     * @param storeResult storage for the result (not null, modified)
+     */
+    private static void readTransform(FloatBuffer buffer, int index,
+            Transform storeResult) {
+        storeResult.setTranslation(buffer.get(index), buffer.get(index + 1),
+                buffer.get(index + 2));
+        storeResult.getRotation().set(buffer.get(index + 3),
+                buffer.get(index + 4), buffer.get(index + 5),
+                buffer.get(index + 6));
+    }
+
+    /**
+     * Record a closest hit in packed buffers.
+     *
+     * @param hit the hit to record (not null, unaffected)
+     * @param queryIndex the index of the query in its batch (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @param tmpNormal storage for a temporary vector (not null, modified)
+     */
+    private static void storeHit(ClosestHit hit, int queryIndex,
+            CollisionObjectSlots slots, FloatBuffer storeHits,
+            IntBuffer storeSlots, Vector3f tmpNormal) {
+        int slot = -1;
+        PhysicsCollisionObject pco = hit.getCollisionObject();
+        if (pco != null) {
+            slot = slots.slotOf(pco);
+        }
+        storeSlots.put(queryIndex, slot);
+
+        int index = FLOATS_PER_RAY_HIT * queryIndex;
+        storeHits.put(index, hit.getHitFraction());
+        hit.getHitNormal(tmpNormal);
+        storeHits.put(index + 1, tmpNormal.x);
+        storeHits.put(index + 2, tmpNormal.y);
+        storeHits.put(index + 3, tmpNormal.z);
+    }
+
+    /**
+     * Add the specified collision object to this space, with the write lock
+     * held.
+     *
+     * @param pco the collision object to add (not null, modified)
+     */
+    private void addObject(PhysicsCollisionObject pco) {
+        if (pco instanceof PhysicsGhostObject) {
+            addGhostObject((PhysicsGhostObject) pco);
+        } else {
+            String typeName = pco.getClass().getCanonicalName();
+            String msg = "Unknown type of collision object: " + typeName;
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
     /**
      * Add the specified PhysicsGhostObject to this space.
      *
@@ -642,23 +1168,42 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     private boolean notifyCollisionGroupListeners_native(
             PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB) {
-        PhysicsCollisionGroupListener listenerA
-                = collisionGroupListeners.get(pcoA.getCollisionGroup());
-        PhysicsCollisionGroupListener listenerB
-                = collisionGroupListeners.get(pcoB.getCollisionGroup());
+        int groupA = pcoA.getCollisionGroup();
+        int groupB = pcoB.getCollisionGroup();
+        PhysicsCollisionGroupListener listenerA = groupListeners
+                .get(Integer.numberOfTrailingZeros(groupA));
         boolean result = true;
 
         if (listenerA != null) {
             result = listenerA.collide(pcoA, pcoB);
         }
-        if (listenerB != null
-                && pcoA.getCollisionGroup() != pcoB.getCollisionGroup()) {
-            result = listenerB.collide(pcoA, pcoB) && result;
+        if (groupA != groupB) {
+            PhysicsCollisionGroupListener listenerB = groupListeners
+                    .get(Integer.numberOfTrailingZeros(groupB));
+            if (listenerB != null) {
+                result = listenerB.collide(pcoA, pcoB) && result;
+            }
         }
 
         return result;
     }
 
+    /**
+     * Remove the specified collision object from this space, with the write
+     * lock held.
+     *
+     * @param pco the collision object to remove (not null, modified)
+     */
+    private void removeObject(PhysicsCollisionObject pco) {
+        if (pco instanceof PhysicsGhostObject) {
+            removeGhostObject((PhysicsGhostObject) pco);
+        } else {
+            String typeName = pco.getClass().getCanonicalName();
+            String msg = "Unknown type of collision object: " + typeName;
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
     /**
      * Remove the specified PhysicsGhostObject from this space.
      *
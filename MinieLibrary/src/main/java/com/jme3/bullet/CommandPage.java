@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Primitive arrays holding a sequence of rigid-body commands, used by
+ * RigidBodyCommandBuffer.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class CommandPage {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of float arguments stored for each command
+     */
+    final static int floatsPerCommand = 6;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CommandPage.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of command indices reserved, which may exceed the capacity while
+     * the page is full
+     */
+    final AtomicInteger count = new AtomicInteger(0);
+    /**
+     * float arguments of each command
+     */
+    float[] data;
+    /**
+     * maximum number of commands (&gt;0)
+     */
+    int capacity;
+    /**
+     * target slot of each command
+     */
+    int[] slots;
+    /**
+     * type of each command
+     */
+    byte[] types;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty page with the specified capacity.
+     *
+     * @param capacity the maximum number of commands (&gt;0)
+     */
+    CommandPage(int capacity) {
+        this.capacity = capacity;
+        data = new float[capacity * floatsPerCommand];
+        slots = new int[capacity];
+        types = new byte[capacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the commands recorded in this page.
+     *
+     * @return the count (&ge;0, &le;capacity)
+     */
+    int countCommands() {
+        int result = Math.min(count.get(), capacity);
+        return result;
+    }
+
+    /**
+     * Double the capacity, preserving the recorded commands. The caller must
+     * ensure that no other thread is accessing the page.
+     */
+    void grow() {
+        int numCommands = countCommands();
+        int newCapacity = 2 * capacity;
+
+        float[] newData = new float[newCapacity * floatsPerCommand];
+        System.arraycopy(data, 0, newData, 0, numCommands * floatsPerCommand);
+        data = newData;
+
+        int[] newSlots = new int[newCapacity];
+        System.arraycopy(slots, 0, newSlots, 0, numCommands);
+        slots = newSlots;
+
+        byte[] newTypes = new byte[newCapacity];
+        System.arraycopy(types, 0, newTypes, 0, numCommands);
+        types = newTypes;
+
+        capacity = newCapacity;
+        count.set(numCommands);
+    }
+
+    /**
+     * Test whether all the page's capacity has been reserved.
+     *
+     * @return true if full, otherwise false
+     */
+    boolean isFull() {
+        boolean result = (count.get() >= capacity);
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+
+/**
+ * Interface to receive notifications when pairs of objects in a PhysicsSpace
+ * begin contact, remain in contact, and end contact. Pairs are tracked
+ * incrementally from frame to frame, keyed on the objects' native IDs. Frames
+ * that don't step the physics produce no callbacks.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public interface ContactPairListener {
+    /**
+     * Callback invoked for each pair that began contact since the previous
+     * invocation of {@link PhysicsSpace#distributeEvents()}. Typically invoked
+     * on the render thread (not the physics thread) during the BulletAppState
+     * update.
+     * <p>
+     * Sphere-sphere contacts aren't reported.
+     *
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     */
+    void contactBegan(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB);
+
+    /**
+     * Callback invoked for each pair that ended contact since the previous
+     * invocation of {@link PhysicsSpace#distributeEvents()}, including pairs
+     * involving an object that was removed from the space.
+     *
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     */
+    void contactEnded(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB);
+
+    /**
+     * Callback invoked for each pair that was in contact during the previous
+     * interval and remains in contact.
+     *
+     * @param pcoA the first object (not null)
+     * @param pcoB the 2nd object (not null)
+     */
+    void contactPersisted(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB);
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+
+/**
+ * A table of colliding pairs of collision objects, keyed on the native IDs of
+ * the objects, used to coalesce manifold points into per-pair contact reports
+ * and to detect when pairs begin and end contact.
+ * Pairs are tracked from one interval to the next (an interval ends with the
+ * first invocation of distribute() after a physics step) so that new and ended
+ * contacts can be detected without rebuilding a set. Not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ContactPairTable {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * initial number of pairs that can be tracked without reallocation
+     */
+    final private static int initialCapacity = 16;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactPairTable.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true while distribute() is notifying listeners, otherwise false
+     */
+    private boolean distributing = false;
+    /**
+     * true if clear() was invoked during distribute() and is yet to take
+     * effect, otherwise false
+     */
+    private boolean clearPending = false;
+    /**
+     * reports of tracked pairs, densely packed, followed by spare reports
+     */
+    private ContactReport[] reports = new ContactReport[initialCapacity];
+    /**
+     * open-addressing hash index: for each slot, the dense index of a tracked
+     * pair plus one, or zero if the slot is vacant
+     */
+    private int[] hashIndex = new int[2 * initialCapacity];
+    /**
+     * for each tracked pair, the index of the interval in which it was most
+     * recently in contact
+     */
+    private int[] lastInterval = new int[initialCapacity];
+    /**
+     * index of the current interval
+     */
+    private int interval = 0;
+    /**
+     * index of the physics step in progress when the current interval began
+     */
+    private int intervalStep = 0;
+    /**
+     * number of pairs currently tracked (&ge;0)
+     */
+    private int numPairs = 0;
+    /**
+     * index of the current physics step
+     */
+    private int step = 0;
+    /**
+     * for each tracked pair, the larger of the 2 native IDs
+     */
+    private long[] highIds = new long[initialCapacity];
+    /**
+     * for each tracked pair, the smaller of the 2 native IDs
+     */
+    private long[] lowIds = new long[initialCapacity];
+    /**
+     * temporary event used to read manifold points
+     */
+    final private PooledCollisionEvent cursor = new PooledCollisionEvent();
+    /**
+     * temporary storage for a contact normal
+     */
+    final private Vector3f tmpNormal = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Accumulate a processed manifold point. Invoked on the physics thread.
+     *
+     * @param pcoA the first involved object (not null)
+     * @param pcoB the 2nd involved object (not null)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     * @param readDetails true to read the point's impulse and normal, false to
+     * merely count the point
+     */
+    void addPoint(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB,
+            long manifoldPointId, boolean readDetails) {
+        long idA = pcoA.nativeId();
+        long idB = pcoB.nativeId();
+        long lowId = Math.min(idA, idB);
+        long highId = Math.max(idA, idB);
+
+        int slot = findSlot(lowId, highId);
+        int denseIndex = hashIndex[slot] - 1;
+        ContactReport report;
+        if (denseIndex < 0) { // a new pair
+            denseIndex = insert(slot, lowId, highId);
+            report = reports[denseIndex];
+            report.setObjects(pcoA, pcoB);
+            report.beginInterval(true);
+            lastInterval[denseIndex] = interval;
+
+        } else {
+            report = reports[denseIndex];
+            if (lastInterval[denseIndex] != interval) { // persisting pair
+                report.beginInterval(false);
+                lastInterval[denseIndex] = interval;
+            }
+        }
+
+        report.addPoint(step);
+        if (readDetails) {
+            cursor.assign(pcoA, pcoB, manifoldPointId);
+            float impulse = cursor.getAppliedImpulse();
+            cursor.getNormalWorldOnB(tmpNormal);
+            cursor.clear();
+
+            boolean flip = (report.getObjectA() != pcoA);
+            report.addSample(impulse, tmpNormal, flip);
+        }
+    }
+
+    /**
+     * Stop tracking all pairs, without reporting them. If invoked from a
+     * listener during distribute(), the clear is deferred until distribute()
+     * returns.
+     */
+    void clear() {
+        if (distributing) {
+            clearPending = true;
+            return;
+        }
+
+        for (int denseIndex = 0; denseIndex < numPairs; ++denseIndex) {
+            reports[denseIndex].release();
+        }
+        for (int slot = 0; slot < hashIndex.length; ++slot) {
+            hashIndex[slot] = 0;
+        }
+        numPairs = 0;
+    }
+
+    /**
+     * Count the tracked pairs.
+     *
+     * @return the count (&ge;0)
+     */
+    int countPairs() {
+        assert numPairs >= 0 : numPairs;
+        return numPairs;
+    }
+
+    /**
+     * Notify the specified listeners about each tracked pair, stop tracking
+     * pairs that are no longer in contact, and begin a new interval. If no
+     * physics step has begun since the current interval began, no manifold
+     * points can have been added, so the interval is left open and no
+     * listeners are notified.
+     *
+     * @param reportListeners a snapshot of the listeners to receive contact
+     * reports (not null, unaffected)
+     * @param pairListeners a snapshot of the listeners to receive
+     * begin/persist/end callbacks (not null, unaffected)
+     */
+    void distribute(ContactReportListener[] reportListeners,
+            ContactPairListener[] pairListeners) {
+        assert !distributing;
+        if (step == intervalStep) {
+            return;
+        }
+
+        distributing = true;
+        try {
+            distributeAll(reportListeners, pairListeners);
+        } finally {
+            distributing = false;
+        }
+        ++interval;
+        intervalStep = step;
+
+        if (clearPending) {
+            clearPending = false;
+            clear();
+        }
+    }
+
+    /**
+     * Note the start of a new physics step. Invoked on the physics thread.
+     */
+    void nextStep() {
+        ++step;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Notify the specified listeners about each tracked pair and stop tracking
+     * pairs that are no longer in contact. Helper for distribute().
+     *
+     * @param reportListeners the listeners to receive contact reports (not
+     * null, unaffected)
+     * @param pairListeners the listeners to receive begin/persist/end
+     * callbacks (not null, unaffected)
+     */
+    private void distributeAll(ContactReportListener[] reportListeners,
+            ContactPairListener[] pairListeners) {
+        /*
+         * Iterate in reverse order, so that removing a pair
+         * doesn't disturb the pairs not yet visited.
+         */
+        for (int denseIndex = numPairs - 1; denseIndex >= 0; --denseIndex) {
+            ContactReport report = reports[denseIndex];
+            boolean ended = (lastInterval[denseIndex] != interval);
+            if (ended) {
+                report.endContact();
+            }
+            for (ContactReportListener listener : reportListeners) {
+                listener.contactReport(report);
+            }
+
+            if (pairListeners.length > 0) {
+                PhysicsCollisionObject pcoA = report.getObjectA();
+                PhysicsCollisionObject pcoB = report.getObjectB();
+                if (ended) {
+                    for (ContactPairListener listener : pairListeners) {
+                        listener.contactEnded(pcoA, pcoB);
+                    }
+                } else if (report.isFirstContact()) {
+                    for (ContactPairListener listener : pairListeners) {
+                        listener.contactBegan(pcoA, pcoB);
+                    }
+                } else {
+                    for (ContactPairListener listener : pairListeners) {
+                        listener.contactPersisted(pcoA, pcoB);
+                    }
+                }
+            }
+            if (ended) {
+                report.release();
+                remove(denseIndex);
+            }
+        }
+    }
+
+    /**
+     * Find the hash-index slot of the specified pair, or else the vacant slot
+     * where it should be inserted.
+     *
+     * @param lowId the smaller native ID
+     * @param highId the larger native ID
+     * @return the slot index (&ge;0)
+     */
+    private int findSlot(long lowId, long highId) {
+        int mask = hashIndex.length - 1;
+        int slot = hash(lowId, highId) & mask;
+        while (true) {
+            int denseIndex = hashIndex[slot] - 1;
+            if (denseIndex < 0) {
+                return slot;
+            } else if (lowIds[denseIndex] == lowId
+                    && highIds[denseIndex] == highId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Grow the dense arrays and rebuild the hash index with twice the
+     * capacity.
+     */
+    private void grow() {
+        int newCapacity = 2 * reports.length;
+
+        ContactReport[] newReports = new ContactReport[newCapacity];
+        System.arraycopy(reports, 0, newReports, 0, reports.length);
+        reports = newReports;
+
+        long[] newLowIds = new long[newCapacity];
+        System.arraycopy(lowIds, 0, newLowIds, 0, numPairs);
+        lowIds = newLowIds;
+
+        long[] newHighIds = new long[newCapacity];
+        System.arraycopy(highIds, 0, newHighIds, 0, numPairs);
+        highIds = newHighIds;
+
+        int[] newLastInterval = new int[newCapacity];
+        System.arraycopy(lastInterval, 0, newLastInterval, 0, numPairs);
+        lastInterval = newLastInterval;
+
+        hashIndex = new int[2 * newCapacity];
+        for (int denseIndex = 0; denseIndex < numPairs; ++denseIndex) {
+            int slot = findSlot(lowIds[denseIndex], highIds[denseIndex]);
+            hashIndex[slot] = denseIndex + 1;
+        }
+    }
+
+    /**
+     * Hash the specified pair of native IDs.
+     *
+     * @param lowId the smaller native ID
+     * @param highId the larger native ID
+     * @return a 32-bit value for use in hashing
+     */
+    private static int hash(long lowId, long highId) {
+        long h = lowId * 0x9E3779B97F4A7C15L ^ highId;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+
+        return (int) h;
+    }
+
+    /**
+     * Start tracking a new pair.
+     *
+     * @param slot the vacant hash-index slot returned by findSlot()
+     * @param lowId the smaller native ID
+     * @param highId the larger native ID
+     * @return the dense index of the new pair (&ge;0)
+     */
+    private int insert(int slot, long lowId, long highId) {
+        assert hashIndex[slot] == 0 : slot;
+
+        if (numPairs == reports.length) {
+            grow();
+            slot = findSlot(lowId, highId);
+        }
+
+        int denseIndex = numPairs;
+        ++numPairs;
+        if (reports[denseIndex] == null) {
+            reports[denseIndex] = new ContactReport();
+        }
+        lowIds[denseIndex] = lowId;
+        highIds[denseIndex] = highId;
+        hashIndex[slot] = denseIndex + 1;
+
+        return denseIndex;
+    }
+
+    /**
+     * Stop tracking the specified pair. The last pair is moved into its dense
+     * index, and its report is retained for re-use.
+     *
+     * @param denseIndex the dense index of the pair to remove (&ge;0)
+     */
+    private void remove(int denseIndex) {
+        int mask = hashIndex.length - 1;
+        /*
+         * Vacate the pair's hash-index slot, shifting later entries
+         * of the same probe sequence backward to fill the gap.
+         */
+        int gap = findSlot(lowIds[denseIndex], highIds[denseIndex]);
+        assert hashIndex[gap] == denseIndex + 1;
+        hashIndex[gap] = 0;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int otherIndex = hashIndex[slot] - 1;
+            if (otherIndex < 0) {
+                break;
+            }
+            int home = hash(lowIds[otherIndex], highIds[otherIndex]) & mask;
+            boolean reachable = (gap <= slot)
+                    ? (gap < home && home <= slot)
+                    : (gap < home || home <= slot);
+            if (!reachable) {
+                hashIndex[gap] = hashIndex[slot];
+                hashIndex[slot] = 0;
+                gap = slot;
+            }
+        }
+        /*
+         * Move the last pair into the vacated dense index.
+         */
+        int lastIndex = numPairs - 1;
+        if (denseIndex != lastIndex) {
+            int lastSlot = findSlot(lowIds[lastIndex], highIds[lastIndex]);
+            hashIndex[lastSlot] = denseIndex + 1;
+
+            ContactReport removed = reports[denseIndex];
+            reports[denseIndex] = reports[lastIndex];
+            reports[lastIndex] = removed;
+            lowIds[denseIndex] = lowIds[lastIndex];
+            highIds[denseIndex] = highIds[lastIndex];
+            lastInterval[denseIndex] = lastInterval[lastIndex];
+        }
+        --numPairs;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+
+/**
+ * Summarize the contacts between a pair of collision objects during the
+ * interval between 2 invocations of {@link PhysicsSpace#distributeEvents()}
+ * that follow physics steps, typically one frame. Instances are recycled, so
+ * each report is valid only during the listener callback that receives it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ContactReport {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactReport.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the objects weren't in contact during the previous interval
+     */
+    private boolean isFirstContact;
+    /**
+     * true if the objects are no longer in contact
+     */
+    private boolean isLastContact;
+    /**
+     * largest impulse applied at any manifold point during the interval
+     */
+    private float maxImpulse;
+    /**
+     * index of the physics step in which points were most recently counted
+     */
+    private int lastStep;
+    /**
+     * number of manifold points processed during the most recent step (&ge;0)
+     */
+    private int numPoints;
+    /**
+     * number of normals accumulated in normalSum (&ge;0)
+     */
+    private int numSamples;
+    /**
+     * first collision object involved, or null if unassigned
+     */
+    private PhysicsCollisionObject pcoA;
+    /**
+     * 2nd collision object involved, or null if unassigned
+     */
+    private PhysicsCollisionObject pcoB;
+    /**
+     * sum of the contact normals on object B (in physics-space coordinates)
+     */
+    final private Vector3f normalSum = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an unassigned report. Used internally.
+     */
+    ContactReport() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count one processed manifold point.
+     *
+     * @param step the index of the current physics step
+     */
+    void addPoint(int step) {
+        if (step != lastStep) {
+            lastStep = step;
+            numPoints = 0;
+        }
+        ++numPoints;
+    }
+
+    /**
+     * Accumulate the details of one processed manifold point.
+     *
+     * @param impulse the point's applied impulse
+     * @param normal the point's normal on object B (not null, unaffected)
+     * @param flip true to reverse the normal, because the point's objects are
+     * in the opposite order
+     */
+    void addSample(float impulse, Vector3f normal, boolean flip) {
+        if (impulse > maxImpulse) {
+            maxImpulse = impulse;
+        }
+        if (flip) {
+            normalSum.subtractLocal(normal);
+        } else {
+            normalSum.addLocal(normal);
+        }
+        ++numSamples;
+    }
+
+    /**
+     * Calculate the average of the contact normals on object B during the
+     * interval.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return the mean normal (in physics-space coordinates, not normalized,
+     * either storeResult or a new vector, not null)
+     */
+    public Vector3f averageNormal(Vector3f storeResult) {
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        if (numSamples == 0) {
+            result.zero();
+        } else {
+            result.set(normalSum);
+            result.divideLocal(numSamples);
+        }
+
+        return result;
+    }
+
+    /**
+     * Prepare to accumulate a new interval.
+     *
+     * @param isFirst true if the objects weren't in contact during the
+     * previous interval
+     */
+    void beginInterval(boolean isFirst) {
+        isFirstContact = isFirst;
+        isLastContact = false;
+        maxImpulse = 0f;
+        numPoints = 0;
+        numSamples = 0;
+        normalSum.zero();
+    }
+
+    /**
+     * Count the manifold points processed during the most recent physics step
+     * of the interval.
+     *
+     * @return the count (&ge;0, 0 for the final report of a pair)
+     */
+    public int countPoints() {
+        assert numPoints >= 0 : numPoints;
+        return numPoints;
+    }
+
+    /**
+     * Convert this report into the final report for its pair.
+     */
+    void endContact() {
+        beginInterval(false);
+        isLastContact = true;
+    }
+
+    /**
+     * Access collision object A.
+     *
+     * @return the pre-existing object (not null)
+     */
+    public PhysicsCollisionObject getObjectA() {
+        assert pcoA != null;
+        return pcoA;
+    }
+
+    /**
+     * Access collision object B.
+     *
+     * @return the pre-existing object (not null)
+     */
+    public PhysicsCollisionObject getObjectB() {
+        assert pcoB != null;
+        return pcoB;
+    }
+
+    /**
+     * Test whether this is the first report for the pair: the objects are in
+     * contact now but weren't during the previous interval.
+     *
+     * @return true if first, otherwise false
+     */
+    public boolean isFirstContact() {
+        return isFirstContact;
+    }
+
+    /**
+     * Test whether this is the final report for the pair: the objects were in
+     * contact during the previous interval but aren't anymore.
+     *
+     * @return true if final, otherwise false
+     */
+    public boolean isLastContact() {
+        return isLastContact;
+    }
+
+    /**
+     * Read the largest impulse applied at any manifold point during the
+     * interval, as reported when the point was processed.
+     *
+     * @return the impulse (&ge;0, 0 for the final report of a pair)
+     */
+    public float maxImpulse() {
+        return maxImpulse;
+    }
+
+    /**
+     * Unassign both collision objects, so that a recycled report doesn't keep
+     * them reachable.
+     */
+    void release() {
+        pcoA = null;
+        pcoB = null;
+    }
+
+    /**
+     * Assign the specified collision objects to this report.
+     *
+     * @param pcoA the first object (not null, alias created)
+     * @param pcoB the 2nd object (not null, alias created)
+     */
+    void setObjects(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB) {
+        assert pcoA != null;
+        assert pcoB != null;
+
+        this.pcoA = pcoA;
+        this.pcoB = pcoB;
+        lastStep = -1;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Drive a PhysicsSpace with fixed-size time steps, accumulating leftover time
+ * from frame to frame, and capture rigid-body transforms after each step into
+ * a TransformSnapshot, so that physics controls can render poses
+ * interpolated between the 2 most recent steps.
+ * <p>
+ * This allows the simulation to run at a low rate (for instance 30 Hz) while
+ * rendering at a higher one without visible stutter. Interpolated poses lag
+ * the simulation by up to one step.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class FixedStepDriver {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(FixedStepDriver.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * simulation time not yet stepped (in seconds, &ge;0)
+     */
+    private float accumulator = 0f;
+    /**
+     * simulation time per step (in seconds, &gt;0)
+     */
+    final private float stepSize;
+    /**
+     * maximum number of steps per update, beyond which time is discarded
+     * (&gt;0)
+     */
+    private int maxStepsPerUpdate;
+    /**
+     * total number of steps taken (&ge;0)
+     */
+    private long numSteps = 0L;
+    /**
+     * space being driven (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * snapshot read by physics controls (not null)
+     */
+    final private TransformSnapshot snapshot;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a driver for the specified space and install its snapshot
+     * in the space.
+     *
+     * @param space the space to drive (not null, alias created)
+     * @param stepSize the simulation time per step (in seconds, &gt;0)
+     * @param maxStepsPerUpdate the maximum number of steps per update (&gt;0)
+     */
+    public FixedStepDriver(PhysicsSpace space, float stepSize,
+            int maxStepsPerUpdate) {
+        Validate.nonNull(space, "space");
+        Validate.positive(stepSize, "step size");
+        Validate.positive(maxStepsPerUpdate, "max steps per update");
+
+        this.space = space;
+        this.stepSize = stepSize;
+        this.maxStepsPerUpdate = maxStepsPerUpdate;
+
+        int numBodies = space.countRigidBodies();
+        snapshot = new TransformSnapshot(Math.max(16, numBodies));
+        snapshot.capture(space);
+        space.setTransformSnapshot(snapshot);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the interpolation fraction from the most recent update.
+     *
+     * @return the fraction of a step accumulated but not yet simulated (&ge;0,
+     * &le;1)
+     */
+    public float alpha() {
+        float result = snapshot.alpha();
+        return result;
+    }
+
+    /**
+     * Count the steps taken since this driver was instantiated.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countSteps() {
+        assert numSteps >= 0L : numSteps;
+        return numSteps;
+    }
+
+    /**
+     * Remove this driver's snapshot from the space, so that physics controls
+     * read transforms directly.
+     */
+    public void detach() {
+        if (space.getTransformSnapshot() == snapshot) {
+            space.setTransformSnapshot(null);
+        }
+    }
+
+    /**
+     * Access the snapshot read by physics controls.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public TransformSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Read the maximum number of steps per update.
+     *
+     * @return the limit (&gt;0)
+     */
+    public int maxStepsPerUpdate() {
+        assert maxStepsPerUpdate > 0 : maxStepsPerUpdate;
+        return maxStepsPerUpdate;
+    }
+
+    /**
+     * Alter the maximum number of steps per update. When more time accumulates
+     * than this many steps can simulate, the excess is discarded, which slows
+     * the simulation rather than letting the backlog grow.
+     *
+     * @param maxSteps the desired limit (&gt;0)
+     */
+    public void setMaxStepsPerUpdate(int maxSteps) {
+        Validate.positive(maxSteps, "max steps");
+        maxStepsPerUpdate = maxSteps;
+    }
+
+    /**
+     * Read the simulation time per step.
+     *
+     * @return the step size (in seconds, &gt;0)
+     */
+    public float stepSize() {
+        assert stepSize > 0f : stepSize;
+        return stepSize;
+    }
+
+    /**
+     * Accumulate the specified simulation time, take as many whole steps as it
+     * allows, capturing transforms after each step, and update the
+     * interpolation fraction. Invoke on the thread that steps the space, while
+     * physics controls aren't reading the snapshot.
+     *
+     * @param timeInterval the simulation time to add (in seconds, &ge;0)
+     */
+    public void update(float timeInterval) {
+        Validate.nonNegative(timeInterval, "time interval");
+
+        accumulator += timeInterval;
+        int stepsToTake = (int) (accumulator / stepSize);
+        if (stepsToTake > maxStepsPerUpdate) {
+            stepsToTake = maxStepsPerUpdate;
+            accumulator = stepsToTake * stepSize;
+        }
+
+        for (int i = 0; i < stepsToTake; ++i) {
+            space.update(stepSize, 0);
+            snapshot.capture(space);
+            accumulator -= stepSize;
+        }
+        numSteps += stepsToTake;
+
+        float alpha = accumulator / stepSize;
+        alpha = Math.max(0f, Math.min(1f, alpha));
+        snapshot.setAlpha(alpha);
+    }
+}
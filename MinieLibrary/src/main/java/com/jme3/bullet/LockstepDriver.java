@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.app.AppTask;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Drive a PhysicsSpace in lockstep: one fixed-size step at a time, with
+ * scheduled tasks run in a deterministic order before each step, and a
+ * 64-bit hash of every body's transform and velocities computed after each
+ * step, so that peers can verify they advanced identically.
+ * <p>
+ * Transforms and velocities are read in bulk, in slot order, using
+ * {@link PhysicsSpace#readTransforms(CollisionObjectSlots,
+ * java.nio.FloatBuffer, boolean)}, and hashed bit-for-bit using 64-bit
+ * FNV-1a over the little-endian bytes of each float. Static and kinematic
+ * bodies contribute zero velocities. For 2 spaces to hash alike, their bodies
+ * must have the same slots and must have been added to the spaces in the same
+ * order. Tick listeners already run in registration order. Tasks that affect
+ * the simulation should be scheduled using
+ * {@link #enqueue(long, int, java.util.concurrent.Callable)} rather than
+ * {@link PhysicsSpace#enqueue(java.util.concurrent.Callable)}, whose order
+ * depends on thread timing.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class LockstepDriver {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * 64-bit FNV prime, used to fold bytes into a hash
+     */
+    final private static long fnvPrime = 0x100000001B3L;
+    /**
+     * 64-bit FNV offset basis, the hash of empty input
+     */
+    final private static long fnvBasis = 0xCBF29CE484222325L;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(LockstepDriver.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * objects to hash and their slot assignments (not null)
+     */
+    final private CollisionObjectSlots slots;
+    /**
+     * simulation time per step (in seconds, &gt;0)
+     */
+    final private float stepSize;
+    /**
+     * packed transforms and velocities from the most recent step
+     */
+    private FloatBuffer motionBuffer;
+    /**
+     * tasks whose steps have come, sorted before each step
+     */
+    final private List<ScheduledTask> dueTasks = new ArrayList<>(16);
+    /**
+     * tasks scheduled but not yet run, in submission order
+     */
+    final private List<ScheduledTask> scheduled = new ArrayList<>(16);
+    /**
+     * world hash after each recent step, indexed by step modulo the length
+     */
+    final private long[] history;
+    /**
+     * per-slot hash after the most recent step
+     */
+    private long[] slotHashes;
+    /**
+     * index of the earliest step found to diverge, or -1 if none
+     */
+    private long firstDivergentStep = -1L;
+    /**
+     * total number of steps taken (&ge;0)
+     */
+    private long numSteps = 0L;
+    /**
+     * space being driven (not null)
+     */
+    final private PhysicsSpace space;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a driver for the specified space and set its accuracy to
+     * the step size.
+     *
+     * @param space the space to drive (not null, alias created)
+     * @param slots the objects to hash and their slot assignments (not null,
+     * alias created)
+     * @param stepSize the simulation time per step (in seconds, &gt;0)
+     * @param historyLength the number of recent world hashes to retain for
+     * verification (&gt;0)
+     */
+    public LockstepDriver(PhysicsSpace space, CollisionObjectSlots slots,
+            float stepSize, int historyLength) {
+        Validate.nonNull(space, "space");
+        Validate.nonNull(slots, "slots");
+        Validate.positive(stepSize, "step size");
+        Validate.positive(historyLength, "history length");
+
+        this.space = space;
+        this.slots = slots;
+        this.stepSize = stepSize;
+        space.setAccuracy(stepSize);
+
+        history = new long[historyLength];
+        int capacity = Math.max(16, slots.countSlots());
+        slotHashes = new long[capacity];
+        motionBuffer = BufferUtils.createFloatBuffer(
+                capacity * PhysicsSpace.FLOATS_PER_MOTION);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Copy the per-slot hashes from the most recent step, for instance to
+     * send to a peer after a world-hash mismatch.
+     *
+     * @param storeResult storage for the hashes (not null, length &ge;
+     * countSlots() of the slots, modified)
+     */
+    public void copySlotHashes(long[] storeResult) {
+        int numSlots = slots.countSlots();
+        Validate.require(storeResult.length >= numSlots,
+                "length sufficient for all slots");
+        System.arraycopy(slotHashes, 0, storeResult, 0, numSlots);
+    }
+
+    /**
+     * Count the steps taken since this driver was instantiated.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countSteps() {
+        assert numSteps >= 0L : numSteps;
+        return numSteps;
+    }
+
+    /**
+     * Schedule a task to run on the stepping thread just before the specified
+     * step. Tasks for the same step run in ascending order of their order
+     * keys, so no 2 pending tasks may share both step and order key:
+     * submission order depends on thread timing and can't break ties
+     * deterministically. A task scheduled for a step that's already been
+     * taken runs before the next step, with a warning, since a late task
+     * breaks determinism. Thread-safe.
+     *
+     * @param <V> the type of result returned by the callable
+     * @param step the index of the step the task should precede (&ge;0)
+     * @param order an order key, such as a player index (unique among the
+     * pending tasks for the step)
+     * @param callable the task to run (not null)
+     * @return a Future for the task (not null)
+     * @throws IllegalArgumentException if a pending task has the same step
+     * and order key
+     */
+    public <V> Future<V> enqueue(long step, int order, Callable<V> callable) {
+        Validate.nonNegative(step, "step");
+        Validate.nonNull(callable, "callable");
+
+        AppTask<V> task = new AppTask<>(callable);
+        ScheduledTask entry = new ScheduledTask(step, order, task);
+        synchronized (scheduled) {
+            for (ScheduledTask pending : scheduled) {
+                if (pending.compareTo(entry) == 0) {
+                    String message = "A task is already scheduled for step "
+                            + step + " with order key " + order + ".";
+                    throw new IllegalArgumentException(message);
+                }
+            }
+            scheduled.add(entry);
+        }
+
+        return task;
+    }
+
+    /**
+     * Find the first body whose hash differs from the specified hashes, for
+     * instance hashes received from a peer for the most recent step.
+     *
+     * @param expected the expected per-slot hashes (not null, unaffected)
+     * @return the pre-existing object, or null if all slots match or the
+     * divergent slot is vacant
+     */
+    public PhysicsCollisionObject findDivergentObject(long[] expected) {
+        int slot = findDivergentSlot(expected);
+        PhysicsCollisionObject result = null;
+        if (slot >= 0 && slot < slots.countSlots()) {
+            result = slots.get(slot);
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the first slot whose hash differs from the specified hashes, for
+     * instance hashes received from a peer for the most recent step.
+     *
+     * @param expected the expected per-slot hashes (not null, unaffected)
+     * @return the slot index, or -1 if all slots match
+     */
+    public int findDivergentSlot(long[] expected) {
+        Validate.nonNull(expected, "expected");
+
+        int numSlots = slots.countSlots();
+        int length = Math.min(numSlots, expected.length);
+        for (int slot = 0; slot < length; ++slot) {
+            if (slotHashes[slot] != expected[slot]) {
+                return slot;
+            }
+        }
+        if (expected.length != numSlots) {
+            return length;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the index of the earliest step found to diverge by
+     * {@link #verify(long, long)}.
+     *
+     * @return the step index, or -1 if no divergence has been found
+     */
+    public long firstDivergentStep() {
+        return firstDivergentStep;
+    }
+
+    /**
+     * Access the space being driven.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Read the world hash after the specified step.
+     *
+     * @param step the index of the step (&ge;0, &lt;countSteps(), within the
+     * retained history)
+     * @return the hash value
+     */
+    public long hashAt(long step) {
+        Validate.require(isRetained(step), "a step in the retained history");
+
+        int index = (int) (step % history.length);
+        long result = history[index];
+
+        return result;
+    }
+
+    /**
+     * Test whether the hash of the specified step is still retained.
+     *
+     * @param step the index of the step
+     * @return true if retained, otherwise false
+     */
+    public boolean isRetained(long step) {
+        boolean result = step >= 0L && step < numSteps
+                && step >= numSteps - history.length;
+        return result;
+    }
+
+    /**
+     * Read the hash of the specified slot after the most recent step.
+     *
+     * @param slot the slot index (&ge;0, &lt;countSlots() of the slots)
+     * @return the hash value (0 for a vacant slot)
+     */
+    public long slotHash(int slot) {
+        Validate.inRange(slot, "slot", 0, slots.countSlots() - 1);
+        long result = slotHashes[slot];
+        return result;
+    }
+
+    /**
+     * Run the tasks scheduled for the next step, take the step, and hash the
+     * resulting state. Invoke on the thread that steps the space.
+     *
+     * @return the world hash after the step
+     */
+    public long step() {
+        runDueTasks();
+        space.update(stepSize, 0);
+        long result = hashState();
+
+        int index = (int) (numSteps % history.length);
+        history[index] = result;
+        ++numSteps;
+
+        return result;
+    }
+
+    /**
+     * Read the simulation time per step.
+     *
+     * @return the step size (in seconds, &gt;0)
+     */
+    public float stepSize() {
+        assert stepSize > 0f : stepSize;
+        return stepSize;
+    }
+
+    /**
+     * Compare the world hash of the specified step with an expected value,
+     * for instance one received from a peer. A mismatch is recorded as a
+     * divergence.
+     *
+     * @param step the index of the step (&ge;0, &lt;countSteps(), within the
+     * retained history)
+     * @param expectedHash the expected world hash
+     * @return true if the hashes match, otherwise false
+     */
+    public boolean verify(long step, long expectedHash) {
+        long actualHash = hashAt(step);
+        if (actualHash == expectedHash) {
+            return true;
+        }
+
+        if (firstDivergentStep < 0L || step < firstDivergentStep) {
+            firstDivergentStep = step;
+            logger.log(Level.WARNING, "Simulation diverged at step {0}.",
+                    step);
+        }
+
+        return false;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Fold the low-order bytes of the specified value into a 64-bit FNV-1a
+     * hash, least-significant byte first.
+     *
+     * @param hash the hash to update
+     * @param value the value to fold in (only its low-order bytes are used)
+     * @param numBytes the number of bytes to fold (&ge;0, &le;8)
+     * @return the updated hash
+     */
+    private static long fold(long hash, long value, int numBytes) {
+        long result = hash;
+        for (int byteIndex = 0; byteIndex < numBytes; ++byteIndex) {
+            long octet = (value >>> (8 * byteIndex)) & 0xffL;
+            result ^= octet;
+            result *= fnvPrime;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the motion of every slotted object in bulk and hash it.
+     *
+     * @return the world hash
+     */
+    private long hashState() {
+        int numSlots = slots.countSlots();
+        int stride = PhysicsSpace.FLOATS_PER_MOTION;
+        if (numSlots > slotHashes.length) {
+            int capacity = Math.max(numSlots, 2 * slotHashes.length);
+            slotHashes = new long[capacity];
+            motionBuffer = BufferUtils.createFloatBuffer(capacity * stride);
+        }
+        space.readTransforms(slots, motionBuffer, true);
+
+        long result = fnvBasis;
+        for (int slot = 0; slot < numSlots; ++slot) {
+            long slotHash = 0L;
+            if (slots.get(slot) != null) {
+                slotHash = fnvBasis;
+                int base = slot * stride;
+                for (int i = 0; i < stride; ++i) {
+                    float value = motionBuffer.get(base + i);
+                    long bits = Float.floatToRawIntBits(value) & 0xffffffffL;
+                    slotHash = fold(slotHash, bits, 4);
+                }
+            }
+            slotHashes[slot] = slotHash;
+            result = fold(result, slotHash, 8);
+        }
+
+        return result;
+    }
+
+    /**
+     * Run the tasks whose steps have come, in deterministic order.
+     */
+    private void runDueTasks() {
+        synchronized (scheduled) {
+            Iterator<ScheduledTask> iterator = scheduled.iterator();
+            while (iterator.hasNext()) {
+                ScheduledTask entry = iterator.next();
+                if (entry.step <= numSteps) {
+                    dueTasks.add(entry);
+                    iterator.remove();
+                }
+            }
+        }
+        if (dueTasks.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(dueTasks);
+        for (ScheduledTask entry : dueTasks) {
+            if (entry.step < numSteps) {
+                logger.log(Level.WARNING,
+                        "Task for step {0} ran late, before step {1}.",
+                        new Object[]{entry.step, numSteps});
+            }
+            if (!entry.task.isCancelled()) {
+                entry.task.invoke();
+            }
+        }
+        dueTasks.clear();
+    }
+}
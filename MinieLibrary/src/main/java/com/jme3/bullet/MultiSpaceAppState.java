@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.renderer.RenderManager;
+import com.jme3.util.SafeArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An AppState to step many independent physics spaces concurrently on a
+ * fixed-size, work-stealing pool of worker threads.
+ * <p>
+ * As with BulletAppState in PARALLEL mode, the spaces are stepped while the
+ * scene renders, and collision events are distributed on the render thread
+ * during the next update. While a space is being stepped, it is bound to the
+ * worker thread, so that {@link PhysicsSpace#getPhysicsSpace()} works in tick
+ * listeners. Each space is stepped by at most one thread at a time.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class MultiSpaceAppState extends AbstractAppState {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(MultiSpaceAppState.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if tasks were submitted during the most recent render
+     */
+    private boolean isStepping = false;
+    /**
+     * simulation speed multiplier (paused=0)
+     */
+    private float speed = 1f;
+    /**
+     * time interval between frames (in seconds) from the most recent update
+     */
+    private float tpf;
+    /**
+     * pool of worker threads, or null if not initialized
+     */
+    private ForkJoinPool pool;
+    /**
+     * number of worker threads (&gt;0)
+     */
+    final private int numThreads;
+    /**
+     * one task for each managed space
+     */
+    final private List<SpaceStepTask> tasks
+            = new SafeArrayList<>(SpaceStepTask.class);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled app state with no spaces and one worker thread
+     * per available processor.
+     */
+    public MultiSpaceAppState() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiate an enabled app state with no spaces.
+     *
+     * @param numThreads the number of worker threads (&gt;0)
+     */
+    public MultiSpaceAppState(int numThreads) {
+        Validate.positive(numThreads, "number of threads");
+        this.numThreads = numThreads;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified space to those managed by this state. Not allowed
+     * while the spaces are being stepped.
+     *
+     * @param space the space to add (not null, not already managed, alias
+     * created)
+     */
+    public void addSpace(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+        assert !isStepping;
+        assert findTask(space) == null;
+
+        SpaceStepTask task = new SpaceStepTask(space);
+        tasks.add(task);
+    }
+
+    /**
+     * Count the managed spaces.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSpaces() {
+        int result = tasks.size();
+        return result;
+    }
+
+    /**
+     * Count the worker threads.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countThreads() {
+        assert numThreads > 0 : numThreads;
+        return numThreads;
+    }
+
+    /**
+     * Access the step-time statistics of the specified space, for use in
+     * rebalancing the load. Read them only between frames, or on the render
+     * thread after postRender().
+     *
+     * @param space the space to find (not null, unaffected)
+     * @return the pre-existing instance (not null)
+     */
+    public StepMetrics getMetrics(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        SpaceStepTask task = findTask(space);
+        Validate.require(task != null, "a managed space");
+        StepMetrics result = task.getMetrics();
+
+        return result;
+    }
+
+    /**
+     * Determine the physics simulation speed.
+     *
+     * @return the speedup factor (&ge;0, default=1)
+     */
+    public float getSpeed() {
+        assert speed >= 0f : speed;
+        return speed;
+    }
+
+    /**
+     * Enumerate the managed spaces.
+     *
+     * @return a new list of pre-existing spaces (not null)
+     */
+    public List<PhysicsSpace> listSpaces() {
+        List<PhysicsSpace> result = new ArrayList<>(tasks.size());
+        for (SpaceStepTask task : tasks) {
+            PhysicsSpace space = task.getSpace();
+            result.add(space);
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove the specified space from those managed by this state. Not allowed
+     * while the spaces are being stepped.
+     *
+     * @param space the space to remove (not null, managed)
+     */
+    public void removeSpace(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+        assert !isStepping;
+
+        SpaceStepTask task = findTask(space);
+        Validate.require(task != null, "a managed space");
+        tasks.remove(task);
+    }
+
+    /**
+     * Alter the physics simulation speed.
+     *
+     * @param speed the desired speedup factor (&ge;0, default=1)
+     */
+    public void setSpeed(float speed) {
+        Validate.nonNegative(speed, "speed");
+        this.speed = speed;
+    }
+    // *************************************************************************
+    // AbstractAppState methods
+
+    /**
+     * Transition this state from terminating to detached. Should be invoked
+     * only by a subclass or by the AppStateManager.
+     */
+    @Override
+    public void cleanup() {
+        super.cleanup();
+
+        awaitSteps();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1L, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            logger.log(Level.WARNING, null, exception);
+        }
+        pool = null;
+    }
+
+    /**
+     * Initialize this state prior to its first update. Should be invoked only
+     * by a subclass or by the AppStateManager.
+     *
+     * @param stateManager the manager for this state (not null)
+     * @param app the application which owns this state (not null)
+     */
+    @Override
+    public void initialize(AppStateManager stateManager, Application app) {
+        super.initialize(stateManager, app);
+        pool = new ForkJoinPool(numThreads);
+    }
+
+    /**
+     * Wait for all spaces to finish stepping. Should be invoked only by a
+     * subclass or by the AppStateManager. Invoked once per frame, provided the
+     * state is attached and enabled.
+     */
+    @Override
+    public void postRender() {
+        super.postRender();
+        awaitSteps();
+    }
+
+    /**
+     * Start stepping all spaces. Should be invoked only by a subclass or by
+     * the AppStateManager. Invoked once per frame, provided the state is
+     * attached and enabled.
+     *
+     * @param rm the render manager (not null)
+     */
+    @Override
+    public void render(RenderManager rm) {
+        super.render(rm);
+
+        assert !isStepping;
+        float timeInterval = tpf * speed;
+        for (SpaceStepTask task : tasks) {
+            task.prepare(timeInterval);
+            pool.execute(task);
+        }
+        isStepping = true;
+    }
+
+    /**
+     * Distribute the collision events of each space. Should be invoked only by
+     * a subclass or by the AppStateManager. Invoked once per frame, provided
+     * the state is attached and enabled.
+     *
+     * @param tpf the time interval between frames (in seconds, &ge;0)
+     */
+    @Override
+    public void update(float tpf) {
+        super.update(tpf);
+        this.tpf = tpf;
+
+        for (SpaceStepTask task : tasks) {
+            PhysicsSpace space = task.getSpace();
+            space.distributeEvents();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Wait for the tasks submitted during the most recent render, if any.
+     */
+    private void awaitSteps() {
+        if (isStepping) {
+            RuntimeException failure = null;
+            for (SpaceStepTask task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException exception) {
+                    logger.log(Level.SEVERE, null, exception);
+                    failure = exception;
+                }
+            }
+            isStepping = false;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Find the task for the specified space.
+     *
+     * @param space the space to find (unaffected)
+     * @return the pre-existing task, or null if not found
+     */
+    private SpaceStepTask findTask(PhysicsSpace space) {
+        for (SpaceStepTask task : tasks) {
+            if (task.getSpace() == space) {
+                return task;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * The bookkeeping for one rigid body in a PartitionedWorld: the tile that
+ * owns and simulates the body, plus the kinematic proxies that represent it
+ * in neighboring tiles.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class PartitionedBody {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PartitionedBody.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * proxies of the body, in the same order as proxyTiles
+     */
+    final List<PhysicsRigidBody> proxies = new ArrayList<>(3);
+    /**
+     * tiles that contain a proxy of the body, in the same order as proxies
+     */
+    final List<WorldTile> proxyTiles = new ArrayList<>(3);
+    /**
+     * the body (not null)
+     */
+    final PhysicsRigidBody body;
+    /**
+     * tile that owns and simulates the body (not null)
+     */
+    WorldTile owner;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate bookkeeping for the specified body.
+     *
+     * @param body the body (not null, alias created)
+     * @param owner the tile that owns the body (not null, alias created)
+     */
+    PartitionedBody(PhysicsRigidBody body, WorldTile owner) {
+        assert body != null;
+        assert owner != null;
+
+        this.body = body;
+        this.owner = owner;
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A logical physics world partitioned into square tiles of the X-Z plane,
+ * each backed by its own PhysicsSpace, with the tiles stepped in parallel on
+ * a pool of worker threads.
+ * <p>
+ * Each rigid body is owned and simulated by exactly one tile: the one
+ * containing its center. A body is handed off to a neighboring tile once its
+ * center strays past the owner's border by more than half the overlap
+ * margin, so bodies on a border don't ping-pong. While a body's bounding box
+ * lies within the margin of a neighboring tile, that tile contains a proxy:
+ * a kinematic copy of the body, with the same contact properties, that is
+ * driven from frame to frame with the body's transform and velocities.
+ * Proxies push the bodies of neighboring tiles, but aren't pushed back, so
+ * cross-border interactions are one-way for up to one frame.
+ * <p>
+ * Tiles are created on demand. Joints and soft bodies aren't partitioned:
+ * add them directly to the space of a tile if needed.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PartitionedWorld {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PartitionedWorld.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * width of the overlap margin along each tile border (in physics-space
+     * units, &ge;0)
+     */
+    final private float margin;
+    /**
+     * width of each tile (in physics-space units, &gt;margin)
+     */
+    final private float tileSize;
+    /**
+     * pool of worker threads (not null)
+     */
+    final private ForkJoinPool pool;
+    /**
+     * bookkeeping for each partitioned body
+     */
+    final private Map<PhysicsRigidBody, PartitionedBody> bodies
+            = new IdentityHashMap<>(256);
+    /**
+     * map each proxy to the body it represents
+     */
+    final private Map<PhysicsRigidBody, PhysicsRigidBody> proxyOwners
+            = new IdentityHashMap<>(64);
+    /**
+     * map packed tile coordinates to tiles
+     */
+    final private Map<Long, WorldTile> tiles = new HashMap<>(64);
+    /**
+     * temporary storage for a bounding box
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * temporary storage for an orientation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for a location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    /**
+     * temporary storage for a velocity
+     */
+    final private Vector3f tmpVelocity = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty world with the specified geometry.
+     *
+     * @param tileSize the width of each tile (in physics-space units,
+     * &gt;margin)
+     * @param margin the width of the overlap margin along each tile border
+     * (in physics-space units, &ge;0)
+     * @param numThreads the number of worker threads (&gt;0)
+     */
+    public PartitionedWorld(float tileSize, float margin, int numThreads) {
+        Validate.nonNegative(margin, "margin");
+        if (!(tileSize > margin)) {
+            throw new IllegalArgumentException(
+                    "The tile size must exceed the margin.");
+        }
+        Validate.positive(numThreads, "number of threads");
+
+        this.tileSize = tileSize;
+        this.margin = margin;
+        pool = new ForkJoinPool(numThreads);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified body to the tile containing its center, creating the
+     * tile if necessary.
+     *
+     * @param body the body to add (not null, not in any space, alias created)
+     */
+    public void addBody(PhysicsRigidBody body) {
+        Validate.nonNull(body, "body");
+        Validate.require(!body.isInWorld(), "a body not in any space");
+        assert !bodies.containsKey(body);
+
+        body.getPhysicsLocation(tmpLocation);
+        int tileX = tileCoordinate(tmpLocation.x);
+        int tileZ = tileCoordinate(tmpLocation.z);
+        WorldTile owner = findOrCreateTile(tileX, tileZ);
+        owner.space.addCollisionObject(body);
+
+        PartitionedBody partitioned = new PartitionedBody(body, owner);
+        bodies.put(body, partitioned);
+        syncProxies(partitioned);
+    }
+
+    /**
+     * Test whether the specified body is partitioned by this world. Proxies
+     * aren't.
+     *
+     * @param body the body to test (unaffected)
+     * @return true if partitioned, otherwise false
+     */
+    public boolean contains(PhysicsRigidBody body) {
+        boolean result = bodies.containsKey(body);
+        return result;
+    }
+
+    /**
+     * Count the partitioned bodies, excluding proxies.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        int result = bodies.size();
+        return result;
+    }
+
+    /**
+     * Count the proxies in all tiles.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countProxies() {
+        int result = proxyOwners.size();
+        return result;
+    }
+
+    /**
+     * Count the worker threads.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countThreads() {
+        int result = pool.getParallelism();
+        return result;
+    }
+
+    /**
+     * Count the tiles created so far.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countTiles() {
+        int result = tiles.size();
+        return result;
+    }
+
+    /**
+     * Find the body represented by the specified proxy, for instance to
+     * resolve collision events that involve proxies.
+     *
+     * @param proxy the proxy to look up (unaffected)
+     * @return the pre-existing body, or null if the argument isn't a proxy
+     */
+    public PhysicsRigidBody findOwner(PhysicsRigidBody proxy) {
+        PhysicsRigidBody result = proxyOwners.get(proxy);
+        return result;
+    }
+
+    /**
+     * Access the space that simulates the specified body.
+     *
+     * @param body the body to find (unaffected)
+     * @return the pre-existing space, or null if the body isn't partitioned
+     */
+    public PhysicsSpace getSpace(PhysicsRigidBody body) {
+        PartitionedBody partitioned = bodies.get(body);
+        PhysicsSpace result
+                = (partitioned == null) ? null : partitioned.owner.space;
+
+        return result;
+    }
+
+    /**
+     * Enumerate the spaces of all tiles created so far.
+     *
+     * @return a new list of pre-existing spaces (not null)
+     */
+    public List<PhysicsSpace> listSpaces() {
+        List<PhysicsSpace> result = new ArrayList<>(tiles.size());
+        for (WorldTile tile : tiles.values()) {
+            result.add(tile.space);
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the width of the overlap margin.
+     *
+     * @return the width (in physics-space units, &ge;0)
+     */
+    public float margin() {
+        assert margin >= 0f : margin;
+        return margin;
+    }
+
+    /**
+     * Remove the specified body (and its proxies) from the world.
+     *
+     * @param body the body to remove (not null, partitioned)
+     */
+    public void removeBody(PhysicsRigidBody body) {
+        Validate.nonNull(body, "body");
+        PartitionedBody partitioned = bodies.remove(body);
+        Validate.require(partitioned != null, "a partitioned body");
+
+        for (int i = partitioned.proxies.size() - 1; i >= 0; --i) {
+            removeProxy(partitioned, i);
+        }
+        partitioned.owner.space.removeCollisionObject(body);
+    }
+
+    /**
+     * Shut down the worker threads. The world cannot be updated afterward.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Read the width of each tile.
+     *
+     * @return the width (in physics-space units, &gt;0)
+     */
+    public float tileSize() {
+        assert tileSize > 0f : tileSize;
+        return tileSize;
+    }
+
+    /**
+     * Step all tiles in parallel, distribute their collision events on the
+     * current thread, then hand off bodies that crossed tile borders and
+     * update the proxies.
+     *
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     */
+    public void update(float timeInterval) {
+        Validate.nonNegative(timeInterval, "time interval");
+
+        for (WorldTile tile : tiles.values()) {
+            tile.task.prepare(timeInterval);
+            pool.execute(tile.task);
+        }
+
+        RuntimeException failure = null;
+        for (WorldTile tile : tiles.values()) {
+            try {
+                tile.task.join();
+            } catch (RuntimeException exception) {
+                logger.log(Level.SEVERE, null, exception);
+                failure = exception;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        for (WorldTile tile : tiles.values()) {
+            tile.space.distributeEvents();
+        }
+        /*
+         * Handoffs may create tiles, so snapshot the bodies first.
+         */
+        List<PartitionedBody> list = new ArrayList<>(bodies.values());
+        for (PartitionedBody partitioned : list) {
+            handOff(partitioned);
+            syncProxies(partitioned);
+        }
+    }
+    // *************************************************************************
+    // new protected methods
+
+    /**
+     * Create the space for a new tile. Override this method to customize the
+     * broadphase, solver, gravity, and so on. Every tile should have the same
+     * gravity.
+     *
+     * @param tileMin the minimum coordinates of the tile, including its
+     * margin (in physics-space coordinates, not null, unaffected)
+     * @param tileMax the maximum coordinates of the tile, including its
+     * margin (in physics-space coordinates, not null, unaffected)
+     * @return a new, empty space (not null)
+     */
+    protected PhysicsSpace createSpace(Vector3f tileMin, Vector3f tileMax) {
+        PhysicsSpace result = new PhysicsSpace(tileMin, tileMax,
+                PhysicsSpace.BroadphaseType.DBVT);
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a kinematic proxy to represent the specified body in another
+     * tile, with the same contact properties.
+     *
+     * @param body the body to represent (not null, unaffected)
+     * @return a new proxy, not in any space
+     */
+    private static PhysicsRigidBody createProxy(PhysicsRigidBody body) {
+        /*
+         * A static body can't be kinematic, so give the proxy of a static body
+         * a nominal mass. Kinematic bodies aren't influenced by their masses.
+         */
+        float mass = body.getMass();
+        if (mass == PhysicsRigidBody.massForStatic) {
+            mass = 1f;
+        }
+        PhysicsRigidBody result
+                = new PhysicsRigidBody(body.getCollisionShape(), mass);
+        result.setKinematic(true);
+
+        result.copyPcoProperties(body);
+        result.setContactResponse(body.isContactResponse());
+        result.setCollisionGroup(body.getCollisionGroup());
+        result.setCollideWithGroups(body.getCollideWithGroups());
+
+        return result;
+    }
+
+    /**
+     * Find the tile with the specified coordinates, creating it if necessary.
+     *
+     * @param tileX the tile coordinate along the X axis
+     * @param tileZ the tile coordinate along the Z axis
+     * @return the pre-existing or new tile (not null)
+     */
+    private WorldTile findOrCreateTile(int tileX, int tileZ) {
+        long key = ((long) tileX << 32) | (tileZ & 0xffffffffL);
+        WorldTile result = tiles.get(key);
+        if (result == null) {
+            float extent = 10000f;
+            Vector3f tileMin = new Vector3f(tileX * tileSize - margin,
+                    -extent, tileZ * tileSize - margin);
+            Vector3f tileMax = new Vector3f((tileX + 1) * tileSize + margin,
+                    extent, (tileZ + 1) * tileSize + margin);
+            PhysicsSpace space = createSpace(tileMin, tileMax);
+            result = new WorldTile(tileX, tileZ, space);
+            tiles.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Hand off the specified body to a neighboring tile if its center has
+     * strayed far enough from the owner tile.
+     *
+     * @param partitioned the body's bookkeeping (not null)
+     */
+    private void handOff(PartitionedBody partitioned) {
+        PhysicsRigidBody body = partitioned.body;
+        body.getPhysicsLocation(tmpLocation);
+
+        WorldTile owner = partitioned.owner;
+        float slack = 0.5f * margin;
+        float minX = owner.tileX * tileSize - slack;
+        float minZ = owner.tileZ * tileSize - slack;
+        float maxX = minX + tileSize + margin;
+        float maxZ = minZ + tileSize + margin;
+        if (tmpLocation.x >= minX && tmpLocation.x <= maxX
+                && tmpLocation.z >= minZ && tmpLocation.z <= maxZ) {
+            return;
+        }
+
+        int tileX = tileCoordinate(tmpLocation.x);
+        int tileZ = tileCoordinate(tmpLocation.z);
+        WorldTile newOwner = findOrCreateTile(tileX, tileZ);
+        int proxyIndex = partitioned.proxyTiles.indexOf(newOwner);
+        if (proxyIndex >= 0) {
+            removeProxy(partitioned, proxyIndex);
+        }
+
+        owner.space.removeCollisionObject(body);
+        newOwner.space.addCollisionObject(body);
+        partitioned.owner = newOwner;
+    }
+
+    /**
+     * Remove the indexed proxy of the specified body from its tile.
+     *
+     * @param partitioned the body's bookkeeping (not null)
+     * @param index the index of the proxy (&ge;0)
+     */
+    private void removeProxy(PartitionedBody partitioned, int index) {
+        PhysicsRigidBody proxy = partitioned.proxies.remove(index);
+        WorldTile tile = partitioned.proxyTiles.remove(index);
+        tile.space.removeCollisionObject(proxy);
+        proxyOwners.remove(proxy);
+    }
+
+    /**
+     * Create, drive, or remove proxies so that every tile whose margin
+     * overlaps the body's bounding box (other than the owner) contains a
+     * kinematic proxy with the body's current transform and velocities.
+     *
+     * @param partitioned the body's bookkeeping (not null)
+     */
+    private void syncProxies(PartitionedBody partitioned) {
+        PhysicsRigidBody body = partitioned.body;
+        body.boundingBox(tmpBox);
+        Vector3f min = tmpBox.getMin(tmpLocation);
+        int x0 = tileCoordinate(min.x - margin);
+        int z0 = tileCoordinate(min.z - margin);
+        Vector3f max = tmpBox.getMax(tmpLocation);
+        int x1 = tileCoordinate(max.x + margin);
+        int z1 = tileCoordinate(max.z + margin);
+        /*
+         * Remove proxies that are no longer needed.
+         */
+        WorldTile owner = partitioned.owner;
+        for (int i = partitioned.proxies.size() - 1; i >= 0; --i) {
+            WorldTile tile = partitioned.proxyTiles.get(i);
+            if (tile == owner || tile.tileX < x0 || tile.tileX > x1
+                    || tile.tileZ < z0 || tile.tileZ > z1) {
+                removeProxy(partitioned, i);
+            }
+        }
+        /*
+         * Create and move proxies.
+         */
+        body.getPhysicsLocation(tmpLocation);
+        body.getPhysicsRotation(tmpRotation);
+        for (int tileX = x0; tileX <= x1; ++tileX) {
+            for (int tileZ = z0; tileZ <= z1; ++tileZ) {
+                if (tileX == owner.tileX && tileZ == owner.tileZ) {
+                    continue;
+                }
+
+                WorldTile tile = findOrCreateTile(tileX, tileZ);
+                int index = partitioned.proxyTiles.indexOf(tile);
+                PhysicsRigidBody proxy;
+                if (index >= 0) {
+                    proxy = partitioned.proxies.get(index);
+                } else {
+                    proxy = createProxy(body);
+                    tile.space.addCollisionObject(proxy);
+                    partitioned.proxies.add(proxy);
+                    partitioned.proxyTiles.add(tile);
+                    proxyOwners.put(proxy, body);
+                }
+                proxy.setPhysicsLocation(tmpLocation);
+                proxy.setPhysicsRotation(tmpRotation);
+                if (body.isDynamic()) {
+                    /*
+                     * Drive the proxy with the body's velocities, so that it
+                     * imparts the body's momentum to the bodies it strikes.
+                     */
+                    body.getLinearVelocity(tmpVelocity);
+                    proxy.setLinearVelocity(tmpVelocity);
+                    body.getAngularVelocity(tmpVelocity);
+                    proxy.setAngularVelocity(tmpVelocity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a physics-space coordinate to a tile coordinate.
+     *
+     * @param coordinate the input coordinate
+     * @return the tile coordinate
+     */
+    private int tileCoordinate(float coordinate) {
+        int result = (int) Math.floor(coordinate / tileSize);
+        return result;
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Record per-frame timings and counts for a PhysicsSpace, to reveal where
+ * each physics frame goes.
+ * <p>
+ * Timings are recorded for each {@link Phase} and for each listener
+ * invocation. Completed frames are retained in a ring buffer of fixed
+ * capacity, from which a {@link ProfilerSnapshot} can be exported at any time.
+ * A frame ends each time the space distributes events.
+ * <p>
+ * Listener timings are accumulated without locking into per-frame arrays
+ * owned by the thread that steps the space, and merged into the listener
+ * statistics when the frame ends, so snapshots include completed frames only.
+ * <p>
+ * While disabled, the profiler records nothing and the space skips all
+ * timing, so a disabled profiler costs one test per callback.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setProfiler(PhysicsProfiler)
+ */
+public class PhysicsProfiler {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Enumerate the quantities counted during each frame.
+     */
+    public enum Counter {
+        /**
+         * rigid bodies (including vehicles) in the space at the end of the
+         * frame
+         */
+        BODIES,
+        /**
+         * collision events distributed to listeners
+         */
+        EVENTS,
+        /**
+         * physics tasks executed from the queue
+         */
+        TASKS,
+        /**
+         * physics ticks (substeps) simulated
+         */
+        TICKS
+    }
+
+    /**
+     * Enumerate the timed phases of each frame. Phases nested inside STEP
+     * (COMMANDS, POST_TICK, PRE_TICK, and TASKS) are also included in its
+     * timing.
+     */
+    public enum Phase {
+        /**
+         * capturing a TransformSnapshot (PIPELINED threading mode)
+         */
+        CAPTURE,
+        /**
+         * applying rigid-body command buffers before each tick
+         */
+        COMMANDS,
+        /**
+         * updating the RigidBodyControl and VehicleControl instances that
+         * read from the space (other physics controls aren't timed)
+         */
+        CONTROLS,
+        /**
+         * distributing collision events, contact reports, and pair
+         * notifications to listeners
+         */
+        EVENTS,
+        /**
+         * invoking tick listeners after each tick
+         */
+        POST_TICK,
+        /**
+         * invoking tick listeners before each tick
+         */
+        PRE_TICK,
+        /**
+         * stepping the native simulation, including all callbacks
+         */
+        STEP,
+        /**
+         * executing queued physics tasks before each tick
+         */
+        TASKS
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsProfiler.class.getName());
+    /**
+     * number of counters per frame
+     */
+    final private static int numCounters = Counter.values().length;
+    /**
+     * number of phases per frame
+     */
+    final private static int numPhases = Phase.values().length;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if recording, otherwise false
+     */
+    private volatile boolean isEnabled = true;
+    /**
+     * maximum number of frames retained (&gt;0)
+     */
+    final private int capacity;
+    /**
+     * dense index of the most recently timed listener in the frame in
+     * progress, used as a search hint
+     */
+    private int lastListener = 0;
+    /**
+     * number of distinct listeners timed in the frame in progress (&ge;0)
+     */
+    private int numFrameListeners = 0;
+    /**
+     * ring index of the next frame to be completed (&ge;0, &lt;capacity)
+     */
+    private int nextFrame = 0;
+    /**
+     * number of completed frames retained (&ge;0, &le;capacity)
+     */
+    private int numFrames = 0;
+    /**
+     * counts for the frame in progress, indexed by Counter ordinal
+     */
+    final private long[] frameCounts = new long[numCounters];
+    /**
+     * timings for the frame in progress (in nanoseconds), indexed by Phase
+     * ordinal
+     */
+    final private long[] frameNanos = new long[numPhases];
+    /**
+     * ring buffer of counts for completed frames
+     */
+    final private long[] ringCounts;
+    /**
+     * ring buffer of timings for completed frames (in nanoseconds)
+     */
+    final private long[] ringNanos;
+    /**
+     * invocation count, total nanoseconds, and maximum nanoseconds of each
+     * listener timed in the frame in progress, indexed by 3 times its dense
+     * index (owned by the stepping thread)
+     */
+    private long[] frameListenerStats = new long[3 * 8];
+    /**
+     * listeners timed in the frame in progress, densely packed (owned by the
+     * stepping thread)
+     */
+    private Object[] frameListeners = new Object[8];
+    /**
+     * listeners to forget at the end of the frame in progress
+     */
+    final private List<Object> forgetList = new ArrayList<>(4);
+    /**
+     * per-listener statistics since the last reset: number of invocations,
+     * total nanoseconds, and maximum nanoseconds
+     */
+    final private Map<Object, long[]> listenerStats = new IdentityHashMap<>(16);
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an enabled profiler that retains the specified number of
+     * frames.
+     *
+     * @param numFrames the capacity of the ring buffer (in frames, &gt;0)
+     */
+    public PhysicsProfiler(int numFrames) {
+        Validate.positive(numFrames, "number of frames");
+
+        capacity = numFrames;
+        ringCounts = new long[numFrames * numCounters];
+        ringNanos = new long[numFrames * numPhases];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add to the specified count of the frame in progress.
+     *
+     * @param counter which quantity (not null)
+     * @param amount the amount to add (&ge;0)
+     */
+    public synchronized void addCount(Counter counter, long amount) {
+        assert amount >= 0L : amount;
+        frameCounts[counter.ordinal()] += amount;
+    }
+
+    /**
+     * Record the duration of one invocation of the specified listener in the
+     * frame in progress. Doesn't lock: invoke only from the thread that steps
+     * the space and distributes its events, never concurrently with another
+     * invocation or with endFrame().
+     *
+     * @param listener the invoked listener (not null, alias created)
+     * @param nanos the duration (in nanoseconds, &ge;0)
+     */
+    public void addListenerNanos(Object listener, long nanos) {
+        assert nanos >= 0L : nanos;
+        /*
+         * Listeners are usually invoked in the same order every time,
+         * so begin the search just after the most recent match.
+         */
+        int index = -1;
+        for (int i = 0; i < numFrameListeners; ++i) {
+            int candidate = (lastListener + 1 + i) % numFrameListeners;
+            if (frameListeners[candidate] == listener) {
+                index = candidate;
+                break;
+            }
+        }
+        if (index < 0) {
+            index = addFrameListener(listener);
+        }
+        lastListener = index;
+
+        int base = 3 * index;
+        ++frameListenerStats[base];
+        frameListenerStats[base + 1] += nanos;
+        if (nanos > frameListenerStats[base + 2]) {
+            frameListenerStats[base + 2] = nanos;
+        }
+    }
+
+    /**
+     * Add to the specified timing of the frame in progress.
+     *
+     * @param phase which phase (not null)
+     * @param nanos the duration to add (in nanoseconds, &ge;0)
+     */
+    public synchronized void addNanos(Phase phase, long nanos) {
+        assert nanos >= 0L : nanos;
+        frameNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Read the capacity of the ring buffer.
+     *
+     * @return the number of frames (&gt;0)
+     */
+    public int capacity() {
+        assert capacity > 0 : capacity;
+        return capacity;
+    }
+
+    /**
+     * Count the completed frames retained in the ring buffer.
+     *
+     * @return the count (&ge;0, &le;capacity)
+     */
+    public synchronized int countFrames() {
+        assert numFrames >= 0 : numFrames;
+        assert numFrames <= capacity : numFrames;
+        return numFrames;
+    }
+
+    /**
+     * Complete the frame in progress and add it to the ring buffer,
+     * overwriting the oldest frame if the buffer is full. Its listener
+     * timings are merged into the listener statistics. Invoke on the thread
+     * that steps the space.
+     */
+    public synchronized void endFrame() {
+        System.arraycopy(frameCounts, 0, ringCounts, nextFrame * numCounters,
+                numCounters);
+        System.arraycopy(frameNanos, 0, ringNanos, nextFrame * numPhases,
+                numPhases);
+        mergeListenerStats();
+        clearFrame();
+
+        nextFrame = (nextFrame + 1) % capacity;
+        if (numFrames < capacity) {
+            ++numFrames;
+        }
+    }
+
+    /**
+     * Discard the statistics of the specified listener, for instance because
+     * it was de-registered. Takes effect at the end of the frame in progress.
+     *
+     * @param listener the listener to forget (not null, unaffected)
+     */
+    public synchronized void forgetListener(Object listener) {
+        Validate.nonNull(listener, "listener");
+        forgetList.add(listener);
+    }
+
+    /**
+     * Test whether this profiler is recording.
+     *
+     * @return true if enabled, otherwise false
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Discard all recorded frames and listener statistics, including the frame
+     * in progress. Invoke on the thread that steps the space, or while it's
+     * idle.
+     */
+    public synchronized void reset() {
+        clearFrame();
+        clearFrameListeners();
+        listenerStats.clear();
+        nextFrame = 0;
+        numFrames = 0;
+    }
+
+    /**
+     * Enable or disable recording. Disabling does not discard recorded data.
+     *
+     * @param setting true to enable, false to disable (default=true)
+     */
+    public void setEnabled(boolean setting) {
+        isEnabled = setting;
+    }
+
+    /**
+     * Export the recorded data.
+     *
+     * @return a new snapshot (not null)
+     */
+    public synchronized ProfilerSnapshot snapshot() {
+        long[] lastCounts = new long[numCounters];
+        long[] totalCounts = new long[numCounters];
+        long[] lastNanos = new long[numPhases];
+        long[] maxNanos = new long[numPhases];
+        long[] totalNanos = new long[numPhases];
+
+        for (int age = 0; age < numFrames; ++age) {
+            int frame = (nextFrame - 1 - age + capacity) % capacity;
+            for (int i = 0; i < numCounters; ++i) {
+                long count = ringCounts[frame * numCounters + i];
+                if (age == 0) {
+                    lastCounts[i] = count;
+                }
+                totalCounts[i] += count;
+            }
+            for (int i = 0; i < numPhases; ++i) {
+                long nanos = ringNanos[frame * numPhases + i];
+                if (age == 0) {
+                    lastNanos[i] = nanos;
+                }
+                if (nanos > maxNanos[i]) {
+                    maxNanos[i] = nanos;
+                }
+                totalNanos[i] += nanos;
+            }
+        }
+
+        Map<Object, long[]> stats = new IdentityHashMap<>(listenerStats.size());
+        for (Map.Entry<Object, long[]> entry : listenerStats.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().clone());
+        }
+
+        ProfilerSnapshot result = new ProfilerSnapshot(numFrames, lastCounts,
+                totalCounts, lastNanos, maxNanos, totalNanos, stats);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append the specified listener to the frame in progress, growing the
+     * per-frame arrays if necessary.
+     *
+     * @param listener the listener to add (not null, alias created)
+     * @return the listener's dense index (&ge;0)
+     */
+    private int addFrameListener(Object listener) {
+        int oldCapacity = frameListeners.length;
+        if (numFrameListeners == oldCapacity) {
+            Object[] newListeners = new Object[2 * oldCapacity];
+            System.arraycopy(frameListeners, 0, newListeners, 0, oldCapacity);
+            frameListeners = newListeners;
+
+            long[] newStats = new long[3 * 2 * oldCapacity];
+            System.arraycopy(frameListenerStats, 0, newStats, 0,
+                    3 * oldCapacity);
+            frameListenerStats = newStats;
+        }
+
+        int result = numFrameListeners;
+        frameListeners[result] = listener;
+        ++numFrameListeners;
+
+        return result;
+    }
+
+    /**
+     * Forget the listeners timed in the frame in progress.
+     */
+    private void clearFrameListeners() {
+        for (int i = 0; i < numFrameListeners; ++i) {
+            frameListeners[i] = null;
+        }
+        for (int i = 0; i < 3 * numFrameListeners; ++i) {
+            frameListenerStats[i] = 0L;
+        }
+        numFrameListeners = 0;
+        lastListener = 0;
+    }
+
+    /**
+     * Merge the listener timings of the frame in progress into the listener
+     * statistics, then discard the statistics of forgotten listeners.
+     */
+    private void mergeListenerStats() {
+        for (int i = 0; i < numFrameListeners; ++i) {
+            Object listener = frameListeners[i];
+            long[] stats = listenerStats.get(listener);
+            if (stats == null) {
+                stats = new long[3];
+                listenerStats.put(listener, stats);
+            }
+            int base = 3 * i;
+            stats[0] += frameListenerStats[base];
+            stats[1] += frameListenerStats[base + 1];
+            stats[2] = Math.max(stats[2], frameListenerStats[base + 2]);
+        }
+        clearFrameListeners();
+
+        for (Object listener : forgetList) {
+            listenerStats.remove(listener);
+        }
+        forgetList.clear();
+    }
+
+    /**
+     * Zero the counts and timings of the frame in progress.
+     */
+    private void clearFrame() {
+        for (int i = 0; i < numCounters; ++i) {
+            frameCounts[i] = 0L;
+        }
+        for (int i = 0; i < numPhases; ++i) {
+            frameNanos[i] = 0L;
+        }
+    }
+}
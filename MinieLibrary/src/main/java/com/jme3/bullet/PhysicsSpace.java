@@ -42,10 +42,12 @@ import com.jme3.bullet.objects.PhysicsBody;
 import com.jme3.bullet.objects.PhysicsCharacter;
 import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.util.SafeArrayList;
+import java.nio.FloatBuffer;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
@@ -111,6 +113,17 @@ public class PhysicsSpace extends CollisionSpace {
      * index of the Z axis
      */
     final public static int AXIS_Z = 2;
+    /**
+     * number of floats per slot written by readTransforms() when velocities
+     * are included: location (x,y,z), rotation (x,y,z,w), linear velocity
+     * (x,y,z), and angular velocity (x,y,z)
+     */
+    final public static int FLOATS_PER_MOTION = 13;
+    /**
+     * number of floats per slot written by readTransforms() when velocities
+     * are excluded: location (x,y,z) and rotation (x,y,z,w)
+     */
+    final public static int FLOATS_PER_TRANSFORM = 7;
     /**
      * message logger for this class
      */
@@ -119,6 +132,14 @@ public class PhysicsSpace extends CollisionSpace {
     // *************************************************************************
     // fields
 
+    /**
+     * recyclable events for the pooled event mode
+     */
+    final private CollisionEventPool eventPool = new CollisionEventPool();
+    /**
+     * colliding pairs tracked for contact reports
+     */
+    final private ContactPairTable contactPairs = new ContactPairTable();
     /**
      * contact-processed events not yet distributed to listeners
      */
@@ -142,6 +163,30 @@ public class PhysicsSpace extends CollisionSpace {
      * (&ge;0)
      */
     private int maxSubSteps = 4;
+    /**
+     * number of times a rigid body has been added to or removed from this
+     * space (&ge;0)
+     */
+    private volatile int numRigidBodyChanges = 0;
+    /**
+     * number of physics ticks simulated since this space was created (&ge;0)
+     */
+    private long numTicks = 0L;
+    /**
+     * list of registered command buffers
+     */
+    final private List<RigidBodyCommandBuffer> commandBuffers
+            = new SafeArrayList<>(RigidBodyCommandBuffer.class);
+    /**
+     * list of registered listeners for begin/persist/end pair notifications
+     */
+    final private SafeArrayList<ContactPairListener> contactPairListeners
+            = new SafeArrayList<>(ContactPairListener.class);
+    /**
+     * list of registered listeners for per-pair contact reports
+     */
+    final private SafeArrayList<ContactReportListener> contactReportListeners
+            = new SafeArrayList<>(ContactReportListener.class);
     /**
      * list of registered listeners for ongoing contacts
      */
@@ -182,6 +227,10 @@ public class PhysicsSpace extends CollisionSpace {
      */
     final private Queue<AppTask<?>> pQueue
             = new ConcurrentLinkedQueue<>();
+    /**
+     * profiler to record timings and counts, or null if not profiling
+     */
+    private PhysicsProfiler profiler = null;
     /**
      * parameters used by the contact-and-constraint solver
      */
@@ -190,6 +239,19 @@ public class PhysicsSpace extends CollisionSpace {
      * type of contact-and-constraint solver (not null)
      */
     private SolverType solverType = SolverType.SI;
+    /**
+     * spatial index to update after each step, or null if none
+     */
+    private SpatialHashIndex spatialIndex = null;
+    /**
+     * governor that limits substeps in update(float), or null if ungoverned
+     */
+    private SubstepGovernor governor = null;
+    /**
+     * snapshot for physics controls to read while this space is being
+     * stepped, or null to read transforms directly
+     */
+    private TransformSnapshot transformSnapshot = null;
     /**
      * first-in/first-out (FIFO) queue of physics tasks for each thread
      */
@@ -326,38 +388,12 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void addJoint(PhysicsJoint joint) {
         Validate.nonNull(joint, "joint");
-        if (contains(joint)) {
-            logger.log(Level.WARNING, "{0} is already added to {1}.",
-                    new Object[]{joint, this});
-            return;
-        }
-        assert joint.getPhysicsSpace() == null;
-        /*
-         * Warn if the jointed bodies aren't already added to this space.
-         */
-        PhysicsBody a = joint.getBodyA();
-        if (a != null && !contains(a)) {
-            logger.log(Level.WARNING,
-                    "{0} at the A end of {1} has not yet been added to {2}.",
-                    new Object[]{a, joint, this});
-        }
-        PhysicsBody b = joint.getBodyB();
-        if (b != null && !contains(b)) {
-            logger.log(Level.WARNING,
-                    "{0} at the B end of {1} has not yet been added to {2}.",
-                    new Object[]{b, joint, this});
-        }
-        assert a != b : a;
-
-        logger.log(Level.FINE, "Adding {0} to {1}.", new Object[]{joint, this});
-        long jointId = joint.nativeId();
-        jointMap.put(jointId, joint);
-        joint.setPhysicsSpace(this);
 
-        if (joint instanceof Constraint) {
-            long spaceId = nativeId();
-            boolean disableCollisions = false; // ignore lists are already set!
-            addConstraintC(spaceId, jointId, disableCollisions);
+        beginMutation();
+        try {
+            addPhysicsJoint(joint);
+        } finally {
+            endMutation();
         }
     }
 
@@ -379,6 +415,55 @@ public class PhysicsSpace extends CollisionSpace {
         tickListeners.add(listener);
     }
 
+    /**
+     * Register the specified command buffer. Pending commands in registered
+     * buffers are applied just before each physics step, after enqueued tasks
+     * but before tick listeners are notified.
+     *
+     * @param buffer the buffer to register (not null, alias created)
+     */
+    public void addCommandBuffer(RigidBodyCommandBuffer buffer) {
+        Validate.nonNull(buffer, "buffer");
+        assert !commandBuffers.contains(buffer);
+
+        commandBuffers.add(buffer);
+    }
+
+    /**
+     * Register the specified listener for begin/persist/end pair
+     * notifications.
+     * <p>
+     * During distributeEvents(), registered listeners are notified once for
+     * each pair of objects that began contact, remained in contact, or ended
+     * contact since the previous invocation. Pairs are tracked incrementally,
+     * so the cost is proportional to the number of pairs in contact.
+     *
+     * @param listener the listener object to register (not null, alias created)
+     */
+    public void addContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactPairListeners.contains(listener);
+
+        contactPairListeners.add(listener);
+    }
+
+    /**
+     * Register the specified listener for per-pair contact reports.
+     * <p>
+     * During distributeEvents(), registered listeners receive one report for
+     * each pair of objects in contact, plus a final report for each pair whose
+     * contact has ended. This is usually much cheaper than receiving one event
+     * per manifold point.
+     *
+     * @param listener the listener object to register (not null, alias created)
+     */
+    public void addContactReportListener(ContactReportListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactReportListeners.contains(listener);
+
+        contactReportListeners.add(listener);
+    }
+
     /**
      * Register the specified listener for ongoing contacts.
      * <p>
@@ -418,6 +503,48 @@ public class PhysicsSpace extends CollisionSpace {
         return result;
     }
 
+    /**
+     * Count how many command buffers are registered with this space.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countCommandBuffers() {
+        int result = commandBuffers.size();
+        return result;
+    }
+
+    /**
+     * Count how many contact-pair listeners are registered with this space.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countContactPairListeners() {
+        int result = contactPairListeners.size();
+        return result;
+    }
+
+    /**
+     * Count how many contact-report listeners are registered with this space.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countContactReportListeners() {
+        int result = contactReportListeners.size();
+        return result;
+    }
+
+    /**
+     * Count how many collision events have been dropped because the event pool
+     * was exhausted.
+     *
+     * @return the count (&ge;0)
+     * @see #setEventPoolCapacity(int)
+     */
+    public long countDroppedEvents() {
+        long result = eventPool.countDropped();
+        return result;
+    }
+
     /**
      * Count the joints in this space.
      *
@@ -431,6 +558,18 @@ public class PhysicsSpace extends CollisionSpace {
         return count;
     }
 
+    /**
+     * Count how many collision events the event pool has allocated, whether in
+     * use or available for re-use.
+     *
+     * @return the count (&ge;0)
+     * @see #setEventPoolCapacity(int)
+     */
+    public int countPooledEvents() {
+        int result = eventPool.countAllocated();
+        return result;
+    }
+
     /**
      * Count the rigid bodies in this space, including vehicles.
      *
@@ -441,6 +580,17 @@ public class PhysicsSpace extends CollisionSpace {
         return count;
     }
 
+    /**
+     * Count how many times a rigid body has been added to or removed from this
+     * space, so that callers can detect changes in membership without
+     * enumerating the bodies.
+     *
+     * @return the count (&ge;0)
+     */
+    int countRigidBodyChanges() {
+        return numRigidBodyChanges;
+    }
+
     /**
      * Count how many tick listeners are registered with this space.
      *
@@ -451,6 +601,16 @@ public class PhysicsSpace extends CollisionSpace {
         return count;
     }
 
+    /**
+     * Count the physics ticks simulated since this space was created.
+     *
+     * @return the count (&ge;0)
+     */
+    long countTicks() {
+        assert numTicks >= 0L : numTicks;
+        return numTicks;
+    }
+
     /**
      * For compatibility with the jme3-bullet library.
      */
@@ -462,19 +622,72 @@ public class PhysicsSpace extends CollisionSpace {
      * Distribute each collision event to registered listeners.
      */
     public void distributeEvents() {
+        PhysicsProfiler activeProfiler = activeProfiler();
+        long startNanos = (activeProfiler == null) ? 0L : System.nanoTime();
+        int numEvents
+                = contactStartedEvents.size() + contactProcessedEvents.size();
+
         while (!contactStartedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactStartedEvents.pop();
-            for (PhysicsCollisionListener listener : contactStartedListeners) {
-                listener.collision(event);
+            try {
+                for (PhysicsCollisionListener listener
+                        : contactStartedListeners) {
+                    if (activeProfiler == null) {
+                        listener.collision(event);
+                    } else {
+                        long listenerStart = System.nanoTime();
+                        listener.collision(event);
+                        activeProfiler.addListenerNanos(listener,
+                                System.nanoTime() - listenerStart);
+                    }
+                }
+            } finally {
+                /*
+                 * Return the event to the pool even if a listener throws.
+                 */
+                eventPool.free(event);
             }
         }
 
         while (!contactProcessedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactProcessedEvents.pop();
-            for (PhysicsCollisionListener listener : contactProcessedListeners) {
-                listener.collision(event);
+            try {
+                for (PhysicsCollisionListener listener
+                        : contactProcessedListeners) {
+                    if (activeProfiler == null) {
+                        listener.collision(event);
+                    } else {
+                        long listenerStart = System.nanoTime();
+                        listener.collision(event);
+                        activeProfiler.addListenerNanos(listener,
+                                System.nanoTime() - listenerStart);
+                    }
+                }
+            } finally {
+                /*
+                 * Return the event to the pool even if a listener throws.
+                 */
+                eventPool.free(event);
             }
         }
+
+        if (isTrackingPairs()) {
+            /*
+             * Listeners may (de-)register listeners during their callbacks,
+             * so notify a snapshot of each list.
+             */
+            contactPairs.distribute(contactReportListeners.getArray(),
+                    contactPairListeners.getArray());
+        }
+
+        if (activeProfiler != null) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            activeProfiler.addNanos(PhysicsProfiler.Phase.EVENTS, elapsedNanos);
+            activeProfiler.addCount(PhysicsProfiler.Counter.EVENTS, numEvents);
+            activeProfiler.addCount(PhysicsProfiler.Counter.BODIES,
+                    rigidMap.size());
+            activeProfiler.endFrame();
+        }
     }
 
     /**
@@ -506,6 +719,30 @@ public class PhysicsSpace extends CollisionSpace {
         return task;
     }
 
+    /**
+     * Read the capacity of the collision-event pool.
+     *
+     * @return the maximum number of events in use at once (&gt;0) or 0 if
+     * pooling is disabled
+     * @see #setEventPoolCapacity(int)
+     */
+    public int eventPoolCapacity() {
+        int result = eventPool.capacity();
+        return result;
+    }
+
+    /**
+     * Read the largest number of pooled collision events that have been in use
+     * at once since the counters were last reset.
+     *
+     * @return the count (&ge;0)
+     * @see #setEventPoolCapacity(int)
+     */
+    public int eventPoolHighWater() {
+        int result = eventPool.highWater();
+        return result;
+    }
+
     /**
      * Read the accuracy: the time step used when maxSubSteps&gt;0.
      *
@@ -595,6 +832,24 @@ public class PhysicsSpace extends CollisionSpace {
         return solverInfo.numIterations();
     }
 
+    /**
+     * Access the governor that limits substeps during update(float).
+     *
+     * @return the pre-existing instance, or null if ungoverned
+     */
+    public SubstepGovernor getGovernor() {
+        return governor;
+    }
+
+    /**
+     * Access the profiler that records timings and counts for this space.
+     *
+     * @return the pre-existing instance, or null if not profiling
+     */
+    public PhysicsProfiler getProfiler() {
+        return profiler;
+    }
+
     /**
      * Determine the type of solver.
      *
@@ -604,6 +859,25 @@ public class PhysicsSpace extends CollisionSpace {
         return solverType;
     }
 
+    /**
+     * Access the spatial index that's updated after each step.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public SpatialHashIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Access the snapshot that physics controls read instead of reading
+     * transforms directly.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public TransformSnapshot getTransformSnapshot() {
+        return transformSnapshot;
+    }
+
     /**
      * Enumerate physics vehicles that have been added to this space and not yet
      * removed.
@@ -648,6 +922,76 @@ public class PhysicsSpace extends CollisionSpace {
         return maxTimeStep;
     }
 
+    /**
+     * Copy the transforms (and optionally the velocities) of the specified
+     * collision objects into a packed buffer, without allocating per-object
+     * temporaries. The data for the object in slot N start at float
+     * index N*FLOATS_PER_TRANSFORM (or N*FLOATS_PER_MOTION if velocities are
+     * included). Vacant slots are left unchanged. The buffer's position and
+     * limit are unaffected.
+     * <p>
+     * Velocities are written only for dynamic rigid bodies; other objects get
+     * zeros.
+     *
+     * @param slots the objects to read and their slot assignments (not null,
+     * unaffected)
+     * @param storeBuffer storage for the data (not null, ideally direct,
+     * capacity &ge; countSlots() times the stride, modified)
+     * @param includeVelocities true to include linear and angular velocities,
+     * false to read only locations and rotations
+     */
+    public void readTransforms(CollisionObjectSlots slots,
+            FloatBuffer storeBuffer, boolean includeVelocities) {
+        Validate.nonNull(slots, "slots");
+        Validate.nonNull(storeBuffer, "store buffer");
+        int stride = includeVelocities
+                ? FLOATS_PER_MOTION : FLOATS_PER_TRANSFORM;
+        int numSlots = slots.countSlots();
+        Validate.require(storeBuffer.capacity() >= numSlots * stride,
+                "capacity sufficient for all slots");
+
+        Vector3f tmpVector = new Vector3f();
+        Quaternion tmpRotation = new Quaternion();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsCollisionObject pco = slots.get(slot);
+            if (pco == null) {
+                continue;
+            }
+
+            int index = slot * stride;
+            pco.getPhysicsLocation(tmpVector);
+            storeBuffer.put(index, tmpVector.x);
+            storeBuffer.put(index + 1, tmpVector.y);
+            storeBuffer.put(index + 2, tmpVector.z);
+
+            pco.getPhysicsRotation(tmpRotation);
+            storeBuffer.put(index + 3, tmpRotation.getX());
+            storeBuffer.put(index + 4, tmpRotation.getY());
+            storeBuffer.put(index + 5, tmpRotation.getZ());
+            storeBuffer.put(index + 6, tmpRotation.getW());
+
+            if (includeVelocities) {
+                if (pco instanceof PhysicsRigidBody
+                        && ((PhysicsRigidBody) pco).isDynamic()) {
+                    PhysicsRigidBody body = (PhysicsRigidBody) pco;
+                    body.getLinearVelocity(tmpVector);
+                    storeBuffer.put(index + 7, tmpVector.x);
+                    storeBuffer.put(index + 8, tmpVector.y);
+                    storeBuffer.put(index + 9, tmpVector.z);
+
+                    body.getAngularVelocity(tmpVector);
+                    storeBuffer.put(index + 10, tmpVector.x);
+                    storeBuffer.put(index + 11, tmpVector.y);
+                    storeBuffer.put(index + 12, tmpVector.z);
+                } else {
+                    for (int i = 7; i < FLOATS_PER_MOTION; ++i) {
+                        storeBuffer.put(index + i, 0f);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Remove all physics controls in the specified subtree of the scene graph
      * from this space (e.g. before saving to disk). For compatibility with the
@@ -682,6 +1026,57 @@ public class PhysicsSpace extends CollisionSpace {
 
         boolean success = contactStartedListeners.remove(listener);
         assert success;
+        forgetListener(listener);
+    }
+
+    /**
+     * De-register the specified command buffer. Commands still pending in the
+     * buffer aren't applied.
+     *
+     * @see #addCommandBuffer(com.jme3.bullet.RigidBodyCommandBuffer)
+     * @param buffer the buffer to de-register (not null)
+     */
+    public void removeCommandBuffer(RigidBodyCommandBuffer buffer) {
+        Validate.nonNull(buffer, "buffer");
+
+        boolean success = commandBuffers.remove(buffer);
+        assert success;
+    }
+
+    /**
+     * De-register the specified listener for begin/persist/end pair
+     * notifications. When no pair or report listeners remain, all pairs are
+     * forgotten, after any distribution in progress has completed.
+     *
+     * @see #addContactPairListener(com.jme3.bullet.ContactPairListener)
+     * @param listener the listener object to de-register (not null)
+     */
+    public void removeContactPairListener(ContactPairListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactPairListeners.remove(listener);
+        assert success;
+        if (!isTrackingPairs()) {
+            contactPairs.clear();
+        }
+    }
+
+    /**
+     * De-register the specified listener for per-pair contact reports. When
+     * no pair or report listeners remain, all pairs are forgotten, after any
+     * distribution in progress has completed.
+     *
+     * @see #addContactReportListener(com.jme3.bullet.ContactReportListener)
+     * @param listener the listener object to de-register (not null)
+     */
+    public void removeContactReportListener(ContactReportListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactReportListeners.remove(listener);
+        assert success;
+        if (!isTrackingPairs()) {
+            contactPairs.clear();
+        }
     }
 
     /**
@@ -691,22 +1086,12 @@ public class PhysicsSpace extends CollisionSpace {
      */
     public void removeJoint(PhysicsJoint joint) {
         Validate.nonNull(joint, "joint");
-        long jointId = joint.nativeId();
-        if (!jointMap.containsKey(jointId)) {
-            logger.log(Level.WARNING, "{0} does not exist in {1}.",
-                    new Object[]{joint, this});
-            return;
-        }
-        assert joint.getPhysicsSpace() == this;
-
-        logger.log(Level.FINE, "Removing {0} from {1}.",
-                new Object[]{joint, this});
-        jointMap.remove(jointId);
-        joint.setPhysicsSpace(null);
 
-        if (joint instanceof Constraint) {
-            long spaceId = nativeId();
-            removeConstraint(spaceId, jointId);
+        beginMutation();
+        try {
+            removePhysicsJoint(joint);
+        } finally {
+            endMutation();
         }
     }
 
@@ -722,6 +1107,7 @@ public class PhysicsSpace extends CollisionSpace {
 
         boolean success = contactProcessedListeners.remove(listener);
         assert success;
+        forgetListener(listener);
     }
 
     /**
@@ -735,6 +1121,80 @@ public class PhysicsSpace extends CollisionSpace {
 
         boolean success = tickListeners.remove(listener);
         assert success;
+        forgetListener(listener);
+    }
+
+    /**
+     * Reset the event pool's high-water mark and dropped-event count.
+     *
+     * @see #setEventPoolCapacity(int)
+     */
+    public void resetEventPoolCounters() {
+        eventPool.resetCounters();
+    }
+
+    /**
+     * Restore the dynamic state of rigid bodies from a snapshot, for instance
+     * to roll back the simulation. A delta snapshot restores only the bodies
+     * it covers, so restore its base first. Waits for any query phase on
+     * another thread to end.
+     *
+     * @param slots the bodies to restore and their slot assignments (not
+     * null, unaffected)
+     * @param snapshot the snapshot to restore from (not null, unaffected)
+     * @return the number of bodies restored (&ge;0)
+     */
+    public int restoreState(CollisionObjectSlots slots,
+            RigidBodySnapshot snapshot) {
+        Validate.nonNull(slots, "slots");
+        Validate.nonNull(snapshot, "snapshot");
+
+        beginMutation();
+        try {
+            int result = snapshot.restore(slots);
+            return result;
+        } finally {
+            endMutation();
+        }
+    }
+
+    /**
+     * Capture the dynamic state (transform, velocities, applied force and
+     * torque, and activation) of every slotted rigid body into a full
+     * snapshot, re-using its buffer.
+     *
+     * @param slots the bodies to capture and their slot assignments (not
+     * null, unaffected)
+     * @param storeResult storage for the snapshot (not null, modified)
+     */
+    public void saveState(CollisionObjectSlots slots,
+            RigidBodySnapshot storeResult) {
+        Validate.nonNull(slots, "slots");
+        Validate.nonNull(storeResult, "store result");
+
+        storeResult.capture(slots, null);
+    }
+
+    /**
+     * Capture the dynamic state of only those slotted rigid bodies whose
+     * state differs from a full base snapshot, re-using the buffer of the
+     * result.
+     *
+     * @param slots the bodies to capture and their slot assignments (not
+     * null, unaffected)
+     * @param base the full snapshot to compare with (not null, unaffected)
+     * @param storeResult storage for the delta snapshot (not null, not base,
+     * modified)
+     */
+    public void saveStateDelta(CollisionObjectSlots slots,
+            RigidBodySnapshot base, RigidBodySnapshot storeResult) {
+        Validate.nonNull(slots, "slots");
+        Validate.nonNull(base, "base");
+        Validate.nonNull(storeResult, "store result");
+        Validate.require(!base.isDelta(), "a full base snapshot");
+        Validate.require(storeResult != base, "distinct snapshots");
+
+        storeResult.capture(slots, base);
     }
 
     /**
@@ -750,6 +1210,45 @@ public class PhysicsSpace extends CollisionSpace {
         this.accuracy = accuracy;
     }
 
+    /**
+     * Alter the capacity of the collision-event pool, thereby enabling or
+     * disabling the pooled event mode.
+     * <p>
+     * In pooled mode, collision events are recycled instead of being allocated
+     * for each manifold point, so each event is valid only during the listener
+     * callback that receives it. Listeners mustn't retain references to pooled
+     * events. If more than the specified number of events are pending at once,
+     * the excess events are dropped (and counted).
+     *
+     * @param maxEvents the maximum number of events in use at once (&gt;0) or 0
+     * to disable pooling (default=0)
+     */
+    public void setEventPoolCapacity(int maxEvents) {
+        Validate.nonNegative(maxEvents, "max events");
+        eventPool.setCapacity(maxEvents);
+    }
+
+    /**
+     * Alter the governor that limits substeps during update(float). The
+     * governor has no effect while maxSubSteps=0.
+     *
+     * @param newGovernor the desired governor, or null for none (alias
+     * created, default=null)
+     */
+    public void setGovernor(SubstepGovernor newGovernor) {
+        governor = newGovernor;
+    }
+
+    /**
+     * Alter the profiler that records timings and counts for this space.
+     *
+     * @param newProfiler the desired profiler, or null to stop profiling
+     * (alias created, default=null)
+     */
+    public void setProfiler(PhysicsProfiler newProfiler) {
+        profiler = newProfiler;
+    }
+
     /**
      * Alter the gravitational acceleration acting on newly-added bodies.
      * <p>
@@ -810,26 +1309,58 @@ public class PhysicsSpace extends CollisionSpace {
         solverInfo.setNumIterations(numIterations);
     }
 
+    /**
+     * Alter the spatial index that's updated after each step. The new index
+     * (if any) is updated immediately.
+     *
+     * @param newIndex the desired index, or null for none (alias created,
+     * default=null)
+     */
+    public void setSpatialIndex(SpatialHashIndex newIndex) {
+        spatialIndex = newIndex;
+        if (newIndex != null) {
+            newIndex.update();
+        }
+    }
+
+    /**
+     * Alter which snapshot physics controls read instead of reading transforms
+     * directly. Used by BulletAppState in PIPELINED mode.
+     *
+     * @param snapshot the desired snapshot, or null to read transforms
+     * directly (alias created, default=null)
+     */
+    public void setTransformSnapshot(TransformSnapshot snapshot) {
+        transformSnapshot = snapshot;
+    }
+
     /**
      * Update this space. Invoked (by the BulletAppState) once per frame while
      * the app state is attached and enabled. Can also be used to single-step
      * the physics simulation, if maxSubSteps is set to 0 or 1.
+     * <p>
+     * If a governor is set and maxSubSteps&gt;0, the governor may reduce the
+     * number of substeps (and the simulated time) to stay within its budget.
      *
      * @see #setMaxSubSteps(int)
+     * @see #setGovernor(SubstepGovernor)
      * @param timeInterval time-per-frame multiplied by speed (in seconds,
      * &ge;0)
      */
     public void update(float timeInterval) {
         Validate.nonNegative(timeInterval, "time interval");
 
-        long spaceId = nativeId();
+        if (governor != null && maxSubSteps > 0) {
+            governor.update(this, timeInterval);
+            return;
+        }
+
         assert maxSubSteps >= 0 : maxSubSteps;
-        assert accuracy > 0f : accuracy;
         float interval = timeInterval;
         if (maxSubSteps == 0) {
             interval = Math.min(interval, maxTimeStep);
         }
-        stepSimulation(spaceId, interval, maxSubSteps, accuracy);
+        step(interval, maxSubSteps);
     }
 
     /**
@@ -843,9 +1374,7 @@ public class PhysicsSpace extends CollisionSpace {
         Validate.nonNegative(timeInterval, "time interval");
         Validate.nonNegative(maxSteps, "max steps");
 
-        long spaceId = nativeId();
-        assert accuracy > 0f : accuracy;
-        stepSimulation(spaceId, timeInterval, maxSteps, accuracy);
+        step(timeInterval, maxSteps);
     }
 
     /**
@@ -934,12 +1463,11 @@ public class PhysicsSpace extends CollisionSpace {
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
 
-        if (pco instanceof PhysicsRigidBody) {
-            addRigidBody((PhysicsRigidBody) pco);
-        } else if (pco instanceof PhysicsCharacter) {
-            addCharacter((PhysicsCharacter) pco);
-        } else {
-            super.addCollisionObject(pco);
+        beginMutation();
+        try {
+            addObject(pco);
+        } finally {
+            endMutation();
         }
     }
 
@@ -1047,17 +1575,30 @@ public class PhysicsSpace extends CollisionSpace {
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
 
-        if (pco instanceof PhysicsRigidBody) {
-            removeRigidBody((PhysicsRigidBody) pco);
-        } else if (pco instanceof PhysicsCharacter) {
-            removeCharacter((PhysicsCharacter) pco);
-        } else {
-            super.removeCollisionObject(pco);
+        beginMutation();
+        try {
+            removeObject(pco);
+        } finally {
+            endMutation();
         }
     }
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Access the profiler, if it is enabled.
+     *
+     * @return the pre-existing instance, or null if not profiling
+     */
+    private PhysicsProfiler activeProfiler() {
+        PhysicsProfiler result = profiler;
+        if (result != null && !result.isEnabled()) {
+            result = null;
+        }
+
+        return result;
+    }
+
     /**
      * Add the specified PhysicsCharacter to this space.
      *
@@ -1090,8 +1631,10 @@ public class PhysicsSpace extends CollisionSpace {
             PhysicsCollisionObject pcoB, long manifoldPointId) {
         if (!contactStartedListeners.isEmpty()) {
             PhysicsCollisionEvent event
-                    = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
-            contactStartedEvents.add(event);
+                    = createEvent(pcoA, pcoB, manifoldPointId);
+            if (event != null) {
+                contactStartedEvents.add(event);
+            }
         }
     }
 
@@ -1102,8 +1645,73 @@ public class PhysicsSpace extends CollisionSpace {
             PhysicsCollisionObject pcoB, long manifoldPointId) {
         if (!contactProcessedListeners.isEmpty()) {
             PhysicsCollisionEvent event
-                    = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
-            contactProcessedEvents.add(event);
+                    = createEvent(pcoA, pcoB, manifoldPointId);
+            if (event != null) {
+                contactProcessedEvents.add(event);
+            }
+        }
+        if (isTrackingPairs()) {
+            boolean readDetails = !contactReportListeners.isEmpty();
+            contactPairs.addPoint(pcoA, pcoB, manifoldPointId, readDetails);
+        }
+    }
+
+    /**
+     * Add the specified collision object to this space, with the write lock
+     * held.
+     *
+     * @param pco the collision object to add (not null)
+     */
+    private void addObject(PhysicsCollisionObject pco) {
+        if (pco instanceof PhysicsRigidBody) {
+            addRigidBody((PhysicsRigidBody) pco);
+        } else if (pco instanceof PhysicsCharacter) {
+            addCharacter((PhysicsCharacter) pco);
+        } else {
+            super.addCollisionObject(pco);
+        }
+    }
+
+    /**
+     * Add the specified PhysicsJoint to this space, with the write lock held.
+     *
+     * @param joint the joint to add (not null, alias created)
+     */
+    private void addPhysicsJoint(PhysicsJoint joint) {
+        if (contains(joint)) {
+            logger.log(Level.WARNING, "{0} is already added to {1}.",
+                    new Object[]{joint, this});
+            return;
+        }
+        assert joint.getPhysicsSpace() == null;
+        /*
+         * Warn if the jointed bodies aren't already added to this space.
+         */
+        PhysicsBody a = joint.getBodyA();
+        if (a != null && !contains(a)) {
+            logger.log(Level.WARNING, "{0} at the A end of {1} "
+                    + "has not yet been added to {2}.",
+                    new Object[]{a, joint, this});
+        }
+        PhysicsBody b = joint.getBodyB();
+        if (b != null && !contains(b)) {
+            logger.log(Level.WARNING, "{0} at the B end of {1} "
+                    + "has not yet been added to {2}.",
+                    new Object[]{b, joint, this});
+        }
+        assert a != b : a;
+
+        logger.log(Level.FINE, "Adding {0} to {1}.",
+                new Object[]{joint, this});
+        long jointId = joint.nativeId();
+        jointMap.put(jointId, joint);
+        joint.setPhysicsSpace(this);
+
+        if (joint instanceof Constraint) {
+            long spaceId = nativeId();
+            // ignore lists are already set!
+            boolean disableCollisions = false;
+            addConstraintC(spaceId, jointId, disableCollisions);
         }
     }
 
@@ -1127,6 +1735,7 @@ public class PhysicsSpace extends CollisionSpace {
                 new Object[]{rigidBody, this});
         long rigidBodyId = rigidBody.nativeId();
         rigidMap.put(rigidBodyId, rigidBody);
+        ++numRigidBodyChanges;
 
         //Workaround
         //It seems that adding a Kinematic RigidBody to the dynamicWorld
@@ -1176,15 +1785,77 @@ public class PhysicsSpace extends CollisionSpace {
         return result;
     }
 
+    /**
+     * Create a collision event, using the event pool if it's enabled.
+     *
+     * @param pcoA the first involved object (not null)
+     * @param pcoB the 2nd involved object (not null)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     * @return an event, or null if the event pool is exhausted
+     */
+    private PhysicsCollisionEvent createEvent(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        PhysicsCollisionEvent result;
+        if (eventPool.isEnabled()) {
+            result = eventPool.obtain(pcoA, pcoB, manifoldPointId);
+        } else {
+            result = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
+        }
+
+        return result;
+    }
+
+    /**
+     * Discard the profiler's statistics for the specified listener, unless
+     * it's still registered in another role.
+     *
+     * @param listener the de-registered listener (not null)
+     */
+    private void forgetListener(Object listener) {
+        PhysicsProfiler currentProfiler = profiler;
+        if (currentProfiler != null
+                && !contactProcessedListeners.contains(listener)
+                && !contactStartedListeners.contains(listener)
+                && !tickListeners.contains(listener)) {
+            currentProfiler.forgetListener(listener);
+        }
+    }
+
+    /**
+     * Test whether colliding pairs need to be tracked.
+     *
+     * @return true if any pair or report listeners are registered, otherwise
+     * false
+     */
+    private boolean isTrackingPairs() {
+        boolean result = !contactPairListeners.isEmpty()
+                || !contactReportListeners.isEmpty();
+        return result;
+    }
+
     /**
      * Callback invoked (by native code) just after the physics is stepped.
      *
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void postTick_native(float timeStep) {
+        PhysicsProfiler activeProfiler = activeProfiler();
+        if (activeProfiler == null) {
+            for (PhysicsTickListener listener : tickListeners) {
+                listener.physicsTick(this, timeStep);
+            }
+            return;
+        }
+
+        long startNanos = System.nanoTime();
         for (PhysicsTickListener listener : tickListeners) {
+            long listenerStart = System.nanoTime();
             listener.physicsTick(this, timeStep);
+            activeProfiler.addListenerNanos(listener,
+                    System.nanoTime() - listenerStart);
         }
+        activeProfiler.addNanos(PhysicsProfiler.Phase.POST_TICK,
+                System.nanoTime() - startNanos);
     }
 
     /**
@@ -1193,6 +1864,13 @@ public class PhysicsSpace extends CollisionSpace {
      * @param timeStep the time per physics step (in seconds, &ge;0)
      */
     private void preTick_native(float timeStep) {
+        ++numTicks;
+        contactPairs.nextStep();
+
+        PhysicsProfiler activeProfiler = activeProfiler();
+        long startNanos = (activeProfiler == null) ? 0L : System.nanoTime();
+        int numTasks = 0;
+
         AppTask task;
         while ((task = pQueue.poll()) != null) {
             if (task.isCancelled()) {
@@ -1203,11 +1881,40 @@ public class PhysicsSpace extends CollisionSpace {
             } catch (Exception exception) {
                 logger.log(Level.SEVERE, null, exception);
             }
+            ++numTasks;
         }
 
+        if (activeProfiler == null) {
+            for (RigidBodyCommandBuffer buffer : commandBuffers) {
+                buffer.applyAll();
+            }
+            for (PhysicsTickListener listener : tickListeners) {
+                listener.prePhysicsTick(this, timeStep);
+            }
+            return;
+        }
+
+        long tasksNanos = System.nanoTime();
+        activeProfiler.addNanos(PhysicsProfiler.Phase.TASKS,
+                tasksNanos - startNanos);
+        activeProfiler.addCount(PhysicsProfiler.Counter.TASKS, numTasks);
+        activeProfiler.addCount(PhysicsProfiler.Counter.TICKS, 1);
+
+        for (RigidBodyCommandBuffer buffer : commandBuffers) {
+            buffer.applyAll();
+        }
+        long commandsNanos = System.nanoTime();
+        activeProfiler.addNanos(PhysicsProfiler.Phase.COMMANDS,
+                commandsNanos - tasksNanos);
+
         for (PhysicsTickListener listener : tickListeners) {
+            long listenerStart = System.nanoTime();
             listener.prePhysicsTick(this, timeStep);
+            activeProfiler.addListenerNanos(listener,
+                    System.nanoTime() - listenerStart);
         }
+        activeProfiler.addNanos(PhysicsProfiler.Phase.PRE_TICK,
+                System.nanoTime() - commandsNanos);
     }
 
     /**
@@ -1234,6 +1941,48 @@ public class PhysicsSpace extends CollisionSpace {
         removeCharacterObject(spaceId, characterId);
     }
 
+    /**
+     * Remove the specified collision object from this space, with the write
+     * lock held.
+     *
+     * @param pco the collision object to remove (not null)
+     */
+    private void removeObject(PhysicsCollisionObject pco) {
+        if (pco instanceof PhysicsRigidBody) {
+            removeRigidBody((PhysicsRigidBody) pco);
+        } else if (pco instanceof PhysicsCharacter) {
+            removeCharacter((PhysicsCharacter) pco);
+        } else {
+            super.removeCollisionObject(pco);
+        }
+    }
+
+    /**
+     * Remove the specified PhysicsJoint from this space, with the write lock
+     * held.
+     *
+     * @param joint the joint to remove (not null)
+     */
+    private void removePhysicsJoint(PhysicsJoint joint) {
+        long jointId = joint.nativeId();
+        if (!jointMap.containsKey(jointId)) {
+            logger.log(Level.WARNING, "{0} does not exist in {1}.",
+                    new Object[]{joint, this});
+            return;
+        }
+        assert joint.getPhysicsSpace() == this;
+
+        logger.log(Level.FINE, "Removing {0} from {1}.",
+                new Object[]{joint, this});
+        jointMap.remove(jointId);
+        joint.setPhysicsSpace(null);
+
+        if (joint instanceof Constraint) {
+            long spaceId = nativeId();
+            removeConstraint(spaceId, jointId);
+        }
+    }
+
     /**
      * Remove the specified PhysicsRigidBody from this space.
      *
@@ -1262,9 +2011,42 @@ public class PhysicsSpace extends CollisionSpace {
         logger.log(Level.FINE, "Removing {0} from {1}.",
                 new Object[]{rigidBody, this});
         rigidMap.remove(rigidBodyId);
+        ++numRigidBodyChanges;
 
         removeRigidBody(spaceId, rigidBodyId);
     }
+
+    /**
+     * Step the native simulation, timing the step if profiling, then update
+     * the spatial index (if any).
+     *
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     * @param maxSteps the maximum number of steps of size accuracy (&ge;1) or 0
+     * for a single step of size timeInterval
+     */
+    private void step(float timeInterval, int maxSteps) {
+        beginMutation();
+        try {
+            long spaceId = nativeId();
+            assert accuracy > 0f : accuracy;
+
+            PhysicsProfiler activeProfiler = activeProfiler();
+            if (activeProfiler == null) {
+                stepSimulation(spaceId, timeInterval, maxSteps, accuracy);
+            } else {
+                long startNanos = System.nanoTime();
+                stepSimulation(spaceId, timeInterval, maxSteps, accuracy);
+                activeProfiler.addNanos(PhysicsProfiler.Phase.STEP,
+                        System.nanoTime() - startNanos);
+            }
+
+            if (spatialIndex != null) {
+                spatialIndex.update();
+            }
+        } finally {
+            endMutation();
+        }
+    }
     // *************************************************************************
     // native private methods
 
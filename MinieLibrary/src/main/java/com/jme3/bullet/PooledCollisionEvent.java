@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import java.util.logging.Logger;
+
+/**
+ * A PhysicsCollisionEvent that gets recycled by a CollisionEventPool.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class PooledCollisionEvent extends PhysicsCollisionEvent {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger2
+            = Logger.getLogger(PooledCollisionEvent.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an unassigned event.
+     */
+    PooledCollisionEvent() {
+        super();
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Assign the specified collision objects and manifold point to this event.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     */
+    void assign(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB,
+            long manifoldPointId) {
+        reassign(pcoA, pcoB, manifoldPointId);
+    }
+
+    /**
+     * Unassign the collision objects and manifold point.
+     */
+    void clear() {
+        release();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * An immutable export of the data recorded by a PhysicsProfiler: per-phase
+ * timings and counts aggregated over the frames in its ring buffer, plus
+ * per-listener timings.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsProfiler#snapshot()
+ */
+public class ProfilerSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ProfilerSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of frames aggregated (&ge;0)
+     */
+    final private int numFrames;
+    /**
+     * counts for the most recent frame, indexed by Counter ordinal
+     */
+    final private long[] lastCounts;
+    /**
+     * timings for the most recent frame (in nanoseconds), indexed by Phase
+     * ordinal
+     */
+    final private long[] lastNanos;
+    /**
+     * maximum timings over all frames (in nanoseconds), indexed by Phase
+     * ordinal
+     */
+    final private long[] maxNanos;
+    /**
+     * total counts over all frames, indexed by Counter ordinal
+     */
+    final private long[] totalCounts;
+    /**
+     * total timings over all frames (in nanoseconds), indexed by Phase ordinal
+     */
+    final private long[] totalNanos;
+    /**
+     * per-listener invocation count, total nanoseconds, and maximum
+     * nanoseconds
+     */
+    final private Map<Object, long[]> listenerStats;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a snapshot. Invoked by PhysicsProfiler.
+     *
+     * @param numFrames the number of frames aggregated (&ge;0)
+     * @param lastCounts the counts for the most recent frame (not null, alias
+     * created)
+     * @param totalCounts the total counts (not null, alias created)
+     * @param lastNanos the timings for the most recent frame (not null, alias
+     * created)
+     * @param maxNanos the maximum timings (not null, alias created)
+     * @param totalNanos the total timings (not null, alias created)
+     * @param listenerStats the per-listener statistics (not null, alias
+     * created)
+     */
+    ProfilerSnapshot(int numFrames, long[] lastCounts, long[] totalCounts,
+            long[] lastNanos, long[] maxNanos, long[] totalNanos,
+            Map<Object, long[]> listenerStats) {
+        assert numFrames >= 0 : numFrames;
+
+        this.numFrames = numFrames;
+        this.lastCounts = lastCounts;
+        this.totalCounts = totalCounts;
+        this.lastNanos = lastNanos;
+        this.maxNanos = maxNanos;
+        this.totalNanos = totalNanos;
+        this.listenerStats = listenerStats;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the frames aggregated in this snapshot.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countFrames() {
+        assert numFrames >= 0 : numFrames;
+        return numFrames;
+    }
+
+    /**
+     * Read the specified count for the most recent frame.
+     *
+     * @param counter which quantity (not null)
+     * @return the count (&ge;0), or 0 if no frames were aggregated
+     */
+    public long lastCount(PhysicsProfiler.Counter counter) {
+        long result = lastCounts[counter.ordinal()];
+        return result;
+    }
+
+    /**
+     * Read the specified timing for the most recent frame.
+     *
+     * @param phase which phase (not null)
+     * @return the duration (in nanoseconds, &ge;0), or 0 if no frames were
+     * aggregated
+     */
+    public long lastNanos(PhysicsProfiler.Phase phase) {
+        long result = lastNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Read the number of times the specified listener was invoked.
+     *
+     * @param listener the listener to look up (may be null)
+     * @return the count (&ge;0)
+     */
+    public long listenerCalls(Object listener) {
+        long[] stats = listenerStats.get(listener);
+        long result = (stats == null) ? 0L : stats[0];
+
+        return result;
+    }
+
+    /**
+     * Read the longest single invocation of the specified listener.
+     *
+     * @param listener the listener to look up (may be null)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long listenerMaxNanos(Object listener) {
+        long[] stats = listenerStats.get(listener);
+        long result = (stats == null) ? 0L : stats[2];
+
+        return result;
+    }
+
+    /**
+     * Read the total time spent in the specified listener.
+     *
+     * @param listener the listener to look up (may be null)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long listenerTotalNanos(Object listener) {
+        long[] stats = listenerStats.get(listener);
+        long result = (stats == null) ? 0L : stats[1];
+
+        return result;
+    }
+
+    /**
+     * Enumerate the listeners for which timings were recorded.
+     *
+     * @return a new list of pre-existing listeners (not null)
+     */
+    public List<Object> listListeners() {
+        List<Object> result = new ArrayList<>(listenerStats.keySet());
+        return result;
+    }
+
+    /**
+     * Read the longest timing of the specified phase in any frame.
+     *
+     * @param phase which phase (not null)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long maxNanos(PhysicsProfiler.Phase phase) {
+        long result = maxNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Calculate the mean of the specified count per frame.
+     *
+     * @param counter which quantity (not null)
+     * @return the mean (&ge;0), or 0 if no frames were aggregated
+     */
+    public double meanCount(PhysicsProfiler.Counter counter) {
+        double result = 0.0;
+        if (numFrames > 0) {
+            result = totalCounts[counter.ordinal()] / (double) numFrames;
+        }
+
+        return result;
+    }
+
+    /**
+     * Calculate the mean timing of the specified phase per frame.
+     *
+     * @param phase which phase (not null)
+     * @return the mean (in nanoseconds, &ge;0), or 0 if no frames were
+     * aggregated
+     */
+    public double meanNanos(PhysicsProfiler.Phase phase) {
+        double result = 0.0;
+        if (numFrames > 0) {
+            result = totalNanos[phase.ordinal()] / (double) numFrames;
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this snapshot as a text string, with one line per phase.
+     *
+     * @return descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(400);
+        builder.append(String.format("ProfilerSnapshot[frames=%d", numFrames));
+        for (PhysicsProfiler.Counter counter
+                : PhysicsProfiler.Counter.values()) {
+            builder.append(String.format(" %s=%.1f", counter,
+                    meanCount(counter)));
+        }
+        builder.append(']');
+
+        for (PhysicsProfiler.Phase phase : PhysicsProfiler.Phase.values()) {
+            builder.append(String.format("%n %-9s last=%d max=%d mean=%.0f",
+                    phase, lastNanos(phase), maxNanos(phase),
+                    meanNanos(phase)));
+        }
+
+        return builder.toString();
+    }
+}
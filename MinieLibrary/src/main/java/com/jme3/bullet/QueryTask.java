@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.shapes.ConvexShape;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+/**
+ * A fork-join task to perform a range of batched ray or sweep tests, splitting
+ * the range in half until it's no larger than the grain size. Used by
+ * SpaceQueryExecutor.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class QueryTask extends RecursiveTask<Integer> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(QueryTask.class.getName());
+    /**
+     * serial version UID
+     */
+    final private static long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * space to query (not null)
+     */
+    final private CollisionSpace space;
+    /**
+     * shape to sweep, or null for ray tests
+     */
+    final private ConvexShape shape;
+    /**
+     * starting locations of the batch (not null)
+     */
+    final private FloatBuffer fromBuffer;
+    /**
+     * ending locations of the batch (not null)
+     */
+    final private FloatBuffer toBuffer;
+    /**
+     * storage for hit fractions and normals (not null)
+     */
+    final private FloatBuffer storeHits;
+    /**
+     * index of the last query in the range, plus one (&ge;startIndex)
+     */
+    final private int endIndex;
+    /**
+     * maximum number of queries to perform without splitting (&gt;0)
+     */
+    final private int grainSize;
+    /**
+     * index of the first query in the range (&ge;0)
+     */
+    final private int startIndex;
+    /**
+     * storage for the slots of objects hit (not null)
+     */
+    final private IntBuffer storeSlots;
+    /**
+     * slots to report for objects hit (not null)
+     */
+    final private CollisionObjectSlots slots;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of a batch.
+     *
+     * @param space the space to query (not null, alias created)
+     * @param shape the shape to sweep, or null for ray tests (alias created)
+     * @param fromBuffer the starting locations (not null, alias created)
+     * @param toBuffer the ending locations (not null, alias created)
+     * @param startIndex the index of the first query (&ge;0)
+     * @param endIndex one plus the index of the last query (&ge;startIndex)
+     * @param grainSize the maximum number of queries to perform without
+     * splitting (&gt;0)
+     * @param slots the slots to report for objects hit (not null, alias
+     * created)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * alias created)
+     * @param storeSlots storage for the slots of objects hit (not null, alias
+     * created)
+     */
+    QueryTask(CollisionSpace space, ConvexShape shape, FloatBuffer fromBuffer,
+            FloatBuffer toBuffer, int startIndex, int endIndex, int grainSize,
+            CollisionObjectSlots slots, FloatBuffer storeHits,
+            IntBuffer storeSlots) {
+        assert space != null;
+        assert startIndex >= 0 : startIndex;
+        assert endIndex >= startIndex : endIndex;
+        assert grainSize > 0 : grainSize;
+
+        this.space = space;
+        this.shape = shape;
+        this.fromBuffer = fromBuffer;
+        this.toBuffer = toBuffer;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.grainSize = grainSize;
+        this.slots = slots;
+        this.storeHits = storeHits;
+        this.storeSlots = storeSlots;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Perform all queries in the range on the current thread, without
+     * splitting.
+     *
+     * @return the number of queries that hit something (&ge;0)
+     */
+    int computeSequentially() {
+        int numHits;
+        if (shape == null) {
+            numHits = space.rayTestRange(fromBuffer, toBuffer, startIndex,
+                    endIndex, slots, storeHits, storeSlots);
+        } else {
+            numHits = space.sweepTestRange(shape, fromBuffer, toBuffer,
+                    startIndex, endIndex, slots, storeHits, storeSlots);
+        }
+
+        return numHits;
+    }
+    // *************************************************************************
+    // RecursiveTask methods
+
+    /**
+     * Perform the queries in the range, forking half of them if the range is
+     * larger than the grain size.
+     *
+     * @return the number of queries that hit something (&ge;0)
+     */
+    @Override
+    protected Integer compute() {
+        int numQueries = endIndex - startIndex;
+        if (numQueries <= grainSize) {
+            int numHits = computeSequentially();
+            return numHits;
+        }
+
+        int midIndex = startIndex + numQueries / 2;
+        QueryTask low = new QueryTask(space, shape, fromBuffer, toBuffer,
+                startIndex, midIndex, grainSize, slots, storeHits,
+                storeSlots);
+        QueryTask high = new QueryTask(space, shape, fromBuffer, toBuffer,
+                midIndex, endIndex, grainSize, slots, storeHits, storeSlots);
+        low.fork();
+        int numHits = high.compute() + low.join();
+
+        return numHits;
+    }
+}
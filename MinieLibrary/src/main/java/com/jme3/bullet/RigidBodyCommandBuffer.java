@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A buffer of force, impulse, and torque commands for rigid bodies, which any
+ * number of threads can fill concurrently and which a PhysicsSpace applies in
+ * a single pass just before each physics step. Commands are stored in
+ * primitive arrays, so recording a command allocates nothing.
+ * <p>
+ * Bodies are identified by their slots in a {@link CollisionObjectSlots}
+ * mapping. Don't modify the mapping while commands are pending, except on the
+ * physics thread.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#addCommandBuffer(RigidBodyCommandBuffer)
+ */
+public class RigidBodyCommandBuffer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * command type for applyCentralForce()
+     */
+    final private static byte centralForce = 0;
+    /**
+     * command type for applyCentralImpulse()
+     */
+    final private static byte centralImpulse = 1;
+    /**
+     * command type for applyForce()
+     */
+    final private static byte force = 2;
+    /**
+     * command type for applyImpulse()
+     */
+    final private static byte impulse = 3;
+    /**
+     * command type for applyTorque()
+     */
+    final private static byte torque = 4;
+    /**
+     * command type for applyTorqueImpulse()
+     */
+    final private static byte torqueImpulse = 5;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(RigidBodyCommandBuffer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * mapping from slots to bodies
+     */
+    final private CollisionObjectSlots slots;
+    /**
+     * lock that lets many threads record commands while excluding the swap and
+     * growth of the pending page
+     */
+    final private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * number of commands discarded because their slots didn't identify rigid
+     * bodies (&ge;0)
+     */
+    final private AtomicLong numDiscarded = new AtomicLong(0L);
+    /**
+     * page of commands being applied (or most recently applied)
+     */
+    private CommandPage applyPage;
+    /**
+     * page of commands being recorded (guarded by lock)
+     */
+    private CommandPage pendingPage;
+    /**
+     * temporary storage for a command's first vector argument
+     */
+    final private Vector3f tmpArgument = new Vector3f();
+    /**
+     * temporary storage for a command's offset argument
+     */
+    final private Vector3f tmpOffset = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty buffer.
+     *
+     * @param slots the mapping from slots to bodies (not null, alias created)
+     * @param initialCapacity the number of commands that can be recorded
+     * before the buffer grows (&gt;0)
+     */
+    public RigidBodyCommandBuffer(CollisionObjectSlots slots,
+            int initialCapacity) {
+        Validate.nonNull(slots, "slots");
+        Validate.positive(initialCapacity, "initial capacity");
+
+        this.slots = slots;
+        applyPage = new CommandPage(initialCapacity);
+        pendingPage = new CommandPage(initialCapacity);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Apply all pending commands to their bodies, in the order they were
+     * recorded by each thread. Invoked on the physics thread, just before each
+     * physics step.
+     */
+    void applyAll() {
+        CommandPage page;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            page = pendingPage;
+            pendingPage = applyPage;
+            applyPage = page;
+        } finally {
+            writeLock.unlock();
+        }
+
+        int numCommands = page.countCommands();
+        int numSlots = slots.countSlots();
+        for (int index = 0; index < numCommands; ++index) {
+            int slot = page.slots[index];
+            PhysicsCollisionObject pco
+                    = (slot < numSlots) ? slots.get(slot) : null;
+            if (pco instanceof PhysicsRigidBody) {
+                apply((PhysicsRigidBody) pco, page, index);
+            } else {
+                numDiscarded.incrementAndGet();
+            }
+        }
+        page.count.set(0);
+    }
+
+    /**
+     * Record a central force to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the force vector
+     * @param y the Y component of the force vector
+     * @param z the Z component of the force vector
+     */
+    public void applyCentralForce(int slot, float x, float y, float z) {
+        record(slot, centralForce, x, y, z, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record a central impulse to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the impulse vector
+     * @param y the Y component of the impulse vector
+     * @param z the Z component of the impulse vector
+     */
+    public void applyCentralImpulse(int slot, float x, float y, float z) {
+        record(slot, centralImpulse, x, y, z, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record an off-center force to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the force vector
+     * @param y the Y component of the force vector
+     * @param z the Z component of the force vector
+     * @param offsetX the X offset of the location to apply the force (relative
+     * to the body's center in physics-space coordinates)
+     * @param offsetY the Y offset of the location
+     * @param offsetZ the Z offset of the location
+     */
+    public void applyForce(int slot, float x, float y, float z,
+            float offsetX, float offsetY, float offsetZ) {
+        record(slot, force, x, y, z, offsetX, offsetY, offsetZ);
+    }
+
+    /**
+     * Record an off-center impulse to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the impulse vector
+     * @param y the Y component of the impulse vector
+     * @param z the Z component of the impulse vector
+     * @param offsetX the X offset of the location to apply the impulse
+     * (relative to the body's center in physics-space coordinates)
+     * @param offsetY the Y offset of the location
+     * @param offsetZ the Z offset of the location
+     */
+    public void applyImpulse(int slot, float x, float y, float z,
+            float offsetX, float offsetY, float offsetZ) {
+        record(slot, impulse, x, y, z, offsetX, offsetY, offsetZ);
+    }
+
+    /**
+     * Record a torque to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the torque vector
+     * @param y the Y component of the torque vector
+     * @param z the Z component of the torque vector
+     */
+    public void applyTorque(int slot, float x, float y, float z) {
+        record(slot, torque, x, y, z, 0f, 0f, 0f);
+    }
+
+    /**
+     * Record a torque impulse to be applied before the next physics step.
+     *
+     * @param slot the body's slot
+     * @param x the X component of the torque-impulse vector
+     * @param y the Y component of the torque-impulse vector
+     * @param z the Z component of the torque-impulse vector
+     */
+    public void applyTorqueImpulse(int slot, float x, float y, float z) {
+        record(slot, torqueImpulse, x, y, z, 0f, 0f, 0f);
+    }
+
+    /**
+     * Count how many commands have been discarded because their slots didn't
+     * identify rigid bodies.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countDiscarded() {
+        long result = numDiscarded.get();
+        return result;
+    }
+
+    /**
+     * Count the commands recorded but not yet applied.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countPending() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int result = pendingPage.countCommands();
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply the indexed command from the specified page.
+     *
+     * @param body the target body (not null)
+     * @param page the page containing the command (not null, unaffected)
+     * @param index the index of the command in the page
+     */
+    private void apply(PhysicsRigidBody body, CommandPage page, int index) {
+        int start = index * CommandPage.floatsPerCommand;
+        float[] data = page.data;
+        tmpArgument.set(data[start], data[start + 1], data[start + 2]);
+
+        byte type = page.types[index];
+        switch (type) {
+            case centralForce:
+                body.applyCentralForce(tmpArgument);
+                break;
+
+            case centralImpulse:
+                body.applyCentralImpulse(tmpArgument);
+                break;
+
+            case force:
+                tmpOffset.set(data[start + 3], data[start + 4],
+                        data[start + 5]);
+                body.applyForce(tmpArgument, tmpOffset);
+                break;
+
+            case impulse:
+                tmpOffset.set(data[start + 3], data[start + 4],
+                        data[start + 5]);
+                body.applyImpulse(tmpArgument, tmpOffset);
+                break;
+
+            case torque:
+                body.applyTorque(tmpArgument);
+                break;
+
+            case torqueImpulse:
+                body.applyTorqueImpulse(tmpArgument);
+                break;
+
+            default:
+                throw new IllegalStateException("type = " + type);
+        }
+    }
+
+    /**
+     * Double the capacity of the pending page, unless another thread has
+     * already done so.
+     *
+     * @param fullPage the page that was found to be full (not null)
+     */
+    private void growPending(CommandPage fullPage) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (pendingPage == fullPage && fullPage.isFull()) {
+                fullPage.grow();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Record a command in the pending page, growing the page if necessary.
+     *
+     * @param slot the target body's slot (&ge;0)
+     * @param type the command type
+     * @param x the X component of the first vector argument
+     * @param y the Y component of the first vector argument
+     * @param z the Z component of the first vector argument
+     * @param offsetX the X component of the offset argument, if any
+     * @param offsetY the Y component of the offset argument, if any
+     * @param offsetZ the Z component of the offset argument, if any
+     */
+    private void record(int slot, byte type, float x, float y, float z,
+            float offsetX, float offsetY, float offsetZ) {
+        Validate.nonNegative(slot, "slot");
+
+        Lock readLock = lock.readLock();
+        while (true) {
+            CommandPage page;
+            readLock.lock();
+            try {
+                page = pendingPage;
+                int index = page.count.getAndIncrement();
+                if (index < page.capacity) {
+                    page.slots[index] = slot;
+                    page.types[index] = type;
+                    int start = index * CommandPage.floatsPerCommand;
+                    float[] data = page.data;
+                    data[start] = x;
+                    data[start + 1] = y;
+                    data[start + 2] = z;
+                    data[start + 3] = offsetX;
+                    data[start + 4] = offsetY;
+                    data[start + 5] = offsetZ;
+                    return;
+                }
+            } finally {
+                readLock.unlock();
+            }
+            growPending(page);
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * The dynamic state of the rigid bodies in a CollisionObjectSlots mapping,
+ * packed into a re-usable direct buffer, for fast save and rollback.
+ * <p>
+ * The buffer holds one fixed-size record per captured body: the slot index,
+ * activation state, deactivation time, location, orientation, linear and
+ * angular velocities, and total applied force and torque. A full snapshot
+ * holds a record for every slotted rigid body. A delta snapshot holds
+ * records only for bodies whose state differs bit-for-bit from a base
+ * snapshot. Records are stored in ascending slot order, and the occupied
+ * part of the buffer can be sent over a network as-is.
+ * <p>
+ * Static and kinematic bodies are recorded with zero velocities, and their
+ * velocities aren't restored.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#saveState(CollisionObjectSlots, RigidBodySnapshot)
+ */
+public class RigidBodySnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes per record
+     */
+    final public static int BYTES_PER_RECORD = 88;
+    /**
+     * byte offset of the activation state within a record
+     */
+    final private static int activationOffset = 4;
+    /**
+     * byte offset of the deactivation time within a record
+     */
+    final private static int deactivationOffset = 8;
+    /**
+     * byte offset of the location within a record
+     */
+    final private static int locationOffset = 12;
+    /**
+     * byte offset of the orientation within a record
+     */
+    final private static int rotationOffset = 24;
+    /**
+     * byte offset of the linear velocity within a record
+     */
+    final private static int linearVelocityOffset = 40;
+    /**
+     * byte offset of the angular velocity within a record
+     */
+    final private static int angularVelocityOffset = 52;
+    /**
+     * byte offset of the total applied force within a record
+     */
+    final private static int forceOffset = 64;
+    /**
+     * byte offset of the total applied torque within a record
+     */
+    final private static int torqueOffset = 76;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(RigidBodySnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the records are relative to a base snapshot
+     */
+    private boolean isDelta = false;
+    /**
+     * packed records (direct, native byte order)
+     */
+    private ByteBuffer data;
+    /**
+     * index of the record for each slot, or -1 if none
+     */
+    private int[] recordOfSlot;
+    /**
+     * number of records in the buffer (&ge;0)
+     */
+    private int numRecords = 0;
+    /**
+     * temporary storage for an orientation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for a factor
+     */
+    final private Vector3f tmpFactor = new Vector3f();
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty snapshot with room for the specified number of
+     * records. The buffer grows as needed.
+     *
+     * @param initialCapacity the number of records to pre-allocate (&gt;0)
+     */
+    public RigidBodySnapshot(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        data = BufferUtils.createByteBuffer(
+                initialCapacity * BYTES_PER_RECORD);
+        recordOfSlot = new int[initialCapacity];
+        Arrays.fill(recordOfSlot, -1);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Capture the state of the rigid bodies in the specified slots. Invoked by
+     * PhysicsSpace.
+     *
+     * @param slots the bodies to capture (not null, unaffected)
+     * @param base the full snapshot to compare with, or null for a full
+     * capture
+     */
+    void capture(CollisionObjectSlots slots, RigidBodySnapshot base) {
+        assert base == null || !base.isDelta;
+
+        int numSlots = slots.countSlots();
+        if (numSlots > recordOfSlot.length) {
+            recordOfSlot = new int[numSlots];
+        }
+        Arrays.fill(recordOfSlot, -1);
+        isDelta = (base != null);
+        numRecords = 0;
+
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsCollisionObject pco = slots.get(slot);
+            if (!(pco instanceof PhysicsRigidBody)) {
+                continue;
+            }
+
+            ensureCapacity(numRecords + 1);
+            int position = numRecords * BYTES_PER_RECORD;
+            writeRecord((PhysicsRigidBody) pco, slot, position);
+            if (base == null || !base.matches(slot, data, position)) {
+                recordOfSlot[slot] = numRecords;
+                ++numRecords;
+            }
+        }
+    }
+
+    /**
+     * Count the bytes occupied by records.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBytes() {
+        int result = numRecords * BYTES_PER_RECORD;
+        return result;
+    }
+
+    /**
+     * Count the records.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countRecords() {
+        assert numRecords >= 0 : numRecords;
+        return numRecords;
+    }
+
+    /**
+     * Access the buffer of packed records. Records occupy bytes 0 through
+     * countBytes()-1. The buffer is re-used and may be replaced by the next
+     * capture.
+     *
+     * @return the pre-existing direct buffer (not null)
+     */
+    public ByteBuffer getBuffer() {
+        return data;
+    }
+
+    /**
+     * Test whether this snapshot contains a record for the specified slot.
+     *
+     * @param slot the slot index (&ge;0)
+     * @return true if there's a record, otherwise false
+     */
+    public boolean hasRecord(int slot) {
+        Validate.nonNegative(slot, "slot");
+
+        boolean result = slot < recordOfSlot.length && recordOfSlot[slot] >= 0;
+        return result;
+    }
+
+    /**
+     * Test whether this is a delta snapshot.
+     *
+     * @return true if delta, false if full
+     */
+    public boolean isDelta() {
+        return isDelta;
+    }
+
+    /**
+     * Merge a delta snapshot into this full snapshot, so that this snapshot
+     * matches the state the delta was captured from. Typically used on a
+     * peer that received the delta.
+     *
+     * @param delta the delta to apply (not null, relative to this snapshot,
+     * unaffected)
+     */
+    public void merge(RigidBodySnapshot delta) {
+        Validate.require(!isDelta, "a full snapshot");
+        Validate.require(delta.isDelta, "a delta snapshot");
+
+        for (int deltaIndex = 0; deltaIndex < delta.numRecords;
+                ++deltaIndex) {
+            int fromPosition = deltaIndex * BYTES_PER_RECORD;
+            int slot = delta.data.getInt(fromPosition);
+            int index = hasRecord(slot) ? recordOfSlot[slot] : -1;
+            if (index < 0) {
+                index = insertRecord(slot);
+            }
+
+            int toPosition = index * BYTES_PER_RECORD;
+            for (int offset = 0; offset < BYTES_PER_RECORD; offset += 4) {
+                int word = delta.data.getInt(fromPosition + offset);
+                data.putInt(toPosition + offset, word);
+            }
+        }
+    }
+
+    /**
+     * Restore the captured state to the bodies in the specified slots.
+     * Invoked by PhysicsSpace. Records for vacant slots are skipped.
+     *
+     * @param slots the bodies to restore (not null, unaffected)
+     * @return the number of bodies restored (&ge;0)
+     */
+    int restore(CollisionObjectSlots slots) {
+        int numSlots = slots.countSlots();
+        int result = 0;
+        for (int index = 0; index < numRecords; ++index) {
+            int position = index * BYTES_PER_RECORD;
+            int slot = data.getInt(position);
+            PhysicsCollisionObject pco
+                    = (slot < numSlots) ? slots.get(slot) : null;
+            if (pco instanceof PhysicsRigidBody) {
+                readRecord((PhysicsRigidBody) pco, position);
+                ++result;
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Enlarge the buffer, if necessary, to hold the specified number of
+     * records.
+     *
+     * @param minRecords the required number of records
+     */
+    private void ensureCapacity(int minRecords) {
+        int capacity = data.capacity() / BYTES_PER_RECORD;
+        if (minRecords > capacity) {
+            int newCapacity = Math.max(minRecords, 2 * capacity);
+            ByteBuffer newData = BufferUtils.createByteBuffer(
+                    newCapacity * BYTES_PER_RECORD);
+            for (int i = 0; i < numRecords * BYTES_PER_RECORD; i += 4) {
+                newData.putInt(i, data.getInt(i));
+            }
+            data = newData;
+        }
+    }
+
+    /**
+     * Insert an empty record for the specified slot, keeping the records in
+     * ascending slot order.
+     *
+     * @param slot the slot index (&ge;0, without a record)
+     * @return the index of the new record (&ge;0)
+     */
+    private int insertRecord(int slot) {
+        if (slot >= recordOfSlot.length) {
+            int oldLength = recordOfSlot.length;
+            recordOfSlot = Arrays.copyOf(recordOfSlot,
+                    Math.max(slot + 1, 2 * oldLength));
+            Arrays.fill(recordOfSlot, oldLength, recordOfSlot.length, -1);
+        }
+        ensureCapacity(numRecords + 1);
+
+        int result = numRecords;
+        while (result > 0
+                && data.getInt((result - 1) * BYTES_PER_RECORD) > slot) {
+            --result;
+        }
+        for (int index = numRecords - 1; index >= result; --index) {
+            int from = index * BYTES_PER_RECORD;
+            for (int offset = 0; offset < BYTES_PER_RECORD; offset += 4) {
+                int word = data.getInt(from + offset);
+                data.putInt(from + BYTES_PER_RECORD + offset, word);
+            }
+            int movedSlot = data.getInt(from);
+            recordOfSlot[movedSlot] = index + 1;
+        }
+        ++numRecords;
+
+        data.putInt(result * BYTES_PER_RECORD, slot);
+        recordOfSlot[slot] = result;
+
+        return result;
+    }
+
+    /**
+     * Test whether this snapshot's record for the specified slot matches a
+     * record in another buffer, bit for bit.
+     *
+     * @param slot the slot index (&ge;0)
+     * @param other the buffer containing the other record (not null,
+     * unaffected)
+     * @param otherPosition the byte offset of the other record
+     * @return true if identical, false if different or not recorded
+     */
+    private boolean matches(int slot, ByteBuffer other, int otherPosition) {
+        if (!hasRecord(slot)) {
+            return false;
+        }
+
+        int position = recordOfSlot[slot] * BYTES_PER_RECORD;
+        for (int offset = 0; offset < BYTES_PER_RECORD; offset += 4) {
+            if (data.getInt(position + offset)
+                    != other.getInt(otherPosition + offset)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Apply the record at the specified position to the specified body.
+     *
+     * @param body the body to modify (not null)
+     * @param position the byte offset of the record
+     */
+    private void readRecord(PhysicsRigidBody body, int position) {
+        body.setPhysicsLocation(readVector(position + locationOffset,
+                tmpVector));
+
+        int p = position + rotationOffset;
+        tmpRotation.set(data.getFloat(p), data.getFloat(p + 4),
+                data.getFloat(p + 8), data.getFloat(p + 12));
+        body.setPhysicsRotation(tmpRotation);
+
+        if (body.isDynamic()) {
+            body.setLinearVelocity(readVector(
+                    position + linearVelocityOffset, tmpVector));
+            body.setAngularVelocity(readVector(
+                    position + angularVelocityOffset, tmpVector));
+        }
+        /*
+         * Bullet scales applied forces and torques by the body's factors,
+         * so divide them out before re-applying the saved totals.
+         */
+        body.clearForces();
+        readVector(position + forceOffset, tmpVector);
+        if (!tmpVector.equals(Vector3f.ZERO)) {
+            body.getLinearFactor(tmpFactor);
+            unscale(tmpVector, tmpFactor);
+            body.applyCentralForce(tmpVector);
+        }
+        readVector(position + torqueOffset, tmpVector);
+        if (!tmpVector.equals(Vector3f.ZERO)) {
+            body.getAngularFactor(tmpFactor);
+            unscale(tmpVector, tmpFactor);
+            body.applyTorque(tmpVector);
+        }
+        /*
+         * Setting velocities and forces activates the body,
+         * so restore its activation last.
+         */
+        body.setDeactivationTime(data.getFloat(position + deactivationOffset));
+        body.setActivationState(data.getInt(position + activationOffset));
+    }
+
+    /**
+     * Read a vector from the buffer.
+     *
+     * @param position the byte offset of the vector
+     * @param storeResult storage for the result (not null, modified)
+     * @return storeResult
+     */
+    private Vector3f readVector(int position, Vector3f storeResult) {
+        storeResult.x = data.getFloat(position);
+        storeResult.y = data.getFloat(position + 4);
+        storeResult.z = data.getFloat(position + 8);
+
+        return storeResult;
+    }
+
+    /**
+     * Divide each component of a vector by the corresponding factor, leaving
+     * components with zero factors unchanged.
+     *
+     * @param vector the vector to modify (not null)
+     * @param factor the factors (not null, unaffected)
+     */
+    private static void unscale(Vector3f vector, Vector3f factor) {
+        if (factor.x != 0f) {
+            vector.x /= factor.x;
+        }
+        if (factor.y != 0f) {
+            vector.y /= factor.y;
+        }
+        if (factor.z != 0f) {
+            vector.z /= factor.z;
+        }
+    }
+
+    /**
+     * Write a record for the specified body at the specified position.
+     *
+     * @param body the body to read (not null, unaffected)
+     * @param slot the body's slot index (&ge;0)
+     * @param position the byte offset for the record
+     */
+    private void writeRecord(PhysicsRigidBody body, int slot, int position) {
+        data.putInt(position, slot);
+        data.putInt(position + activationOffset, body.getActivationState());
+        data.putFloat(position + deactivationOffset,
+                body.getDeactivationTime());
+
+        writeVector(position + locationOffset,
+                body.getPhysicsLocation(tmpVector));
+
+        body.getPhysicsRotation(tmpRotation);
+        int p = position + rotationOffset;
+        data.putFloat(p, tmpRotation.getX());
+        data.putFloat(p + 4, tmpRotation.getY());
+        data.putFloat(p + 8, tmpRotation.getZ());
+        data.putFloat(p + 12, tmpRotation.getW());
+
+        if (body.isDynamic()) {
+            writeVector(position + linearVelocityOffset,
+                    body.getLinearVelocity(tmpVector));
+            writeVector(position + angularVelocityOffset,
+                    body.getAngularVelocity(tmpVector));
+        } else {
+            writeVector(position + linearVelocityOffset, Vector3f.ZERO);
+            writeVector(position + angularVelocityOffset, Vector3f.ZERO);
+        }
+        writeVector(position + forceOffset,
+                body.totalAppliedForce(tmpVector));
+        writeVector(position + torqueOffset,
+                body.totalAppliedTorque(tmpVector));
+    }
+
+    /**
+     * Write a vector to the buffer.
+     *
+     * @param position the byte offset for the vector
+     * @param vector the vector to write (not null, unaffected)
+     */
+    private void writeVector(int position, Vector3f vector) {
+        data.putFloat(position, vector.x);
+        data.putFloat(position + 4, vector.y);
+        data.putFloat(position + 8, vector.z);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.app.AppTask;
+import java.util.logging.Logger;
+
+/**
+ * A task scheduled by LockstepDriver to run just before a specific step,
+ * ordered by step, then by caller-assigned order key.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ScheduledTask implements Comparable<ScheduledTask> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ScheduledTask.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * the task to run (not null)
+     */
+    final AppTask<?> task;
+    /**
+     * caller-assigned order key among tasks for the same step
+     */
+    final int order;
+    /**
+     * index of the step the task should precede (&ge;0)
+     */
+    final long step;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a scheduled task.
+     *
+     * @param step the index of the step the task should precede (&ge;0)
+     * @param order the caller-assigned order key
+     * @param task the task to run (not null, alias created)
+     */
+    ScheduledTask(long step, int order, AppTask<?> task) {
+        assert step >= 0L : step;
+        assert task != null;
+
+        this.step = step;
+        this.order = order;
+        this.task = task;
+    }
+    // *************************************************************************
+    // Comparable methods
+
+    /**
+     * Compare with another task, by step, then order key. LockstepDriver
+     * rejects pending tasks whose keys compare equal.
+     *
+     * @param other the other task (not null, unaffected)
+     * @return negative if this task runs first, positive if the other runs
+     * first, or 0 if they have the same keys
+     */
+    @Override
+    public int compareTo(ScheduledTask other) {
+        int result = Long.compare(step, other.step);
+        if (result == 0) {
+            result = Integer.compare(order, other.order);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.Activation;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A simulation level-of-detail (LOD) policy that culls dynamic rigid bodies
+ * far from every interest point (such as player locations) and restores them
+ * on approach, so that step cost scales with the part of the world that
+ * matters.
+ * <p>
+ * A body is culled once it's farther than the cull radius from every
+ * interest point, and restored once it comes within the (smaller) restore
+ * radius of any interest point. The gap between the radii provides
+ * hysteresis, so bodies near a boundary don't thrash. Culled bodies keep
+ * their velocities, which are re-applied when they're restored. While there
+ * are no interest points, nothing is culled: removing the last interest point
+ * restores all culled bodies at the next check.
+ * <p>
+ * Install an instance on a single PhysicsSpace using
+ * {@link PhysicsSpace#addTickListener(PhysicsTickListener)}. Distances are
+ * checked before every checkInterval-th simulation step. Interest points are
+ * read during those checks, so alter them only between steps.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SimulationLod implements PhysicsTickListener {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Ways to cull a distant body.
+     */
+    public enum CullMode {
+        /**
+         * make the body kinematic, so it holds its position but still
+         * collides with dynamic bodies that reach it
+         */
+        FREEZE,
+        /**
+         * deactivate the body, so it's skipped by integration and bounding-box
+         * updates until restored or woken by an active body (cheapest)
+         */
+        SLEEP;
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SimulationLod.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * how to cull distant bodies (not null)
+     */
+    final private CullMode mode;
+    /**
+     * distance beyond which bodies are culled (in physics-space units)
+     */
+    private float cullRadius;
+    /**
+     * distance within which culled bodies are restored (in physics-space
+     * units, &le;cullRadius)
+     */
+    private float restoreRadius;
+    /**
+     * number of simulation steps between distance checks (&ge;1)
+     */
+    private int checkInterval = 1;
+    /**
+     * number of steps since the most recent check (&ge;0)
+     */
+    private int stepsSinceCheck = 0;
+    /**
+     * locations of interest, in physics-space coordinates
+     */
+    final private List<Vector3f> interestPoints = new ArrayList<>(4);
+    /**
+     * saved state of each culled body
+     */
+    final private Map<PhysicsRigidBody, CulledBody> culledBodies
+            = new IdentityHashMap<>(64);
+    /**
+     * temporary storage for a location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a policy with no interest points.
+     *
+     * @param mode how to cull distant bodies (not null)
+     * @param restoreRadius the distance within which culled bodies are
+     * restored (in physics-space units, &ge;0)
+     * @param cullRadius the distance beyond which bodies are culled (in
+     * physics-space units, &ge;restoreRadius)
+     */
+    public SimulationLod(CullMode mode, float restoreRadius,
+            float cullRadius) {
+        Validate.nonNull(mode, "mode");
+        this.mode = mode;
+        setRadii(restoreRadius, cullRadius);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add an interest point. The caller may move it between steps.
+     *
+     * @param location the location (in physics-space coordinates, not null,
+     * alias created)
+     */
+    public void addInterestPoint(Vector3f location) {
+        Validate.nonNull(location, "location");
+        interestPoints.add(location);
+    }
+
+    /**
+     * Read the number of simulation steps between distance checks.
+     *
+     * @return the number of steps (&ge;1)
+     */
+    public int checkInterval() {
+        assert checkInterval >= 1 : checkInterval;
+        return checkInterval;
+    }
+
+    /**
+     * Count the bodies that are currently culled.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countCulled() {
+        int result = culledBodies.size();
+        return result;
+    }
+
+    /**
+     * Read the distance beyond which bodies are culled.
+     *
+     * @return the distance (in physics-space units, &ge;0)
+     */
+    public float cullRadius() {
+        assert cullRadius >= restoreRadius : cullRadius;
+        return cullRadius;
+    }
+
+    /**
+     * Determine how distant bodies are culled.
+     *
+     * @return the enum value (not null)
+     */
+    public CullMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Test whether the specified body is currently culled.
+     *
+     * @param body the body to test (not null, unaffected)
+     * @return true if culled, otherwise false
+     */
+    public boolean isCulled(PhysicsRigidBody body) {
+        boolean result = culledBodies.containsKey(body);
+        return result;
+    }
+
+    /**
+     * Remove the specified interest point.
+     *
+     * @param location the location to remove (not null)
+     * @return true if the point was found and removed, otherwise false
+     */
+    public boolean removeInterestPoint(Vector3f location) {
+        Validate.nonNull(location, "location");
+
+        for (int i = 0; i < interestPoints.size(); ++i) {
+            if (interestPoints.get(i) == location) {
+                interestPoints.remove(i);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Read the distance within which culled bodies are restored.
+     *
+     * @return the distance (in physics-space units, &ge;0)
+     */
+    public float restoreRadius() {
+        assert restoreRadius >= 0f : restoreRadius;
+        return restoreRadius;
+    }
+
+    /**
+     * Restore all culled bodies, regardless of distance. Invoke this before
+     * removing the policy from its space, or else culled bodies stay culled.
+     */
+    public void restoreAll() {
+        for (Map.Entry<PhysicsRigidBody, CulledBody> entry
+                : culledBodies.entrySet()) {
+            restore(entry.getKey(), entry.getValue());
+        }
+        culledBodies.clear();
+    }
+
+    /**
+     * Alter the number of simulation steps between distance checks.
+     *
+     * @param numSteps the desired number of steps (&ge;1, default=1)
+     */
+    public void setCheckInterval(int numSteps) {
+        Validate.positive(numSteps, "number of steps");
+        checkInterval = numSteps;
+    }
+
+    /**
+     * Alter both radii.
+     *
+     * @param restoreRadius the distance within which culled bodies are
+     * restored (in physics-space units, &ge;0)
+     * @param cullRadius the distance beyond which bodies are culled (in
+     * physics-space units, &ge;restoreRadius)
+     */
+    public void setRadii(float restoreRadius, float cullRadius) {
+        Validate.nonNegative(restoreRadius, "restore radius");
+        if (!(cullRadius >= restoreRadius)) {
+            throw new IllegalArgumentException(
+                    "The cull radius mustn't be less than the restore radius.");
+        }
+
+        this.restoreRadius = restoreRadius;
+        this.cullRadius = cullRadius;
+    }
+    // *************************************************************************
+    // PhysicsTickListener methods
+
+    /**
+     * Callback from Bullet, invoked just after the physics has been stepped.
+     * No effect.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param timeStep the time per simulation step (in seconds, &ge;0)
+     */
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        // do nothing
+    }
+
+    /**
+     * Callback from Bullet, invoked just before the physics is stepped. Checks
+     * distances and culls or restores bodies.
+     *
+     * @param space the space that's about to be stepped (not null)
+     * @param timeStep the time per simulation step (in seconds, &ge;0)
+     */
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        ++stepsSinceCheck;
+        if (stepsSinceCheck < checkInterval) {
+            return;
+        }
+        stepsSinceCheck = 0;
+
+        purgeRemoved();
+        if (interestPoints.isEmpty()) {
+            restoreAll();
+            return;
+        }
+
+        float cullSquared = cullRadius * cullRadius;
+        float restoreSquared = restoreRadius * restoreRadius;
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            CulledBody culled = culledBodies.get(body);
+            if (culled == null && !body.isDynamic()) {
+                continue;
+            }
+
+            body.getPhysicsLocation(tmpLocation);
+            float distanceSquared = nearestSquared(tmpLocation);
+            if (culled == null) {
+                if (distanceSquared > cullSquared) {
+                    cull(body);
+                }
+            } else if (distanceSquared <= restoreSquared) {
+                restore(body, culled);
+                culledBodies.remove(body);
+            } else if (mode == CullMode.SLEEP && body.isActive()) {
+                /*
+                 * An active body woke this one, so let it simulate with its
+                 * current velocities until the next check re-culls it.
+                 */
+                if (culled.wasSleepExempt) {
+                    body.setEnableSleep(false);
+                }
+                culledBodies.remove(body);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Cull the specified dynamic body, saving its state for restoration.
+     *
+     * @param body the body to cull (not null, dynamic)
+     */
+    private void cull(PhysicsRigidBody body) {
+        CulledBody culled = new CulledBody();
+        body.getLinearVelocity(culled.linearVelocity);
+        body.getAngularVelocity(culled.angularVelocity);
+        culled.wasSleepExempt
+                = (body.getActivationState() == Activation.exempt);
+
+        switch (mode) {
+            case FREEZE:
+                body.setKinematic(true);
+                break;
+
+            case SLEEP:
+                body.setLinearVelocity(Vector3f.ZERO);
+                body.setAngularVelocity(Vector3f.ZERO);
+                body.setEnableSleep(true);
+                body.deactivate();
+                break;
+
+            default:
+                throw new IllegalStateException("mode = " + mode);
+        }
+
+        culledBodies.put(body, culled);
+    }
+
+    /**
+     * Calculate the squared distance from the specified location to the
+     * nearest interest point.
+     *
+     * @param location the location (not null, unaffected)
+     * @return the squared distance (&ge;0)
+     */
+    private float nearestSquared(Vector3f location) {
+        float result = Float.POSITIVE_INFINITY;
+        for (Vector3f point : interestPoints) {
+            float distanceSquared = point.distanceSquared(location);
+            result = Math.min(result, distanceSquared);
+        }
+
+        return result;
+    }
+
+    /**
+     * Restore any culled bodies that were removed from their space.
+     */
+    private void purgeRemoved() {
+        Iterator<Map.Entry<PhysicsRigidBody, CulledBody>> iterator
+                = culledBodies.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<PhysicsRigidBody, CulledBody> entry = iterator.next();
+            PhysicsRigidBody body = entry.getKey();
+            if (!body.isInWorld()) {
+                restore(body, entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the specified body to dynamic simulation with the state saved
+     * when it was culled. The caller is responsible for forgetting the saved
+     * state.
+     *
+     * @param body the body to restore (not null)
+     * @param culled the saved state (not null, unaffected)
+     */
+    private void restore(PhysicsRigidBody body, CulledBody culled) {
+        if (mode == CullMode.FREEZE) {
+            body.setKinematic(false);
+        }
+        /*
+         * Setting the velocities also activates the body.
+         */
+        body.setLinearVelocity(culled.linearVelocity);
+        body.setAngularVelocity(culled.angularVelocity);
+        if (culled.wasSleepExempt) {
+            body.setEnableSleep(false);
+        }
+    }
+}
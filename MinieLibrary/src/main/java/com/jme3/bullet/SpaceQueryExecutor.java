@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.ConvexShape;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Perform batched, read-only queries of a CollisionSpace on a pool of worker
+ * threads, so that query throughput scales with the number of cores.
+ * <p>
+ * Concurrent ray and sweep tests require a native library built with
+ * BT_THREADSAFE: otherwise Bullet's broadphase shares a single traversal stack
+ * among all queries, and concurrent queries corrupt one another. Since the
+ * native library can't report how it was built, batches run sequentially on
+ * the invoking thread unless {@link #setConcurrent(boolean)} is invoked with
+ * true.
+ * <p>
+ * Each batch runs inside a query phase of the space (see
+ * {@link CollisionSpace#beginQueryPhase()}), so any attempt by another thread
+ * to add or remove objects, or to step the space, waits for the batch to
+ * complete instead of corrupting the queries. A batch invoked while the space
+ * is being stepped (or modified) on another thread waits for the step to
+ * complete.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SpaceQueryExecutor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpaceQueryExecutor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * space to query (not null)
+     */
+    final private CollisionSpace space;
+    /**
+     * pool of worker threads (not null)
+     */
+    final private ForkJoinPool pool;
+    /**
+     * true if batches run on the worker threads, false if they run
+     * sequentially on the invoking thread
+     */
+    private boolean concurrent = false;
+    /**
+     * maximum number of queries per task (&gt;0)
+     */
+    private int grainSize = 256;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an executor for the specified space.
+     *
+     * @param space the space to query (not null, alias created)
+     * @param numThreads the number of worker threads (&gt;0)
+     */
+    public SpaceQueryExecutor(CollisionSpace space, int numThreads) {
+        Validate.nonNull(space, "space");
+        Validate.positive(numThreads, "number of threads");
+
+        this.space = space;
+        pool = new ForkJoinPool(numThreads);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Perform a contact test for each occupied slot, inside a query phase.
+     * Contact tests use the space's collision dispatcher, which isn't safe for
+     * concurrent use, so they're performed sequentially on the invoking
+     * thread.
+     *
+     * @param slots the objects to test (not null, unaffected)
+     * @param storeCounts storage for the number of contacts of the object in
+     * each slot, or -1 for vacant slots (not null, modified)
+     * @return the total number of contacts (&ge;0)
+     */
+    public int contactTestBatch(CollisionObjectSlots slots,
+            IntBuffer storeCounts) {
+        Validate.nonNull(slots, "slots");
+        int numSlots = slots.countSlots();
+        Validate.require(storeCounts.capacity() >= numSlots,
+                "capacity sufficient for all slots");
+
+        int total = 0;
+        space.beginQueryPhase();
+        try {
+            for (int slot = 0; slot < numSlots; ++slot) {
+                PhysicsCollisionObject pco = slots.get(slot);
+                int count = -1;
+                if (pco != null) {
+                    count = space.contactTest(pco, null);
+                    total += count;
+                }
+                storeCounts.put(slot, count);
+            }
+        } finally {
+            space.endQueryPhase();
+        }
+
+        assert total >= 0 : total;
+        return total;
+    }
+
+    /**
+     * Count the worker threads.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countThreads() {
+        int result = pool.getParallelism();
+        return result;
+    }
+
+    /**
+     * Access the space that this executor queries.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CollisionSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Read the maximum number of queries per task.
+     *
+     * @return the number (&gt;0)
+     */
+    public int grainSize() {
+        assert grainSize > 0 : grainSize;
+        return grainSize;
+    }
+
+    /**
+     * Test whether batches run on the worker threads.
+     *
+     * @return true if concurrent, false if sequential
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Perform a batch of ray tests, inside a query phase. The tests run on
+     * the worker threads if concurrent queries are enabled. The buffers are
+     * accessed and results are recorded as in
+     * {@link CollisionSpace#rayTestBatch(java.nio.FloatBuffer,
+     * java.nio.FloatBuffer, int, com.jme3.bullet.CollisionObjectSlots,
+     * java.nio.FloatBuffer, java.nio.IntBuffer)}.
+     *
+     * @param fromBuffer the starting locations (x,y,z for each ray, not null,
+     * unaffected)
+     * @param toBuffer the ending locations (x,y,z for each ray, not null,
+     * unaffected)
+     * @param numRays the number of rays to test (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of rays that hit something (&ge;0, &le;numRays)
+     */
+    public int rayTestBatch(FloatBuffer fromBuffer, FloatBuffer toBuffer,
+            int numRays, CollisionObjectSlots slots, FloatBuffer storeHits,
+            IntBuffer storeSlots) {
+        validateBatch(fromBuffer, toBuffer, numRays, slots, storeHits,
+                storeSlots);
+
+        QueryTask task = new QueryTask(space, null, fromBuffer, toBuffer, 0,
+                numRays, grainSize, slots, storeHits, storeSlots);
+        int numHits = invoke(task);
+
+        return numHits;
+    }
+
+    /**
+     * Alter whether batches of ray and sweep tests run on the worker threads.
+     * Enable this only with a native library built with BT_THREADSAFE.
+     *
+     * @param concurrent true to run batches on the worker threads, false to
+     * run them sequentially on the invoking thread (default=false)
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Alter the maximum number of queries per task. Smaller grains balance
+     * the load better; larger grains reduce scheduling overhead.
+     *
+     * @param numQueries the desired number (&gt;0, default=256)
+     */
+    public void setGrainSize(int numQueries) {
+        Validate.positive(numQueries, "number of queries");
+        grainSize = numQueries;
+    }
+
+    /**
+     * Shut down the worker threads. The executor cannot be used afterward.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Perform a batch of sweep tests of a single shape, inside a query phase.
+     * The tests run on the worker threads if concurrent queries are enabled.
+     * The buffers are accessed and results are recorded as in
+     * {@link CollisionSpace#sweepTestBatch(
+     * com.jme3.bullet.collision.shapes.ConvexShape, java.nio.FloatBuffer,
+     * java.nio.FloatBuffer, int, com.jme3.bullet.CollisionObjectSlots,
+     * java.nio.FloatBuffer, java.nio.IntBuffer)}.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param fromBuffer the starting locations (x,y,z for each sweep, not
+     * null, unaffected)
+     * @param toBuffer the ending locations (x,y,z for each sweep, not null,
+     * unaffected)
+     * @param numSweeps the number of sweeps to test (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * modified)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * modified)
+     * @return the number of sweeps that hit something (&ge;0, &le;numSweeps)
+     */
+    public int sweepTestBatch(ConvexShape shape, FloatBuffer fromBuffer,
+            FloatBuffer toBuffer, int numSweeps, CollisionObjectSlots slots,
+            FloatBuffer storeHits, IntBuffer storeSlots) {
+        Validate.nonNull(shape, "shape");
+        validateBatch(fromBuffer, toBuffer, numSweeps, slots, storeHits,
+                storeSlots);
+
+        QueryTask task = new QueryTask(space, shape, fromBuffer, toBuffer, 0,
+                numSweeps, grainSize, slots, storeHits, storeSlots);
+        int numHits = invoke(task);
+
+        return numHits;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Invoke the specified task inside a query phase, on the worker threads if
+     * concurrent queries are enabled, otherwise on the current thread.
+     *
+     * @param task the task to invoke (not null)
+     * @return the number of queries that hit something (&ge;0)
+     */
+    private int invoke(QueryTask task) {
+        space.beginQueryPhase();
+        try {
+            int result;
+            if (concurrent) {
+                result = pool.invoke(task);
+            } else {
+                result = task.computeSequentially();
+            }
+            return result;
+        } finally {
+            space.endQueryPhase();
+        }
+    }
+
+    /**
+     * Validate the arguments of a batch.
+     *
+     * @param fromBuffer the starting locations (not null, unaffected)
+     * @param toBuffer the ending locations (not null, unaffected)
+     * @param numQueries the number of queries in the batch (&ge;0)
+     * @param slots the slots to report for objects hit (not null, unaffected)
+     * @param storeHits storage for the hit fractions and normals (not null,
+     * unaffected)
+     * @param storeSlots storage for the slots of objects hit (not null,
+     * unaffected)
+     */
+    private static void validateBatch(FloatBuffer fromBuffer,
+            FloatBuffer toBuffer, int numQueries, CollisionObjectSlots slots,
+            FloatBuffer storeHits, IntBuffer storeSlots) {
+        Validate.nonNegative(numQueries, "number of queries");
+        Validate.nonNull(slots, "slots");
+        int numFloats = CollisionSpace.FLOATS_PER_LOCATION * numQueries;
+        Validate.require(fromBuffer.capacity() >= numFloats
+                && toBuffer.capacity() >= numFloats,
+                "3 floats per query in each input buffer");
+        Validate.require(
+                storeHits.capacity()
+                >= CollisionSpace.FLOATS_PER_RAY_HIT * numQueries
+                && storeSlots.capacity() >= numQueries,
+                "capacity sufficient for all queries");
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * A re-usable fork-join task to step one PhysicsSpace on a worker thread,
+ * used by MultiSpaceAppState.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class SpaceStepTask extends RecursiveAction {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpaceStepTask.class.getName());
+    /**
+     * serial version UID
+     */
+    final private static long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * simulation time to step (in seconds, &ge;0)
+     */
+    private float timeInterval;
+    /**
+     * space to step (not null)
+     */
+    final private PhysicsSpace space;
+    /**
+     * timing statistics for the steps
+     */
+    final private StepMetrics metrics = new StepMetrics();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified space.
+     *
+     * @param space the space to step (not null, alias created)
+     */
+    SpaceStepTask(PhysicsSpace space) {
+        assert space != null;
+        this.space = space;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access the timing statistics.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    StepMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Access the space that this task steps.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    PhysicsSpace getSpace() {
+        return space;
+    }
+
+    /**
+     * Prepare to step the space again.
+     *
+     * @param timeInterval the simulation time to step (in seconds, &ge;0)
+     */
+    void prepare(float timeInterval) {
+        assert timeInterval >= 0f : timeInterval;
+
+        reinitialize();
+        this.timeInterval = timeInterval;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Step the space, binding it to the current thread for the duration.
+     */
+    @Override
+    protected void compute() {
+        CollisionSpace previous = CollisionSpace.getCollisionSpace();
+        CollisionSpace.setLocalThreadPhysicsSpace(space);
+        try {
+            long startNanos = System.nanoTime();
+            space.update(timeInterval);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            metrics.addSample(elapsedNanos);
+        } finally {
+            CollisionSpace.setLocalThreadPhysicsSpace(previous);
+        }
+    }
+}
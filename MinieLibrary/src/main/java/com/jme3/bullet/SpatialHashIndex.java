@@ -0,0 +1,883 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.math.Plane;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.Camera;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A loose-grid spatial index over the bounding boxes of the collision objects
+ * in a CollisionObjectSlots mapping, for fast proximity and region queries
+ * that return slots without crossing JNI.
+ * <p>
+ * Each object is filed in the grid cell that contains the center of its
+ * bounding box. Queries widen their search by the largest half-extent of any
+ * object in the grid, then test each candidate's cached bounding box exactly.
+ * Oversized objects (those with a half-extent larger than the cell size, such
+ * as terrain) are kept in a separate list that every query tests, so that
+ * they don't widen the search.
+ * <p>
+ * When installed in a PhysicsSpace, the index is updated after each step.
+ * During an update, only objects that were awake during the previous update
+ * (and objects newly assigned to their slots or explicitly invalidated) are
+ * polled and have their bounding boxes re-read. Sleeping objects whose
+ * bounding boxes overlap an awake object's are polled in case they were woken
+ * by contact. An object that's woken or moved any other way (for instance, by
+ * application code, a joint, or an object outside the slots) must be
+ * invalidated.
+ * Not thread-safe: query only between steps, on the thread that steps the
+ * space or after synchronizing with it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setSpatialIndex(SpatialHashIndex)
+ */
+public class SpatialHashIndex {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * largest magnitude of a cell coordinate that packs into a cell key
+     */
+    final private static int maxCellCoordinate = (1 << 20) - 1;
+    /**
+     * number of planes that bound a camera's view frustum
+     */
+    final private static int numFrustumPlanes = 6;
+    /**
+     * value of cellHeads[] for a table entry that has never held a key
+     */
+    final private static int neverUsed = -2;
+    /**
+     * value of slotCellKeys[] for a slot in the oversized list, distinct from
+     * every packed cell key
+     */
+    final private static long oversizedKey = -1L;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpatialHashIndex.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for each slot whose object was active during the most recent
+     * update
+     */
+    private boolean[] isAwake;
+    /**
+     * true for each slot that must be re-read during the next update
+     */
+    private boolean[] isDirty;
+    /**
+     * true for each slot whose object was static when last re-read, so it
+     * needn't be polled until invalidated
+     */
+    private boolean[] isFixed;
+    /**
+     * true for each slot that's filed in the grid or the oversized list
+     */
+    private boolean[] isIndexed;
+    /**
+     * width of each grid cell (in physics-space units, &gt;0)
+     */
+    final private float cellSize;
+    /**
+     * largest half-extent of any bounding box in the grid, on any axis
+     * (&ge;0, &le;cellSize)
+     */
+    private float looseness = 0f;
+    /**
+     * cached bounding box of each slot: minX, minY, minZ, maxX, maxY, maxZ
+     */
+    private float[] bounds;
+    /**
+     * for each awake slot in the current update, the union of its previous
+     * and current bounding boxes, in the same layout as bounds[]
+     */
+    private float[] sweptBounds;
+    /**
+     * slots found awake during the current update
+     */
+    private int[] awakeSlots;
+    /**
+     * first slot in each cell of the hash table, -1 for an empty cell, or
+     * neverUsed for an unused table entry
+     */
+    private int[] cellHeads;
+    /**
+     * slots that passed the broad test of the current query
+     */
+    private int[] candidates = new int[64];
+    /**
+     * next slot in the same cell (or oversized list), or -1 if none
+     */
+    private int[] nextInCell;
+    /**
+     * number of hash-table entries that hold keys (&ge;0)
+     */
+    private int numCellKeys = 0;
+    /**
+     * number of slots filed in the grid or the oversized list (&ge;0)
+     */
+    private int numIndexed = 0;
+    /**
+     * number of updates performed (used to stamp polled slots)
+     */
+    private int numUpdates = 0;
+    /**
+     * first slot in the oversized list, or -1 if none
+     */
+    private int oversizedHead = -1;
+    /**
+     * value of numUpdates when each sleeping slot was last polled for waking
+     */
+    private int[] pollStamps;
+    /**
+     * previous slot in the same cell (or oversized list), or -1 if none
+     */
+    private int[] prevInCell;
+    /**
+     * key of each hash-table entry
+     */
+    private long[] cellKeys;
+    /**
+     * key of the cell in which each slot is filed, or oversizedKey
+     */
+    private long[] slotCellKeys;
+    /**
+     * objects to index (not null)
+     */
+    final private CollisionObjectSlots slots;
+    /**
+     * object whose bounding box is cached in each slot, or null if none
+     */
+    private PhysicsCollisionObject[] cachedObjects;
+    /**
+     * temporary storage for a bounding box
+     */
+    final private BoundingBox tmpBox = new BoundingBox();
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty index for the objects in the specified slots.
+     *
+     * @param slots the objects to index (not null, alias created)
+     * @param cellSize the width of each grid cell (in physics-space units,
+     * &gt;0, typically about twice the size of a typical object)
+     */
+    public SpatialHashIndex(CollisionObjectSlots slots, float cellSize) {
+        Validate.nonNull(slots, "slots");
+        Validate.positive(cellSize, "cell size");
+
+        this.slots = slots;
+        this.cellSize = cellSize;
+
+        int capacity = 64;
+        isAwake = new boolean[capacity];
+        isDirty = new boolean[capacity];
+        isFixed = new boolean[capacity];
+        isIndexed = new boolean[capacity];
+        bounds = new float[6 * capacity];
+        sweptBounds = new float[6 * capacity];
+        awakeSlots = new int[capacity];
+        cachedObjects = new PhysicsCollisionObject[capacity];
+        nextInCell = new int[capacity];
+        pollStamps = new int[capacity];
+        prevInCell = new int[capacity];
+        slotCellKeys = new long[capacity];
+
+        cellHeads = new int[2 * capacity];
+        cellKeys = new long[2 * capacity];
+        Arrays.fill(cellHeads, neverUsed);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the width of each grid cell.
+     *
+     * @return the width (in physics-space units, &gt;0)
+     */
+    public float cellSize() {
+        assert cellSize > 0f : cellSize;
+        return cellSize;
+    }
+
+    /**
+     * Count the objects filed in the grid or the oversized list.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countIndexed() {
+        assert numIndexed >= 0 : numIndexed;
+        return numIndexed;
+    }
+
+    /**
+     * Force the specified slot to be polled and re-read during the next
+     * update, for instance after teleporting or activating a sleeping or
+     * static object.
+     *
+     * @param slot the slot to invalidate (&ge;0)
+     */
+    public void invalidate(int slot) {
+        Validate.nonNegative(slot, "slot");
+
+        if (slot < isDirty.length) {
+            isDirty[slot] = true;
+        }
+    }
+
+    /**
+     * Find all indexed objects whose bounding boxes overlap the specified
+     * axis-aligned box.
+     *
+     * @param min the minimum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param max the maximum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param storeSlots storage for the slots found, written from index 0 up
+     * to its capacity (not null, modified)
+     * @return the number of objects found (&ge;0, may exceed the capacity of
+     * storeSlots)
+     */
+    public int queryBox(Vector3f min, Vector3f max, IntBuffer storeSlots) {
+        Validate.nonNull(min, "min");
+        Validate.nonNull(max, "max");
+
+        int numCandidates = gatherCandidates(min.x, min.y, min.z, max.x,
+                max.y, max.z);
+        int capacity = storeSlots.capacity();
+        for (int i = 0; i < numCandidates && i < capacity; ++i) {
+            storeSlots.put(i, candidates[i]);
+        }
+
+        return numCandidates;
+    }
+
+    /**
+     * Find all indexed objects whose bounding boxes are at least partly
+     * inside the view frustum of the specified camera.
+     *
+     * @param camera the camera (not null, unaffected)
+     * @param storeSlots storage for the slots found, written from index 0 up
+     * to its capacity (not null, modified)
+     * @return the number of objects found (&ge;0, may exceed the capacity of
+     * storeSlots)
+     */
+    public int queryFrustum(Camera camera, IntBuffer storeSlots) {
+        Validate.nonNull(camera, "camera");
+
+        float inf = Float.POSITIVE_INFINITY;
+        int numCandidates = gatherCandidates(-inf, -inf, -inf, inf, inf, inf);
+        int capacity = storeSlots.capacity();
+        int numFound = 0;
+        for (int i = 0; i < numCandidates; ++i) {
+            int slot = candidates[i];
+            if (isInFrustum(slot, camera)) {
+                if (numFound < capacity) {
+                    storeSlots.put(numFound, slot);
+                }
+                ++numFound;
+            }
+        }
+
+        return numFound;
+    }
+
+    /**
+     * Find all indexed objects whose bounding boxes intersect the specified
+     * sphere.
+     *
+     * @param center the center of the sphere (in physics-space coordinates,
+     * not null, unaffected)
+     * @param radius the radius of the sphere (in physics-space units, &ge;0)
+     * @param storeSlots storage for the slots found, written from index 0 up
+     * to its capacity (not null, modified)
+     * @return the number of objects found (&ge;0, may exceed the capacity of
+     * storeSlots)
+     */
+    public int querySphere(Vector3f center, float radius,
+            IntBuffer storeSlots) {
+        Validate.nonNull(center, "center");
+        Validate.nonNegative(radius, "radius");
+
+        int numCandidates = gatherCandidates(center.x - radius,
+                center.y - radius, center.z - radius, center.x + radius,
+                center.y + radius, center.z + radius);
+        float radiusSquared = radius * radius;
+        int capacity = storeSlots.capacity();
+        int numFound = 0;
+        for (int i = 0; i < numCandidates; ++i) {
+            int slot = candidates[i];
+            if (distanceSquared(slot, center) <= radiusSquared) {
+                if (numFound < capacity) {
+                    storeSlots.put(numFound, slot);
+                }
+                ++numFound;
+            }
+        }
+
+        return numFound;
+    }
+
+    /**
+     * Update the index from the slots: re-read the bounding boxes of awake,
+     * newly-added, and invalidated objects, and of sleepers woken by contact
+     * with awake objects, and drop vacated slots. Invoked by PhysicsSpace
+     * after each step.
+     */
+    public void update() {
+        int numSlots = slots.countSlots();
+        if (numSlots > isIndexed.length) {
+            growSlots(numSlots);
+        }
+        ++numUpdates;
+
+        int numAwake = 0;
+        for (int slot = 0; slot < isIndexed.length; ++slot) {
+            PhysicsCollisionObject pco
+                    = (slot < numSlots) ? slots.get(slot) : null;
+            if (pco == null) {
+                if (isIndexed[slot]) {
+                    unfile(slot);
+                }
+                cachedObjects[slot] = null;
+                isAwake[slot] = false;
+                continue;
+            }
+
+            if (pco != cachedObjects[slot] || isDirty[slot]) {
+                isFixed[slot] = pco.isStatic();
+                refresh(slot, pco);
+                isAwake[slot] = !isFixed[slot] && pco.isActive();
+                if (isAwake[slot]) {
+                    System.arraycopy(bounds, 6 * slot, sweptBounds,
+                            6 * numAwake, 6);
+                    awakeSlots[numAwake] = slot;
+                    ++numAwake;
+                }
+
+            } else if (isAwake[slot]) {
+                System.arraycopy(bounds, 6 * slot, sweptBounds, 6 * numAwake,
+                        6);
+                refresh(slot, pco);
+                isAwake[slot] = pco.isActive();
+                expandSwept(numAwake, slot);
+                awakeSlots[numAwake] = slot;
+                ++numAwake;
+            }
+        }
+        updateLooseness();
+        /*
+         * A sleeping object may have been woken by contact with an awake one,
+         * so poll the sleepers whose boxes overlap the swept box of an awake
+         * object.
+         */
+        boolean woke = false;
+        for (int i = 0; i < numAwake; ++i) {
+            int base = 6 * i;
+            int numCandidates = gatherCandidates(sweptBounds[base],
+                    sweptBounds[base + 1], sweptBounds[base + 2],
+                    sweptBounds[base + 3], sweptBounds[base + 4],
+                    sweptBounds[base + 5]);
+            for (int j = 0; j < numCandidates; ++j) {
+                int slot = candidates[j];
+                if (isAwake[slot] || isFixed[slot]
+                        || pollStamps[slot] == numUpdates) {
+                    continue;
+                }
+                pollStamps[slot] = numUpdates;
+                PhysicsCollisionObject pco = cachedObjects[slot];
+                if (pco.isActive()) {
+                    refresh(slot, pco);
+                    isAwake[slot] = true;
+                    woke = true;
+                }
+            }
+        }
+        if (woke) {
+            updateLooseness();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Convert a physics-space coordinate to a cell coordinate.
+     *
+     * @param coordinate the input coordinate (may be infinite)
+     * @return the cell coordinate (clamped to the packable range)
+     */
+    private int cellCoordinate(float coordinate) {
+        double cell = Math.floor(coordinate / cellSize);
+        cell = Math.max(-maxCellCoordinate, Math.min(maxCellCoordinate, cell));
+
+        return (int) cell;
+    }
+
+    /**
+     * Pack cell coordinates into a key.
+     *
+     * @param x the X cell coordinate
+     * @param y the Y cell coordinate
+     * @param z the Z cell coordinate
+     * @return the key
+     */
+    private static long cellKey(int x, int y, int z) {
+        long result = ((long) (x & 0x1fffff) << 42)
+                | ((long) (y & 0x1fffff) << 21)
+                | (z & 0x1fffff);
+        return result;
+    }
+
+    /**
+     * Calculate the squared distance from a point to a slot's cached bounding
+     * box.
+     *
+     * @param slot the slot to measure (&ge;0)
+     * @param point the point (not null, unaffected)
+     * @return the squared distance (&ge;0, 0 if the point is inside)
+     */
+    private float distanceSquared(int slot, Vector3f point) {
+        int base = 6 * slot;
+        float dx = Math.max(0f, Math.max(bounds[base] - point.x,
+                point.x - bounds[base + 3]));
+        float dy = Math.max(0f, Math.max(bounds[base + 1] - point.y,
+                point.y - bounds[base + 4]));
+        float dz = Math.max(0f, Math.max(bounds[base + 2] - point.z,
+                point.z - bounds[base + 5]));
+        float result = dx * dx + dy * dy + dz * dz;
+
+        return result;
+    }
+
+    /**
+     * Enlarge a swept box to enclose a slot's cached bounding box.
+     *
+     * @param sweptIndex the index of the swept box (&ge;0)
+     * @param slot the slot to enclose (&ge;0)
+     */
+    private void expandSwept(int sweptIndex, int slot) {
+        int sweptBase = 6 * sweptIndex;
+        int base = 6 * slot;
+        for (int axis = 0; axis < 3; ++axis) {
+            sweptBounds[sweptBase + axis] = Math.min(
+                    sweptBounds[sweptBase + axis], bounds[base + axis]);
+            sweptBounds[sweptBase + axis + 3] = Math.max(
+                    sweptBounds[sweptBase + axis + 3], bounds[base + axis + 3]);
+        }
+    }
+
+    /**
+     * File the specified slot in the cell with the specified key.
+     *
+     * @param slot the slot to file (&ge;0)
+     * @param key the cell key, or oversizedKey for the oversized list
+     */
+    private void file(int slot, long key) {
+        int head;
+        if (key == oversizedKey) {
+            head = oversizedHead;
+            oversizedHead = slot;
+        } else {
+            int entry = findOrAddCell(key);
+            head = cellHeads[entry];
+            cellHeads[entry] = slot;
+        }
+        nextInCell[slot] = head;
+        prevInCell[slot] = -1;
+        if (head >= 0) {
+            prevInCell[head] = slot;
+        }
+
+        slotCellKeys[slot] = key;
+        isIndexed[slot] = true;
+        ++numIndexed;
+    }
+
+    /**
+     * Find the hash-table entry for the specified key.
+     *
+     * @param key the cell key
+     * @return the index of the entry, or -1 if the key isn't in the table
+     */
+    private int findCell(long key) {
+        int mask = cellKeys.length - 1;
+        int entry = hash(key) & mask;
+        while (cellHeads[entry] != neverUsed) {
+            if (cellKeys[entry] == key) {
+                return entry;
+            }
+            entry = (entry + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Find the hash-table entry for the specified key, adding the key if
+     * necessary.
+     *
+     * @param key the cell key
+     * @return the index of the entry (&ge;0)
+     */
+    private int findOrAddCell(long key) {
+        int entry = findCell(key);
+        if (entry >= 0) {
+            return entry;
+        }
+
+        if (2 * (numCellKeys + 1) > cellKeys.length) {
+            rehash();
+        }
+        int mask = cellKeys.length - 1;
+        entry = hash(key) & mask;
+        while (cellHeads[entry] != neverUsed) {
+            entry = (entry + 1) & mask;
+        }
+        cellKeys[entry] = key;
+        cellHeads[entry] = -1;
+        ++numCellKeys;
+
+        return entry;
+    }
+
+    /**
+     * Gather all indexed slots (including oversized ones) whose cached
+     * bounding boxes overlap the specified box into the candidates array.
+     *
+     * @return the number of candidates (&ge;0)
+     */
+    private int gatherCandidates(float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ) {
+        int x0 = cellCoordinate(minX - looseness);
+        int y0 = cellCoordinate(minY - looseness);
+        int z0 = cellCoordinate(minZ - looseness);
+        int x1 = cellCoordinate(maxX + looseness);
+        int y1 = cellCoordinate(maxY + looseness);
+        int z1 = cellCoordinate(maxZ + looseness);
+        long numCellsInRange
+                = (x1 - x0 + 1L) * (y1 - y0 + 1L) * (z1 - z0 + 1L);
+
+        int numCandidates = 0;
+        if (numCellsInRange > numCellKeys) {
+            /*
+             * The range is large, so scan every occupied cell.
+             */
+            for (int entry = 0; entry < cellHeads.length; ++entry) {
+                numCandidates = gatherFromCell(cellHeads[entry], minX, minY,
+                        minZ, maxX, maxY, maxZ, numCandidates);
+            }
+        } else {
+            for (int x = x0; x <= x1; ++x) {
+                for (int y = y0; y <= y1; ++y) {
+                    for (int z = z0; z <= z1; ++z) {
+                        int entry = findCell(cellKey(x, y, z));
+                        if (entry >= 0) {
+                            numCandidates = gatherFromCell(cellHeads[entry],
+                                    minX, minY, minZ, maxX, maxY, maxZ,
+                                    numCandidates);
+                        }
+                    }
+                }
+            }
+        }
+        numCandidates = gatherFromCell(oversizedHead, minX, minY, minZ, maxX,
+                maxY, maxZ, numCandidates);
+
+        return numCandidates;
+    }
+
+    /**
+     * Gather the slots in one cell whose cached bounding boxes overlap the
+     * specified box.
+     *
+     * @param head the first slot in the cell (or oversized list), or a
+     * negative value if none
+     * @param numCandidates the number of candidates gathered so far (&ge;0)
+     * @return the updated number of candidates (&ge;numCandidates)
+     */
+    private int gatherFromCell(int head, float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ, int numCandidates) {
+        int result = numCandidates;
+        for (int slot = head; slot >= 0; slot = nextInCell[slot]) {
+            int base = 6 * slot;
+            if (bounds[base] <= maxX && bounds[base + 3] >= minX
+                    && bounds[base + 1] <= maxY && bounds[base + 4] >= minY
+                    && bounds[base + 2] <= maxZ && bounds[base + 5] >= minZ) {
+                if (result == candidates.length) {
+                    int[] newCandidates = new int[2 * result];
+                    System.arraycopy(candidates, 0, newCandidates, 0, result);
+                    candidates = newCandidates;
+                }
+                candidates[result] = slot;
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Enlarge the per-slot arrays.
+     *
+     * @param minCapacity the minimum number of slots to accommodate
+     */
+    private void growSlots(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, 2 * isIndexed.length);
+
+        boolean[] newAwake = new boolean[newCapacity];
+        System.arraycopy(isAwake, 0, newAwake, 0, isAwake.length);
+        isAwake = newAwake;
+
+        boolean[] newDirty = new boolean[newCapacity];
+        System.arraycopy(isDirty, 0, newDirty, 0, isDirty.length);
+        isDirty = newDirty;
+
+        boolean[] newFixed = new boolean[newCapacity];
+        System.arraycopy(isFixed, 0, newFixed, 0, isFixed.length);
+        isFixed = newFixed;
+
+        boolean[] newIndexed = new boolean[newCapacity];
+        System.arraycopy(isIndexed, 0, newIndexed, 0, isIndexed.length);
+        isIndexed = newIndexed;
+
+        float[] newBounds = new float[6 * newCapacity];
+        System.arraycopy(bounds, 0, newBounds, 0, bounds.length);
+        bounds = newBounds;
+        sweptBounds = new float[6 * newCapacity];
+        awakeSlots = new int[newCapacity];
+
+        PhysicsCollisionObject[] newObjects
+                = new PhysicsCollisionObject[newCapacity];
+        System.arraycopy(cachedObjects, 0, newObjects, 0,
+                cachedObjects.length);
+        cachedObjects = newObjects;
+
+        int[] newNext = new int[newCapacity];
+        System.arraycopy(nextInCell, 0, newNext, 0, nextInCell.length);
+        nextInCell = newNext;
+
+        int[] newStamps = new int[newCapacity];
+        System.arraycopy(pollStamps, 0, newStamps, 0, pollStamps.length);
+        pollStamps = newStamps;
+
+        int[] newPrev = new int[newCapacity];
+        System.arraycopy(prevInCell, 0, newPrev, 0, prevInCell.length);
+        prevInCell = newPrev;
+
+        long[] newKeys = new long[newCapacity];
+        System.arraycopy(slotCellKeys, 0, newKeys, 0, slotCellKeys.length);
+        slotCellKeys = newKeys;
+    }
+
+    /**
+     * Mix the bits of a cell key.
+     *
+     * @param key the cell key
+     * @return a hash code
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+
+        return (int) h;
+    }
+
+    /**
+     * Test whether a slot's cached bounding box is at least partly inside the
+     * view frustum of the specified camera.
+     *
+     * @param slot the slot to test (&ge;0)
+     * @param camera the camera (not null, unaffected)
+     * @return true if inside or intersecting, otherwise false
+     */
+    private boolean isInFrustum(int slot, Camera camera) {
+        int base = 6 * slot;
+        for (int i = 0; i < numFrustumPlanes; ++i) {
+            Plane plane = camera.getWorldPlane(i);
+            Vector3f normal = plane.getNormal();
+            /*
+             * Test the corner of the box farthest along the plane's
+             * inward-pointing normal.
+             */
+            float x = bounds[base + (normal.x >= 0f ? 3 : 0)];
+            float y = bounds[base + (normal.y >= 0f ? 4 : 1)];
+            float z = bounds[base + (normal.z >= 0f ? 5 : 2)];
+            float distance = normal.x * x + normal.y * y + normal.z * z
+                    - plane.getConstant();
+            if (distance < 0f) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Re-read the bounding box of the specified object and re-file its slot
+     * if its center moved to a different cell.
+     *
+     * @param slot the object's slot (&ge;0)
+     * @param pco the object (not null, unaffected)
+     */
+    private void refresh(int slot, PhysicsCollisionObject pco) {
+        pco.boundingBox(tmpBox);
+        Vector3f min = tmpBox.getMin(tmpVector);
+        int base = 6 * slot;
+        bounds[base] = min.x;
+        bounds[base + 1] = min.y;
+        bounds[base + 2] = min.z;
+        Vector3f max = tmpBox.getMax(tmpVector);
+        bounds[base + 3] = max.x;
+        bounds[base + 4] = max.y;
+        bounds[base + 5] = max.z;
+        cachedObjects[slot] = pco;
+        isDirty[slot] = false;
+
+        Vector3f extent = tmpBox.getExtent(tmpVector);
+        long key;
+        if (extent.x > cellSize || extent.y > cellSize
+                || extent.z > cellSize) {
+            key = oversizedKey;
+        } else {
+            Vector3f center = tmpBox.getCenter();
+            key = cellKey(cellCoordinate(center.x), cellCoordinate(center.y),
+                    cellCoordinate(center.z));
+        }
+        if (isIndexed[slot]) {
+            if (slotCellKeys[slot] == key) {
+                return;
+            }
+            unfile(slot);
+        }
+        file(slot, key);
+    }
+
+    /**
+     * Rebuild the hash table, dropping keys of empty cells and sizing it so
+     * that the occupied cells plus one more fill at most a quarter of it.
+     */
+    private void rehash() {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+
+        int numOccupied = 0;
+        for (int head : oldHeads) {
+            if (head >= 0) {
+                ++numOccupied;
+            }
+        }
+        int newLength = 16;
+        while (newLength < 4 * (numOccupied + 1)) {
+            newLength *= 2;
+        }
+        cellKeys = new long[newLength];
+        cellHeads = new int[newLength];
+        Arrays.fill(cellHeads, neverUsed);
+        numCellKeys = 0;
+
+        int mask = newLength - 1;
+        for (int oldEntry = 0; oldEntry < oldKeys.length; ++oldEntry) {
+            int head = oldHeads[oldEntry];
+            if (head >= 0) {
+                int entry = hash(oldKeys[oldEntry]) & mask;
+                while (cellHeads[entry] != neverUsed) {
+                    entry = (entry + 1) & mask;
+                }
+                cellKeys[entry] = oldKeys[oldEntry];
+                cellHeads[entry] = head;
+                ++numCellKeys;
+            }
+        }
+    }
+
+    /**
+     * Remove the specified slot from its cell.
+     *
+     * @param slot the slot to remove (&ge;0, indexed)
+     */
+    private void unfile(int slot) {
+        assert isIndexed[slot] : slot;
+
+        int next = nextInCell[slot];
+        int prev = prevInCell[slot];
+        if (prev >= 0) {
+            nextInCell[prev] = next;
+        } else if (slotCellKeys[slot] == oversizedKey) {
+            oversizedHead = next;
+        } else {
+            int entry = findCell(slotCellKeys[slot]);
+            assert entry >= 0 : slot;
+            cellHeads[entry] = next;
+        }
+        if (next >= 0) {
+            prevInCell[next] = prev;
+        }
+
+        isIndexed[slot] = false;
+        --numIndexed;
+    }
+
+    /**
+     * Recalculate the looseness from the cached bounding boxes of the slots
+     * in the grid.
+     */
+    private void updateLooseness() {
+        float maxHalfExtent = 0f;
+        for (int slot = 0; slot < isIndexed.length; ++slot) {
+            if (isIndexed[slot] && slotCellKeys[slot] != oversizedKey) {
+                int base = 6 * slot;
+                for (int axis = 0; axis < 3; ++axis) {
+                    float extent
+                            = bounds[base + axis + 3] - bounds[base + axis];
+                    maxHalfExtent = Math.max(maxHalfExtent, 0.5f * extent);
+                }
+            }
+        }
+        looseness = maxHalfExtent;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+
+/**
+ * Timing statistics for a repeated activity, such as stepping a PhysicsSpace.
+ * Samples are recorded by one thread at a time. Other threads should read the
+ * statistics only after a happens-before edge with the recording thread, such
+ * as joining the task that recorded them.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class StepMetrics {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * weight given to each new sample in the smoothed duration
+     */
+    final private static double smoothingWeight = 0.1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StepMetrics.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * exponentially smoothed duration (in nanoseconds, &ge;0)
+     */
+    private double smoothedNanos = 0.0;
+    /**
+     * duration of the most recent sample (in nanoseconds, &ge;0)
+     */
+    private long lastNanos = 0L;
+    /**
+     * longest duration sampled (in nanoseconds, &ge;0)
+     */
+    private long maxNanos = 0L;
+    /**
+     * number of samples recorded (&ge;0)
+     */
+    private long numSamples = 0L;
+    /**
+     * sum of all sampled durations (in nanoseconds, &ge;0)
+     */
+    private long totalNanos = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record a sample.
+     *
+     * @param nanos the sampled duration (in nanoseconds, &ge;0)
+     */
+    public void addSample(long nanos) {
+        assert nanos >= 0L : nanos;
+
+        lastNanos = nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+        if (numSamples == 0L) {
+            smoothedNanos = nanos;
+        } else {
+            smoothedNanos += smoothingWeight * (nanos - smoothedNanos);
+        }
+        totalNanos += nanos;
+        ++numSamples;
+    }
+
+    /**
+     * Count the samples recorded since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countSamples() {
+        assert numSamples >= 0L : numSamples;
+        return numSamples;
+    }
+
+    /**
+     * Read the duration of the most recent sample.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long lastNanos() {
+        assert lastNanos >= 0L : lastNanos;
+        return lastNanos;
+    }
+
+    /**
+     * Read the longest duration sampled since the last reset.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long maxNanos() {
+        assert maxNanos >= 0L : maxNanos;
+        return maxNanos;
+    }
+
+    /**
+     * Calculate the mean duration of the samples since the last reset.
+     *
+     * @return the mean (in nanoseconds, &ge;0)
+     */
+    public double meanNanos() {
+        double result = 0.0;
+        if (numSamples > 0L) {
+            result = totalNanos / (double) numSamples;
+        }
+
+        return result;
+    }
+
+    /**
+     * Discard all samples.
+     */
+    public void reset() {
+        smoothedNanos = 0.0;
+        lastNanos = 0L;
+        maxNanos = 0L;
+        numSamples = 0L;
+        totalNanos = 0L;
+    }
+
+    /**
+     * Read the exponentially smoothed duration, which tracks recent samples
+     * while damping frame-to-frame noise.
+     *
+     * @return the smoothed duration (in nanoseconds, &ge;0)
+     */
+    public double smoothedNanos() {
+        assert smoothedNanos >= 0.0 : smoothedNanos;
+        return smoothedNanos;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent these statistics as a text string.
+     *
+     * @return descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result = String.format(
+                "StepMetrics[n=%d last=%d max=%d mean=%.0f smoothed=%.0f]",
+                numSamples, lastNanos, maxNanos, meanNanos(), smoothedNanos);
+        return result;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.util.SafeArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Govern the substeps of a PhysicsSpace to keep each update within a budget
+ * of wall-clock time, preventing the "spiral of death" in which a slow frame
+ * causes more substeps in the next frame.
+ * <p>
+ * The governor measures the cost of each substep and, before each update,
+ * limits the substeps to as many as the budget allows (but no more than the
+ * space's maxSubSteps). When the requested time needs more substeps than
+ * that, the excess time is discarded, slowing the simulation (as
+ * BulletAppState.setSpeed() would) instead of falling further behind.
+ * <p>
+ * Effective only when the space's maxSubSteps is positive.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setGovernor(SubstepGovernor)
+ */
+public class SubstepGovernor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SubstepGovernor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if time was discarded during the most recent update
+     */
+    private boolean isDegraded = false;
+    /**
+     * fraction of the requested time simulated during the most recent update
+     */
+    private float timeScale = 1f;
+    /**
+     * number of substeps allowed during the most recent update (&ge;1)
+     */
+    private int substepLimit = 1;
+    /**
+     * number of updates during which time was discarded (&ge;0)
+     */
+    private long numDegradedUpdates = 0L;
+    /**
+     * budget of wall-clock time per update (in nanoseconds, &gt;0)
+     */
+    private long budgetNanos;
+    /**
+     * registered listeners
+     */
+    final private List<SubstepGovernorListener> listeners
+            = new SafeArrayList<>(SubstepGovernorListener.class);
+    /**
+     * measured cost of each substep
+     */
+    final private StepMetrics substepMetrics = new StepMetrics();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a governor with the specified budget.
+     *
+     * @param budgetSeconds the wall-clock budget per update (in seconds,
+     * &gt;0)
+     */
+    public SubstepGovernor(float budgetSeconds) {
+        setBudget(budgetSeconds);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register the specified listener.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addListener(SubstepGovernorListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !listeners.contains(listener);
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Read the wall-clock budget per update.
+     *
+     * @return the budget (in seconds, &gt;0)
+     */
+    public float budget() {
+        float result = budgetNanos * 1e-9f;
+        return result;
+    }
+
+    /**
+     * Count the updates during which time was discarded.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countDegradedUpdates() {
+        assert numDegradedUpdates >= 0L : numDegradedUpdates;
+        return numDegradedUpdates;
+    }
+
+    /**
+     * Access the measured cost of each substep.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public StepMetrics getSubstepMetrics() {
+        return substepMetrics;
+    }
+
+    /**
+     * Test whether time was discarded during the most recent update.
+     *
+     * @return true if degraded, otherwise false
+     */
+    public boolean isDegraded() {
+        return isDegraded;
+    }
+
+    /**
+     * De-register the specified listener.
+     *
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeListener(SubstepGovernorListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = listeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * Alter the wall-clock budget per update.
+     *
+     * @param budgetSeconds the desired budget (in seconds, &gt;0)
+     */
+    public void setBudget(float budgetSeconds) {
+        Validate.positive(budgetSeconds, "budget");
+        budgetNanos = Math.max(1L, (long) (budgetSeconds * 1e9));
+    }
+
+    /**
+     * Read the number of substeps allowed during the most recent update.
+     *
+     * @return the limit (&ge;1)
+     */
+    public int substepLimit() {
+        assert substepLimit >= 1 : substepLimit;
+        return substepLimit;
+    }
+
+    /**
+     * Read the fraction of the requested time simulated during the most recent
+     * update.
+     *
+     * @return the fraction (&gt;0, &le;1)
+     */
+    public float timeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Update the specified space within the budget. Invoked by
+     * {@link PhysicsSpace#update(float)}.
+     *
+     * @param space the space to update (not null)
+     * @param timeInterval the requested simulation time (in seconds, &ge;0)
+     */
+    void update(PhysicsSpace space, float timeInterval) {
+        int maxSubSteps = space.maxSubSteps();
+        float accuracy = space.getAccuracy();
+        /*
+         * Allow as many substeps as the budget can afford,
+         * based on the smoothed cost of recent substeps.
+         */
+        int limit = maxSubSteps;
+        double costNanos = substepMetrics.smoothedNanos();
+        if (costNanos > 0.0) {
+            double affordable = budgetNanos / costNanos;
+            limit = (int) Math.max(1.0, Math.min(maxSubSteps, affordable));
+        }
+        /*
+         * If the requested time needs more substeps than that,
+         * discard the excess.
+         */
+        float interval = timeInterval;
+        float maxInterval = limit * accuracy;
+        boolean degraded = (interval > maxInterval);
+        if (degraded) {
+            interval = maxInterval;
+            timeScale = interval / timeInterval;
+            ++numDegradedUpdates;
+        } else {
+            timeScale = 1f;
+        }
+        substepLimit = limit;
+
+        long startTicks = space.countTicks();
+        long startNanos = System.nanoTime();
+        space.update(interval, limit);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long numSubsteps = space.countTicks() - startTicks;
+        if (numSubsteps > 0L) {
+            substepMetrics.addSample(elapsedNanos / numSubsteps);
+        }
+
+        if (degraded && !isDegraded) {
+            logger.log(Level.INFO, "Degraded {0}: {1} substeps, {2} speed.",
+                    new Object[]{space, limit, timeScale});
+            for (SubstepGovernorListener listener : listeners) {
+                listener.simulationDegraded(space, limit, timeScale);
+            }
+        } else if (!degraded && isDegraded) {
+            logger.log(Level.INFO, "Restored {0}: {1} substeps.",
+                    new Object[]{space, limit});
+            for (SubstepGovernorListener listener : listeners) {
+                listener.simulationRestored(space, limit);
+            }
+        }
+        isDegraded = degraded;
+    }
+}
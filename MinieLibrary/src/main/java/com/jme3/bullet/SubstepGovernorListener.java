@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+/**
+ * Interface to receive notifications when a SubstepGovernor degrades or
+ * restores the simulation of a PhysicsSpace. Callbacks are invoked on the
+ * thread that updates the space (typically the physics thread).
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public interface SubstepGovernorListener {
+    /**
+     * Callback invoked when the governor starts discarding simulation time to
+     * stay within its budget.
+     *
+     * @param space the governed space (not null)
+     * @param substepLimit the number of substeps allowed per update (&ge;1)
+     * @param timeScale the fraction of the requested time that was simulated
+     * (&gt;0, &lt;1)
+     */
+    void simulationDegraded(PhysicsSpace space, int substepLimit,
+            float timeScale);
+
+    /**
+     * Callback invoked when the governor once again simulates all the
+     * requested time.
+     *
+     * @param space the governed space (not null)
+     * @param substepLimit the number of substeps allowed per update (&ge;1)
+     */
+    void simulationRestored(PhysicsSpace space, int substepLimit);
+}
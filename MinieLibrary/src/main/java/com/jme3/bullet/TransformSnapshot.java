@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.objects.infos.RigidBodyMotionState;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * A double-buffered snapshot of the rigid-body transforms in a PhysicsSpace,
+ * for use by physics controls while the space is being stepped on another
+ * thread, or for interpolating between physics steps. The previous capture is
+ * retained alongside the current one, and reads interpolate between them
+ * according to an adjustable fraction.
+ * <p>
+ * Capture and read on the same thread (typically the render thread), and
+ * capture only while the space isn't being stepped.
+ * <p>
+ * While the space is being stepped on another thread, physics controls mustn't
+ * write to native objects. When deferring writes, kinematic transforms are
+ * staged in the snapshot and applied at the start of the next capture.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setTransformSnapshot(TransformSnapshot)
+ */
+public class TransformSnapshot {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of floats per deferred write: location (x,y,z), rotation
+     * (x,y,z,w), and scale (x,y,z)
+     */
+    final private static int deferredStride = 10;
+    /**
+     * number of floats per body: location (x,y,z) and rotation (x,y,z,w)
+     */
+    final private static int stride = PhysicsSpace.FLOATS_PER_TRANSFORM;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TransformSnapshot.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * interpolation fraction: 0&rarr;previous capture, 1&rarr;current capture
+     */
+    private float alpha = 1f;
+    /**
+     * true &rarr; stage kinematic transforms until the next capture, false
+     * &rarr; physics controls write them directly
+     */
+    private boolean deferringWrites = false;
+    /**
+     * for each deferred write, whether it includes a scale
+     */
+    private boolean[] deferredHasScale = new boolean[4];
+    /**
+     * transforms of the deferred writes, in the order they were staged
+     */
+    private float[] deferredValues = new float[4 * deferredStride];
+    /**
+     * transforms from the most recent capture, indexed by slot
+     */
+    private float[] current;
+    /**
+     * transforms from the capture before that, indexed by slot
+     */
+    private float[] previous;
+    /**
+     * for each slot, the index of the most recent capture that included it
+     */
+    private int[] lastCapture;
+    /**
+     * index of the most recent capture (starts at 1 so that slots never
+     * captured, with lastCapture=0, don't appear to be in the previous one)
+     */
+    private int captureIndex = 1;
+    /**
+     * number of deferred writes staged since the last capture (&ge;0)
+     */
+    private int numDeferred = 0;
+    /**
+     * rigid-body change count of the space at the most recent capture
+     */
+    private int spaceChanges = -1;
+    /**
+     * space of the most recent capture, or null if none
+     */
+    private PhysicsSpace capturedSpace = null;
+    /**
+     * targets of the deferred writes, in the order they were staged
+     */
+    private PhysicsCollisionObject[] deferredObjects
+            = new PhysicsCollisionObject[4];
+    /**
+     * slot assignments of the captured bodies
+     */
+    final private CollisionObjectSlots slots;
+    /**
+     * temporary storage for a previous rotation
+     */
+    final private Quaternion tmpPreviousRotation = new Quaternion();
+    /**
+     * temporary storage for a rotation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for a location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    /**
+     * temporary storage for a scale
+     */
+    final private Vector3f tmpScale = new Vector3f();
+    /**
+     * temporary storage for a previous location
+     */
+    final private Vector3f tmpPreviousLocation = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty snapshot.
+     *
+     * @param initialCapacity the number of bodies that can be captured before
+     * the snapshot grows (&gt;0)
+     */
+    public TransformSnapshot(int initialCapacity) {
+        Validate.positive(initialCapacity, "initial capacity");
+
+        slots = new CollisionObjectSlots(initialCapacity);
+        current = new float[initialCapacity * stride];
+        previous = new float[initialCapacity * stride];
+        lastCapture = new int[initialCapacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the interpolation fraction.
+     *
+     * @return the fraction (&ge;0, &le;1, 0&rarr;previous capture,
+     * 1&rarr;current capture)
+     */
+    public float alpha() {
+        assert alpha >= 0f && alpha <= 1f : alpha;
+        return alpha;
+    }
+
+    /**
+     * Apply the (interpolated) captured transform of the specified body to the
+     * specified Spatial, using the body's motion state to convert
+     * coordinates.
+     *
+     * @param body the body (not null, unaffected)
+     * @param spatial where to apply the transform (not null, modified)
+     * @return true if applied, false if the body wasn't captured
+     */
+    public boolean applyTransform(PhysicsRigidBody body, Spatial spatial) {
+        boolean result = copyTransform(body, tmpLocation, tmpRotation);
+        if (result) {
+            RigidBodyMotionState motionState = body.getMotionState();
+            motionState.applyTransform(spatial, tmpLocation, tmpRotation);
+        }
+
+        return result;
+    }
+
+    /**
+     * Apply any deferred writes, then capture the transform of each rigid body
+     * in the specified space, as reported by its motion state, and update the
+     * wheels of each vehicle. The current capture becomes the previous one.
+     * Bodies no longer in the space are forgotten.
+     *
+     * @param space the space to capture (not null, not being stepped)
+     */
+    public void capture(PhysicsSpace space) {
+        applyDeferred();
+
+        ++captureIndex;
+        float[] swap = previous;
+        previous = current;
+        current = swap;
+
+        int numChanges = space.countRigidBodyChanges();
+        if (space != capturedSpace || numChanges != spaceChanges) {
+            /*
+             * Bodies were added or removed since the previous capture.
+             */
+            updateSlots(space);
+            capturedSpace = space;
+            spaceChanges = numChanges;
+        }
+
+        int numSlots = slots.countSlots();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsRigidBody body = (PhysicsRigidBody) slots.get(slot);
+            if (body == null) {
+                continue;
+            }
+
+            RigidBodyMotionState motionState = body.getMotionState();
+            motionState.getLocation(tmpLocation);
+            motionState.getOrientation(tmpRotation);
+            write(current, slot, tmpLocation, tmpRotation);
+            if (lastCapture[slot] != captureIndex - 1) {
+                /*
+                 * newly captured body: no previous transform
+                 */
+                System.arraycopy(current, slot * stride, previous,
+                        slot * stride, stride);
+            }
+            lastCapture[slot] = captureIndex;
+
+            if (body instanceof PhysicsVehicle) {
+                ((PhysicsVehicle) body).updateWheels();
+            }
+        }
+    }
+
+    /**
+     * Copy the (interpolated) captured location of the specified object.
+     *
+     * @param pco the object (not null, unaffected)
+     * @param storeLocation storage for the location (in physics-space
+     * coordinates, not null, modified)
+     * @return true if copied, false if the object wasn't captured
+     */
+    public boolean copyLocation(PhysicsCollisionObject pco,
+            Vector3f storeLocation) {
+        int slot = slots.slotOf(pco);
+        if (slot < 0) {
+            return false;
+        }
+
+        int index = slot * stride;
+        storeLocation.set(current[index], current[index + 1],
+                current[index + 2]);
+        if (alpha < 1f) {
+            tmpPreviousLocation.set(previous[index], previous[index + 1],
+                    previous[index + 2]);
+            storeLocation.interpolateLocal(tmpPreviousLocation, storeLocation,
+                    alpha);
+        }
+
+        return true;
+    }
+
+    /**
+     * Copy the (interpolated) captured transform of the specified object.
+     *
+     * @param pco the object (not null, unaffected)
+     * @param storeLocation storage for the location (in physics-space
+     * coordinates, not null, modified)
+     * @param storeRotation storage for the orientation (in physics-space
+     * coordinates, not null, modified)
+     * @return true if copied, false if the object wasn't captured
+     */
+    public boolean copyTransform(PhysicsCollisionObject pco,
+            Vector3f storeLocation, Quaternion storeRotation) {
+        int slot = slots.slotOf(pco);
+        if (slot < 0) {
+            return false;
+        }
+
+        int index = slot * stride;
+        storeLocation.set(current[index], current[index + 1],
+                current[index + 2]);
+        storeRotation.set(current[index + 3], current[index + 4],
+                current[index + 5], current[index + 6]);
+        if (alpha < 1f) {
+            tmpPreviousLocation.set(previous[index], previous[index + 1],
+                    previous[index + 2]);
+            storeLocation.interpolateLocal(tmpPreviousLocation, storeLocation,
+                    alpha);
+
+            tmpPreviousRotation.set(previous[index + 3], previous[index + 4],
+                    previous[index + 5], previous[index + 6]);
+            storeRotation.slerp(tmpPreviousRotation, storeRotation, alpha);
+        }
+
+        return true;
+    }
+
+    /**
+     * Count the bodies in the most recent capture.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        int result = slots.countObjects();
+        return result;
+    }
+
+    /**
+     * Stage a kinematic transform for the specified rigid body or ghost
+     * object, to be applied at the start of the next capture. Later writes to
+     * the same object take precedence.
+     *
+     * @param pco the target object (not null, a PhysicsRigidBody or a
+     * PhysicsGhostObject)
+     * @param location the desired location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param rotation the desired orientation (in physics-space coordinates,
+     * not null, unaffected)
+     * @param scale the desired scale factor for each local axis (unaffected)
+     * or null to leave the scale unchanged
+     */
+    public void deferTransform(PhysicsCollisionObject pco, Vector3f location,
+            Quaternion rotation, Vector3f scale) {
+        Validate.nonNull(pco, "collision object");
+        Validate.nonNull(location, "location");
+        Validate.nonNull(rotation, "rotation");
+        if (!(pco instanceof PhysicsRigidBody)
+                && !(pco instanceof PhysicsGhostObject)) {
+            String message = "Cannot defer a write to " + pco;
+            throw new IllegalArgumentException(message);
+        }
+
+        int capacity = deferredObjects.length;
+        if (numDeferred == capacity) {
+            int newCapacity = 2 * capacity;
+
+            PhysicsCollisionObject[] newObjects
+                    = new PhysicsCollisionObject[newCapacity];
+            System.arraycopy(deferredObjects, 0, newObjects, 0, capacity);
+            deferredObjects = newObjects;
+
+            boolean[] newHasScale = new boolean[newCapacity];
+            System.arraycopy(deferredHasScale, 0, newHasScale, 0, capacity);
+            deferredHasScale = newHasScale;
+
+            float[] newValues = new float[newCapacity * deferredStride];
+            System.arraycopy(deferredValues, 0, newValues, 0,
+                    deferredValues.length);
+            deferredValues = newValues;
+        }
+
+        int index = numDeferred * deferredStride;
+        deferredValues[index] = location.x;
+        deferredValues[index + 1] = location.y;
+        deferredValues[index + 2] = location.z;
+        deferredValues[index + 3] = rotation.getX();
+        deferredValues[index + 4] = rotation.getY();
+        deferredValues[index + 5] = rotation.getZ();
+        deferredValues[index + 6] = rotation.getW();
+        if (scale != null) {
+            deferredValues[index + 7] = scale.x;
+            deferredValues[index + 8] = scale.y;
+            deferredValues[index + 9] = scale.z;
+        }
+        deferredHasScale[numDeferred] = (scale != null);
+        deferredObjects[numDeferred] = pco;
+        ++numDeferred;
+    }
+
+    /**
+     * Test whether physics controls should stage their kinematic transforms
+     * in this snapshot instead of writing them directly.
+     *
+     * @return true if deferring writes, otherwise false
+     */
+    public boolean isDeferringWrites() {
+        return deferringWrites;
+    }
+
+    /**
+     * Alter the interpolation fraction used by subsequent reads.
+     *
+     * @param fraction the desired fraction (&ge;0, &le;1, 0&rarr;previous
+     * capture, 1&rarr;current capture, default=1)
+     */
+    public void setAlpha(float fraction) {
+        Validate.fraction(fraction, "fraction");
+        alpha = fraction;
+    }
+
+    /**
+     * Alter whether physics controls should stage their kinematic transforms
+     * in this snapshot. Enable this while the space is stepped on another
+     * thread between captures.
+     *
+     * @param setting true to defer writes, false to write directly
+     * (default=false)
+     */
+    public void setDeferringWrites(boolean setting) {
+        deferringWrites = setting;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply the deferred writes in the order they were staged, then discard
+     * them.
+     */
+    private void applyDeferred() {
+        for (int i = 0; i < numDeferred; ++i) {
+            int index = i * deferredStride;
+            tmpLocation.set(deferredValues[index], deferredValues[index + 1],
+                    deferredValues[index + 2]);
+            tmpRotation.set(deferredValues[index + 3],
+                    deferredValues[index + 4], deferredValues[index + 5],
+                    deferredValues[index + 6]);
+            Vector3f scale = null;
+            if (deferredHasScale[i]) {
+                scale = tmpScale.set(deferredValues[index + 7],
+                        deferredValues[index + 8], deferredValues[index + 9]);
+            }
+
+            PhysicsCollisionObject pco = deferredObjects[i];
+            deferredObjects[i] = null;
+            if (pco instanceof PhysicsRigidBody) {
+                PhysicsRigidBody body = (PhysicsRigidBody) pco;
+                body.setPhysicsLocation(tmpLocation);
+                body.setPhysicsRotation(tmpRotation);
+                if (scale != null) {
+                    body.setPhysicsScale(scale);
+                }
+
+            } else {
+                PhysicsGhostObject ghost = (PhysicsGhostObject) pco;
+                ghost.setPhysicsLocation(tmpLocation);
+                ghost.setPhysicsRotation(tmpRotation);
+                if (scale != null) {
+                    CollisionShape shape = ghost.getCollisionShape();
+                    Vector3f oldScale = shape.getScale(tmpPreviousLocation);
+                    if (MyVector3f.ne(oldScale, scale)) {
+                        shape.setScale(scale);
+                        ghost.setCollisionShape(shape);
+                    }
+                }
+            }
+        }
+        numDeferred = 0;
+    }
+
+    /**
+     * Grow the arrays, if necessary, to accommodate the specified number of
+     * slots.
+     *
+     * @param numSlots the required number of slots (&ge;0)
+     */
+    private void ensureCapacity(int numSlots) {
+        int capacity = lastCapture.length;
+        if (numSlots > capacity) {
+            int newCapacity = Math.max(numSlots, 2 * capacity);
+
+            float[] newCurrent = new float[newCapacity * stride];
+            System.arraycopy(current, 0, newCurrent, 0, current.length);
+            current = newCurrent;
+
+            float[] newPrevious = new float[newCapacity * stride];
+            System.arraycopy(previous, 0, newPrevious, 0, previous.length);
+            previous = newPrevious;
+
+            int[] newLastCapture = new int[newCapacity];
+            System.arraycopy(lastCapture, 0, newLastCapture, 0, capacity);
+            lastCapture = newLastCapture;
+        }
+    }
+
+    /**
+     * Re-synchronize the slot assignments with the rigid bodies in the
+     * specified space. Invoked only when bodies have been added or removed.
+     *
+     * @param space the space to capture (not null, not being stepped)
+     */
+    private void updateSlots(PhysicsSpace space) {
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            slots.add(body);
+        }
+        ensureCapacity(slots.countSlots());
+
+        int numSlots = slots.countSlots();
+        for (int slot = 0; slot < numSlots; ++slot) {
+            PhysicsCollisionObject pco = slots.get(slot);
+            if (pco != null && !space.contains(pco)) {
+                slots.remove(pco);
+                lastCapture[slot] = 0;
+            }
+        }
+    }
+
+    /**
+     * Write a transform into the specified array.
+     *
+     * @param array the array to modify (not null)
+     * @param slot the slot to write (&ge;0)
+     * @param location the location (not null, unaffected)
+     * @param rotation the orientation (not null, unaffected)
+     */
+    private static void write(float[] array, int slot, Vector3f location,
+            Quaternion rotation) {
+        int index = slot * stride;
+        array[index] = location.x;
+        array[index + 1] = location.y;
+        array[index + 2] = location.z;
+        array[index + 3] = rotation.getX();
+        array[index + 4] = rotation.getY();
+        array[index + 5] = rotation.getZ();
+        array[index + 6] = rotation.getW();
+    }
+}
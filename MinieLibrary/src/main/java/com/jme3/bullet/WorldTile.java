@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+
+/**
+ * One tile of a PartitionedWorld: a square region of the X-Z plane, backed by
+ * its own PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class WorldTile {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(WorldTile.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * tile coordinate along the X axis
+     */
+    final int tileX;
+    /**
+     * tile coordinate along the Z axis
+     */
+    final int tileZ;
+    /**
+     * space that simulates the tile (not null)
+     */
+    final PhysicsSpace space;
+    /**
+     * re-usable task to step the space (not null)
+     */
+    final SpaceStepTask task;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a tile backed by the specified space.
+     *
+     * @param tileX the tile coordinate along the X axis
+     * @param tileZ the tile coordinate along the Z axis
+     * @param space the backing space (not null, alias created)
+     */
+    WorldTile(int tileX, int tileZ, PhysicsSpace space) {
+        assert space != null;
+
+        this.tileX = tileX;
+        this.tileZ = tileZ;
+        this.space = space;
+        this.task = new SpaceStepTask(space);
+    }
+}
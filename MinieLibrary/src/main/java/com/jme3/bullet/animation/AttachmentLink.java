@@ -560,7 +560,7 @@ public class AttachmentLink extends PhysicsLink {
         /*
          * Start with the rigid body's Transform in physics/world coordinates.
          */
-        getRigidBody().getTransform(result);
+        bodyTransform(result);
         /*
          * Convert to mesh coordinates.
          */
@@ -771,7 +771,7 @@ public class BoneLink extends PhysicsLink {
         /*
          * Start with the rigid body's transform in physics/world coordinates.
          */
-        getRigidBody().getTransform(result);
+        bodyTransform(result);
         /*
          * Convert to mesh coordinates.
          */
@@ -33,6 +33,8 @@ package com.jme3.bullet.animation;
 
 import com.jme3.anim.Joint;
 import com.jme3.animation.Bone;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.joints.PhysicsJoint;
 import com.jme3.bullet.objects.PhysicsRigidBody;
@@ -568,6 +570,32 @@ abstract public class PhysicsLink implements JmeCloneable, Savable {
         setKinematicWeight(Float.MIN_VALUE); // non-zero to trigger blending
     }
 
+    /**
+     * Copy the transform of the rigid body for use in a dynamic update. If the
+     * PhysicsSpace has a TransformSnapshot, the (interpolated) captured
+     * transform is used; otherwise the transform is read directly.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return the transform (in physics-space coordinates, including the scale
+     * of the body's shape, either storeResult or a new instance, not null)
+     */
+    protected Transform bodyTransform(Transform storeResult) {
+        Transform result
+                = (storeResult == null) ? new Transform() : storeResult;
+
+        PhysicsSpace space = control.getPhysicsSpace();
+        TransformSnapshot snapshot
+                = (space == null) ? null : space.getTransformSnapshot();
+        if (snapshot != null && snapshot.copyTransform(rigidBody,
+                result.getTranslation(), result.getRotation())) {
+            rigidBody.getScale(result.getScale());
+        } else {
+            rigidBody.getTransform(result);
+        }
+
+        return result;
+    }
+
     /**
      * Update this link in Dynamic mode, setting the linked bone's transform
      * based on the transform of the rigid body.
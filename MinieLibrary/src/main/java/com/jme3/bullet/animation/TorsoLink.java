@@ -338,7 +338,7 @@ public class TorsoLink extends PhysicsLink {
         }
 
         Transform transform = meshToModel.clone();
-        Transform shapeToWorld = getRigidBody().getTransform(null);
+        Transform shapeToWorld = bodyTransform(null);
         transform.combineWithParent(shapeToWorld);
         transform.combineWithParent(worldToParent);
         getControl().getSpatial().setLocalTransform(transform);
@@ -687,7 +687,7 @@ public class TorsoLink extends PhysicsLink {
         /*
          * Start with the rigid body's Transform relative to world coordinates.
          */
-        getRigidBody().getTransform(result);
+        bodyTransform(result);
         /*
          * Convert to mesh coordinates.
          */
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import com.jme3.math.Vector3f;
+import java.util.logging.Logger;
+
+/**
+ * Caller-owned, re-usable storage for the closest hit of a ray test or sweep
+ * test, so that repeated queries needn't allocate result objects or lists.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ClosestHit {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ClosestHit.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * fraction of the way from the start to the end (&ge;0, &le;1), or 1 if
+     * nothing was hit
+     */
+    private float hitFraction = 1f;
+    /**
+     * index of the collision-shape part that was hit, or -1 if undefined
+     */
+    private int partIndex = -1;
+    /**
+     * index of the collision-shape triangle that was hit, or -1 if undefined
+     */
+    private int triangleIndex = -1;
+    /**
+     * collision object that was hit, or null if nothing was hit
+     */
+    private PhysicsCollisionObject collisionObject = null;
+    /**
+     * normal vector at the point of contact (in physics-space coordinates),
+     * or zero if nothing was hit
+     */
+    final private Vector3f normal = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Reset to the "nothing hit" state.
+     */
+    public void clear() {
+        collisionObject = null;
+        hitFraction = 1f;
+        normal.zero();
+        partIndex = -1;
+        triangleIndex = -1;
+    }
+
+    /**
+     * Copy the specified ray-test result.
+     *
+     * @param result the result to copy (not null, unaffected)
+     */
+    public void copy(PhysicsRayTestResult result) {
+        collisionObject = result.getCollisionObject();
+        hitFraction = result.getHitFraction();
+        result.getHitNormalLocal(normal);
+        partIndex = result.partIndex();
+        triangleIndex = result.triangleIndex();
+    }
+
+    /**
+     * Copy the specified sweep-test result.
+     *
+     * @param result the result to copy (not null, unaffected)
+     */
+    public void copy(PhysicsSweepTestResult result) {
+        collisionObject = result.getCollisionObject();
+        hitFraction = result.getHitFraction();
+        result.getHitNormalLocal(normal);
+        partIndex = result.partIndex();
+        triangleIndex = result.triangleIndex();
+    }
+
+    /**
+     * Access the collision object that was hit.
+     *
+     * @return the pre-existing instance, or null if nothing was hit
+     */
+    public PhysicsCollisionObject getCollisionObject() {
+        return collisionObject;
+    }
+
+    /**
+     * Read the fraction of the way from the start to the end.
+     *
+     * @return the fraction (&ge;0, &le;1), or 1 if nothing was hit
+     */
+    public float getHitFraction() {
+        assert hitFraction >= 0f : hitFraction;
+        assert hitFraction <= 1f : hitFraction;
+        return hitFraction;
+    }
+
+    /**
+     * Copy the normal vector at the point of contact.
+     *
+     * @param storeResult storage for the result (modified if not null)
+     * @return a unit vector (in physics-space coordinates, either storeResult
+     * or a new vector), or zero if nothing was hit
+     */
+    public Vector3f getHitNormal(Vector3f storeResult) {
+        if (storeResult == null) {
+            return normal.clone();
+        } else {
+            return storeResult.set(normal);
+        }
+    }
+
+    /**
+     * Test whether anything was hit.
+     *
+     * @return true if hit, otherwise false
+     */
+    public boolean hasHit() {
+        boolean result = (collisionObject != null);
+        return result;
+    }
+
+    /**
+     * Read the part index at the point of contact.
+     *
+     * @return the index of the collision-shape part (&ge;0) or -1 if undefined
+     * @see PhysicsSweepTestResult#partIndex()
+     */
+    public int partIndex() {
+        return partIndex;
+    }
+
+    /**
+     * Read the triangle index at the point of contact.
+     *
+     * @return the index of the collision-shape triangle (&ge;0) or -1 if
+     * undefined
+     * @see PhysicsSweepTestResult#triangleIndex()
+     */
+    public int triangleIndex() {
+        return triangleIndex;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this hit as a text string.
+     *
+     * @return descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result;
+        if (collisionObject == null) {
+            result = "ClosestHit[none]";
+        } else {
+            result = "ClosestHit[" + collisionObject + " fraction="
+                    + hitFraction + " normal=" + normal + "]";
+        }
+
+        return result;
+    }
+}
@@ -55,16 +55,24 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
     // fields
 
     /**
-     * first collision object involved
+     * first collision object involved, or null if unassigned
      */
-    final private PhysicsCollisionObject pcoA;
+    private PhysicsCollisionObject pcoA;
     /**
-     * 2nd collision object involved
+     * 2nd collision object involved, or null if unassigned
      */
-    final private PhysicsCollisionObject pcoB;
+    private PhysicsCollisionObject pcoB;
     // *************************************************************************
     // constructors
 
+    /**
+     * Instantiate an unassigned event, for use in an event pool. Invoke
+     * {@link #reassign(PhysicsCollisionObject, PhysicsCollisionObject, long)}
+     * before use.
+     */
+    protected PhysicsCollisionEvent() {
+    }
+
     /**
      * Instantiate a collision event.
      *
@@ -513,6 +521,42 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
      */
     native public static void setContactCalcArea3Points(boolean setting);
     // *************************************************************************
+    // new protected methods
+
+    /**
+     * Re-use this event to describe a different collision. Intended for event
+     * pools.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     */
+    protected void reassign(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        Validate.nonNull(pcoA, "object A");
+        Validate.nonNull(pcoB, "object B");
+        Validate.nonZero(manifoldPointId, "manifold point ID");
+
+        if (hasAssignedNativeObject()) {
+            unassignNativeObject();
+        }
+        this.pcoA = pcoA;
+        this.pcoB = pcoB;
+        super.setNativeIdNotTracked(manifoldPointId);
+    }
+
+    /**
+     * Unassign the btManifoldPoint and both collision objects, so that a
+     * pooled event doesn't keep them reachable.
+     */
+    protected void release() {
+        if (hasAssignedNativeObject()) {
+            unassignNativeObject();
+        }
+        pcoA = null;
+        pcoB = null;
+    }
+    // *************************************************************************
     // native private methods
 
     native private static float getAppliedImpulse(long manifoldPointId);
@@ -169,6 +169,7 @@ abstract public class PhysicsCollisionObject
     final private static String tagDebugMeshResolution = "debugMeshResolution";
     final private static String tagFriction = "friction";
     final private static String tagIgnoreList = "ignoreList";
+    final private static String tagMirrored = "mirrored";
     final private static String tagRestitution = "restitution";
     final private static String tagRollingFriction = "rollingFriction";
     final private static String tagSpinningFriction = "spinningFriction";
@@ -188,6 +189,29 @@ abstract public class PhysicsCollisionObject
      * which normals to generate for new debug meshes
      */
     private DebugMeshNormals debugMeshNormals = DebugMeshNormals.None;
+    /**
+     * true if friction and restitution parameters are mirrored in Java
+     * fields, otherwise false
+     */
+    private boolean isMirrored = false;
+    /**
+     * mirrored copy of the native m_friction (valid only if isMirrored)
+     */
+    private float mirroredFriction;
+    /**
+     * mirrored copy of the native m_restitution (valid only if isMirrored)
+     */
+    private float mirroredRestitution;
+    /**
+     * mirrored copy of the native m_rollingFriction (valid only if
+     * isMirrored)
+     */
+    private float mirroredRollingFriction;
+    /**
+     * mirrored copy of the native m_spinningFriction (valid only if
+     * isMirrored)
+     */
+    private float mirroredSpinningFriction;
     /**
      * collision groups with which this object can collide
      */
@@ -591,7 +615,13 @@ abstract public class PhysicsCollisionObject
      */
     public float getFriction() {
         long objectId = nativeId();
-        float result = getFriction(objectId);
+        float result;
+        if (isMirrored) {
+            result = mirroredFriction;
+            assert result == getFriction(objectId) : result;
+        } else {
+            result = getFriction(objectId);
+        }
 
         return result;
     }
@@ -674,7 +704,13 @@ abstract public class PhysicsCollisionObject
      */
     public float getRestitution() {
         long objectId = nativeId();
-        float result = getRestitution(objectId);
+        float result;
+        if (isMirrored) {
+            result = mirroredRestitution;
+            assert result == getRestitution(objectId) : result;
+        } else {
+            result = getRestitution(objectId);
+        }
 
         return result;
     }
@@ -686,7 +722,13 @@ abstract public class PhysicsCollisionObject
      */
     public float getRollingFriction() {
         long objectId = nativeId();
-        float result = getRollingFriction(objectId);
+        float result;
+        if (isMirrored) {
+            result = mirroredRollingFriction;
+            assert result == getRollingFriction(objectId) : result;
+        } else {
+            result = getRollingFriction(objectId);
+        }
 
         return result;
     }
@@ -710,7 +752,13 @@ abstract public class PhysicsCollisionObject
      */
     public float getSpinningFriction() {
         long objectId = nativeId();
-        float result = getSpinningFriction(objectId);
+        float result;
+        if (isMirrored) {
+            result = mirroredSpinningFriction;
+            assert result == getSpinningFriction(objectId) : result;
+        } else {
+            result = getSpinningFriction(objectId);
+        }
 
         return result;
     }
@@ -798,6 +846,40 @@ abstract public class PhysicsCollisionObject
         return isActive(objectId);
     }
 
+    /**
+     * Test whether the Java-side copies of this object's properties match the
+     * native object: the collision groups (always mirrored) plus the friction
+     * and restitution parameters, if mirrored. Intended for debugging, since
+     * it reads each property across JNI.
+     *
+     * @return true if consistent, otherwise false
+     */
+    public boolean isMirrorConsistent() {
+        long objectId = nativeId();
+        boolean result = collisionGroup == getCollisionGroup(objectId)
+                && collideWithGroups == getCollideWithGroups(objectId);
+        if (result && isMirrored) {
+            result = mirroredFriction == getFriction(objectId)
+                    && mirroredRestitution == getRestitution(objectId)
+                    && mirroredRollingFriction == getRollingFriction(objectId)
+                    && mirroredSpinningFriction
+                    == getSpinningFriction(objectId);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test whether this object's friction and restitution parameters are
+     * mirrored in Java fields.
+     *
+     * @return true if mirrored, otherwise false
+     * @see #setMirrored(boolean)
+     */
+    public boolean isMirrored() {
+        return isMirrored;
+    }
+
     /**
      * Test whether this object responds to contact with other objects. All
      * ghost objects are non-responsive. Other types are responsive by default.
@@ -938,6 +1020,22 @@ abstract public class PhysicsCollisionObject
         setAnisotropicFriction(objectId, components, mode);
     }
 
+    /**
+     * Alter this object's activation state (native field:
+     * m_activationState1), for instance to restore a saved state.
+     *
+     * @param state the desired state (1=active tag, 2=island sleeping, 3=wants
+     * deactivation, 4=disable deactivation, 5=disable simulation)
+     * @see Activation
+     */
+    public void setActivationState(int state) {
+        Validate.inRange(state, "state", Activation.firstValue,
+                Activation.lastValue);
+
+        long objectId = nativeId();
+        setActivationState(objectId, state);
+    }
+
     /**
      * Associate application-specific data with this collision object. Minie
      * never touches application-specific data, except to clone/load/save it if
@@ -1120,6 +1218,23 @@ abstract public class PhysicsCollisionObject
         debugNumSides = numSides;
     }
 
+    /**
+     * Enable or disable mirroring of this object's friction, restitution,
+     * rolling friction, and spinning friction in Java fields. While mirrored,
+     * the corresponding getters read plain fields instead of crossing JNI,
+     * and the setters keep the fields coherent. With assertions enabled,
+     * each mirrored read is checked against the native object.
+     *
+     * @param setting true to mirror, false to read the native object
+     * (default=false)
+     */
+    public void setMirrored(boolean setting) {
+        if (setting) {
+            refreshMirror();
+        }
+        isMirrored = setting;
+    }
+
     /**
      * Alter this object's friction (native field: m_friction).
      *
@@ -1130,6 +1245,7 @@ abstract public class PhysicsCollisionObject
 
         long objectId = nativeId();
         setFriction(objectId, friction);
+        mirroredFriction = friction;
     }
 
     /**
@@ -1141,6 +1257,7 @@ abstract public class PhysicsCollisionObject
     public void setRestitution(float restitution) {
         long objectId = nativeId();
         setRestitution(objectId, restitution);
+        mirroredRestitution = restitution;
     }
 
     /**
@@ -1153,6 +1270,7 @@ abstract public class PhysicsCollisionObject
     public void setRollingFriction(float friction) {
         long objectId = nativeId();
         setRollingFriction(objectId, friction);
+        mirroredRollingFriction = friction;
     }
 
     /**
@@ -1164,6 +1282,7 @@ abstract public class PhysicsCollisionObject
     public void setSpinningFriction(float friction) {
         long objectId = nativeId();
         setSpinningFriction(objectId, friction);
+        mirroredSpinningFriction = friction;
     }
 
     /**
@@ -1257,6 +1376,10 @@ abstract public class PhysicsCollisionObject
         assert getCollisionGroup(objectId) == collisionGroup;
         assert getCollideWithGroups(objectId) == collideWithGroups;
         assert getSpaceId(objectId) == 0L;
+
+        if (isMirrored) {
+            refreshMirror();
+        }
     }
 
     /**
@@ -1279,6 +1402,7 @@ abstract public class PhysicsCollisionObject
         setRestitution(capsule.readFloat(tagRestitution, 0f));
         setRollingFriction(capsule.readFloat(tagRollingFriction, 0f));
         setSpinningFriction(capsule.readFloat(tagSpinningFriction, 0f));
+        setMirrored(capsule.readBoolean(tagMirrored, false));
 
         int mode = capsule.readInt(tagAnisotropicFrictionMode, AfMode.none);
         if (mode != AfMode.none) {
@@ -1468,6 +1592,7 @@ abstract public class PhysicsCollisionObject
         capsule.write(getRestitution(), tagRestitution, 0f);
         capsule.write(getRollingFriction(), tagRollingFriction, 0f);
         capsule.write(getSpinningFriction(), tagSpinningFriction, 0f);
+        capsule.write(isMirrored, tagMirrored, false);
 
         int mode = AfMode.none;
         if (hasAnisotropicFriction(AfMode.basic)) {
@@ -1521,6 +1646,17 @@ abstract public class PhysicsCollisionObject
         assert objectId != 0L;
         finalizeNative(objectId);
     }
+
+    /**
+     * Copy the mirrored parameters from the native object.
+     */
+    private void refreshMirror() {
+        long objectId = nativeId();
+        mirroredFriction = getFriction(objectId);
+        mirroredRestitution = getRestitution(objectId);
+        mirroredRollingFriction = getRollingFriction(objectId);
+        mirroredSpinningFriction = getSpinningFriction(objectId);
+    }
     // *************************************************************************
     // native private methods
 
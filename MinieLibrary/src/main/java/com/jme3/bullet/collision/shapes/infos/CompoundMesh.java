@@ -104,6 +104,27 @@ public class CompoundMesh
             add(indexedMesh);
         }
     }
+
+    /**
+     * Instantiate a mesh based on the specified JME mesh(es), optionally
+     * sharing their buffers instead of copying them. See
+     * {@link IndexedMesh#IndexedMesh(com.jme3.scene.Mesh, boolean)} for the
+     * compatibility requirements and the ownership contract.
+     *
+     * @param shareBuffers true to share compatible buffers, false to copy all
+     * data
+     * @param jmeMeshes the JME mesh(es) (all non-null,
+     * modes=Triangles/TriangleStrip/TriangleFan, compatible buffers aliased if
+     * shareBuffers is true)
+     */
+    public CompoundMesh(boolean shareBuffers, Mesh... jmeMeshes) {
+        createEmpty();
+
+        for (Mesh jmeMesh : jmeMeshes) {
+            IndexedMesh indexedMesh = new IndexedMesh(jmeMesh, shareBuffers);
+            add(indexedMesh);
+        }
+    }
     // *************************************************************************
     // new methods exposed
 
@@ -48,7 +48,9 @@ import com.jme3.util.BufferUtils;
 import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
@@ -62,6 +64,11 @@ import jme3utilities.math.MyMath;
 /**
  * An indexed triangle mesh based on Bullet's btIndexedMesh. Immutable except
  * for {@link #read(com.jme3.export.JmeImporter)}.
+ * <p>
+ * Usually the position and index data are copied into buffers owned by the
+ * mesh. A mesh constructed with {@link #IndexedMesh(com.jme3.scene.Mesh,
+ * boolean)} may instead share compatible buffers of a JME mesh, in which case
+ * the native mesh reads them in place.
  *
  * @author Stephen Gold sgold@sonic.net
  */
@@ -109,6 +116,16 @@ public class IndexedMesh
      * configured index data (not null, direct, never flipped)
      */
     private IndexBuffer indices;
+    /**
+     * true if the index data are shared with a JME mesh, false if they're
+     * owned by this mesh
+     */
+    private boolean sharingIndices = false;
+    /**
+     * true if the position data are shared with a JME mesh, false if they're
+     * owned by this mesh
+     */
+    private boolean sharingPositions = false;
     /**
      * configured bytes per triangle in the index buffer (3, 6, or 12)
      */
@@ -156,7 +173,8 @@ public class IndexedMesh
         if (dedup) {
             jmeMesh = MyMesh.addIndices(jmeMesh);
         }
-        create(jmeMesh, null);
+        boolean shareBuffers = false;
+        create(jmeMesh, null, shareBuffers);
     }
 
     /**
@@ -171,7 +189,37 @@ public class IndexedMesh
         Validate.require(MyMesh.hasTriangles(jmeMesh),
                 "mode=Triangles/TriangleFan/TriangleStrip");
 
-        create(jmeMesh, null);
+        boolean shareBuffers = false;
+        create(jmeMesh, null, shareBuffers);
+    }
+
+    /**
+     * Instantiate an IndexedMesh based on the specified JME mesh, without
+     * transforming coordinates, optionally sharing its buffers instead of
+     * copying them.
+     * <p>
+     * A buffer can be shared only if its data are direct, in native byte
+     * order, start at offset 0, and are tightly packed: 3 floats per vertex for
+     * positions, or a Triangles-mode index buffer. Incompatible buffers are
+     * copied.
+     * <p>
+     * The JME mesh retains ownership of any shared buffer. While this mesh
+     * (or any shape based on it) exists, the caller must neither modify nor
+     * replace a shared buffer: the native mesh reads it in place, and
+     * Bullet's acceleration structures assume the data don't change.
+     *
+     * @param jmeMesh the input JME mesh (not null,
+     * mode=Triangles/TriangleFan/TriangleStrip, compatible buffers aliased
+     * if shareBuffers is true)
+     * @param shareBuffers true to share compatible buffers, false to copy all
+     * data
+     */
+    public IndexedMesh(Mesh jmeMesh, boolean shareBuffers) {
+        Validate.nonNull(jmeMesh, "JME mesh");
+        Validate.require(MyMesh.hasTriangles(jmeMesh),
+                "mode=Triangles/TriangleFan/TriangleStrip");
+
+        create(jmeMesh, null, shareBuffers);
     }
 
     /**
@@ -189,7 +237,8 @@ public class IndexedMesh
                 "mode=Triangles/TriangleFan/TriangleStrip");
         Validate.nonNull(transform, "transform");
 
-        create(jmeMesh, transform);
+        boolean shareBuffers = false;
+        create(jmeMesh, transform, shareBuffers);
     }
 
     /**
@@ -225,7 +274,7 @@ public class IndexedMesh
      * @return a new, direct, unflipped buffer
      */
     public IntBuffer copyIndices() {
-        int numInts = indices.size();
+        int numInts = vpt * numTriangles;
         IntBuffer result = BufferUtils.createIntBuffer(numInts);
         for (int bufPos = 0; bufPos < numInts; ++bufPos) {
             int tmpIndex = indices.get(bufPos);
@@ -241,12 +290,12 @@ public class IndexedMesh
      * @return a new, direct, unflipped buffer
      */
     public FloatBuffer copyVertexPositions() {
-        int numFloats = vertexPositions.capacity();
+        int numFloats = numAxes * numVertices;
         FloatBuffer result = BufferUtils.createFloatBuffer(numFloats);
-        for (int bufPos = 0; bufPos < numFloats; ++bufPos) {
-            float tmpFloat = vertexPositions.get(bufPos);
-            result.put(tmpFloat);
-        }
+        FloatBuffer source = vertexPositions.duplicate();
+        source.limit(numFloats);
+        source.position(0);
+        result.put(source);
 
         return result;
     }
@@ -270,6 +319,24 @@ public class IndexedMesh
         assert numVertices >= 0 : numVertices;
         return numVertices;
     }
+
+    /**
+     * Test whether this mesh shares its index data with a JME mesh.
+     *
+     * @return true if shared, false if owned by this mesh
+     */
+    public boolean isSharingIndices() {
+        return sharingIndices;
+    }
+
+    /**
+     * Test whether this mesh shares its position data with a JME mesh.
+     *
+     * @return true if shared, false if owned by this mesh
+     */
+    public boolean isSharingPositions() {
+        return sharingPositions;
+    }
     // *************************************************************************
     // JmeCloneable methods
 
@@ -286,19 +353,16 @@ public class IndexedMesh
     public void cloneFields(Cloner cloner, Object original) {
         IndexedMesh originalMesh = (IndexedMesh) original;
 
-        int numFloats = vertexPositions.capacity();
-        vertexPositions = BufferUtils.createFloatBuffer(numFloats);
-        for (int offset = 0; offset < numFloats; ++offset) {
-            float tmpFloat = originalMesh.vertexPositions.get(offset);
-            vertexPositions.put(offset, tmpFloat);
-        }
+        vertexPositions = originalMesh.copyVertexPositions();
+        sharingPositions = false;
 
-        int numIndices = indices.getBuffer().capacity();
+        int numIndices = vpt * numTriangles;
         indices = IndexBuffer.createIndexBuffer(numVertices, numIndices);
         for (int offset = 0; offset < numIndices; ++offset) {
             int tmpIndex = originalMesh.indices.get(offset);
             indices.put(offset, tmpIndex);
         }
+        sharingIndices = false;
 
         unassignNativeObject();
         createMesh();
@@ -394,11 +458,12 @@ public class IndexedMesh
         capsule.write(numVertices, tagNumVertices, 0);
         capsule.write(vertexStride, tagVertexStride, 12);
 
-        int numFloats = vertexPositions.capacity();
+        int numFloats = numAxes * numVertices;
         float[] floatArray = new float[numFloats];
-        for (int offset = 0; offset < numFloats; ++offset) {
-            floatArray[offset] = vertexPositions.get(offset);
-        }
+        FloatBuffer source = vertexPositions.duplicate();
+        source.limit(numFloats);
+        source.position(0);
+        source.get(floatArray);
         capsule.write(floatArray, tagVertices, null);
     }
     // *************************************************************************
@@ -408,12 +473,16 @@ public class IndexedMesh
      * Configure and create a new btIndexedMesh from the specified JME mesh and
      * Transform.
      *
-     * @param jmeMesh the input JME mesh (not null, unaffected,
-     * mode=Triangles/TriangleFan/TriangleStrip)
+     * @param jmeMesh the input JME mesh (not null,
+     * mode=Triangles/TriangleFan/TriangleStrip, compatible buffers aliased if
+     * shareBuffers is true)
      * @param transform the Transform to apply to vertex positions (unaffected)
      * or null to use untransformed vertex positions
+     * @param shareBuffers true to share compatible buffers, false to copy all
+     * data
      */
-    private void create(Mesh jmeMesh, Transform transform) {
+    private void create(Mesh jmeMesh, Transform transform,
+            boolean shareBuffers) {
         assert MyMesh.hasTriangles(jmeMesh);
 
         numVertices = jmeMesh.getVertexCount();
@@ -421,33 +490,57 @@ public class IndexedMesh
             numVertices = 0;
         }
 
-        FloatBuffer meshVs = jmeMesh.getFloatBuffer(VertexBuffer.Type.Position);
+        VertexBuffer positionVb = jmeMesh.getBuffer(VertexBuffer.Type.Position);
+        FloatBuffer meshVs = (FloatBuffer) positionVb.getData();
         int numFloats = numAxes * numVertices;
-        vertexPositions = BufferUtils.createFloatBuffer(numFloats);
-        for (int offset = 0; offset < numFloats; ++offset) {
-            float temp = meshVs.get(offset);
-            vertexPositions.put(offset, temp);
+        boolean transformed
+                = transform != null && !MyMath.isIdentity(transform);
+        if (shareBuffers && !transformed
+                && positionVb.getFormat() == VertexBuffer.Format.Float
+                && positionVb.getNumComponents() == numAxes
+                && isShareable(positionVb, numFloats)) {
+            vertexPositions = meshVs;
+            sharingPositions = true;
+        } else {
+            vertexPositions = BufferUtils.createFloatBuffer(numFloats);
+            FloatBuffer source = meshVs.duplicate();
+            source.limit(numFloats);
+            source.position(0);
+            vertexPositions.put(source);
+            vertexPositions.rewind();
+            if (transformed) {
+                MyBuffer.transform(vertexPositions, 0, numFloats, transform);
+            }
         }
         vertexStride = numAxes * floatBytes;
 
-        if (transform != null && !MyMath.isIdentity(transform)) {
-            MyBuffer.transform(vertexPositions, 0, numFloats, transform);
-        }
-
         numTriangles = jmeMesh.getTriangleCount();
         if (numTriangles <= 0) {
             numTriangles = 0;
         }
         int numIndices = vpt * numTriangles;
 
-        indices = IndexBuffer.createIndexBuffer(numVertices, numIndices);
-
-        IndexBuffer triangleIndices = jmeMesh.getIndicesAsList();
-        for (int offset = 0; offset < numIndices; ++offset) {
-            int index = triangleIndices.get(offset);
-            assert index >= 0 : index;
-            assert index < numVertices : index;
-            indices.put(offset, index);
+        VertexBuffer indexVb = jmeMesh.getBuffer(VertexBuffer.Type.Index);
+        if (shareBuffers && jmeMesh.getMode() == Mesh.Mode.Triangles
+                && isShareable(indexVb, numIndices)) {
+            indices = IndexBuffer.wrapIndexBuffer(indexVb.getData());
+            for (int offset = 0; offset < numIndices; ++offset) {
+                int index = indices.get(offset);
+                if (index < 0 || index >= numVertices) {
+                    throw new IllegalArgumentException(
+                            "index out of range: " + index);
+                }
+            }
+            sharingIndices = true;
+        } else {
+            indices = IndexBuffer.createIndexBuffer(numVertices, numIndices);
+            IndexBuffer triangleIndices = jmeMesh.getIndicesAsList();
+            for (int offset = 0; offset < numIndices; ++offset) {
+                int index = triangleIndices.get(offset);
+                assert index >= 0 : index;
+                assert index < numVertices : index;
+                indices.put(offset, index);
+            }
         }
         int indexBytes = indices.getFormat().getComponentSize();
         indexStride = vpt * indexBytes;
@@ -495,6 +588,50 @@ public class IndexedMesh
         assert meshId != 0L;
         finalizeNative(meshId);
     }
+
+    /**
+     * Test whether the specified vertex buffer can be shared with the native
+     * mesh: direct data in native byte order, starting at offset 0, tightly
+     * packed, and large enough.
+     *
+     * @param vertexBuffer the buffer to test (may be null, unaffected)
+     * @param minElements the required number of elements (&ge;0)
+     * @return true if shareable, otherwise false
+     */
+    private static boolean isShareable(VertexBuffer vertexBuffer,
+            int minElements) {
+        if (vertexBuffer == null) {
+            return false;
+        }
+        Buffer data = vertexBuffer.getData();
+        if (data == null || !data.isDirect() || data.capacity() < minElements
+                || vertexBuffer.getOffset() != 0) {
+            return false;
+        }
+
+        int numComponents = vertexBuffer.getNumComponents();
+        int componentBytes = vertexBuffer.getFormat().getComponentSize();
+        int stride = vertexBuffer.getStride();
+        if (stride != 0 && stride != numComponents * componentBytes) {
+            return false;
+        }
+
+        ByteOrder order;
+        if (data instanceof FloatBuffer) {
+            order = ((FloatBuffer) data).order();
+        } else if (data instanceof IntBuffer) {
+            order = ((IntBuffer) data).order();
+        } else if (data instanceof ShortBuffer) {
+            order = ((ShortBuffer) data).order();
+        } else if (data instanceof ByteBuffer) {
+            order = ByteOrder.nativeOrder(); // single bytes have no order
+        } else {
+            return false;
+        }
+        boolean result = (order == ByteOrder.nativeOrder());
+
+        return result;
+    }
     // *************************************************************************
     // native private methods
 
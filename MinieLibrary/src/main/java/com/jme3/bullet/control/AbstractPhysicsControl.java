@@ -32,6 +32,7 @@
 package com.jme3.bullet.control;
 
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -360,6 +361,10 @@ abstract public class AbstractPhysicsControl
      * If enabled, add this control's physics objects to the specified
      * PhysicsSpace. If not enabled, alter where the objects would be added. The
      * objects are removed from any other space they're in.
+     * <p>
+     * Not allowed if the space is stepped on another thread between captures
+     * of its TransformSnapshot (PIPELINED threading mode), because controls
+     * of this type write to their physics objects during every update.
      *
      * @param newSpace where to add, or null to simply remove
      */
@@ -368,6 +373,14 @@ abstract public class AbstractPhysicsControl
         if (space == newSpace) {
             return;
         }
+        if (newSpace != null) {
+            TransformSnapshot snapshot = newSpace.getTransformSnapshot();
+            if (snapshot != null && snapshot.isDeferringWrites()) {
+                String message = getClass().getSimpleName()
+                        + " isn't supported in PIPELINED threading mode.";
+                throw new IllegalStateException(message);
+            }
+        }
 
         if (added) {
             removePhysics();
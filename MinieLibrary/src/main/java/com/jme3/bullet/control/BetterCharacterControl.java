@@ -33,6 +33,7 @@ package com.jme3.bullet.control;
 
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.PhysicsRayTestResult;
 import com.jme3.bullet.collision.shapes.CapsuleCollisionShape;
 import com.jme3.bullet.collision.shapes.CollisionShape;
@@ -639,7 +640,12 @@ public class BetterCharacterControl
             return;
         }
 
-        rigidBody.getPhysicsLocation(location);
+        PhysicsSpace space = getPhysicsSpace();
+        TransformSnapshot snapshot
+                = (space == null) ? null : space.getTransformSnapshot();
+        if (snapshot == null || !snapshot.copyLocation(rigidBody, location)) {
+            rigidBody.getPhysicsLocation(location);
+        }
         //rotation has been set through viewDirection
         applyPhysicsTransform(location, rotation);
     }
@@ -32,6 +32,7 @@
 package com.jme3.bullet.control;
 
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.objects.PhysicsGhostObject;
 import com.jme3.export.InputCapsule;
@@ -312,8 +313,15 @@ public class GhostControl
         setUserObject(controlledSpatial); // link from collision object
 
         if (controlledSpatial != null) {
-            setPhysicsLocation(getSpatialTranslation());
-            setPhysicsRotation(getSpatialRotation());
+            TransformSnapshot snapshot
+                    = (space == null) ? null : space.getTransformSnapshot();
+            if (snapshot != null && snapshot.isDeferringWrites()) {
+                snapshot.deferTransform(this, getSpatialTranslation(),
+                        getSpatialRotation(), null);
+            } else {
+                setPhysicsLocation(getSpatialTranslation());
+                setPhysicsRotation(getSpatialRotation());
+            }
         }
     }
 
@@ -330,18 +338,37 @@ public class GhostControl
             return;
         }
 
-        setPhysicsLocation(getSpatialTranslation());
-        setPhysicsRotation(getSpatialRotation());
+        Vector3f newScale = null;
         if (applyScale) {
-            Vector3f newScale = copySpatialScale(null);
+            newScale = copySpatialScale(null);
             CollisionShape shape = getCollisionShape();
             if (!shape.canScale(newScale)) {
                 float factor = MyMath.cubeRoot(
                         newScale.x * newScale.y * newScale.z);
                 newScale.set(factor, factor, factor);
             }
+            if (!shape.canScale(newScale)) {
+                newScale = null;
+            }
+        }
+
+        TransformSnapshot snapshot
+                = (space == null) ? null : space.getTransformSnapshot();
+        if (snapshot != null && snapshot.isDeferringWrites()) {
+            /*
+             * The space is being stepped on another thread.
+             */
+            snapshot.deferTransform(this, getSpatialTranslation(),
+                    getSpatialRotation(), newScale);
+            return;
+        }
+
+        setPhysicsLocation(getSpatialTranslation());
+        setPhysicsRotation(getSpatialRotation());
+        if (newScale != null) {
+            CollisionShape shape = getCollisionShape();
             Vector3f oldScale = shape.getScale(null);
-            if (MyVector3f.ne(oldScale, newScale) && shape.canScale(newScale)) {
+            if (MyVector3f.ne(oldScale, newScale)) {
                 shape.setScale(newScale);
                 setCollisionShape(shape);
             }
@@ -31,7 +31,9 @@
  */
 package com.jme3.bullet.control;
 
+import com.jme3.bullet.PhysicsProfiler;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.shapes.BoxCollisionShape;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.SphereCollisionShape;
@@ -413,8 +415,15 @@ public class RigidBodyControl
                 createCollisionShape();
                 rebuildRigidBody();
             }
-            setPhysicsLocation(getSpatialTranslation());
-            setPhysicsRotation(getSpatialRotation());
+            TransformSnapshot snapshot
+                    = (space == null) ? null : space.getTransformSnapshot();
+            if (snapshot != null && snapshot.isDeferringWrites()) {
+                snapshot.deferTransform(this, getSpatialTranslation(),
+                        getSpatialRotation(), null);
+            } else {
+                setPhysicsLocation(getSpatialTranslation());
+                setPhysicsRotation(getSpatialRotation());
+            }
         }
     }
 
@@ -431,28 +440,61 @@ public class RigidBodyControl
             return;
         }
 
+        PhysicsProfiler profiler
+                = (space == null) ? null : space.getProfiler();
+        boolean profiling = profiler != null && profiler.isEnabled();
+        long startNanos = profiling ? System.nanoTime() : 0L;
+
+        TransformSnapshot snapshot
+                = (space == null) ? null : space.getTransformSnapshot();
         if (isKinematic() && kinematicSpatial) {
-            setPhysicsLocation(getSpatialTranslation());
-            setPhysicsRotation(getSpatialRotation()); // TODO garbage
+            Vector3f newScale = null;
             if (applyScale) {
                 CollisionShape shape = getCollisionShape();
-                Vector3f newScale = copySpatialScale(null);
+                newScale = copySpatialScale(null);
                 if (!shape.canScale(newScale)) {
                     float factor = MyMath.cubeRoot(
                             newScale.x * newScale.y * newScale.z);
                     newScale.set(factor, factor, factor);
                 }
-                if (shape.canScale(newScale)) {
+                if (!shape.canScale(newScale)) {
+                    newScale = null;
+                }
+            }
+            if (snapshot != null && snapshot.isDeferringWrites()) {
+                /*
+                 * The space is being stepped on another thread.
+                 */
+                snapshot.deferTransform(this, getSpatialTranslation(),
+                        getSpatialRotation(), newScale);
+            } else {
+                setPhysicsLocation(getSpatialTranslation());
+                setPhysicsRotation(getSpatialRotation()); // TODO garbage
+                if (newScale != null) {
                     setPhysicsScale(newScale);
                 }
             }
 
         } else if (!MySpatial.isIgnoringTransforms(spatial)) {
-            getMotionState().applyTransform(spatial);
+            boolean applied = false;
+            if (snapshot != null) {
+                applied = snapshot.applyTransform(this, spatial);
+            }
+            if (!applied) {
+                /*
+                 * No snapshot, or the body was added after the last capture.
+                 */
+                getMotionState().applyTransform(spatial);
+            }
             if (applyScale) {
                 applySpatialScale();
             }
         }
+
+        if (profiling) {
+            profiler.addNanos(PhysicsProfiler.Phase.CONTROLS,
+                    System.nanoTime() - startNanos);
+        }
     }
     // *************************************************************************
     // PhysicsRigidBody methods
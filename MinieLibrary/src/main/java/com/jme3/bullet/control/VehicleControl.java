@@ -31,7 +31,9 @@
  */
 package com.jme3.bullet.control;
 
+import com.jme3.bullet.PhysicsProfiler;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.objects.PhysicsVehicle;
 import com.jme3.bullet.objects.VehicleWheel;
@@ -304,14 +306,38 @@ public class VehicleControl
             return;
         }
 
+        PhysicsProfiler profiler
+                = (space == null) ? null : space.getProfiler();
+        boolean profiling = profiler != null && profiler.isEnabled();
+        long startNanos = profiling ? System.nanoTime() : 0L;
+
         if (spatial != null) {
-            if (getMotionState().applyTransform(spatial)) {
+            TransformSnapshot snapshot
+                    = (space == null) ? null : space.getTransformSnapshot();
+            boolean changed = false;
+            boolean applied = false;
+            if (snapshot != null) {
+                applied = snapshot.applyTransform(this, spatial);
+                changed = applied;
+            }
+            if (!applied) {
+                /*
+                 * No snapshot, or the body was added after the last capture.
+                 */
+                changed = getMotionState().applyTransform(spatial);
+            }
+            if (changed) {
                 spatial.getWorldTransform();
                 applyWheelTransforms();
             }
         } else {
             applyWheelTransforms();
         }
+
+        if (profiling) {
+            profiler.addNanos(PhysicsProfiler.Phase.CONTROLS,
+                    System.nanoTime() - startNanos);
+        }
     }
     // *************************************************************************
     // PhysicsVehicle methods
@@ -287,6 +287,19 @@ public class PhysicsRigidBody extends PhysicsBody {
         clearForces(objectId);
     }
 
+    /**
+     * Deactivate this body immediately, as if it had come to rest. It remains
+     * deactivated until it's activated explicitly or woken by an active
+     * object in its simulation island. Note that "sleeping" is synonym for
+     * "deactivation".
+     *
+     * @see #activate()
+     */
+    public void deactivate() {
+        long objectId = nativeId();
+        setActivationState(objectId, Activation.sleeping);
+    }
+
     /**
      * Read this body's angular damping.
      *
@@ -75,6 +75,14 @@ public class RigidBodyMotionState
      * temporary storage for a Quaternion
      */
     private Quaternion tmp_inverseWorldRotation = new Quaternion();
+    /**
+     * temporary storage for a rotation being applied to a Spatial
+     */
+    private Quaternion tmp_localRotation = new Quaternion();
+    /**
+     * temporary storage for a location being applied to a Spatial
+     */
+    private Vector3f tmp_localLocation = new Vector3f();
     // *************************************************************************
     // constructors
 
@@ -105,20 +113,7 @@ public class RigidBodyMotionState
         if (!physicsLocationDirty) {
             return false;
         }
-        if (!applyPhysicsLocal && spatial.getParent() != null) {
-            localLocation.subtractLocal(
-                    spatial.getParent().getWorldTranslation());
-            localLocation.divideLocal(spatial.getParent().getWorldScale());
-            tmp_inverseWorldRotation.set(spatial.getParent().getWorldRotation())
-                    .inverseLocal().multLocal(localLocation);
-            tmp_inverseWorldRotation.mult(localRotationQuat, localRotationQuat);
-
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        } else {
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        }
+        applyToSpatial(spatial, localLocation, localRotationQuat);
         if (vehicle != null) {
             vehicle.updateWheels();
         }
@@ -126,6 +121,24 @@ public class RigidBodyMotionState
         return true;
     }
 
+    /**
+     * Apply the specified physics transform to the specified Spatial, as if it
+     * had been read from this motion state. Used with a TransformSnapshot,
+     * whose capture also updates any vehicle wheels.
+     *
+     * @param spatial where to apply the transform (not null, modified)
+     * @param physicsLocation the location to apply (in physics-space
+     * coordinates, not null, unaffected)
+     * @param physicsRotation the orientation to apply (in physics-space
+     * coordinates, not null, unaffected)
+     */
+    public void applyTransform(Spatial spatial, Vector3f physicsLocation,
+            Quaternion physicsRotation) {
+        tmp_localLocation.set(physicsLocation);
+        tmp_localRotation.set(physicsRotation);
+        applyToSpatial(spatial, tmp_localLocation, tmp_localRotation);
+    }
+
     /**
      * Copy the location from this motion state.
      *
@@ -256,6 +269,8 @@ public class RigidBodyMotionState
         reassignNativeId(motionStateId);
 
         tmp_inverseWorldRotation = cloner.clone(tmp_inverseWorldRotation);
+        tmp_localLocation = cloner.clone(tmp_localLocation);
+        tmp_localRotation = cloner.clone(tmp_localRotation);
         vehicle = cloner.clone(vehicle);
     }
 
@@ -276,6 +291,34 @@ public class RigidBodyMotionState
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Convert the specified physics transform to the local coordinates of the
+     * specified Spatial and apply it.
+     *
+     * @param spatial where to apply the transform (not null, modified)
+     * @param localLocation the physics location, which is converted in place
+     * (not null, modified)
+     * @param localRotationQuat the physics orientation, which is converted in
+     * place (not null, modified)
+     */
+    private void applyToSpatial(Spatial spatial, Vector3f localLocation,
+            Quaternion localRotationQuat) {
+        if (!applyPhysicsLocal && spatial.getParent() != null) {
+            localLocation.subtractLocal(
+                    spatial.getParent().getWorldTranslation());
+            localLocation.divideLocal(spatial.getParent().getWorldScale());
+            tmp_inverseWorldRotation.set(spatial.getParent().getWorldRotation())
+                    .inverseLocal().multLocal(localLocation);
+            tmp_inverseWorldRotation.mult(localRotationQuat, localRotationQuat);
+
+            spatial.setLocalTranslation(localLocation);
+            spatial.setLocalRotation(localRotationQuat);
+        } else {
+            spatial.setLocalTranslation(localLocation);
+            spatial.setLocalRotation(localRotationQuat);
+        }
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.asset.AssetLoader;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.system.JmeSystem;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * An AssetLoader for prebaked mesh shapes: files that store the triangles of
+ * a MeshCollisionShape together with its serialized bounding-value hierarchy
+ * (BVH), so that static level geometry can be loaded without building the BVH
+ * at runtime.
+ * <p>
+ * Files are written by {@link #bake(com.jme3.scene.Spatial, java.io.File)}.
+ * Each file starts with a little-endian header (identifier, counts, and the
+ * name of the platform and native precision that generated the BVH), followed
+ * by the vertex positions, the triangle indices, and the BVH bytes. Since the
+ * BVH format is specific to the platform and to the precision of the native
+ * library, a file baked on a different platform (or with a different
+ * precision) loads correctly but rebuilds its BVH.
+ * <p>
+ * {@link #load(java.io.File)} memory-maps the file, and on little-endian
+ * platforms the resulting shape reads its vertex positions and indices
+ * directly from the mapping, without copying. The AssetLoader method, which
+ * reads from an asset stream into a direct buffer, is for use with an
+ * AssetManager:
+ * <pre>
+ * assetManager.registerLoader(BakedMeshLoader.class,
+ *         BakedMeshLoader.extension);
+ * </pre>
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BakedMeshLoader implements AssetLoader {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes per float or int in a baked file
+     */
+    final private static int bytesPerWord = 4;
+    /**
+     * number of words in the fixed part of the header
+     */
+    final private static int headerWords = 5;
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * number of vertices per triangle
+     */
+    final private static int vpt = 3;
+    /**
+     * file-format identifier, stored in the first word of each file
+     */
+    final private static int magic = 0x4d425631; // "MBV1"
+    /**
+     * character set for BVH format names
+     */
+    final private static Charset charset = Charset.forName("US-ASCII");
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BakedMeshLoader.class.getName());
+    /**
+     * filename extension for baked files (without the leading dot)
+     */
+    final public static String extension = "mbvh";
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Generate a shape for an immovable object, based on the merged triangles
+     * of the specified subtree, and write it to a baked file. The shape is
+     * equivalent to one created by
+     * {@link CollisionShapeFactory#createMergedMeshShape}. The file is
+     * written to a temporary name and then atomically renamed.
+     *
+     * @param subtree the scene-graph subtree on which to base the shape (not
+     * null, unaffected)
+     * @param file the destination file (not null)
+     * @return a new shape (not null)
+     * @throws IOException if the file couldn't be written
+     */
+    public static MeshCollisionShape bake(Spatial subtree, File file)
+            throws IOException {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(file, "file");
+
+        Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(subtree);
+        float[] positionArray = CollisionShapeFactory.copyPositions(mergedMesh);
+        int[] indexArray = CollisionShapeFactory.copyIndices(mergedMesh);
+        boolean shareBuffers = true; // the merged mesh isn't used elsewhere
+        IndexedMesh indexedMesh = new IndexedMesh(mergedMesh, shareBuffers);
+        boolean useCompression = true;
+        MeshCollisionShape result
+                = new MeshCollisionShape(useCompression, indexedMesh);
+        byte[] bvhBytes = result.serializeBvh();
+
+        write(file, positionArray, indexArray, bvhBytes);
+
+        return result;
+    }
+
+    /**
+     * Load a shape from a baked file, which is memory-mapped.
+     *
+     * @param file the file to read (not null)
+     * @return a new shape (not null)
+     * @throws IOException if the file couldn't be read or isn't a valid baked
+     * file
+     */
+    public static MeshCollisionShape load(File file) throws IOException {
+        Validate.nonNull(file, "file");
+
+        Path path = file.toPath();
+        try (FileChannel channel
+                = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer mapped
+                    = channel.map(FileChannel.MapMode.PRIVATE, 0L, size);
+            MeshCollisionShape result = parse(mapped, file);
+
+            return result;
+        }
+    }
+    // *************************************************************************
+    // AssetLoader methods
+
+    /**
+     * Load a shape from a baked asset.
+     *
+     * @param assetInfo the located asset (not null)
+     * @return a new MeshCollisionShape (not null)
+     * @throws IOException if the asset couldn't be read or isn't a valid baked
+     * file
+     */
+    @Override
+    public Object load(AssetInfo assetInfo) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(65_536);
+        try (InputStream stream = assetInfo.openStream()) {
+            byte[] chunk = new byte[65_536];
+            int numRead = stream.read(chunk);
+            while (numRead >= 0) {
+                bytes.write(chunk, 0, numRead);
+                numRead = stream.read(chunk);
+            }
+        }
+        ByteBuffer data = ByteBuffer.allocateDirect(bytes.size());
+        data.put(bytes.toByteArray());
+        data.flip();
+        MeshCollisionShape result = parse(data, assetInfo.getKey());
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Name the BVH format of the loaded native library, which depends on the
+     * platform and on whether the library uses double precision.
+     *
+     * @return a new name (not null, not empty)
+     */
+    private static String bvhFormat() {
+        String platformName = JmeSystem.getPlatform().name();
+        String precision = NativeLibrary.isDoublePrecision() ? "Dp" : "Sp";
+        String result = platformName + precision;
+
+        return result;
+    }
+
+    /**
+     * Parse a shape from the contents of a baked file.
+     *
+     * @param data the file contents (not null)
+     * @param source a description of the file's origin, for error messages
+     * @return a new shape (not null)
+     * @throws IOException if the contents are invalid
+     */
+    private static MeshCollisionShape parse(ByteBuffer data, Object source)
+            throws IOException {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        long numBytes = data.capacity();
+        if (numBytes < headerWords * bytesPerWord || data.getInt(0) != magic) {
+            throw new IOException("Not a baked mesh: " + source);
+        }
+        int numFloats = data.getInt(bytesPerWord);
+        int numIndices = data.getInt(2 * bytesPerWord);
+        int numBvhBytes = data.getInt(3 * bytesPerWord);
+        int numNameBytes = data.getInt(4 * bytesPerWord);
+        if (numFloats <= 0 || numFloats % numAxes != 0 || numIndices <= 0
+                || numIndices % vpt != 0 || numBvhBytes < 0
+                || numNameBytes < 0) {
+            throw new IOException("Invalid header in baked mesh: " + source);
+        }
+        int nameWords = (numNameBytes + bytesPerWord - 1) / bytesPerWord;
+        long positionStart = (headerWords + nameWords) * bytesPerWord;
+        long indexStart = positionStart + (long) numFloats * bytesPerWord;
+        long bvhStart = indexStart + (long) numIndices * bytesPerWord;
+        if (bvhStart + numBvhBytes != numBytes) {
+            throw new IOException("Truncated baked mesh: " + source);
+        }
+
+        byte[] nameBytes = new byte[numNameBytes];
+        data.position(headerWords * bytesPerWord);
+        data.get(nameBytes);
+        String formatName = new String(nameBytes, charset);
+
+        data.position((int) positionStart);
+        data.limit((int) indexStart);
+        FloatBuffer positions
+                = data.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+        data.limit((int) bvhStart);
+        data.position((int) indexStart);
+        IntBuffer indices
+                = data.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+        Mesh jmeMesh = new Mesh();
+        jmeMesh.setBuffer(VertexBuffer.Type.Position, numAxes, positions);
+        jmeMesh.setBuffer(VertexBuffer.Type.Index, vpt, indices);
+        boolean shareBuffers = true;
+        IndexedMesh indexedMesh = new IndexedMesh(jmeMesh, shareBuffers);
+
+        MeshCollisionShape result;
+        if (numBvhBytes > 0 && formatName.equals(bvhFormat())) {
+            byte[] bvhBytes = new byte[numBvhBytes];
+            data.limit((int) numBytes);
+            data.position((int) bvhStart);
+            data.get(bvhBytes);
+            result = new MeshCollisionShape(bvhBytes, indexedMesh);
+
+        } else {
+            logger.log(Level.INFO, "Rebuilding the BVH of {0}, which was "
+                    + "baked for {1}.", new Object[]{source, formatName});
+            boolean useCompression = true;
+            result = new MeshCollisionShape(useCompression, indexedMesh);
+        }
+
+        return result;
+    }
+
+    /**
+     * Write mesh data and a serialized BVH to a baked file, via a temporary
+     * file that's atomically renamed.
+     *
+     * @param file the destination file (not null)
+     * @param positions the vertex positions (not null, unaffected)
+     * @param indices the triangle indices (not null, unaffected)
+     * @param bvhBytes the serialized BVH (not null, unaffected)
+     * @throws IOException if the file couldn't be written
+     */
+    private static void write(File file, float[] positions, int[] indices,
+            byte[] bvhBytes) throws IOException {
+        byte[] nameBytes = bvhFormat().getBytes(charset);
+        int nameWords = (nameBytes.length + bytesPerWord - 1) / bytesPerWord;
+        int numWords
+                = headerWords + nameWords + positions.length + indices.length;
+        int numBytes = numWords * bytesPerWord + bvhBytes.length;
+
+        ByteBuffer data = ByteBuffer.allocate(numBytes);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(magic);
+        data.putInt(positions.length);
+        data.putInt(indices.length);
+        data.putInt(bvhBytes.length);
+        data.putInt(nameBytes.length);
+        data.put(nameBytes);
+        data.position((headerWords + nameWords) * bytesPerWord);
+        data.asFloatBuffer().put(positions);
+        data.position(data.position() + positions.length * bytesPerWord);
+        data.asIntBuffer().put(indices);
+        data.position(data.position() + indices.length * bytesPerWord);
+        data.put(bvhBytes);
+        data.flip();
+
+        Path target = file.getAbsoluteFile().toPath();
+        Path temporary = Files.createTempFile(target.getParent(),
+                file.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * A fork-join task to generate the child shapes for a range of children of a
+ * compound shape, splitting the range among worker threads. Used by
+ * CompoundShapeTask.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class ChildShapeTask extends RecursiveAction {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * largest range to generate without splitting
+     */
+    final private static int maxUnsplit = 4;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ChildShapeTask.class.getName());
+    /**
+     * serial version UID
+     */
+    final private static long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for mesh-accurate child shapes, false for boxes
+     */
+    final private boolean meshAccurate;
+    /**
+     * true for hull child shapes, false for mesh child shapes
+     */
+    final private boolean dynamic;
+    /**
+     * storage for the generated shapes, indexed like children (not null)
+     */
+    final private CollisionShape[] storeResults;
+    /**
+     * index of the first child in the range
+     */
+    final private int fromIndex;
+    /**
+     * index after the last child in the range
+     */
+    final private int toIndex;
+    /**
+     * geometries and terrains on which to base the child shapes (not null)
+     */
+    final private List<Spatial> children;
+    /**
+     * transforms of the children relative to the model root (not null)
+     */
+    final private List<Transform> transforms;
+    /**
+     * half extents of the children's world bounds, or null for mesh-accurate
+     * shapes
+     */
+    final private List<Vector3f> extents;
+    /**
+     * ancestor for which the shape is being generated (not null)
+     */
+    final private Spatial modelRoot;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task for the specified range of children.
+     *
+     * @param modelRoot the ancestor for which the shape is being generated
+     * (not null, alias created)
+     * @param children the geometries and terrains (not null, alias created)
+     * @param transforms the transforms of the children relative to the model
+     * root (not null, alias created)
+     * @param extents the half extents of the children's world bounds (alias
+     * created) or null for mesh-accurate shapes
+     * @param meshAccurate true for mesh-accurate shapes, false for boxes
+     * @param dynamic true for hull shapes, false for mesh shapes
+     * @param storeResults storage for the generated shapes (not null, alias
+     * created)
+     * @param fromIndex the index of the first child in the range (&ge;0)
+     * @param toIndex the index after the last child in the range
+     * (&ge;fromIndex)
+     */
+    ChildShapeTask(Spatial modelRoot, List<Spatial> children,
+            List<Transform> transforms, List<Vector3f> extents,
+            boolean meshAccurate, boolean dynamic,
+            CollisionShape[] storeResults, int fromIndex, int toIndex) {
+        assert fromIndex >= 0 : fromIndex;
+        assert toIndex >= fromIndex : toIndex;
+        assert toIndex <= storeResults.length : toIndex;
+
+        this.modelRoot = modelRoot;
+        this.children = children;
+        this.transforms = transforms;
+        this.extents = extents;
+        this.meshAccurate = meshAccurate;
+        this.dynamic = dynamic;
+        this.storeResults = storeResults;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+    // *************************************************************************
+    // RecursiveAction methods
+
+    /**
+     * Generate the shapes in the range, splitting it in half if it's large.
+     */
+    @Override
+    protected void compute() {
+        int numChildren = toIndex - fromIndex;
+        if (numChildren > maxUnsplit) {
+            int midIndex = fromIndex + numChildren / 2;
+            ChildShapeTask lower = new ChildShapeTask(modelRoot, children,
+                    transforms, extents, meshAccurate, dynamic, storeResults,
+                    fromIndex, midIndex);
+            ChildShapeTask upper = new ChildShapeTask(modelRoot, children,
+                    transforms, extents, meshAccurate, dynamic, storeResults,
+                    midIndex, toIndex);
+            invokeAll(lower, upper);
+
+        } else {
+            for (int index = fromIndex; index < toIndex; ++index) {
+                Spatial child = children.get(index);
+                Transform transform = transforms.get(index);
+                Vector3f halfExtents
+                        = (extents == null) ? null : extents.get(index);
+                storeResults[index] = CollisionShapeFactory.createChildShape(
+                        child, modelRoot, transform, halfExtents, meshAccurate,
+                        dynamic);
+            }
+        }
+    }
+}
@@ -51,8 +51,12 @@ import com.jme3.terrain.Terrain;
 import com.jme3.util.BufferUtils;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import jme3utilities.MyMesh;
 import jme3utilities.MySpatial;
@@ -61,6 +65,7 @@ import jme3utilities.math.MyBuffer;
 import vhacd.VHACD;
 import vhacd.VHACDHull;
 import vhacd.VHACDParameters;
+import vhacd.VHACDProgressListener;
 
 /**
  * Utility methods for generating collision shapes from spatials.
@@ -112,6 +117,89 @@ public class CollisionShapeFactory {
         }
     }
 
+    /**
+     * Asynchronously create a simplified shape for the specified Spatial,
+     * equivalent to {@link #createBoxShape(com.jme3.scene.Spatial)}. For a
+     * Node, the subtree is traversed on the calling thread and the child
+     * shapes are generated in parallel on the specified pool. World bounds are
+     * always calculated on the calling thread.
+     *
+     * @param subtree the Spatial on which to base the shape (not null,
+     * unaffected, not modified until the Future completes)
+     * @param pool the pool on which to generate the shape (not null)
+     * @return a Future for the new shape (not null)
+     */
+    public static Future<CollisionShape> createBoxShapeAsync(
+            final Spatial subtree, ForkJoinPool pool) {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(pool, "pool");
+
+        Future<CollisionShape> result;
+        if (subtree instanceof Node) {
+            boolean meshAccurate = false;
+            boolean dynamic = false;
+            result = submitCompound((Node) subtree, pool, meshAccurate,
+                    dynamic);
+        } else if (subtree instanceof Geometry) {
+            final Vector3f halfExtents = halfExtents(subtree);
+            result = pool.submit(new Callable<CollisionShape>() {
+                @Override
+                public CollisionShape call() {
+                    return new BoxCollisionShape(halfExtents);
+                }
+            });
+        } else {
+            result = pool.submit(new Callable<CollisionShape>() {
+                @Override
+                public CollisionShape call() {
+                    return createBoxShape(subtree);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * Create the shape for a Geometry or Terrain that's a descendant of the
+     * model root, as a child of a compound shape. Used internally.
+     *
+     * @param child the Geometry or Terrain (not null, unaffected)
+     * @param modelRoot the ancestor for which the shape is being generated
+     * (not null, unaffected)
+     * @param transform the Transform of the child relative to the model root
+     * (not null, unaffected)
+     * @param halfExtents the half extents of the Geometry's world bound (not
+     * null unless meshAccurate is true or the child is a Terrain, unaffected)
+     * @param meshAccurate true for mesh-accurate shapes, false for boxes
+     * @param dynamic true for hull shapes, false for mesh shapes (ignored
+     * unless meshAccurate is true)
+     * @return a new shape, or null if the Geometry has no mesh
+     */
+    static CollisionShape createChildShape(Spatial child, Spatial modelRoot,
+            Transform transform, Vector3f halfExtents, boolean meshAccurate,
+            boolean dynamic) {
+        CollisionShape result;
+        if (child instanceof Terrain) {
+            result = new HeightfieldCollisionShape((Terrain) child,
+                    transform.getScale());
+
+        } else {
+            Geometry geometry = (Geometry) child;
+            if (meshAccurate) {
+                if (dynamic) {
+                    result = createSingleHullShape(geometry, modelRoot);
+                } else {
+                    result = createSingleMeshShape(geometry, modelRoot);
+                }
+            } else {
+                result = new BoxCollisionShape(halfExtents);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Create a shape for a movable object, based on the specified Spatial.
      * <p>
@@ -138,6 +226,40 @@ public class CollisionShapeFactory {
         }
     }
 
+    /**
+     * Asynchronously create a shape for a movable object, equivalent to
+     * {@link #createDynamicMeshShape(com.jme3.scene.Spatial)}. For a Node, the
+     * subtree is traversed on the calling thread and the child shapes are
+     * generated in parallel on the specified pool.
+     *
+     * @param subtree the Spatial on which to base the shape (not null,
+     * unaffected, not modified until the Future completes)
+     * @param pool the pool on which to generate the shape (not null)
+     * @return a Future for the new shape (not null)
+     */
+    public static Future<CollisionShape> createDynamicMeshShapeAsync(
+            final Spatial subtree, ForkJoinPool pool) {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(pool, "pool");
+
+        Future<CollisionShape> result;
+        if (subtree instanceof Node) {
+            boolean meshAccurate = true;
+            boolean dynamic = true;
+            result = submitCompound((Node) subtree, pool, meshAccurate,
+                    dynamic);
+        } else {
+            result = pool.submit(new Callable<CollisionShape>() {
+                @Override
+                public CollisionShape call() {
+                    return createDynamicMeshShape(subtree);
+                }
+            });
+        }
+
+        return result;
+    }
+
     /**
      * Create a shape for a movable object, based on the specified Spatial.
      *
@@ -199,6 +321,40 @@ public class CollisionShapeFactory {
         }
     }
 
+    /**
+     * Asynchronously create a shape for an immovable object, equivalent to
+     * {@link #createMeshShape(com.jme3.scene.Spatial)}. For a Node other than
+     * a Terrain, the subtree is traversed on the calling thread and the child
+     * shapes are generated in parallel on the specified pool.
+     *
+     * @param subtree the Spatial on which to base the shape (not null,
+     * unaffected, not modified until the Future completes)
+     * @param pool the pool on which to generate the shape (not null)
+     * @return a Future for the new shape (not null)
+     */
+    public static Future<CollisionShape> createMeshShapeAsync(
+            final Spatial subtree, ForkJoinPool pool) {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(pool, "pool");
+
+        Future<CollisionShape> result;
+        if (subtree instanceof Node && !(subtree instanceof Terrain)) {
+            boolean meshAccurate = true;
+            boolean dynamic = false;
+            result = submitCompound((Node) subtree, pool, meshAccurate,
+                    dynamic);
+        } else {
+            result = pool.submit(new Callable<CollisionShape>() {
+                @Override
+                public CollisionShape call() {
+                    return createMeshShape(subtree);
+                }
+            });
+        }
+
+        return result;
+    }
+
     /**
      * Create a shape for a dynamic object using the V-HACD library.
      *
@@ -214,26 +370,34 @@ public class CollisionShapeFactory {
         Validate.nonNull(parameters, "parameters");
 
         Mesh mergedMesh = makeMergedMesh(subtree);
+        CompoundCollisionShape result
+                = createVhacdShape(mergedMesh, parameters, null, addResult);
 
-        FloatBuffer positionBuffer
-                = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
-        int numFloats = positionBuffer.limit();
-        float[] positionArray = new float[numFloats];
-        for (int offset = 0; offset < numFloats; ++offset) {
-            positionArray[offset] = positionBuffer.get(offset);
-        }
+        return result;
+    }
 
-        IndexBuffer indexBuffer = mergedMesh.getIndicesAsList();
-        int numIndices = indexBuffer.size();
-        int[] indexArray = new int[numIndices];
-        for (int offset = 0; offset < numIndices; ++offset) {
-            indexArray[offset] = indexBuffer.get(offset);
-        }
+    /**
+     * Create a shape for a dynamic object from a merged mesh using the V-HACD
+     * library. Safe to invoke on any thread, since the mesh isn't part of a
+     * scene graph.
+     *
+     * @param mergedMesh the merged triangles (not null, unaffected)
+     * @param parameters (not null, unaffected)
+     * @param listener a progress listener for this decomposition only, or
+     * null for none
+     * @param addResult the compound shape to append to (modified if not null)
+     * @return a compound shape (either addResult or a new shape, not null)
+     */
+    static CompoundCollisionShape createVhacdShape(Mesh mergedMesh,
+            VHACDParameters parameters, VHACDProgressListener listener,
+            CompoundCollisionShape addResult) {
+        float[] positionArray = copyPositions(mergedMesh);
+        int[] indexArray = copyIndices(mergedMesh);
         /*
          * Use the V-HACD algorithm to generate a list of hulls.
          */
-        List<VHACDHull> vhacdHulls
-                = VHACD.compute(positionArray, indexArray, parameters);
+        List<VHACDHull> vhacdHulls = VHACD.compute(positionArray, indexArray,
+                parameters, listener);
         /*
          * Convert each V-HACD hull to a HullCollisionShape
          * and add that to the result.
@@ -296,6 +460,91 @@ public class CollisionShapeFactory {
         }
     }
 
+    /**
+     * Enumerate the geometries and terrains in a scene-graph subtree that
+     * aren't tagged with "JmePhysicsIgnore", along with their transforms
+     * relative to the model root, in the order that
+     * {@link #createCompoundShape(com.jme3.scene.Node, com.jme3.scene.Node,
+     * com.jme3.bullet.collision.shapes.CompoundCollisionShape, boolean,
+     * boolean)} visits them.
+     *
+     * @param modelRoot the ancestor for which the shape is being generated
+     * (not null, unaffected)
+     * @param parent the Node whose children are to be enumerated (not null,
+     * unaffected)
+     * @param addChildren storage for the children (not null, added to)
+     * @param addTransforms storage for the transforms (not null, added to)
+     * @param addExtents storage for the half extents of the children's world
+     * bounds (null for terrains) or null if not needed (added to)
+     */
+    private static void collectChildren(Node modelRoot, Node parent,
+            List<Spatial> addChildren, List<Transform> addTransforms,
+            List<Vector3f> addExtents) {
+        for (Spatial child : parent.getChildren()) {
+            Boolean skipChild = child.getUserData(UserData.JME_PHYSICSIGNORE);
+            if (skipChild != null && skipChild) {
+                continue; // to the next child spatial
+            }
+
+            if (child instanceof Node && !(child instanceof Terrain)) {
+                collectChildren(modelRoot, (Node) child, addChildren,
+                        addTransforms, addExtents);
+
+            } else if (child instanceof Terrain || child instanceof Geometry) {
+                Transform transform = getTransform(child, modelRoot);
+                addChildren.add(child);
+                addTransforms.add(transform);
+                if (addExtents != null) {
+                    Vector3f halfExtents = (child instanceof Terrain)
+                            ? null : halfExtents(child);
+                    addExtents.add(halfExtents);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the vertex indices of a merged mesh to a new array.
+     *
+     * @param mergedMesh the mesh to read (not null, unaffected)
+     * @return a new array of indices (not null)
+     */
+    static int[] copyIndices(Mesh mergedMesh) {
+        IndexBuffer indexBuffer = mergedMesh.getIndicesAsList();
+        int numIndices = indexBuffer.size();
+        int[] result = new int[numIndices];
+        Buffer data = indexBuffer.getBuffer();
+        if (data instanceof IntBuffer) {
+            IntBuffer source = ((IntBuffer) data).duplicate();
+            source.position(0);
+            source.get(result);
+        } else {
+            for (int offset = 0; offset < numIndices; ++offset) {
+                result[offset] = indexBuffer.get(offset);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Copy the vertex positions of a merged mesh to a new array.
+     *
+     * @param mergedMesh the mesh to read (not null, unaffected)
+     * @return a new array of coordinates (not null)
+     */
+    static float[] copyPositions(Mesh mergedMesh) {
+        FloatBuffer positionBuffer
+                = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
+        int numFloats = positionBuffer.limit();
+        float[] result = new float[numFloats];
+        FloatBuffer source = positionBuffer.duplicate();
+        source.position(0);
+        source.get(result);
+
+        return result;
+    }
+
     /**
      * Create a CompoundShape of boxes, based on the bounds of the Geometries in
      * a scene-graph subtree.
@@ -327,27 +576,17 @@ public class CollisionShapeFactory {
             }
             Transform transform = getTransform(child, modelRoot);
 
-            CollisionShape childShape;
-            if (child instanceof Terrain) {
-                childShape = new HeightfieldCollisionShape((Terrain) child,
-                        transform.getScale());
-                shape.addChildShape(childShape, transform);
-
-            } else if (child instanceof Node) {
+            if (child instanceof Node && !(child instanceof Terrain)) {
                 createCompoundShape(modelRoot, (Node) child, shape,
                         meshAccurate, dynamic);
 
-            } else if (child instanceof Geometry) {
-                Geometry geometry = (Geometry) child;
-                if (meshAccurate) {
-                    if (dynamic) {
-                        childShape = createSingleHullShape(geometry, modelRoot);
-                    } else {
-                        childShape = createSingleMeshShape(geometry, modelRoot);
-                    }
-                } else {
-                    childShape = createSingleBoxShape(geometry);
+            } else if (child instanceof Terrain || child instanceof Geometry) {
+                Vector3f halfExtents = null;
+                if (!meshAccurate && child instanceof Geometry) {
+                    halfExtents = halfExtents(child);
                 }
+                CollisionShape childShape = createChildShape(child, modelRoot,
+                        transform, halfExtents, meshAccurate, dynamic);
                 if (childShape != null) {
                     shape.addChildShape(childShape, transform);
                 }
@@ -381,8 +620,7 @@ public class CollisionShapeFactory {
     private static BoxCollisionShape createSingleBoxShape(Spatial spatial) {
         //TODO using world bound here instead of "local world" bound...
         //TODO the bound could be null or spherical
-        BoxCollisionShape shape = new BoxCollisionShape(
-                ((BoundingBox) spatial.getWorldBound()).getExtent(new Vector3f()));
+        BoxCollisionShape shape = new BoxCollisionShape(halfExtents(spatial));
         return shape;
     }
 
@@ -454,6 +692,21 @@ public class CollisionShapeFactory {
         return result;
     }
 
+    /**
+     * Calculate the half extents of the specified Spatial's world bound. Since
+     * this may refresh the world transforms and bounds of the scene graph,
+     * invoke it only on the thread that owns the scene graph.
+     *
+     * @param spatial the Spatial to measure (not null)
+     * @return a new vector (not null)
+     */
+    private static Vector3f halfExtents(Spatial spatial) {
+        BoundingBox worldBound = (BoundingBox) spatial.getWorldBound();
+        Vector3f result = worldBound.getExtent(new Vector3f());
+
+        return result;
+    }
+
     /**
      * Generate a Mesh that merges the triangles of non-empty geometries not
      * tagged with "JmePhysicsIgnore".
@@ -462,7 +715,7 @@ public class CollisionShapeFactory {
      * null, unaffected)
      * @return a new, indexed Mesh in Triangles mode, its bounds not set
      */
-    private static Mesh makeMergedMesh(Spatial subtree) {
+    static Mesh makeMergedMesh(Spatial subtree) {
         List<Geometry> allGeometries = MySpatial.listGeometries(subtree);
         List<Geometry> includedGeometries
                 = new ArrayList<>(allGeometries.size());
@@ -513,4 +766,33 @@ public class CollisionShapeFactory {
 
         return result;
     }
+
+    /**
+     * Enumerate the children of a compound shape on the calling thread, then
+     * submit a task to generate and assemble the shape on the specified pool.
+     *
+     * @param modelRoot the Node on which to base the shape (not null,
+     * unaffected)
+     * @param pool the pool on which to generate the shape (not null)
+     * @param meshAccurate true for mesh-accurate shapes, false for boxes
+     * @param dynamic true for hull shapes, false for mesh shapes (ignored
+     * unless meshAccurate is true)
+     * @return a Future for the new shape (not null)
+     */
+    private static Future<CollisionShape> submitCompound(Node modelRoot,
+            ForkJoinPool pool, boolean meshAccurate, boolean dynamic) {
+        List<Spatial> children = new ArrayList<>(16);
+        List<Transform> transforms = new ArrayList<>(16);
+        List<Vector3f> extents = null;
+        if (!meshAccurate) {
+            extents = new ArrayList<>(16);
+        }
+        collectChildren(modelRoot, modelRoot, children, transforms, extents);
+
+        CompoundShapeTask task = new CompoundShapeTask(modelRoot, children,
+                transforms, extents, meshAccurate, dynamic);
+        Future<CollisionShape> result = pool.submit(task);
+
+        return result;
+    }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+/**
+ * A fork-join task to generate the child shapes of a compound shape in
+ * parallel and then assemble them, used by CollisionShapeFactory.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class CompoundShapeTask extends RecursiveTask<CollisionShape> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CompoundShapeTask.class.getName());
+    /**
+     * serial version UID
+     */
+    final private static long serialVersionUID = 1L;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true for mesh-accurate child shapes, false for boxes
+     */
+    final private boolean meshAccurate;
+    /**
+     * true for hull child shapes, false for mesh child shapes
+     */
+    final private boolean dynamic;
+    /**
+     * geometries and terrains on which to base the child shapes, in order
+     * (not null)
+     */
+    final private List<Spatial> children;
+    /**
+     * transforms of the children relative to the model root (not null, same
+     * size as children)
+     */
+    final private List<Transform> transforms;
+    /**
+     * half extents of the children's world bounds, or null for mesh-accurate
+     * shapes
+     */
+    final private List<Vector3f> extents;
+    /**
+     * ancestor for which the shape is being generated (not null)
+     */
+    final private Spatial modelRoot;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a task to generate a compound shape.
+     *
+     * @param modelRoot the ancestor for which the shape is being generated
+     * (not null, alias created)
+     * @param children the geometries and terrains on which to base the child
+     * shapes (not null, alias created)
+     * @param transforms the transforms of the children relative to the model
+     * root (not null, same size as children, alias created)
+     * @param extents the half extents of the children's world bounds,
+     * calculated on the scene-graph thread (same size as children, alias
+     * created) or null for mesh-accurate shapes
+     * @param meshAccurate true for mesh-accurate shapes, false for boxes
+     * @param dynamic true for hull shapes, false for mesh shapes (ignored
+     * unless meshAccurate is true)
+     */
+    CompoundShapeTask(Spatial modelRoot, List<Spatial> children,
+            List<Transform> transforms, List<Vector3f> extents,
+            boolean meshAccurate, boolean dynamic) {
+        assert modelRoot != null;
+        assert children.size() == transforms.size();
+        assert meshAccurate || extents.size() == children.size();
+
+        this.modelRoot = modelRoot;
+        this.children = children;
+        this.transforms = transforms;
+        this.extents = extents;
+        this.meshAccurate = meshAccurate;
+        this.dynamic = dynamic;
+    }
+    // *************************************************************************
+    // RecursiveTask methods
+
+    /**
+     * Generate the child shapes in parallel, then add them to a new compound
+     * shape in their original order.
+     *
+     * @return a new CompoundCollisionShape (not null)
+     */
+    @Override
+    protected CollisionShape compute() {
+        int numChildren = children.size();
+        CollisionShape[] childShapes = new CollisionShape[numChildren];
+        ChildShapeTask childTask = new ChildShapeTask(modelRoot, children,
+                transforms, extents, meshAccurate, dynamic, childShapes, 0,
+                numChildren);
+        childTask.invoke();
+
+        CompoundCollisionShape result = new CompoundCollisionShape();
+        for (int childIndex = 0; childIndex < numChildren; ++childIndex) {
+            CollisionShape childShape = childShapes[childIndex];
+            if (childShape != null) {
+                Transform transform = transforms.get(childIndex);
+                result.addChildShape(childShape, transform);
+            }
+        }
+
+        return result;
+    }
+}
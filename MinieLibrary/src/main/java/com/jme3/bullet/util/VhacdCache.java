@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import vhacd.VHACD;
+import vhacd.VHACDHull;
+import vhacd.VHACDParameters;
+
+/**
+ * A persistent, content-addressed cache of V-HACD decompositions, stored as
+ * one compact binary file per decomposition in a directory.
+ * <p>
+ * Each file is named for a SHA-256 digest of the merged mesh positions and
+ * indices plus the tuning parameters, so any change to the mesh or parameters
+ * yields a new entry, and stale entries are simply never read. Files hold the
+ * hull vertices as little-endian floats and are memory-mapped on read.
+ * Unreadable files are deleted and recomputed.
+ * <p>
+ * Thread-safe: files are written to a temporary name and then atomically
+ * renamed, so concurrent users (including other processes) never read a
+ * partial file.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class VhacdCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes per float or int in a cache file
+     */
+    final private static int bytesPerWord = 4;
+    /**
+     * file-format identifier, stored in the first word of each file
+     */
+    final private static int magic = 0x56484331; // "VHC1"
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(VhacdCache.class.getName());
+    /**
+     * filename extension for cache files
+     */
+    final public static String extension = ".vhacd";
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of shapes read from the cache
+     */
+    final private AtomicInteger numHits = new AtomicInteger(0);
+    /**
+     * number of shapes computed and written to the cache
+     */
+    final private AtomicInteger numMisses = new AtomicInteger(0);
+    /**
+     * directory containing the cache files (not null)
+     */
+    final private File directory;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cache in the specified directory, creating the directory
+     * if it doesn't exist.
+     *
+     * @param directory the directory for cache files (not null)
+     */
+    public VhacdCache(File directory) {
+        Validate.nonNull(directory, "directory");
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Failed to create cache directory {0}.",
+                    directory);
+        }
+        this.directory = directory;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the shapes read from the cache since this instance was created.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countHits() {
+        int result = numHits.get();
+        return result;
+    }
+
+    /**
+     * Count the shapes computed and cached since this instance was created.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countMisses() {
+        int result = numMisses.get();
+        return result;
+    }
+
+    /**
+     * Create a shape for a dynamic object using the V-HACD library, re-using
+     * a cached decomposition if one exists. Equivalent to
+     * {@link CollisionShapeFactory#createVhacdShape(com.jme3.scene.Spatial,
+     * vhacd.VHACDParameters,
+     * com.jme3.bullet.collision.shapes.CompoundCollisionShape)}.
+     *
+     * @param subtree the scene-graph subtree on which to base the shape (not
+     * null, unaffected)
+     * @param parameters (not null, unaffected)
+     * @param addResult the compound shape to append to (modified if not null)
+     * @return a compound shape (either addResult or a new shape, not null)
+     */
+    public CompoundCollisionShape createVhacdShape(Spatial subtree,
+            VHACDParameters parameters, CompoundCollisionShape addResult) {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(parameters, "parameters");
+
+        Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(subtree);
+        float[] positionArray = CollisionShapeFactory.copyPositions(mergedMesh);
+        int[] indexArray = CollisionShapeFactory.copyIndices(mergedMesh);
+        String key = computeKey(positionArray, indexArray, parameters);
+        File file = new File(directory, key + extension);
+
+        List<float[]> hulls = null;
+        if (file.isFile()) {
+            hulls = read(file);
+        }
+        if (hulls == null) {
+            List<VHACDHull> vhacdHulls
+                    = VHACD.compute(positionArray, indexArray, parameters);
+            hulls = new ArrayList<>(vhacdHulls.size());
+            for (VHACDHull vhacdHull : vhacdHulls) {
+                hulls.add(vhacdHull.clonePositions());
+            }
+            if (hulls.isEmpty()) {
+                /*
+                 * A failed decomposition isn't worth caching.
+                 */
+                logger.log(Level.WARNING,
+                        "V-HACD produced no hulls; not caching {0}.", file);
+            } else {
+                write(file, hulls);
+            }
+            numMisses.incrementAndGet();
+        } else {
+            numHits.incrementAndGet();
+        }
+
+        CompoundCollisionShape result;
+        if (addResult == null) {
+            result = new CompoundCollisionShape(hulls.size());
+        } else {
+            result = addResult;
+        }
+        for (float[] hull : hulls) {
+            HullCollisionShape hullShape = new HullCollisionShape(hull);
+            result.addChildShape(hullShape);
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the directory containing the cache files.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Compute the content address of a decomposition.
+     *
+     * @param positions the mesh positions (not null, unaffected)
+     * @param indices the mesh indices (not null, unaffected)
+     * @param parameters the tuning parameters (not null, unaffected)
+     * @return a string of 64 hexadecimal digits
+     */
+    private static String computeKey(float[] positions, int[] indices,
+            VHACDParameters parameters) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(3 * bytesPerWord);
+        header.putInt(magic);
+        header.putInt(positions.length);
+        header.putInt(indices.length);
+        digest.update(header.array());
+
+        ByteBuffer positionBytes
+                = ByteBuffer.allocate(positions.length * bytesPerWord);
+        positionBytes.asFloatBuffer().put(positions);
+        digest.update(positionBytes);
+
+        ByteBuffer indexBytes
+                = ByteBuffer.allocate(indices.length * bytesPerWord);
+        indexBytes.asIntBuffer().put(indices);
+        digest.update(indexBytes);
+
+        ByteArrayOutputStream parameterBytes = new ByteArrayOutputStream(64);
+        try {
+            parameters.toOutputStream(parameterBytes);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        digest.update(parameterBytes.toByteArray());
+
+        byte[] hash = digest.digest();
+        StringBuilder result = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            result.append(String.format("%02x", b & 0xff));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Read hull vertices from a cache file. An invalid file is deleted.
+     * <p>
+     * On Windows, the deletion fails (and is merely logged) while the
+     * MappedByteBuffer remains mapped, so the invalid file may survive (and
+     * be rejected again by later reads) until the buffer is garbage-collected.
+     *
+     * @param file the file to read (not null)
+     * @return a new list of coordinate arrays, or null if the file couldn't
+     * be read
+     */
+    private static List<float[]> read(File file) {
+        Path path = file.toPath();
+        try (FileChannel channel
+                = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer mapped
+                    = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            List<float[]> result = parse(mapped);
+            if (result != null) {
+                return result;
+            }
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, null, exception);
+        }
+
+        logger.log(Level.WARNING, "Discarding unreadable cache file {0}.",
+                file);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, null, exception);
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse hull vertices from the contents of a cache file.
+     *
+     * @param data the file contents (not null, little-endian)
+     * @return a new list of coordinate arrays, or null if the contents are
+     * invalid or contain no hulls
+     */
+    private static List<float[]> parse(ByteBuffer data) {
+        int numBytes = data.capacity();
+        if (numBytes < 2 * bytesPerWord || data.getInt(0) != magic) {
+            return null;
+        }
+        int numHulls = data.getInt(bytesPerWord);
+        int headerWords = 2 + numHulls;
+        if (numHulls <= 0 || headerWords * bytesPerWord > numBytes) {
+            return null;
+        }
+
+        int totalFloats = 0;
+        for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+            int numFloats = data.getInt((2 + hullIndex) * bytesPerWord);
+            if (numFloats <= 0 || numFloats % 3 != 0) {
+                return null;
+            }
+            totalFloats += numFloats;
+        }
+        if ((headerWords + totalFloats) * bytesPerWord != numBytes) {
+            return null;
+        }
+
+        data.position(headerWords * bytesPerWord);
+        FloatBuffer floats = data.slice().order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        List<float[]> result = new ArrayList<>(numHulls);
+        for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+            int numFloats = data.getInt((2 + hullIndex) * bytesPerWord);
+            float[] hull = new float[numFloats];
+            floats.get(hull);
+            result.add(hull);
+        }
+
+        return result;
+    }
+
+    /**
+     * Write hull vertices to a cache file, via a temporary file that's
+     * atomically renamed. Failures are logged, not thrown.
+     *
+     * @param file the destination file (not null)
+     * @param hulls the coordinate arrays to write (not null, not empty,
+     * unaffected)
+     */
+    private static void write(File file, List<float[]> hulls) {
+        int numHulls = hulls.size();
+        assert numHulls > 0 : numHulls;
+        int numWords = 2 + numHulls;
+        for (float[] hull : hulls) {
+            numWords += hull.length;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(numWords * bytesPerWord);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(magic);
+        data.putInt(numHulls);
+        for (float[] hull : hulls) {
+            data.putInt(hull.length);
+        }
+        for (float[] hull : hulls) {
+            for (float coordinate : hull) {
+                data.putFloat(coordinate);
+            }
+        }
+        data.flip();
+
+        Path target = file.toPath();
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(target.getParent(),
+                    file.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            temporary = null;
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, null, exception);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException exception) {
+                    logger.log(Level.WARNING, null, exception);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+import vhacd.VHACDParameters;
+import vhacd.VHACDProgressListener;
+
+/**
+ * Perform V-HACD decompositions in parallel on a fixed-size pool of daemon
+ * worker threads, for instance to bake collision shapes for many assets.
+ * <p>
+ * The triangles of each subtree are merged on the submitting thread, so the
+ * subtree may be modified (or attached to a live scene) as soon as submit()
+ * returns. Each decomposition then runs on a worker thread, reporting progress
+ * to its own listener (if any) as well as the listeners registered with
+ * {@link vhacd.VHACD}. The parameters must not be modified while jobs that use
+ * them are pending.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class VhacdService {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(VhacdService.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * executor for decomposition jobs (not null)
+     */
+    final private ExecutorService executor;
+    /**
+     * number of worker threads (&gt;0)
+     */
+    final private int numThreads;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a service with one worker thread per available processor.
+     */
+    public VhacdService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiate a service with the specified number of worker threads.
+     *
+     * @param numThreads the number of worker threads (&gt;0)
+     */
+    public VhacdService(int numThreads) {
+        Validate.positive(numThreads, "number of threads");
+
+        this.numThreads = numThreads;
+        ThreadFactory factory = new ThreadFactory() {
+            final private AtomicInteger numCreated = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                int index = numCreated.getAndIncrement();
+                Thread result = new Thread(runnable, "V-HACD worker " + index);
+                result.setDaemon(true);
+
+                return result;
+            }
+        };
+        executor = Executors.newFixedThreadPool(numThreads, factory);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the worker threads.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countThreads() {
+        assert numThreads > 0 : numThreads;
+        return numThreads;
+    }
+
+    /**
+     * Stop accepting jobs. Pending jobs still run.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Submit a decomposition of the specified subtree.
+     *
+     * @param subtree the scene-graph subtree on which to base the shape (not
+     * null, unaffected)
+     * @param parameters the tuning parameters (not null, unaffected)
+     * @return a Future for the new compound shape (not null)
+     */
+    public Future<CompoundCollisionShape> submit(Spatial subtree,
+            VHACDParameters parameters) {
+        Future<CompoundCollisionShape> result
+                = submit(subtree, parameters, null);
+        return result;
+    }
+
+    /**
+     * Submit a decomposition of the specified subtree, with a progress
+     * listener for that decomposition only.
+     *
+     * @param subtree the scene-graph subtree on which to base the shape (not
+     * null, unaffected)
+     * @param parameters the tuning parameters (not null, unaffected)
+     * @param listener the progress listener (alias created) or null for none.
+     * It's invoked on a worker thread.
+     * @return a Future for the new compound shape (not null)
+     */
+    public Future<CompoundCollisionShape> submit(Spatial subtree,
+            final VHACDParameters parameters,
+            final VHACDProgressListener listener) {
+        Validate.nonNull(subtree, "subtree");
+        Validate.nonNull(parameters, "parameters");
+
+        final Mesh mergedMesh = CollisionShapeFactory.makeMergedMesh(subtree);
+        Callable<CompoundCollisionShape> job
+                = new Callable<CompoundCollisionShape>() {
+            @Override
+            public CompoundCollisionShape call() {
+                CompoundCollisionShape shape = CollisionShapeFactory
+                        .createVhacdShape(mergedMesh, parameters, listener,
+                                null);
+                return shape;
+            }
+        };
+        Future<CompoundCollisionShape> result = executor.submit(job);
+
+        return result;
+    }
+
+    /**
+     * Submit a decomposition of each of the specified subtrees.
+     *
+     * @param subtrees the scene-graph subtrees on which to base the shapes
+     * (not null, unaffected)
+     * @param parameters the tuning parameters (not null, unaffected)
+     * @return a new list of futures, in the same order as the subtrees (not
+     * null)
+     */
+    public List<Future<CompoundCollisionShape>> submitAll(
+            List<? extends Spatial> subtrees, VHACDParameters parameters) {
+        Validate.nonNull(subtrees, "subtrees");
+
+        List<Future<CompoundCollisionShape>> result
+                = new ArrayList<>(subtrees.size());
+        for (Spatial subtree : subtrees) {
+            Future<CompoundCollisionShape> future
+                    = submit(subtree, parameters, null);
+            result.add(future);
+        }
+
+        return result;
+    }
+}
@@ -27,6 +27,13 @@ import jme3utilities.math.MyVector3f;
 /**
  * Utility class to perform Volumetric-Hierarchical Approximate Convex
  * Decomposition on an indexed mesh.
+ * <p>
+ * Decompositions may run concurrently on different threads: the native
+ * callbacks for each decomposition are routed to the thread that invoked
+ * compute(), so each call gets its own result list and progress listener.
+ * Listeners registered using
+ * {@link #addProgressListener(vhacd.VHACDProgressListener)} receive updates
+ * from every thread.
  */
 public class VHACD {
     // *************************************************************************
@@ -50,9 +57,16 @@ public class VHACD {
     final private static List<VHACDProgressListener> progressListeners
             = new SafeArrayList<>(VHACDProgressListener.class);
     /**
-     * list of hulls computed during the latest decomposition
+     * per-call progress listener of the decomposition running on each thread,
+     * or null if none
      */
-    private static List<VHACDHull> results;
+    final private static ThreadLocal<VHACDProgressListener> callListenerTL
+            = new ThreadLocal<>();
+    /**
+     * list of hulls computed by the decomposition running on each thread
+     */
+    final private static ThreadLocal<List<VHACDHull>> resultsTL
+            = new ThreadLocal<>();
     // *************************************************************************
     // constructors
 
@@ -88,6 +102,26 @@ public class VHACD {
      */
     public static List<VHACDHull> compute(float positions[], int indices[],
             VHACDParameters params) {
+        List<VHACDHull> result = compute(positions, indices, params, null);
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh, reporting
+     * progress to the specified listener as well as the registered ones.
+     * Thread-safe, provided no thread modifies the parameters during the
+     * call.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @param listener a listener for this call only, or null for none
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     */
+    public static List<VHACDHull> compute(float positions[], int indices[],
+            VHACDParameters params, VHACDProgressListener listener) {
         Validate.nonNull(positions, "positions");
         Validate.nonNull(indices, "indices");
         assert positions.length % MyVector3f.numAxes == 0 : positions.length;
@@ -95,10 +129,23 @@ public class VHACD {
 
         FloatBuffer b_pos = BufferUtils.createFloatBuffer(positions);
         IntBuffer b_ind = BufferUtils.createIntBuffer(indices);
-        results = new ArrayList<>(50);
-        compute(b_pos, b_ind, params.nativeId(), params.getDebugEnabled());
+        List<VHACDHull> result = new ArrayList<>(50);
+        /*
+         * Save the caller's routing, in case a listener invoked compute().
+         */
+        List<VHACDHull> savedResults = resultsTL.get();
+        VHACDProgressListener savedListener = callListenerTL.get();
+        resultsTL.set(result);
+        callListenerTL.set(listener);
+        try {
+            compute(b_pos, b_ind, params.nativeId(),
+                    params.getDebugEnabled());
+        } finally {
+            resultsTL.set(savedResults);
+            callListenerTL.set(savedListener);
+        }
 
-        return results;
+        return result;
     }
 
     /**
@@ -116,17 +163,20 @@ public class VHACD {
     // private methods
 
     /**
-     * Add a hull to the result.
+     * Add a hull to the result of the decomposition running on the current
+     * thread.
      * <p>
      * This method is invoked by native code.
      */
     private static void addHull(long hullId) {
         VHACDHull hull = new VHACDHull(hullId);
+        List<VHACDHull> results = resultsTL.get();
         results.add(hull);
     }
 
     /**
-     * Update all progress listeners.
+     * Update the registered progress listeners and the per-call listener of
+     * the decomposition running on the current thread.
      * <p>
      * This method is invoked by native code.
      *
@@ -144,6 +194,12 @@ public class VHACD {
             listener.update(overallPercent, stagePercent,
                     operationPercent, stageName, operationName);
         }
+
+        VHACDProgressListener callListener = callListenerTL.get();
+        if (callListener != null) {
+            callListener.update(overallPercent, stagePercent,
+                    operationPercent, stageName, operationName);
+        }
     }
     // *************************************************************************
     // native private methods
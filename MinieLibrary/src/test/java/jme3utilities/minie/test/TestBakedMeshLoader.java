@@ -0,0 +1,85 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.util.BakedMeshLoader;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test baking a mesh shape to a file and loading it back.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestBakedMeshLoader {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test a round trip through a baked file.
+     *
+     * @throws IOException if the temporary file couldn't be written or read
+     */
+    @Test
+    public void testBakedMeshLoader() throws IOException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Node level = new Node("level");
+        Geometry floor = new Geometry("floor", new Box(10f, 0.1f, 10f));
+        Geometry wall = new Geometry("wall", new Box(0.1f, 3f, 10f));
+        wall.move(10f, 3f, 0f);
+        level.attachChild(floor);
+        level.attachChild(wall);
+
+        File file = File.createTempFile("level", "."
+                + BakedMeshLoader.extension);
+        try {
+            MeshCollisionShape baked = BakedMeshLoader.bake(level, file);
+            MeshCollisionShape loaded = BakedMeshLoader.load(file);
+
+            Assert.assertEquals(24, loaded.countMeshTriangles());
+            Assert.assertEquals(baked.countMeshTriangles(),
+                    loaded.countMeshTriangles());
+            Assert.assertEquals(baked.countMeshVertices(),
+                    loaded.countMeshVertices());
+            Assert.assertTrue(Arrays.equals(baked.serializeBvh(),
+                    loaded.serializeBvh()));
+        } finally {
+            if (!file.delete()) { // still mapped, on some platforms
+                file.deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.ContactPairListener;
+import com.jme3.bullet.ContactReport;
+import com.jme3.bullet.ContactReportListener;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.PlaneCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Plane;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test per-pair contact reports and begin/persist/end pair tracking.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestContactPairs {
+    // *************************************************************************
+    // fields
+
+    private int numBegan;
+    private int numEnded;
+    private int numFinalReports;
+    private int numPersisted;
+    private int numReports;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test pair tracking with a ball resting on a static plane.
+     */
+    @Test
+    public void testContactPairs() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+
+        Plane plane = new Plane(new Vector3f(0f, 1f, 0f), 0f);
+        CollisionShape floorShape = new PlaneCollisionShape(plane);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        space.addCollisionObject(floor);
+
+        CollisionShape ballShape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody ball = new PhysicsRigidBody(ballShape, 1f);
+        ball.setPhysicsLocation(new Vector3f(0f, 0.49f, 0f));
+        space.addCollisionObject(ball);
+
+        ContactPairListener pairListener = new ContactPairListener() {
+            @Override
+            public void contactBegan(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numBegan;
+            }
+
+            @Override
+            public void contactEnded(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numEnded;
+            }
+
+            @Override
+            public void contactPersisted(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numPersisted;
+            }
+        };
+        space.addContactPairListener(pairListener);
+
+        ContactReportListener reportListener = new ContactReportListener() {
+            @Override
+            public void contactReport(ContactReport report) {
+                if (report.isLastContact()) {
+                    ++numFinalReports;
+                } else {
+                    Assert.assertTrue(report.countPoints() > 0);
+                    Vector3f normal = report.averageNormal(null);
+                    Assert.assertTrue(normal.lengthSquared() > 0f);
+                    ++numReports;
+                }
+            }
+        };
+        space.addContactReportListener(reportListener);
+
+        int numFrames = 10;
+        for (int i = 0; i < numFrames; ++i) {
+            space.update(1f / 60f, 1);
+            space.distributeEvents();
+        }
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(numFrames - 1, numPersisted);
+        Assert.assertEquals(0, numEnded);
+        Assert.assertEquals(numFrames, numReports);
+        /*
+         * Removing the ball ends the contact.
+         */
+        space.removeCollisionObject(ball);
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+        Assert.assertEquals(1, numEnded);
+        Assert.assertEquals(1, numFinalReports);
+
+        space.removeContactPairListener(pairListener);
+        space.removeContactReportListener(reportListener);
+        Assert.assertEquals(0, space.countContactPairListeners());
+        Assert.assertEquals(0, space.countContactReportListeners());
+    }
+
+    /**
+     * Test a frame that doesn't step the physics, as happens whenever the
+     * frame rate exceeds the physics rate.
+     */
+    @Test
+    public void testFrameWithoutStep() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+
+        Plane plane = new Plane(new Vector3f(0f, 1f, 0f), 0f);
+        CollisionShape floorShape = new PlaneCollisionShape(plane);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        space.addCollisionObject(floor);
+
+        CollisionShape ballShape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody ball = new PhysicsRigidBody(ballShape, 1f);
+        ball.setPhysicsLocation(new Vector3f(0f, 0.49f, 0f));
+        space.addCollisionObject(ball);
+
+        ContactPairListener pairListener = new ContactPairListener() {
+            @Override
+            public void contactBegan(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numBegan;
+            }
+
+            @Override
+            public void contactEnded(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numEnded;
+            }
+
+            @Override
+            public void contactPersisted(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numPersisted;
+            }
+        };
+        space.addContactPairListener(pairListener);
+
+        ContactReportListener reportListener = new ContactReportListener() {
+            @Override
+            public void contactReport(ContactReport report) {
+                ++numReports;
+            }
+        };
+        space.addContactReportListener(reportListener);
+
+        float accuracy = space.getAccuracy();
+        space.update(accuracy, 1);
+        space.distributeEvents();
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(1, numReports);
+        /*
+         * A frame shorter than the time step doesn't end the contact.
+         */
+        space.update(0.25f * accuracy);
+        space.distributeEvents();
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(0, numEnded);
+        Assert.assertEquals(0, numPersisted);
+        Assert.assertEquals(1, numReports);
+        /*
+         * The next stepped frame reports the contact as persisting.
+         */
+        space.update(accuracy, 1);
+        space.distributeEvents();
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(0, numEnded);
+        Assert.assertEquals(1, numPersisted);
+        Assert.assertEquals(2, numReports);
+    }
+
+    /**
+     * Test listeners that de-register themselves during their own callbacks.
+     */
+    @Test
+    public void testRemoveDuringCallback() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        final PhysicsSpace space
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+
+        Plane plane = new Plane(new Vector3f(0f, 1f, 0f), 0f);
+        CollisionShape floorShape = new PlaneCollisionShape(plane);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        space.addCollisionObject(floor);
+
+        CollisionShape ballShape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody ball = new PhysicsRigidBody(ballShape, 1f);
+        ball.setPhysicsLocation(new Vector3f(0f, 0.49f, 0f));
+        space.addCollisionObject(ball);
+        /*
+         * The only listener de-registers itself when the contact persists.
+         */
+        ContactPairListener persistListener = new ContactPairListener() {
+            @Override
+            public void contactBegan(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numBegan;
+            }
+
+            @Override
+            public void contactEnded(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numEnded;
+            }
+
+            @Override
+            public void contactPersisted(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numPersisted;
+                space.removeContactPairListener(this);
+            }
+        };
+        space.addContactPairListener(persistListener);
+
+        for (int i = 0; i < 4; ++i) {
+            space.update(1f / 60f, 1);
+            space.distributeEvents();
+        }
+        Assert.assertEquals(0, space.countContactPairListeners());
+        Assert.assertEquals(1, numBegan);
+        Assert.assertEquals(1, numPersisted);
+        /*
+         * Once tracking resumes, the forgotten contact begins anew.
+         * Both listeners de-register themselves when the contact ends.
+         */
+        ContactPairListener endListener = new ContactPairListener() {
+            @Override
+            public void contactBegan(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numBegan;
+            }
+
+            @Override
+            public void contactEnded(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numEnded;
+                space.removeContactPairListener(this);
+            }
+
+            @Override
+            public void contactPersisted(PhysicsCollisionObject pcoA,
+                    PhysicsCollisionObject pcoB) {
+                ++numPersisted;
+            }
+        };
+        space.addContactPairListener(endListener);
+
+        ContactReportListener reportListener = new ContactReportListener() {
+            @Override
+            public void contactReport(ContactReport report) {
+                if (report.isLastContact()) {
+                    ++numFinalReports;
+                    space.removeContactReportListener(this);
+                }
+            }
+        };
+        space.addContactReportListener(reportListener);
+
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+        Assert.assertEquals(2, numBegan);
+
+        space.removeCollisionObject(ball);
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+        Assert.assertEquals(1, numEnded);
+        Assert.assertEquals(1, numFinalReports);
+        Assert.assertEquals(0, space.countContactPairListeners());
+        Assert.assertEquals(0, space.countContactReportListeners());
+        /*
+         * Re-adding the ball begins a fresh contact for a new listener.
+         */
+        space.addCollisionObject(ball);
+        space.addContactPairListener(persistListener);
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+        Assert.assertEquals(3, numBegan);
+        Assert.assertEquals(1, numEnded);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the pooled collision-event mode of PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestEventPool {
+    // *************************************************************************
+    // fields
+
+    private int numEvents;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test event pooling with a box resting on a static box.
+     */
+    @Test
+    public void testEventPool() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        Assert.assertEquals(0, space.eventPoolCapacity());
+
+        CollisionShape floorShape = new BoxCollisionShape(10f, 1f, 10f);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        space.addCollisionObject(floor);
+
+        CollisionShape boxShape = new BoxCollisionShape(0.5f);
+        PhysicsRigidBody box = new PhysicsRigidBody(boxShape, 1f);
+        box.setPhysicsLocation(new Vector3f(0f, 0.49f, 0f));
+        space.addCollisionObject(box);
+
+        PhysicsCollisionListener listener = new PhysicsCollisionListener() {
+            @Override
+            public void collision(PhysicsCollisionEvent event) {
+                Assert.assertNotNull(event.getObjectA());
+                Assert.assertNotNull(event.getObjectB());
+                ++numEvents;
+            }
+        };
+        space.addOngoingCollisionListener(listener);
+        /*
+         * A pool too small to hold all the manifold points:
+         */
+        int capacity = 2;
+        space.setEventPoolCapacity(capacity);
+        Assert.assertEquals(capacity, space.eventPoolCapacity());
+
+        for (int i = 0; i < 10; ++i) {
+            space.update(1f / 60f, 1);
+            space.distributeEvents();
+        }
+
+        Assert.assertTrue(numEvents > 0);
+        Assert.assertTrue(space.countDroppedEvents() > 0L);
+        Assert.assertEquals(capacity, space.eventPoolHighWater());
+        Assert.assertTrue(space.countPooledEvents() <= capacity);
+
+        space.resetEventPoolCounters();
+        Assert.assertEquals(0L, space.countDroppedEvents());
+        Assert.assertEquals(0, space.eventPoolHighWater());
+        /*
+         * Disable pooling.
+         */
+        space.setEventPoolCapacity(0);
+        Assert.assertEquals(0, space.countPooledEvents());
+        numEvents = 0;
+        space.update(1f / 60f, 1);
+        space.distributeEvents();
+        Assert.assertTrue(numEvents > 0);
+        Assert.assertEquals(0L, space.countDroppedEvents());
+    }
+}
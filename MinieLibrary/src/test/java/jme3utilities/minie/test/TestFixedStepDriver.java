@@ -0,0 +1,133 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.FixedStepDriver;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformSnapshot;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test fixed-step simulation with interpolated transforms.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestFixedStepDriver {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test deferred writes and membership changes of a TransformSnapshot.
+     */
+    @Test
+    public void testDeferredWrites() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsRigidBody body
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        body.setKinematic(true);
+        space.addCollisionObject(body);
+
+        TransformSnapshot snapshot = new TransformSnapshot(1);
+        snapshot.setDeferringWrites(true);
+        snapshot.capture(space);
+        Assert.assertEquals(1, snapshot.countBodies());
+        /*
+         * A deferred write takes effect at the start of the next capture.
+         */
+        Vector3f location = new Vector3f(2f, 3f, 4f);
+        snapshot.deferTransform(body, location, new Quaternion(), null);
+        Assert.assertEquals(0f, body.getPhysicsLocation(null).x, 0f);
+        snapshot.capture(space);
+        Assert.assertEquals(location, body.getPhysicsLocation(null));
+        /*
+         * Bodies added or removed between captures are noticed.
+         */
+        PhysicsRigidBody body2
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        space.addCollisionObject(body2);
+        snapshot.capture(space);
+        Assert.assertEquals(2, snapshot.countBodies());
+
+        space.removeCollisionObject(body);
+        snapshot.capture(space);
+        Assert.assertEquals(1, snapshot.countBodies());
+        Assert.assertFalse(snapshot.copyLocation(body, location));
+        Assert.assertTrue(snapshot.copyLocation(body2, location));
+    }
+
+    /**
+     * Test interpolation of a body moving at constant velocity.
+     */
+    @Test
+    public void testFixedStepDriver() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0f, 0f, 0f));
+
+        PhysicsRigidBody body
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        body.setLinearDamping(0f);
+        body.setLinearVelocity(new Vector3f(30f, 0f, 0f));
+        space.addCollisionObject(body);
+
+        float stepSize = 1f / 30f;
+        FixedStepDriver driver = new FixedStepDriver(space, stepSize, 4);
+        TransformSnapshot snapshot = space.getTransformSnapshot();
+        Assert.assertSame(driver.getSnapshot(), snapshot);
+
+        Vector3f location = new Vector3f();
+        Quaternion rotation = new Quaternion();
+        /*
+         * One step and a half: interpolate halfway between x=0 and x=1.
+         */
+        driver.update(1.5f * stepSize);
+        Assert.assertEquals(1L, driver.countSteps());
+        Assert.assertEquals(0.5f, driver.alpha(), 1e-4f);
+        Assert.assertTrue(snapshot.copyTransform(body, location, rotation));
+        Assert.assertEquals(0.5f, location.x, 1e-3f);
+        /*
+         * Another 0.6 step completes the 2nd step, with 0.1 remaining.
+         */
+        driver.update(0.6f * stepSize);
+        Assert.assertEquals(2L, driver.countSteps());
+        Assert.assertEquals(0.1f, driver.alpha(), 1e-4f);
+        Assert.assertTrue(snapshot.copyLocation(body, location));
+        Assert.assertEquals(1.1f, location.x, 1e-3f);
+
+        driver.detach();
+        Assert.assertNull(space.getTransformSnapshot());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.CollisionObjectSlots;
+import com.jme3.bullet.LockstepDriver;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.Callable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test state hashing and task scheduling in LockstepDriver.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestLockstepDriver {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of balls in each test space
+     */
+    final private static int numBalls = 3;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that identically built spaces hash alike, and that a perturbed body
+     * is pinpointed.
+     */
+    @Test
+    public void testDivergence() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        CollisionObjectSlots slotsA = new CollisionObjectSlots(4);
+        LockstepDriver driverA = createDriver(slotsA);
+        CollisionObjectSlots slotsB = new CollisionObjectSlots(4);
+        LockstepDriver driverB = createDriver(slotsB);
+
+        int numSlots = slotsA.countSlots();
+        Assert.assertEquals(numSlots, slotsB.countSlots());
+        long[] hashesA = new long[numSlots];
+        for (int i = 0; i < 30; ++i) {
+            long hashA = driverA.step();
+            long hashB = driverB.step();
+            Assert.assertEquals(hashA, hashB);
+        }
+        driverA.copySlotHashes(hashesA);
+        Assert.assertEquals(-1, driverB.findDivergentSlot(hashesA));
+        /*
+         * Perturb the last ball in space B.
+         */
+        int perturbedSlot = numSlots - 1;
+        PhysicsRigidBody perturbed
+                = (PhysicsRigidBody) slotsB.get(perturbedSlot);
+        perturbed.setLinearVelocity(new Vector3f(0.01f, 0f, 0f));
+
+        long step = driverA.countSteps();
+        long hashA = driverA.step();
+        long hashB = driverB.step();
+        Assert.assertNotEquals(hashA, hashB);
+
+        driverA.copySlotHashes(hashesA);
+        Assert.assertEquals(perturbedSlot, driverB.findDivergentSlot(hashesA));
+        Assert.assertSame(perturbed, driverB.findDivergentObject(hashesA));
+
+        Assert.assertFalse(driverB.verify(step, hashA));
+        Assert.assertEquals(step, driverB.firstDivergentStep());
+        Assert.assertTrue(driverA.verify(step - 1, driverB.hashAt(step - 1)));
+    }
+
+    /**
+     * Test that tasks with duplicate keys are rejected.
+     */
+    @Test
+    public void testDuplicateKeys() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        LockstepDriver driver = createDriver(slots);
+        Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        };
+        driver.enqueue(1L, 0, task);
+        driver.enqueue(1L, 1, task);
+        driver.enqueue(2L, 0, task);
+        try {
+            driver.enqueue(1L, 0, task);
+            Assert.fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException exception) {
+            // expected
+        }
+        /*
+         * Once a task has run, its keys may be re-used.
+         */
+        driver.step();
+        driver.step();
+        driver.enqueue(1L, 0, task);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a space containing a static floor and some well-separated
+     * falling balls, and a driver that hashes all of them.
+     *
+     * @param slots storage for the slot assignments (not null, modified)
+     * @return a new driver (not null)
+     */
+    private static LockstepDriver createDriver(CollisionObjectSlots slots) {
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+
+        CollisionShape floorShape = new BoxCollisionShape(10f, 1f, 10f);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        space.addCollisionObject(floor);
+        slots.add(floor);
+
+        CollisionShape ballShape = new SphereCollisionShape(0.5f);
+        for (int ballIndex = 0; ballIndex < numBalls; ++ballIndex) {
+            PhysicsRigidBody ball = new PhysicsRigidBody(ballShape, 1f);
+            ball.setPhysicsLocation(
+                    new Vector3f(2f * ballIndex, 1f + ballIndex, 0f));
+            space.addCollisionObject(ball);
+            slots.add(ball);
+        }
+
+        float stepSize = 1f / 60f;
+        LockstepDriver result = new LockstepDriver(space, slots, stepSize, 8);
+
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.DesktopAssetManager;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.system.NativeLibraryLoader;
+import jme3utilities.Heart;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test mirrored properties of a collision object.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestMirroredProperties {
+    // *************************************************************************
+    // fields
+
+    /**
+     * AssetManager required by the BinaryImporter
+     */
+    final private AssetManager assetManager = new DesktopAssetManager();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that mirrored properties stay coherent with the native object.
+     */
+    @Test
+    public void testMirroredProperties() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsRigidBody body
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        body.setFriction(0.8f);
+        Assert.assertFalse(body.isMirrored());
+        /*
+         * Enabling the mirror copies the current native values.
+         */
+        body.setMirrored(true);
+        Assert.assertTrue(body.isMirrored());
+        Assert.assertEquals(0.8f, body.getFriction(), 0f);
+        Assert.assertTrue(body.isMirrorConsistent());
+        /*
+         * The setters keep the mirror coherent.
+         */
+        body.setFriction(0.3f);
+        body.setRestitution(0.6f);
+        body.setRollingFriction(0.1f);
+        body.setSpinningFriction(0.2f);
+        body.setCollisionGroup(PhysicsCollisionObject.COLLISION_GROUP_03);
+        Assert.assertEquals(0.3f, body.getFriction(), 0f);
+        Assert.assertEquals(0.6f, body.getRestitution(), 0f);
+        Assert.assertEquals(0.1f, body.getRollingFriction(), 0f);
+        Assert.assertEquals(0.2f, body.getSpinningFriction(), 0f);
+        Assert.assertTrue(body.isMirrorConsistent());
+        /*
+         * A clone gets a new native object with the same properties.
+         */
+        PhysicsRigidBody clone = (PhysicsRigidBody) Heart.deepCopy(body);
+        Assert.assertTrue(clone.isMirrored());
+        Assert.assertTrue(clone.isMirrorConsistent());
+        Assert.assertEquals(0.6f, clone.getRestitution(), 0f);
+        /*
+         * The mirrored flag survives serialization.
+         */
+        PhysicsRigidBody copy = BinaryExporter.saveAndLoad(assetManager, body);
+        Assert.assertTrue(copy.isMirrored());
+        Assert.assertTrue(copy.isMirrorConsistent());
+        Assert.assertEquals(0.3f, copy.getFriction(), 0f);
+    }
+}
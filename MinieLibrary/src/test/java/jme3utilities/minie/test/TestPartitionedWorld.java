@@ -0,0 +1,184 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PartitionedWorld;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test handoffs and proxies in a PartitionedWorld.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPartitionedWorld {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test a ball that coasts across the border between 2 tiles.
+     */
+    @Test
+    public void testPartitionedWorld() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        float tileSize = 10f;
+        float margin = 2f;
+        PartitionedWorld world = new PartitionedWorld(tileSize, margin, 2) {
+            @Override
+            protected PhysicsSpace createSpace(Vector3f tileMin,
+                    Vector3f tileMax) {
+                PhysicsSpace result = super.createSpace(tileMin, tileMax);
+                result.setGravity(new Vector3f(0f, 0f, 0f));
+                return result;
+            }
+        };
+        /*
+         * A ball near the eastern border of tile (0,0), moving east:
+         */
+        PhysicsRigidBody ball
+                = new PhysicsRigidBody(new SphereCollisionShape(0.5f), 1f);
+        ball.setFriction(0.3f);
+        ball.setRestitution(0.6f);
+        ball.setPhysicsLocation(new Vector3f(8f, 0f, 5f));
+        ball.setLinearVelocity(new Vector3f(10f, 0f, 0f));
+        world.addBody(ball);
+
+        PhysicsSpace westSpace = world.getSpace(ball);
+        Assert.assertNotNull(westSpace);
+        Assert.assertEquals(2, world.countTiles());
+        Assert.assertEquals(1, world.countProxies());
+
+        PhysicsSpace eastSpace = null;
+        for (PhysicsSpace space : world.listSpaces()) {
+            if (space != westSpace) {
+                eastSpace = space;
+            }
+        }
+        PhysicsRigidBody proxy = findProxy(world, eastSpace);
+        Assert.assertNotNull(proxy);
+        Assert.assertSame(ball, world.findOwner(proxy));
+        Assert.assertTrue(proxy.isKinematic());
+        Assert.assertEquals(0.3f, proxy.getFriction(), 0f);
+        Assert.assertEquals(0.6f, proxy.getRestitution(), 0f);
+        /*
+         * Coast until the center is well past the border (x=12),
+         * which hands the ball off to the eastern tile.
+         */
+        float timeStep = 1f / 60f;
+        for (int i = 0; i < 24; ++i) {
+            world.update(timeStep);
+        }
+        Assert.assertSame(eastSpace, world.getSpace(ball));
+        Assert.assertTrue(eastSpace.contains(ball));
+        Assert.assertFalse(westSpace.contains(ball));
+        Assert.assertNull(findProxy(world, eastSpace));
+        Assert.assertEquals(1, world.countProxies());
+        proxy = findProxy(world, westSpace);
+        Assert.assertNotNull(proxy);
+        /*
+         * The proxy follows the ball.
+         */
+        float startX = proxy.getPhysicsLocation(null).x;
+        world.update(timeStep);
+        float proxyX = proxy.getPhysicsLocation(null).x;
+        Assert.assertEquals(ball.getPhysicsLocation(null).x, proxyX, 1e-4f);
+        Assert.assertEquals(10f * timeStep, proxyX - startX, 1e-3f);
+        /*
+         * Coast until the ball is clear of the western tile's margin
+         * (x=14.7), which removes the last proxy.
+         */
+        for (int i = 0; i < 15; ++i) {
+            world.update(timeStep);
+        }
+        Assert.assertSame(eastSpace, world.getSpace(ball));
+        Assert.assertEquals(0, world.countProxies());
+        Assert.assertNull(findProxy(world, westSpace));
+
+        world.removeBody(ball);
+        Assert.assertEquals(0, world.countBodies());
+        world.shutdown();
+    }
+
+    /**
+     * Test a static body near the border between 2 tiles.
+     */
+    @Test
+    public void testStaticBody() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PartitionedWorld world = new PartitionedWorld(10f, 2f, 2);
+        PhysicsRigidBody post = new PhysicsRigidBody(
+                new SphereCollisionShape(0.5f), PhysicsBody.massForStatic);
+        post.setPhysicsLocation(new Vector3f(9f, 0f, 5f));
+        world.addBody(post);
+        Assert.assertEquals(1, world.countProxies());
+
+        for (int i = 0; i < 3; ++i) {
+            world.update(1f / 60f);
+        }
+        Assert.assertEquals(1, world.countProxies());
+        PhysicsSpace postSpace = world.getSpace(post);
+        for (PhysicsSpace space : world.listSpaces()) {
+            if (space != postSpace) {
+                PhysicsRigidBody proxy = findProxy(world, space);
+                Assert.assertNotNull(proxy);
+                Assert.assertTrue(proxy.isKinematic());
+                Assert.assertEquals(9f, proxy.getPhysicsLocation(null).x, 0f);
+            }
+        }
+
+        world.removeBody(post);
+        world.shutdown();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find a proxy in the specified space.
+     *
+     * @param world the world to search (not null)
+     * @param space the space to search (not null)
+     * @return the pre-existing proxy, or null if none found
+     */
+    private static PhysicsRigidBody findProxy(PartitionedWorld world,
+            PhysicsSpace space) {
+        for (PhysicsRigidBody body : space.getRigidBodyList()) {
+            if (world.findOwner(body) != null) {
+                return body;
+            }
+        }
+
+        return null;
+    }
+}
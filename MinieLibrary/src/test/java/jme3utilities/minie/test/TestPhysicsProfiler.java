@@ -0,0 +1,132 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsProfiler;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.ProfilerSnapshot;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.Callable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test per-frame profiling of a PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestPhysicsProfiler {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test counts, listener timings, and the ring buffer.
+     */
+    @Test
+    public void testPhysicsProfiler() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsRigidBody body
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        space.addCollisionObject(body);
+
+        PhysicsTickListener listener = new PhysicsTickListener() {
+            @Override
+            public void physicsTick(PhysicsSpace space, float timeStep) {
+                // do nothing
+            }
+
+            @Override
+            public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                // do nothing
+            }
+        };
+        space.addTickListener(listener);
+
+        PhysicsProfiler profiler = new PhysicsProfiler(2);
+        space.setProfiler(profiler);
+        /*
+         * Frame 1: 3 ticks and 1 task.
+         */
+        space.enqueue(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+        space.update(3.5f * space.getAccuracy(), 4);
+        space.distributeEvents();
+
+        ProfilerSnapshot snapshot = profiler.snapshot();
+        Assert.assertEquals(1, snapshot.countFrames());
+        Assert.assertEquals(3L,
+                snapshot.lastCount(PhysicsProfiler.Counter.TICKS));
+        Assert.assertEquals(1L,
+                snapshot.lastCount(PhysicsProfiler.Counter.TASKS));
+        Assert.assertEquals(1L,
+                snapshot.lastCount(PhysicsProfiler.Counter.BODIES));
+        Assert.assertEquals(6L, snapshot.listenerCalls(listener));
+        Assert.assertTrue(snapshot.lastNanos(PhysicsProfiler.Phase.STEP) > 0L);
+        /*
+         * Frames 2 and 3 (1 variable step each) overwrite frame 1 in the ring.
+         */
+        for (int frame = 2; frame <= 3; ++frame) {
+            space.update(space.getAccuracy(), 0);
+            space.distributeEvents();
+        }
+        snapshot = profiler.snapshot();
+        Assert.assertEquals(2, snapshot.countFrames());
+        Assert.assertEquals(1.0,
+                snapshot.meanCount(PhysicsProfiler.Counter.TICKS), 0.0);
+        Assert.assertEquals(0L,
+                snapshot.lastCount(PhysicsProfiler.Counter.TASKS));
+        Assert.assertEquals(10L, snapshot.listenerCalls(listener));
+        /*
+         * While disabled, nothing is recorded.
+         */
+        profiler.setEnabled(false);
+        space.update(space.getAccuracy(), 0);
+        space.distributeEvents();
+        Assert.assertEquals(10L, profiler.snapshot().listenerCalls(listener));
+        /*
+         * De-registering the listener drops its statistics.
+         */
+        profiler.setEnabled(true);
+        space.removeTickListener(listener);
+        space.update(space.getAccuracy(), 0);
+        space.distributeEvents();
+        Assert.assertEquals(0L, profiler.snapshot().listenerCalls(listener));
+        Assert.assertTrue(profiler.snapshot().listListeners().isEmpty());
+
+        profiler.reset();
+        Assert.assertEquals(0, profiler.countFrames());
+    }
+}
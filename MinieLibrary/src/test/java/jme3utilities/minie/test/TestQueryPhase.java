@@ -0,0 +1,92 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test query phases of a collision space.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestQueryPhase {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that a step on another thread waits for a query phase to end, and
+     * that modifying a space during its own query phase fails.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testQueryPhase() throws InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        final PhysicsSpace space
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        PhysicsRigidBody ball
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        /*
+         * Modifying the space during this thread's own query phase fails.
+         */
+        space.beginQueryPhase();
+        try {
+            space.addCollisionObject(ball);
+            Assert.fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException exception) {
+            // expected
+        }
+        space.endQueryPhase();
+        Assert.assertFalse(space.isQueryPhase());
+        space.addCollisionObject(ball);
+        /*
+         * A step on another thread waits for the query phase to end.
+         */
+        final CountDownLatch stepped = new CountDownLatch(1);
+        Thread stepper = new Thread() {
+            @Override
+            public void run() {
+                space.update(1f / 60f, 1);
+                stepped.countDown();
+            }
+        };
+        space.beginQueryPhase();
+        stepper.start();
+        Assert.assertFalse(stepped.await(200L, TimeUnit.MILLISECONDS));
+        space.endQueryPhase();
+        Assert.assertTrue(stepped.await(10L, TimeUnit.SECONDS));
+        stepper.join();
+    }
+}
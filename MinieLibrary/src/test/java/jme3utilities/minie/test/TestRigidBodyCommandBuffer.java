@@ -0,0 +1,134 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.CollisionObjectSlots;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.RigidBodyCommandBuffer;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test recording rigid-body commands on threads other than the physics
+ * thread.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRigidBodyCommandBuffer {
+    // *************************************************************************
+    // constants
+
+    /**
+     * number of commands recorded by each recording thread
+     */
+    final private static int commandsPerThread = 1000;
+    // *************************************************************************
+    // fields
+
+    /**
+     * linear velocity of the body observed during prePhysicsTick()
+     */
+    final private Vector3f preTickVelocity = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that commands recorded concurrently on 2 other threads are all
+     * applied before the next physics step, and that commands for an invalid
+     * slot are discarded.
+     *
+     * @throws InterruptedException if interrupted while joining a thread
+     */
+    @Test
+    public void testRigidBodyCommandBuffer() throws InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0f, 0f, 0f));
+        final PhysicsRigidBody body
+                = new PhysicsRigidBody(new SphereCollisionShape(1f), 1f);
+        space.addCollisionObject(body);
+
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        final int slot = slots.add(body);
+        final RigidBodyCommandBuffer buffer
+                = new RigidBodyCommandBuffer(slots, 16);
+        space.addCommandBuffer(buffer);
+        space.addTickListener(new PhysicsTickListener() {
+            @Override
+            public void physicsTick(PhysicsSpace space, float timeStep) {
+                // do nothing
+            }
+
+            @Override
+            public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                body.getLinearVelocity(preTickVelocity);
+            }
+        });
+        /*
+         * Record impulses on 2 other threads at once, growing the buffer.
+         */
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < commandsPerThread; ++j) {
+                        buffer.applyCentralImpulse(slot, 0.001f, 0f, 0f);
+                    }
+                    buffer.applyCentralImpulse(slot + 1, 0f, 1f, 0f);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(2 * commandsPerThread + 2, buffer.countPending());
+        Assert.assertEquals(0L, buffer.countDiscarded());
+        /*
+         * The next step applies all the commands before the tick listeners
+         * run.
+         */
+        space.update(space.getAccuracy(), 1);
+        Assert.assertEquals(2f, preTickVelocity.x, 1e-3f);
+        Assert.assertEquals(0f, preTickVelocity.y, 0f);
+        Assert.assertEquals(0, buffer.countPending());
+        Assert.assertEquals(2L, buffer.countDiscarded());
+        /*
+         * An empty buffer has no further effect.
+         */
+        space.update(space.getAccuracy(), 1);
+        Assert.assertEquals(2f, preTickVelocity.x, 1e-3f);
+        Assert.assertEquals(2L, buffer.countDiscarded());
+    }
+}
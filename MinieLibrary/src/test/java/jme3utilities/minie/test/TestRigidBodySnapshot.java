@@ -0,0 +1,99 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+import com.jme3.bullet.CollisionObjectSlots;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.RigidBodySnapshot;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test saving and restoring the dynamic state of rigid bodies.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestRigidBodySnapshot {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test full and delta snapshots of a falling body, a resting one, and a
+     * static one.
+     */
+    @Test
+    public void testRigidBodySnapshot() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        SphereCollisionShape shape = new SphereCollisionShape(1f);
+        PhysicsRigidBody faller = new PhysicsRigidBody(shape, 1f);
+        PhysicsRigidBody sleeper = new PhysicsRigidBody(shape, 1f);
+        sleeper.setPhysicsLocation(new Vector3f(10f, 0f, 0f));
+        PhysicsRigidBody post
+                = new PhysicsRigidBody(shape, PhysicsBody.massForStatic);
+        post.setPhysicsLocation(new Vector3f(-10f, 0f, 0f));
+        space.addCollisionObject(faller);
+        space.addCollisionObject(sleeper);
+        space.addCollisionObject(post);
+        sleeper.deactivate();
+
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        slots.add(faller);
+        slots.add(sleeper);
+        slots.add(post);
+
+        RigidBodySnapshot base = new RigidBodySnapshot(1);
+        space.saveState(slots, base);
+        Assert.assertEquals(3, base.countRecords());
+        Vector3f savedLocation = faller.getPhysicsLocation(null);
+        Vector3f savedVelocity = faller.getLinearVelocity(null);
+        /*
+         * Only the falling body changes, so the delta covers only it.
+         */
+        space.update(1f / 60f, 0);
+        RigidBodySnapshot delta = new RigidBodySnapshot(1);
+        space.saveStateDelta(slots, base, delta);
+        Assert.assertTrue(delta.isDelta());
+        Assert.assertEquals(1, delta.countRecords());
+        Assert.assertTrue(delta.hasRecord(slots.slotOf(faller)));
+        /*
+         * Rolling back restores the saved state exactly.
+         */
+        space.restoreState(slots, base);
+        Assert.assertEquals(savedLocation, faller.getPhysicsLocation(null));
+        Assert.assertEquals(savedVelocity, faller.getLinearVelocity(null));
+        Assert.assertFalse(sleeper.isActive());
+        Assert.assertEquals(new Vector3f(-10f, 0f, 0f),
+                post.getPhysicsLocation(null));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.MeshCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.UserData;
+import com.jme3.scene.shape.Box;
+import com.jme3.scene.shape.Sphere;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test that the asynchronous methods of CollisionShapeFactory match their
+ * sequential counterparts.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestShapeFactoryAsync {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test box, mesh, and dynamic-mesh shapes for a nested Node that contains
+     * an ignored Geometry.
+     *
+     * @throws ExecutionException if a shape couldn't be generated
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testShapeFactoryAsync()
+            throws ExecutionException, InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Node modelRoot = createModel();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            CompoundCollisionShape sequential = (CompoundCollisionShape)
+                    CollisionShapeFactory.createBoxShape(modelRoot);
+            CompoundCollisionShape async = (CompoundCollisionShape)
+                    CollisionShapeFactory.createBoxShapeAsync(modelRoot, pool)
+                    .get();
+            assertMatch(sequential, async);
+
+            sequential = (CompoundCollisionShape)
+                    CollisionShapeFactory.createMeshShape(modelRoot);
+            async = (CompoundCollisionShape) CollisionShapeFactory
+                    .createMeshShapeAsync(modelRoot, pool).get();
+            assertMatch(sequential, async);
+
+            sequential = (CompoundCollisionShape)
+                    CollisionShapeFactory.createDynamicMeshShape(modelRoot);
+            async = (CompoundCollisionShape) CollisionShapeFactory
+                    .createDynamicMeshShapeAsync(modelRoot, pool).get();
+            assertMatch(sequential, async);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that 2 compound shapes have equivalent children in the same
+     * order, with the same transforms.
+     *
+     * @param expected the sequentially generated shape (not null,
+     * unaffected)
+     * @param actual the asynchronously generated shape (not null,
+     * unaffected)
+     */
+    private static void assertMatch(CompoundCollisionShape expected,
+            CompoundCollisionShape actual) {
+        ChildCollisionShape[] expectedChildren = expected.listChildren();
+        ChildCollisionShape[] actualChildren = actual.listChildren();
+        /*
+         * The ignored Geometry contributes no child.
+         */
+        Assert.assertEquals(3, expectedChildren.length);
+        Assert.assertEquals(3, actualChildren.length);
+
+        for (int i = 0; i < 3; ++i) {
+            ChildCollisionShape expectedChild = expectedChildren[i];
+            ChildCollisionShape actualChild = actualChildren[i];
+            assertEquals(expectedChild.copyOffset(null),
+                    actualChild.copyOffset(null));
+            Quaternion expectedRotation = expectedChild.copyRotation(null);
+            Quaternion actualRotation = actualChild.copyRotation(null);
+            Assert.assertEquals(expectedRotation.getX(),
+                    actualRotation.getX(), 1e-6f);
+            Assert.assertEquals(expectedRotation.getY(),
+                    actualRotation.getY(), 1e-6f);
+            Assert.assertEquals(expectedRotation.getZ(),
+                    actualRotation.getZ(), 1e-6f);
+            Assert.assertEquals(expectedRotation.getW(),
+                    actualRotation.getW(), 1e-6f);
+
+            CollisionShape expectedShape = expectedChild.getShape();
+            CollisionShape actualShape = actualChild.getShape();
+            Assert.assertEquals(expectedShape.getClass(),
+                    actualShape.getClass());
+            if (expectedShape instanceof BoxCollisionShape) {
+                assertEquals(
+                        ((BoxCollisionShape) expectedShape)
+                                .getHalfExtents(null),
+                        ((BoxCollisionShape) actualShape)
+                                .getHalfExtents(null));
+            } else if (expectedShape instanceof MeshCollisionShape) {
+                Assert.assertEquals(
+                        ((MeshCollisionShape) expectedShape)
+                                .countMeshTriangles(),
+                        ((MeshCollisionShape) actualShape)
+                                .countMeshTriangles());
+            } else {
+                Assert.assertEquals(
+                        ((HullCollisionShape) expectedShape)
+                                .countHullVertices(),
+                        ((HullCollisionShape) actualShape)
+                                .countHullVertices());
+            }
+        }
+    }
+
+    /**
+     * Verify that 2 vectors are equal, to within a small tolerance.
+     *
+     * @param expected the expected value (not null, unaffected)
+     * @param actual the vector to verify (not null, unaffected)
+     */
+    private static void assertEquals(Vector3f expected, Vector3f actual) {
+        Assert.assertEquals(expected.x, actual.x, 1e-5f);
+        Assert.assertEquals(expected.y, actual.y, 1e-5f);
+        Assert.assertEquals(expected.z, actual.z, 1e-5f);
+    }
+
+    /**
+     * Create a model with a nested, transformed Node and an ignored
+     * Geometry.
+     *
+     * @return a new Node
+     */
+    private static Node createModel() {
+        Node result = new Node("model root");
+
+        Geometry base = new Geometry("base", new Box(2f, 0.5f, 2f));
+        base.move(0f, -1f, 0f);
+        result.attachChild(base);
+
+        Node arm = new Node("arm");
+        arm.move(1f, 2f, 0f);
+        arm.rotate(0f, 0f, FastMath.QUARTER_PI);
+        result.attachChild(arm);
+
+        Geometry hand = new Geometry("hand", new Sphere(8, 8, 0.5f));
+        hand.move(0f, 1.5f, 0f);
+        arm.attachChild(hand);
+
+        Geometry ignored = new Geometry("ignored", new Box(5f, 5f, 5f));
+        ignored.setUserData(UserData.JME_PHYSICSIGNORE, true);
+        arm.attachChild(ignored);
+
+        Geometry forearm = new Geometry("forearm", new Box(0.25f, 1f, 0.25f));
+        arm.attachChild(forearm);
+
+        result.updateGeometricState();
+
+        return result;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SimulationLod;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test culling and restoration of distant bodies by a SimulationLod.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSimulationLod {
+    // *************************************************************************
+    // constants
+
+    /**
+     * simulation time step (in seconds)
+     */
+    final private static float timeStep = 1f / 60f;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test the hysteresis of FREEZE mode and the restoration of velocities.
+     */
+    @Test
+    public void testFreeze() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = createSpace();
+        PhysicsRigidBody body = createBall(space, new Vector3f(30f, 0f, 0f));
+        body.setLinearVelocity(new Vector3f(0f, 0f, 1f));
+
+        SimulationLod lod
+                = new SimulationLod(SimulationLod.CullMode.FREEZE, 10f, 20f);
+        Vector3f point = new Vector3f(0f, 0f, 0f);
+        lod.addInterestPoint(point);
+        space.addTickListener(lod);
+
+        space.update(timeStep, 1);
+        Assert.assertTrue(lod.isCulled(body));
+        Assert.assertTrue(body.isKinematic());
+        Vector3f frozenLocation = body.getPhysicsLocation(null);
+        /*
+         * Between the radii, a culled body stays culled.
+         */
+        point.set(15f, 0f, 0f);
+        space.update(timeStep, 1);
+        Assert.assertTrue(lod.isCulled(body));
+        Assert.assertEquals(frozenLocation, body.getPhysicsLocation(null));
+        /*
+         * Within the restore radius, it's restored with its velocities.
+         */
+        point.set(25f, 0f, 0f);
+        space.update(timeStep, 1);
+        Assert.assertFalse(lod.isCulled(body));
+        Assert.assertFalse(body.isKinematic());
+        Assert.assertEquals(1f, body.getLinearVelocity(null).z, 1e-4f);
+        /*
+         * Between the radii, a restored body stays restored.
+         */
+        point.set(15f, 0f, 0f);
+        space.update(timeStep, 1);
+        Assert.assertFalse(lod.isCulled(body));
+        Assert.assertEquals(0, lod.countCulled());
+
+        space.removeTickListener(lod);
+    }
+
+    /**
+     * Test SLEEP mode, including restoration after the last interest point is
+     * removed.
+     */
+    @Test
+    public void testSleep() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = createSpace();
+        PhysicsRigidBody body = createBall(space, new Vector3f(30f, 0f, 0f));
+        body.setLinearVelocity(new Vector3f(0f, 0f, 1f));
+
+        SimulationLod lod
+                = new SimulationLod(SimulationLod.CullMode.SLEEP, 10f, 20f);
+        Vector3f point = new Vector3f(0f, 0f, 0f);
+        lod.addInterestPoint(point);
+        space.addTickListener(lod);
+
+        space.update(timeStep, 1);
+        Assert.assertTrue(lod.isCulled(body));
+        Assert.assertFalse(body.isKinematic());
+        Assert.assertFalse(body.isActive());
+        /*
+         * Removing the last interest point restores every culled body.
+         */
+        Assert.assertTrue(lod.removeInterestPoint(point));
+        space.update(timeStep, 1);
+        Assert.assertEquals(0, lod.countCulled());
+        Assert.assertTrue(body.isActive());
+        Assert.assertEquals(1f, body.getLinearVelocity(null).z, 1e-4f);
+
+        space.removeTickListener(lod);
+    }
+
+    /**
+     * Test a sleeping culled body that's woken by contact: it simulates until
+     * the next check re-culls it, which saves its new velocities.
+     */
+    @Test
+    public void testWokenByContact() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = createSpace();
+        PhysicsRigidBody target = createBall(space, new Vector3f(0f, 0f, 0f));
+        target.setRestitution(1f);
+        PhysicsRigidBody striker
+                = createBall(space, new Vector3f(-2f, 0f, 0f));
+        striker.setRestitution(1f);
+        striker.setLinearVelocity(new Vector3f(5f, 0f, 0f));
+
+        SimulationLod lod
+                = new SimulationLod(SimulationLod.CullMode.SLEEP, 1f, 4f);
+        Vector3f point = new Vector3f(-5f, 0f, 0f);
+        lod.addInterestPoint(point);
+        space.addTickListener(lod);
+
+        space.update(timeStep, 1);
+        Assert.assertTrue(lod.isCulled(target));
+        Assert.assertFalse(lod.isCulled(striker));
+
+        boolean sawWoken = false;
+        for (int i = 0; i < 30; ++i) {
+            space.update(timeStep, 1);
+            if (!lod.isCulled(target)) {
+                sawWoken = true;
+            }
+        }
+        Assert.assertTrue(sawWoken);
+        Assert.assertTrue(lod.isCulled(target));
+        Assert.assertTrue(target.getPhysicsLocation(null).x > 0f);
+        /*
+         * Restoring the target re-applies the velocity it was re-culled with.
+         */
+        point.set(target.getPhysicsLocation(null));
+        space.update(timeStep, 1);
+        Assert.assertFalse(lod.isCulled(target));
+        Assert.assertTrue(target.getLinearVelocity(null).x > 1f);
+
+        space.removeTickListener(lod);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a dynamic ball and add it to the specified space.
+     *
+     * @param space the space to add to (not null)
+     * @param location the initial location (not null, unaffected)
+     * @return a new body (not null)
+     */
+    private static PhysicsRigidBody createBall(PhysicsSpace space,
+            Vector3f location) {
+        PhysicsRigidBody result
+                = new PhysicsRigidBody(new SphereCollisionShape(0.5f), 1f);
+        result.setPhysicsLocation(location);
+        space.addCollisionObject(result);
+
+        return result;
+    }
+
+    /**
+     * Create a space without gravity.
+     *
+     * @return a new space (not null)
+     */
+    private static PhysicsSpace createSpace() {
+        PhysicsSpace result
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        result.setGravity(new Vector3f(0f, 0f, 0f));
+
+        return result;
+    }
+}
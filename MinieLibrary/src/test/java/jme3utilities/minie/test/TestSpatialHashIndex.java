@@ -0,0 +1,176 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+import com.jme3.bullet.CollisionObjectSlots;
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SpatialHashIndex;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.nio.IntBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test queries of a spatial hash index.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSpatialHashIndex {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test queries in the presence of an oversized object.
+     */
+    @Test
+    public void testOversized() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        float mass = PhysicsRigidBody.massForStatic;
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        PhysicsRigidBody floor = new PhysicsRigidBody(
+                new BoxCollisionShape(100f, 1f, 100f), mass);
+        floor.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        int floorSlot = slots.add(floor);
+
+        SphereCollisionShape shape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody[] bodies = new PhysicsRigidBody[5];
+        for (int i = 0; i < bodies.length; ++i) {
+            bodies[i] = new PhysicsRigidBody(shape, mass);
+            bodies[i].setPhysicsLocation(new Vector3f(3f * i, 5f, 0f));
+            slots.add(bodies[i]);
+        }
+
+        SpatialHashIndex index = new SpatialHashIndex(slots, 2f);
+        index.update();
+        Assert.assertEquals(bodies.length + 1, index.countIndexed());
+
+        IntBuffer found = IntBuffer.allocate(bodies.length + 1);
+        int numFound = index.querySphere(new Vector3f(6f, 5f, 0f), 1f, found);
+        Assert.assertEquals(1, numFound);
+        Assert.assertEquals(slots.slotOf(bodies[2]), found.get(0));
+
+        numFound = index.querySphere(new Vector3f(90f, 0f, 90f), 1f, found);
+        Assert.assertEquals(1, numFound);
+        Assert.assertEquals(floorSlot, found.get(0));
+
+        slots.remove(floor);
+        index.update();
+        Assert.assertEquals(bodies.length, index.countIndexed());
+        numFound = index.querySphere(new Vector3f(90f, 0f, 90f), 1f, found);
+        Assert.assertEquals(0, numFound);
+    }
+
+    /**
+     * Test sphere and box queries against a row of static spheres.
+     */
+    @Test
+    public void testSpatialHashIndex() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        SphereCollisionShape shape = new SphereCollisionShape(0.5f);
+        float mass = PhysicsRigidBody.massForStatic;
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        PhysicsRigidBody[] bodies = new PhysicsRigidBody[10];
+        for (int i = 0; i < bodies.length; ++i) {
+            bodies[i] = new PhysicsRigidBody(shape, mass);
+            bodies[i].setPhysicsLocation(new Vector3f(3f * i, 0f, 0f));
+            slots.add(bodies[i]);
+        }
+
+        SpatialHashIndex index = new SpatialHashIndex(slots, 2f);
+        index.update();
+        Assert.assertEquals(bodies.length, index.countIndexed());
+
+        IntBuffer found = IntBuffer.allocate(bodies.length);
+        Vector3f center = new Vector3f(6f, 1f, 0f);
+        int numFound = index.querySphere(center, 1.2f, found);
+        Assert.assertEquals(1, numFound);
+        Assert.assertEquals(slots.slotOf(bodies[2]), found.get(0));
+
+        numFound = index.queryBox(new Vector3f(-1f, -1f, -1f),
+                new Vector3f(100f, 1f, 1f), found);
+        Assert.assertEquals(bodies.length, numFound);
+        /*
+         * Removed objects drop out; teleported static objects need
+         * invalidation.
+         */
+        slots.remove(bodies[2]);
+        int slot3 = slots.slotOf(bodies[3]);
+        bodies[3].setPhysicsLocation(new Vector3f(6f, 0f, 0f));
+        index.invalidate(slot3);
+        index.update();
+        Assert.assertEquals(bodies.length - 1, index.countIndexed());
+
+        numFound = index.querySphere(center, 1.2f, found);
+        Assert.assertEquals(1, numFound);
+        Assert.assertEquals(slot3, found.get(0));
+    }
+
+    /**
+     * Test that a sleeping body woken by contact is re-read.
+     */
+    @Test
+    public void testWakeByContact() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        space.setGravity(new Vector3f(0f, 0f, 0f));
+
+        SphereCollisionShape shape = new SphereCollisionShape(0.5f);
+        PhysicsRigidBody sleeper = new PhysicsRigidBody(shape, 1f);
+        sleeper.setRestitution(1f);
+        space.addCollisionObject(sleeper);
+        sleeper.deactivate();
+
+        PhysicsRigidBody striker = new PhysicsRigidBody(shape, 1f);
+        striker.setRestitution(1f);
+        striker.setPhysicsLocation(new Vector3f(-2f, 0f, 0f));
+        striker.setLinearVelocity(new Vector3f(5f, 0f, 0f));
+        space.addCollisionObject(striker);
+
+        CollisionObjectSlots slots = new CollisionObjectSlots(4);
+        int sleeperSlot = slots.add(sleeper);
+        slots.add(striker);
+        SpatialHashIndex index = new SpatialHashIndex(slots, 2f);
+        space.setSpatialIndex(index);
+
+        for (int i = 0; i < 60; ++i) {
+            space.update(1f / 60f, 1);
+        }
+        Vector3f location = sleeper.getPhysicsLocation(null);
+        Assert.assertTrue(location.x > 2f);
+
+        IntBuffer found = IntBuffer.allocate(2);
+        int numFound = index.querySphere(location, 0.1f, found);
+        Assert.assertEquals(1, numFound);
+        Assert.assertEquals(sleeperSlot, found.get(0));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.SubstepGovernor;
+import com.jme3.bullet.SubstepGovernorListener;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the transitions of a SubstepGovernor between full-speed and degraded
+ * simulation.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestSubstepGovernor {
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of simulationDegraded() notifications received
+     */
+    private int numDegradedCalls = 0;
+    /**
+     * number of simulationRestored() notifications received
+     */
+    private int numRestoredCalls = 0;
+    /**
+     * substep limit reported by the most recent notification
+     */
+    private int reportedLimit = 0;
+    /**
+     * time scale reported by the most recent simulationDegraded()
+     */
+    private float reportedScale = 0f;
+    /**
+     * simulated cost of each substep (in milliseconds, &ge;0)
+     */
+    private long sleepMillis = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test degrading when substeps exceed the budget and restoring once they
+     * become cheap again.
+     */
+    @Test
+    public void testSubstepGovernor() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        Assert.assertEquals(4, space.maxSubSteps());
+        float accuracy = space.getAccuracy();
+        float requested = 3.5f * accuracy;
+        space.addTickListener(new PhysicsTickListener() {
+            @Override
+            public void physicsTick(PhysicsSpace space, float timeStep) {
+                // do nothing
+            }
+
+            @Override
+            public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                if (sleepMillis > 0L) {
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException exception) {
+                        throw new RuntimeException(exception);
+                    }
+                }
+            }
+        });
+
+        SubstepGovernor governor = new SubstepGovernor(0.02f);
+        governor.addListener(new SubstepGovernorListener() {
+            @Override
+            public void simulationDegraded(PhysicsSpace space,
+                    int substepLimit, float timeScale) {
+                ++numDegradedCalls;
+                reportedLimit = substepLimit;
+                reportedScale = timeScale;
+            }
+
+            @Override
+            public void simulationRestored(PhysicsSpace space,
+                    int substepLimit) {
+                ++numRestoredCalls;
+                reportedLimit = substepLimit;
+            }
+        });
+        space.setGovernor(governor);
+        /*
+         * With no measurements yet, the first update is unrestricted,
+         * even though each substep costs 15 msec.
+         */
+        sleepMillis = 15L;
+        space.update(requested);
+        Assert.assertFalse(governor.isDegraded());
+        Assert.assertEquals(0L, governor.countDegradedUpdates());
+        Assert.assertEquals(4, governor.substepLimit());
+        Assert.assertEquals(1f, governor.timeScale(), 0f);
+        Assert.assertEquals(0, numDegradedCalls);
+        /*
+         * A 20-msec budget affords only 1 substep at that cost,
+         * so the next update discards time and notifies the listener.
+         */
+        space.update(requested);
+        Assert.assertTrue(governor.isDegraded());
+        Assert.assertEquals(1L, governor.countDegradedUpdates());
+        Assert.assertEquals(1, governor.substepLimit());
+        Assert.assertEquals(1f / 3.5f, governor.timeScale(), 1e-5f);
+        Assert.assertEquals(1, numDegradedCalls);
+        Assert.assertEquals(1, reportedLimit);
+        Assert.assertEquals(governor.timeScale(), reportedScale, 0f);
+        /*
+         * Remaining degraded doesn't notify the listener again.
+         */
+        space.update(requested);
+        Assert.assertTrue(governor.isDegraded());
+        Assert.assertEquals(2L, governor.countDegradedUpdates());
+        Assert.assertEquals(1, numDegradedCalls);
+        Assert.assertEquals(0, numRestoredCalls);
+        /*
+         * Once substeps become cheap, the smoothed cost decays
+         * and full speed is restored.
+         */
+        sleepMillis = 0L;
+        for (int i = 0; i < 100 && governor.isDegraded(); ++i) {
+            space.update(requested);
+        }
+        Assert.assertFalse(governor.isDegraded());
+        Assert.assertEquals(1f, governor.timeScale(), 0f);
+        Assert.assertEquals(4, governor.substepLimit());
+        Assert.assertEquals(1, numDegradedCalls);
+        Assert.assertEquals(1, numRestoredCalls);
+        Assert.assertEquals(4, reportedLimit);
+
+        long numDegraded = governor.countDegradedUpdates();
+        Assert.assertTrue(numDegraded >= 2L);
+        /*
+         * Remaining at full speed doesn't notify the listener again.
+         */
+        space.update(requested);
+        Assert.assertFalse(governor.isDegraded());
+        Assert.assertEquals(numDegraded, governor.countDegradedUpdates());
+        Assert.assertEquals(1, numRestoredCalls);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.util.VhacdCache;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NativeLibraryLoader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import vhacd.VHACDParameters;
+
+/**
+ * Test the file format and validation of VhacdCache.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestVhacdCache {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test that a cache file round-trips and that invalid files are discarded
+     * and rewritten.
+     *
+     * @throws IOException if the temporary directory couldn't be accessed
+     */
+    @Test
+    public void testVhacdCache() throws IOException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Node model = new Node("model");
+        Geometry base = new Geometry("base", new Box(2f, 0.5f, 2f));
+        Geometry post = new Geometry("post", new Box(0.5f, 2f, 0.5f));
+        post.move(0f, 2.5f, 0f);
+        model.attachChild(base);
+        model.attachChild(post);
+        VHACDParameters parameters = new VHACDParameters();
+
+        File directory = Files.createTempDirectory("vhacd").toFile();
+        try {
+            VhacdCache cache = new VhacdCache(directory);
+            /*
+             * The first request computes and writes a single cache file,
+             * leaving no temporary file behind.
+             */
+            CompoundCollisionShape computed
+                    = cache.createVhacdShape(model, parameters, null);
+            Assert.assertEquals(0, cache.countHits());
+            Assert.assertEquals(1, cache.countMisses());
+            File[] files = directory.listFiles();
+            Assert.assertEquals(1, files.length);
+            File file = files[0];
+            Assert.assertTrue(file.getName().endsWith(VhacdCache.extension));
+
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            verifyFormat(bytes, computed);
+            /*
+             * The second request reads the file back.
+             */
+            CompoundCollisionShape loaded
+                    = cache.createVhacdShape(model, parameters, null);
+            Assert.assertEquals(1, cache.countHits());
+            Assert.assertEquals(1, cache.countMisses());
+            assertSameHulls(computed, loaded);
+            /*
+             * A file with the wrong identifier is discarded and rewritten.
+             */
+            byte[] badMagic = bytes.clone();
+            badMagic[0] ^= 0x20;
+            Files.write(file.toPath(), badMagic);
+            loaded = cache.createVhacdShape(model, parameters, null);
+            Assert.assertEquals(1, cache.countHits());
+            Assert.assertEquals(2, cache.countMisses());
+            verifyFormat(Files.readAllBytes(file.toPath()), loaded);
+            /*
+             * So is a truncated file.
+             */
+            byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+            Files.write(file.toPath(), truncated);
+            loaded = cache.createVhacdShape(model, parameters, null);
+            Assert.assertEquals(1, cache.countHits());
+            Assert.assertEquals(3, cache.countMisses());
+            verifyFormat(Files.readAllBytes(file.toPath()), loaded);
+            /*
+             * The rewritten file is valid.
+             */
+            CompoundCollisionShape reloaded
+                    = cache.createVhacdShape(model, parameters, null);
+            assertSameHulls(loaded, reloaded);
+            Assert.assertEquals(2, cache.countHits());
+            Assert.assertEquals(3, cache.countMisses());
+            Assert.assertEquals(1, directory.listFiles().length);
+        } finally {
+            for (File file : directory.listFiles()) {
+                if (!file.delete()) { // still mapped, on some platforms
+                    file.deleteOnExit();
+                }
+            }
+            if (!directory.delete()) {
+                directory.deleteOnExit();
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that 2 compound shapes have matching hulls.
+     *
+     * @param expected the expected shape (not null, unaffected)
+     * @param actual the shape to verify (not null, unaffected)
+     */
+    private static void assertSameHulls(CompoundCollisionShape expected,
+            CompoundCollisionShape actual) {
+        ChildCollisionShape[] expectedChildren = expected.listChildren();
+        ChildCollisionShape[] actualChildren = actual.listChildren();
+        Assert.assertEquals(expectedChildren.length, actualChildren.length);
+
+        for (int i = 0; i < expectedChildren.length; ++i) {
+            HullCollisionShape expectedHull
+                    = (HullCollisionShape) expectedChildren[i].getShape();
+            HullCollisionShape actualHull
+                    = (HullCollisionShape) actualChildren[i].getShape();
+            Assert.assertTrue(Arrays.equals(expectedHull.copyHullVertices(),
+                    actualHull.copyHullVertices()));
+        }
+    }
+
+    /**
+     * Verify the layout of a cache file: a little-endian header of "VHC1",
+     * the hull count, and the float count of each hull, followed by the
+     * vertex coordinates.
+     *
+     * @param bytes the file contents (not null, unaffected)
+     * @param shape the shape the file was written for (not null, unaffected)
+     */
+    private static void verifyFormat(byte[] bytes,
+            CompoundCollisionShape shape) {
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(0x56484331, data.getInt());
+
+        int numHulls = data.getInt();
+        Assert.assertEquals(shape.countChildren(), numHulls);
+        Assert.assertTrue(numHulls > 0);
+
+        int totalFloats = 0;
+        for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+            int numFloats = data.getInt();
+            Assert.assertTrue(numFloats > 0);
+            Assert.assertEquals(0, numFloats % 3);
+            totalFloats += numFloats;
+        }
+        Assert.assertEquals(4 * (2 + numHulls + totalFloats), bytes.length);
+
+        for (int i = 0; i < totalFloats; ++i) {
+            float coordinate = data.getFloat();
+            Assert.assertFalse(Float.isNaN(coordinate));
+        }
+        Assert.assertFalse(data.hasRemaining());
+    }
+}
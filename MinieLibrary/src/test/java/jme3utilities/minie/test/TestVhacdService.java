@@ -0,0 +1,197 @@
+/*
+ Copyright (c) 2020, Stephen Gold
+ All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+ notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+ notice, this list of conditions and the following disclaimer in the
+ documentation and/or other materials provided with the distribution.
+ * Neither the name of the copyright holder nor the names of its contributors
+ may be used to endorse or promote products derived from this software without
+ specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.HullCollisionShape;
+import com.jme3.bullet.collision.shapes.infos.ChildCollisionShape;
+import com.jme3.bullet.util.CollisionShapeFactory;
+import com.jme3.bullet.util.VhacdService;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Node;
+import com.jme3.scene.shape.Box;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import vhacd.VHACDParameters;
+import vhacd.VHACDProgressListener;
+
+/**
+ * Test concurrent V-HACD decompositions using VhacdService.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestVhacdService {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test 2 decompositions running at the same time, each with its own
+     * progress listener.
+     *
+     * @throws ExecutionException if a decomposition failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void testVhacdService()
+            throws ExecutionException, InterruptedException {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        Node near = createModel("near", 0f);
+        Node far = createModel("far", 100f);
+        VHACDParameters parameters = new VHACDParameters();
+        /*
+         * Each listener waits (on its first update) for the other job
+         * to start, so the 2 jobs are known to overlap.
+         */
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Set<Thread> nearThreads
+                = Collections.synchronizedSet(new HashSet<Thread>());
+        Set<Thread> farThreads
+                = Collections.synchronizedSet(new HashSet<Thread>());
+        VHACDProgressListener nearListener
+                = createListener(bothStarted, nearThreads);
+        VHACDProgressListener farListener
+                = createListener(bothStarted, farThreads);
+
+        VhacdService service = new VhacdService(2);
+        Assert.assertEquals(2, service.countThreads());
+        Future<CompoundCollisionShape> nearFuture
+                = service.submit(near, parameters, nearListener);
+        Future<CompoundCollisionShape> farFuture
+                = service.submit(far, parameters, farListener);
+        CompoundCollisionShape nearShape = nearFuture.get();
+        CompoundCollisionShape farShape = farFuture.get();
+        service.shutdown();
+        Assert.assertEquals(0L, bothStarted.getCount());
+        /*
+         * Each listener heard only from the worker running its own job.
+         */
+        Assert.assertEquals(1, nearThreads.size());
+        Assert.assertEquals(1, farThreads.size());
+        Assert.assertFalse(nearThreads.containsAll(farThreads));
+        Assert.assertFalse(nearThreads.contains(Thread.currentThread()));
+        /*
+         * Each Future holds the hulls of its own model.
+         */
+        assertHulls(near, parameters, nearShape, -50f, 50f);
+        assertHulls(far, parameters, farShape, 50f, 150f);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that a compound shape matches a sequential decomposition of the
+     * specified model and that its hull vertices lie within the specified
+     * range of X coordinates.
+     *
+     * @param model the model that was decomposed (not null, unaffected)
+     * @param parameters the tuning parameters used (not null, unaffected)
+     * @param shape the shape to verify (not null, unaffected)
+     * @param minX the minimum X coordinate
+     * @param maxX the maximum X coordinate
+     */
+    private static void assertHulls(Node model, VHACDParameters parameters,
+            CompoundCollisionShape shape, float minX, float maxX) {
+        CompoundCollisionShape sequential
+                = CollisionShapeFactory.createVhacdShape(model, parameters,
+                        null);
+        ChildCollisionShape[] children = shape.listChildren();
+        Assert.assertTrue(children.length > 0);
+        Assert.assertEquals(sequential.countChildren(), children.length);
+
+        for (ChildCollisionShape child : children) {
+            HullCollisionShape hull = (HullCollisionShape) child.getShape();
+            float[] vertices = hull.copyHullVertices();
+            for (int i = 0; i < vertices.length; i += 3) {
+                Assert.assertTrue(vertices[i] > minX);
+                Assert.assertTrue(vertices[i] < maxX);
+            }
+        }
+    }
+
+    /**
+     * Create a progress listener that records the threads invoking it and
+     * waits, on its first update, for the specified latch to open.
+     *
+     * @param latch the latch to count down and await (not null)
+     * @param threads storage for the invoking threads (not null, modified)
+     * @return a new listener
+     */
+    private static VHACDProgressListener createListener(
+            final CountDownLatch latch, final Set<Thread> threads) {
+        VHACDProgressListener result = new VHACDProgressListener() {
+            @Override
+            public void update(double overallPercent, double stagePercent,
+                    double operationPercent, String stageName,
+                    String operationName) {
+                boolean isFirst = threads.isEmpty();
+                threads.add(Thread.currentThread());
+                if (isFirst) {
+                    latch.countDown();
+                    try {
+                        latch.await(10L, TimeUnit.SECONDS);
+                    } catch (InterruptedException exception) {
+                        throw new RuntimeException(exception);
+                    }
+                }
+            }
+        };
+
+        return result;
+    }
+
+    /**
+     * Create a model containing an L-shaped part, offset along the X axis
+     * relative to the model root.
+     *
+     * @param name the name for the model
+     * @param offsetX the offset (in model coordinates)
+     * @return a new Node
+     */
+    private static Node createModel(String name, float offsetX) {
+        Node part = new Node(name + " part");
+        Geometry base = new Geometry(name + " base", new Box(3f, 0.5f, 1f));
+        Geometry post = new Geometry(name + " post", new Box(0.5f, 3f, 1f));
+        post.move(-2.5f, 3.5f, 0f);
+        part.attachChild(base);
+        part.attachChild(post);
+        part.move(offsetX, 0f, 0f);
+
+        Node result = new Node(name);
+        result.attachChild(part);
+
+        return result;
+    }
+}